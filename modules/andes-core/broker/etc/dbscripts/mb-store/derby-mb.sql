@@ -0,0 +1,209 @@
+-- WSO2 Message Broker Apache Derby Database schema --
+
+-- Start of Message Store Tables --
+
+CREATE TABLE MB_QUEUE_MAPPING (
+                QUEUE_ID INTEGER GENERATED BY DEFAULT AS IDENTITY,
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                PRIMARY KEY (QUEUE_ID),
+                UNIQUE (QUEUE_NAME)
+);
+
+CREATE TABLE MB_METADATA (
+                MESSAGE_ID BIGINT NOT NULL,
+                QUEUE_ID INTEGER NOT NULL,
+                DLC_QUEUE_ID INTEGER NOT NULL,
+                MESSAGE_METADATA BLOB,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (QUEUE_ID) REFERENCES MB_QUEUE_MAPPING (QUEUE_ID)
+);
+
+CREATE INDEX MB_METADATA_QUEUE_INDEX ON MB_METADATA (QUEUE_ID, DLC_QUEUE_ID, MESSAGE_ID);
+
+CREATE INDEX MB_METADATA_DLC_QUEUE_INDEX ON MB_METADATA (DLC_QUEUE_ID);
+
+CREATE TABLE MB_CONTENT (
+                MESSAGE_ID BIGINT NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT BLOB NOT NULL,
+                PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+);
+
+CREATE TABLE MB_SHARED_CONTENT (
+                CONTENT_ID BIGINT NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT BLOB NOT NULL,
+                PRIMARY KEY (CONTENT_ID, CONTENT_OFFSET)
+);
+
+CREATE TABLE MB_CONTENT_REFERENCE (
+                MESSAGE_ID BIGINT NOT NULL,
+                CONTENT_ID BIGINT NOT NULL,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+);
+
+CREATE INDEX MB_CONTENT_REFERENCE_CONTENT_INDEX ON MB_CONTENT_REFERENCE (CONTENT_ID);
+
+CREATE TABLE MB_SHARED_METADATA (
+                CONTENT_ID BIGINT NOT NULL,
+                MESSAGE_METADATA BLOB NOT NULL,
+                PRIMARY KEY (CONTENT_ID)
+);
+
+CREATE TABLE MB_EXPIRATION_DATA (
+                MESSAGE_ID BIGINT NOT NULL,
+                EXPIRATION_TIME BIGINT,
+                DLC_QUEUE_ID INTEGER NOT NULL,
+                MESSAGE_DESTINATION VARCHAR(512) NOT NULL,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+);
+
+CREATE TABLE MB_RETAINED_METADATA (
+                TOPIC_ID INTEGER NOT NULL,
+                TOPIC_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                MESSAGE_METADATA BLOB NOT NULL,
+                PRIMARY KEY (TOPIC_ID)
+);
+
+CREATE TABLE MB_RETAINED_CONTENT (
+                MESSAGE_ID BIGINT NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT BLOB NOT NULL,
+                PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET)
+);
+
+CREATE TABLE MB_MSG_STORE_STATUS (
+                NODE_ID VARCHAR(512) NOT NULL,
+                TIME_STAMP BIGINT NOT NULL,
+                PRIMARY KEY (NODE_ID, TIME_STAMP)
+);
+
+-- End of Message Store Tables --
+
+-- Start of Andes Context Store Tables --
+
+CREATE TABLE MB_DURABLE_SUBSCRIPTION (
+                SUBSCRIPTION_ID VARCHAR(512) NOT NULL,
+                DESTINATION_IDENTIFIER VARCHAR(512) NOT NULL,
+                SUBSCRIPTION_DATA VARCHAR(2048) NOT NULL
+);
+
+CREATE TABLE MB_NODE (
+                NODE_ID VARCHAR(512) NOT NULL,
+                NODE_DATA VARCHAR(2048) NOT NULL,
+                PRIMARY KEY (NODE_ID)
+);
+
+CREATE TABLE MB_EXCHANGE (
+                EXCHANGE_NAME VARCHAR(512) NOT NULL,
+                EXCHANGE_DATA VARCHAR(2048) NOT NULL,
+                PRIMARY KEY (EXCHANGE_NAME)
+);
+
+CREATE TABLE MB_QUEUE (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                QUEUE_DATA VARCHAR(2048) NOT NULL,
+                PRIMARY KEY (QUEUE_NAME)
+);
+
+CREATE TABLE MB_BINDING (
+                EXCHANGE_NAME VARCHAR(512) NOT NULL,
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                BINDING_DETAILS VARCHAR(2048) NOT NULL,
+                FOREIGN KEY (EXCHANGE_NAME) REFERENCES MB_EXCHANGE (EXCHANGE_NAME),
+                FOREIGN KEY (QUEUE_NAME) REFERENCES MB_QUEUE (QUEUE_NAME)
+                ON DELETE CASCADE
+);
+
+CREATE TABLE MB_QUEUE_COUNTER (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_COUNT BIGINT,
+                PRIMARY KEY (QUEUE_NAME)
+);
+
+CREATE TABLE MB_SLOT (
+                SLOT_ID BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                START_MESSAGE_ID BIGINT NOT NULL,
+                END_MESSAGE_ID BIGINT NOT NULL,
+                STORAGE_QUEUE_NAME VARCHAR(512) NOT NULL,
+                SLOT_STATE SMALLINT DEFAULT 1 NOT NULL,
+                ASSIGNED_NODE_ID VARCHAR(512),
+                ASSIGNED_QUEUE_NAME VARCHAR(512),
+                PRIMARY KEY (SLOT_ID)
+);
+
+CREATE INDEX MB_SLOT_MESSAGE_ID_INDEX ON MB_SLOT (START_MESSAGE_ID, END_MESSAGE_ID);
+
+CREATE INDEX MB_SLOT_QUEUE_INDEX ON MB_SLOT (STORAGE_QUEUE_NAME);
+
+CREATE TABLE MB_SLOT_MESSAGE_ID (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                PRIMARY KEY (QUEUE_NAME, MESSAGE_ID)
+);
+
+CREATE TABLE MB_NODE_TO_LAST_PUBLISHED_ID (
+                NODE_ID VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                PRIMARY KEY (NODE_ID)
+);
+
+CREATE TABLE MB_QUEUE_TO_LAST_ASSIGNED_ID (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                PRIMARY KEY (QUEUE_NAME)
+);
+
+CREATE TABLE MB_SLOT_CHECKPOINT (
+                STORAGE_QUEUE_NAME VARCHAR(512) NOT NULL,
+                START_MESSAGE_ID BIGINT NOT NULL,
+                END_MESSAGE_ID BIGINT NOT NULL,
+                MESSAGE_COUNT INTEGER NOT NULL,
+                PRIMARY KEY (STORAGE_QUEUE_NAME, END_MESSAGE_ID)
+);
+
+CREATE TABLE MB_COORDINATOR_HEARTBEAT (
+                ANCHOR INTEGER NOT NULL,
+                NODE_ID VARCHAR(512) NOT NULL,
+                LAST_HEARTBEAT BIGINT NOT NULL,
+                THRIFT_HOST VARCHAR(512),
+                THRIFT_PORT INTEGER,
+                PRIMARY KEY (ANCHOR)
+);
+
+CREATE TABLE MB_NODE_HEARTBEAT (
+                NODE_ID VARCHAR(512) NOT NULL,
+                LAST_HEARTBEAT BIGINT NOT NULL,
+                IS_NEW_NODE SMALLINT NOT NULL,
+                CLUSTER_AGENT_HOST VARCHAR(512) NOT NULL,
+                CLUSTER_AGENT_PORT INTEGER NOT NULL,
+                PRIMARY KEY (NODE_ID)
+);
+
+CREATE TABLE MB_MEMBERSHIP (
+                EVENT_ID BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                NODE_ID VARCHAR(512) NOT NULL,
+                CHANGE_TYPE SMALLINT NOT NULL,
+                CHANGED_MEMBER_ID VARCHAR(512) NOT NULL,
+                PRIMARY KEY (EVENT_ID)
+);
+
+CREATE TABLE MB_CLUSTER_EVENT (
+                EVENT_ID BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                ORIGINATED_NODE_ID VARCHAR(512) NOT NULL,
+                DESTINED_NODE_ID VARCHAR(512) NOT NULL,
+                EVENT_ARTIFACT VARCHAR(25) NOT NULL,
+                EVENT_TYPE VARCHAR(25) NOT NULL,
+                EVENT_DETAILS VARCHAR(1024),
+                EVENT_DESCRIPTION VARCHAR(1024),
+                PRIMARY KEY (EVENT_ID)
+);
+
+-- End of Andes Context Store Tables --
@@ -0,0 +1,239 @@
+-- WSO2 Message Broker Microsoft SQL Server Database schema --
+
+-- Start of Message Store Tables --
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_QUEUE_MAPPING]') AND TYPE IN (N'U'))
+CREATE TABLE MB_QUEUE_MAPPING (
+                QUEUE_ID INTEGER IDENTITY(1,1) NOT NULL,
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                PRIMARY KEY (QUEUE_ID),
+                UNIQUE (QUEUE_NAME)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_METADATA]') AND TYPE IN (N'U'))
+CREATE TABLE MB_METADATA (
+                MESSAGE_ID BIGINT NOT NULL,
+                QUEUE_ID INTEGER NOT NULL,
+                DLC_QUEUE_ID INTEGER NOT NULL,
+                MESSAGE_METADATA VARBINARY(MAX),
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (QUEUE_ID) REFERENCES MB_QUEUE_MAPPING (QUEUE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'MB_METADATA_QUEUE_INDEX')
+CREATE INDEX MB_METADATA_QUEUE_INDEX ON MB_METADATA (QUEUE_ID, DLC_QUEUE_ID, MESSAGE_ID);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'MB_METADATA_DLC_QUEUE_INDEX')
+CREATE INDEX MB_METADATA_DLC_QUEUE_INDEX ON MB_METADATA (DLC_QUEUE_ID);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_CONTENT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_CONTENT (
+                MESSAGE_ID BIGINT NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT VARBINARY(MAX) NOT NULL,
+                PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_SHARED_CONTENT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_SHARED_CONTENT (
+                CONTENT_ID BIGINT NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT VARBINARY(MAX) NOT NULL,
+                PRIMARY KEY (CONTENT_ID, CONTENT_OFFSET)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_CONTENT_REFERENCE]') AND TYPE IN (N'U'))
+CREATE TABLE MB_CONTENT_REFERENCE (
+                MESSAGE_ID BIGINT NOT NULL,
+                CONTENT_ID BIGINT NOT NULL,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'MB_CONTENT_REFERENCE_CONTENT_INDEX')
+CREATE INDEX MB_CONTENT_REFERENCE_CONTENT_INDEX ON MB_CONTENT_REFERENCE (CONTENT_ID);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_SHARED_METADATA]') AND TYPE IN (N'U'))
+CREATE TABLE MB_SHARED_METADATA (
+                CONTENT_ID BIGINT NOT NULL,
+                MESSAGE_METADATA VARBINARY(MAX) NOT NULL,
+                PRIMARY KEY (CONTENT_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_EXPIRATION_DATA]') AND TYPE IN (N'U'))
+CREATE TABLE MB_EXPIRATION_DATA (
+                MESSAGE_ID BIGINT NOT NULL,
+                EXPIRATION_TIME BIGINT,
+                DLC_QUEUE_ID INTEGER NOT NULL,
+                MESSAGE_DESTINATION VARCHAR(512) NOT NULL,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_RETAINED_METADATA]') AND TYPE IN (N'U'))
+CREATE TABLE MB_RETAINED_METADATA (
+                TOPIC_ID INTEGER NOT NULL,
+                TOPIC_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                MESSAGE_METADATA VARBINARY(MAX) NOT NULL,
+                PRIMARY KEY (TOPIC_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_RETAINED_CONTENT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_RETAINED_CONTENT (
+                MESSAGE_ID BIGINT NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT VARBINARY(MAX) NOT NULL,
+                PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_MSG_STORE_STATUS]') AND TYPE IN (N'U'))
+CREATE TABLE MB_MSG_STORE_STATUS (
+                NODE_ID VARCHAR(512) NOT NULL,
+                TIME_STAMP BIGINT NOT NULL,
+                PRIMARY KEY (NODE_ID, TIME_STAMP)
+);
+
+-- End of Message Store Tables --
+
+-- Start of Andes Context Store Tables --
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_DURABLE_SUBSCRIPTION]') AND TYPE IN (N'U'))
+CREATE TABLE MB_DURABLE_SUBSCRIPTION (
+                SUBSCRIPTION_ID VARCHAR(512) NOT NULL,
+                DESTINATION_IDENTIFIER VARCHAR(512) NOT NULL,
+                SUBSCRIPTION_DATA VARCHAR(2048) NOT NULL
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_NODE]') AND TYPE IN (N'U'))
+CREATE TABLE MB_NODE (
+                NODE_ID VARCHAR(512) NOT NULL,
+                NODE_DATA VARCHAR(2048) NOT NULL,
+                PRIMARY KEY (NODE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_EXCHANGE]') AND TYPE IN (N'U'))
+CREATE TABLE MB_EXCHANGE (
+                EXCHANGE_NAME VARCHAR(512) NOT NULL,
+                EXCHANGE_DATA VARCHAR(2048) NOT NULL,
+                PRIMARY KEY (EXCHANGE_NAME)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_QUEUE]') AND TYPE IN (N'U'))
+CREATE TABLE MB_QUEUE (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                QUEUE_DATA VARCHAR(2048) NOT NULL,
+                PRIMARY KEY (QUEUE_NAME)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_BINDING]') AND TYPE IN (N'U'))
+CREATE TABLE MB_BINDING (
+                EXCHANGE_NAME VARCHAR(512) NOT NULL,
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                BINDING_DETAILS VARCHAR(2048) NOT NULL,
+                FOREIGN KEY (EXCHANGE_NAME) REFERENCES MB_EXCHANGE (EXCHANGE_NAME),
+                FOREIGN KEY (QUEUE_NAME) REFERENCES MB_QUEUE (QUEUE_NAME)
+                ON DELETE CASCADE
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_QUEUE_COUNTER]') AND TYPE IN (N'U'))
+CREATE TABLE MB_QUEUE_COUNTER (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_COUNT BIGINT,
+                PRIMARY KEY (QUEUE_NAME)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_SLOT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_SLOT (
+                SLOT_ID BIGINT IDENTITY(1,1) NOT NULL,
+                START_MESSAGE_ID BIGINT NOT NULL,
+                END_MESSAGE_ID BIGINT NOT NULL,
+                STORAGE_QUEUE_NAME VARCHAR(512) NOT NULL,
+                SLOT_STATE TINYINT DEFAULT 1 NOT NULL,
+                ASSIGNED_NODE_ID VARCHAR(512),
+                ASSIGNED_QUEUE_NAME VARCHAR(512),
+                PRIMARY KEY (SLOT_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'MB_SLOT_MESSAGE_ID_INDEX')
+CREATE INDEX MB_SLOT_MESSAGE_ID_INDEX ON MB_SLOT (START_MESSAGE_ID, END_MESSAGE_ID);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'MB_SLOT_QUEUE_INDEX')
+CREATE INDEX MB_SLOT_QUEUE_INDEX ON MB_SLOT (STORAGE_QUEUE_NAME);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_SLOT_MESSAGE_ID]') AND TYPE IN (N'U'))
+CREATE TABLE MB_SLOT_MESSAGE_ID (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                PRIMARY KEY (QUEUE_NAME, MESSAGE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_NODE_TO_LAST_PUBLISHED_ID]') AND TYPE IN (N'U'))
+CREATE TABLE MB_NODE_TO_LAST_PUBLISHED_ID (
+                NODE_ID VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                PRIMARY KEY (NODE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_QUEUE_TO_LAST_ASSIGNED_ID]') AND TYPE IN (N'U'))
+CREATE TABLE MB_QUEUE_TO_LAST_ASSIGNED_ID (
+                QUEUE_NAME VARCHAR(512) NOT NULL,
+                MESSAGE_ID BIGINT NOT NULL,
+                PRIMARY KEY (QUEUE_NAME)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_SLOT_CHECKPOINT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_SLOT_CHECKPOINT (
+                STORAGE_QUEUE_NAME VARCHAR(512) NOT NULL,
+                START_MESSAGE_ID BIGINT NOT NULL,
+                END_MESSAGE_ID BIGINT NOT NULL,
+                MESSAGE_COUNT INTEGER NOT NULL,
+                PRIMARY KEY (STORAGE_QUEUE_NAME, END_MESSAGE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_COORDINATOR_HEARTBEAT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_COORDINATOR_HEARTBEAT (
+                ANCHOR INTEGER NOT NULL,
+                NODE_ID VARCHAR(512) NOT NULL,
+                LAST_HEARTBEAT BIGINT NOT NULL,
+                THRIFT_HOST VARCHAR(512),
+                THRIFT_PORT INTEGER,
+                PRIMARY KEY (ANCHOR)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_NODE_HEARTBEAT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_NODE_HEARTBEAT (
+                NODE_ID VARCHAR(512) NOT NULL,
+                LAST_HEARTBEAT BIGINT NOT NULL,
+                IS_NEW_NODE TINYINT NOT NULL,
+                CLUSTER_AGENT_HOST VARCHAR(512) NOT NULL,
+                CLUSTER_AGENT_PORT INTEGER NOT NULL,
+                PRIMARY KEY (NODE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_MEMBERSHIP]') AND TYPE IN (N'U'))
+CREATE TABLE MB_MEMBERSHIP (
+                EVENT_ID BIGINT IDENTITY(1,1) NOT NULL,
+                NODE_ID VARCHAR(512) NOT NULL,
+                CHANGE_TYPE TINYINT NOT NULL,
+                CHANGED_MEMBER_ID VARCHAR(512) NOT NULL,
+                PRIMARY KEY (EVENT_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_CLUSTER_EVENT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_CLUSTER_EVENT (
+                EVENT_ID BIGINT IDENTITY(1,1) NOT NULL,
+                ORIGINATED_NODE_ID VARCHAR(512) NOT NULL,
+                DESTINED_NODE_ID VARCHAR(512) NOT NULL,
+                EVENT_ARTIFACT VARCHAR(25) NOT NULL,
+                EVENT_TYPE VARCHAR(25) NOT NULL,
+                EVENT_DETAILS VARCHAR(1024),
+                EVENT_DESCRIPTION VARCHAR(1024),
+                PRIMARY KEY (EVENT_ID)
+);
+
+-- End of Andes Context Store Tables --
@@ -0,0 +1,283 @@
+-- WSO2 Message Broker Oracle Database schema --
+
+-- Start of Message Store Tables --
+
+CREATE TABLE MB_QUEUE_MAPPING (
+                QUEUE_ID INTEGER NOT NULL,
+                QUEUE_NAME VARCHAR2(512) NOT NULL,
+                PRIMARY KEY (QUEUE_ID),
+                UNIQUE (QUEUE_NAME)
+)
+/
+
+CREATE SEQUENCE MB_QUEUE_MAPPING_SEQUENCE START WITH 1 INCREMENT BY 1 NOCACHE
+/
+CREATE OR REPLACE TRIGGER MB_QUEUE_MAPPING_TRIGGER
+                BEFORE INSERT ON MB_QUEUE_MAPPING
+                REFERENCING NEW AS NEW
+                FOR EACH ROW
+                BEGIN
+                    SELECT MB_QUEUE_MAPPING_SEQUENCE.nextval INTO :NEW.QUEUE_ID FROM dual;
+                END;
+/
+
+CREATE TABLE MB_METADATA (
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                QUEUE_ID INTEGER NOT NULL,
+                DLC_QUEUE_ID INTEGER NOT NULL,
+                MESSAGE_METADATA BLOB,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (QUEUE_ID) REFERENCES MB_QUEUE_MAPPING (QUEUE_ID)
+)
+/
+
+CREATE INDEX MB_METADATA_QUEUE_INDEX ON MB_METADATA (QUEUE_ID, DLC_QUEUE_ID, MESSAGE_ID)
+/
+
+CREATE INDEX MB_METADATA_DLC_QUEUE_INDEX ON MB_METADATA (DLC_QUEUE_ID)
+/
+
+CREATE TABLE MB_CONTENT (
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT BLOB NOT NULL,
+                PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+)
+/
+
+CREATE TABLE MB_SHARED_CONTENT (
+                CONTENT_ID NUMBER(19) NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT BLOB NOT NULL,
+                PRIMARY KEY (CONTENT_ID, CONTENT_OFFSET)
+)
+/
+
+CREATE TABLE MB_CONTENT_REFERENCE (
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                CONTENT_ID NUMBER(19) NOT NULL,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+)
+/
+
+CREATE INDEX MB_CONTENT_REFERENCE_CONTENT_INDEX ON MB_CONTENT_REFERENCE (CONTENT_ID)
+/
+
+CREATE TABLE MB_SHARED_METADATA (
+                CONTENT_ID NUMBER(19) NOT NULL,
+                MESSAGE_METADATA BLOB NOT NULL,
+                PRIMARY KEY (CONTENT_ID)
+)
+/
+
+CREATE TABLE MB_EXPIRATION_DATA (
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                EXPIRATION_TIME NUMBER(19),
+                DLC_QUEUE_ID INTEGER NOT NULL,
+                MESSAGE_DESTINATION VARCHAR2(512) NOT NULL,
+                PRIMARY KEY (MESSAGE_ID),
+                FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID)
+                ON DELETE CASCADE
+)
+/
+
+CREATE TABLE MB_RETAINED_METADATA (
+                TOPIC_ID INTEGER NOT NULL,
+                TOPIC_NAME VARCHAR2(512) NOT NULL,
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                MESSAGE_METADATA BLOB NOT NULL,
+                PRIMARY KEY (TOPIC_ID)
+)
+/
+
+CREATE TABLE MB_RETAINED_CONTENT (
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                CONTENT_OFFSET INTEGER NOT NULL,
+                MESSAGE_CONTENT BLOB NOT NULL,
+                PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET)
+)
+/
+
+CREATE TABLE MB_MSG_STORE_STATUS (
+                NODE_ID VARCHAR2(512) NOT NULL,
+                TIME_STAMP NUMBER(19) NOT NULL,
+                PRIMARY KEY (NODE_ID, TIME_STAMP)
+)
+/
+
+-- End of Message Store Tables --
+
+-- Start of Andes Context Store Tables --
+
+CREATE TABLE MB_DURABLE_SUBSCRIPTION (
+                SUBSCRIPTION_ID VARCHAR2(512) NOT NULL,
+                DESTINATION_IDENTIFIER VARCHAR2(512) NOT NULL,
+                SUBSCRIPTION_DATA VARCHAR2(2048) NOT NULL
+)
+/
+
+CREATE TABLE MB_NODE (
+                NODE_ID VARCHAR2(512) NOT NULL,
+                NODE_DATA VARCHAR2(2048) NOT NULL,
+                PRIMARY KEY (NODE_ID)
+)
+/
+
+CREATE TABLE MB_EXCHANGE (
+                EXCHANGE_NAME VARCHAR2(512) NOT NULL,
+                EXCHANGE_DATA VARCHAR2(2048) NOT NULL,
+                PRIMARY KEY (EXCHANGE_NAME)
+)
+/
+
+CREATE TABLE MB_QUEUE (
+                QUEUE_NAME VARCHAR2(512) NOT NULL,
+                QUEUE_DATA VARCHAR2(2048) NOT NULL,
+                PRIMARY KEY (QUEUE_NAME)
+)
+/
+
+CREATE TABLE MB_BINDING (
+                EXCHANGE_NAME VARCHAR2(512) NOT NULL,
+                QUEUE_NAME VARCHAR2(512) NOT NULL,
+                BINDING_DETAILS VARCHAR2(2048) NOT NULL,
+                FOREIGN KEY (EXCHANGE_NAME) REFERENCES MB_EXCHANGE (EXCHANGE_NAME),
+                FOREIGN KEY (QUEUE_NAME) REFERENCES MB_QUEUE (QUEUE_NAME)
+                ON DELETE CASCADE
+)
+/
+
+CREATE TABLE MB_QUEUE_COUNTER (
+                QUEUE_NAME VARCHAR2(512) NOT NULL,
+                MESSAGE_COUNT NUMBER(19),
+                PRIMARY KEY (QUEUE_NAME)
+)
+/
+
+CREATE TABLE MB_SLOT (
+                SLOT_ID NUMBER(19) NOT NULL,
+                START_MESSAGE_ID NUMBER(19) NOT NULL,
+                END_MESSAGE_ID NUMBER(19) NOT NULL,
+                STORAGE_QUEUE_NAME VARCHAR2(512) NOT NULL,
+                SLOT_STATE NUMBER(3) DEFAULT 1 NOT NULL,
+                ASSIGNED_NODE_ID VARCHAR2(512),
+                ASSIGNED_QUEUE_NAME VARCHAR2(512),
+                PRIMARY KEY (SLOT_ID)
+)
+/
+
+CREATE SEQUENCE MB_SLOT_SEQUENCE START WITH 1 INCREMENT BY 1 NOCACHE
+/
+CREATE OR REPLACE TRIGGER MB_SLOT_TRIGGER
+                BEFORE INSERT ON MB_SLOT
+                REFERENCING NEW AS NEW
+                FOR EACH ROW
+                BEGIN
+                    SELECT MB_SLOT_SEQUENCE.nextval INTO :NEW.SLOT_ID FROM dual;
+                END;
+/
+
+CREATE INDEX MB_SLOT_MESSAGE_ID_INDEX ON MB_SLOT (START_MESSAGE_ID, END_MESSAGE_ID)
+/
+
+CREATE INDEX MB_SLOT_QUEUE_INDEX ON MB_SLOT (STORAGE_QUEUE_NAME)
+/
+
+CREATE TABLE MB_SLOT_MESSAGE_ID (
+                QUEUE_NAME VARCHAR2(512) NOT NULL,
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                PRIMARY KEY (QUEUE_NAME, MESSAGE_ID)
+)
+/
+
+CREATE TABLE MB_NODE_TO_LAST_PUBLISHED_ID (
+                NODE_ID VARCHAR2(512) NOT NULL,
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                PRIMARY KEY (NODE_ID)
+)
+/
+
+CREATE TABLE MB_QUEUE_TO_LAST_ASSIGNED_ID (
+                QUEUE_NAME VARCHAR2(512) NOT NULL,
+                MESSAGE_ID NUMBER(19) NOT NULL,
+                PRIMARY KEY (QUEUE_NAME)
+)
+/
+
+CREATE TABLE MB_SLOT_CHECKPOINT (
+                STORAGE_QUEUE_NAME VARCHAR2(512) NOT NULL,
+                START_MESSAGE_ID NUMBER(19) NOT NULL,
+                END_MESSAGE_ID NUMBER(19) NOT NULL,
+                MESSAGE_COUNT INTEGER NOT NULL,
+                PRIMARY KEY (STORAGE_QUEUE_NAME, END_MESSAGE_ID)
+)
+/
+
+CREATE TABLE MB_COORDINATOR_HEARTBEAT (
+                ANCHOR INTEGER NOT NULL,
+                NODE_ID VARCHAR2(512) NOT NULL,
+                LAST_HEARTBEAT NUMBER(19) NOT NULL,
+                THRIFT_HOST VARCHAR2(512),
+                THRIFT_PORT INTEGER,
+                PRIMARY KEY (ANCHOR)
+)
+/
+
+CREATE TABLE MB_NODE_HEARTBEAT (
+                NODE_ID VARCHAR2(512) NOT NULL,
+                LAST_HEARTBEAT NUMBER(19) NOT NULL,
+                IS_NEW_NODE NUMBER(3) NOT NULL,
+                CLUSTER_AGENT_HOST VARCHAR2(512) NOT NULL,
+                CLUSTER_AGENT_PORT INTEGER NOT NULL,
+                PRIMARY KEY (NODE_ID)
+)
+/
+
+CREATE TABLE MB_MEMBERSHIP (
+                EVENT_ID NUMBER(19) NOT NULL,
+                NODE_ID VARCHAR2(512) NOT NULL,
+                CHANGE_TYPE NUMBER(3) NOT NULL,
+                CHANGED_MEMBER_ID VARCHAR2(512) NOT NULL,
+                PRIMARY KEY (EVENT_ID)
+)
+/
+
+CREATE SEQUENCE MB_MEMBERSHIP_SEQUENCE START WITH 1 INCREMENT BY 1 NOCACHE
+/
+CREATE OR REPLACE TRIGGER MB_MEMBERSHIP_TRIGGER
+                BEFORE INSERT ON MB_MEMBERSHIP
+                REFERENCING NEW AS NEW
+                FOR EACH ROW
+                BEGIN
+                    SELECT MB_MEMBERSHIP_SEQUENCE.nextval INTO :NEW.EVENT_ID FROM dual;
+                END;
+/
+
+CREATE TABLE MB_CLUSTER_EVENT (
+                EVENT_ID NUMBER(19) NOT NULL,
+                ORIGINATED_NODE_ID VARCHAR2(512) NOT NULL,
+                DESTINED_NODE_ID VARCHAR2(512) NOT NULL,
+                EVENT_ARTIFACT VARCHAR2(25) NOT NULL,
+                EVENT_TYPE VARCHAR2(25) NOT NULL,
+                EVENT_DETAILS VARCHAR2(1024),
+                EVENT_DESCRIPTION VARCHAR2(1024),
+                PRIMARY KEY (EVENT_ID)
+)
+/
+
+CREATE SEQUENCE MB_CLUSTER_EVENT_SEQUENCE START WITH 1 INCREMENT BY 1 NOCACHE
+/
+CREATE OR REPLACE TRIGGER MB_CLUSTER_EVENT_TRIGGER
+                BEFORE INSERT ON MB_CLUSTER_EVENT
+                REFERENCING NEW AS NEW
+                FOR EACH ROW
+                BEGIN
+                    SELECT MB_CLUSTER_EVENT_SEQUENCE.nextval INTO :NEW.EVENT_ID FROM dual;
+                END;
+/
+
+-- End of Andes Context Store Tables --
@@ -315,6 +315,31 @@ public class QpidAndesBridge {
         }
     }
 
+    /**
+     * Acknowledgements for a set of messages are received together by a channel (i.e. a multiple acknowledgement).
+     * Messages are handed over to Andes as a single acknowledgement
+     *
+     * @param channelID  id of the channel acknowledgements are received
+     * @param messageIDs ids of the acknowledged messages
+     * @throws AMQException
+     */
+    public static void ackReceived(UUID channelID, List<Long> messageIDs) throws AMQException {
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("ack received for " + messageIDs.size() + " messages channelId= " + channelID);
+            }
+            AndesAckData andesAckData = AndesUtils.generateAndesAckMessage(channelID, messageIDs);
+            if (null == andesAckData) {
+                return;
+            }
+            Andes.getInstance().ackReceived(andesAckData);
+        } catch (AndesException e) {
+            log.error("Exception occurred while handling ack", e);
+            throw new AMQException(AMQConstant.INTERNAL_ERROR, "Error in getting handling ack for "
+                    + messageIDs.size() + " messages", e);
+        }
+    }
+
     /**
      * Reject message is received
      * @param message message subjected to rejection
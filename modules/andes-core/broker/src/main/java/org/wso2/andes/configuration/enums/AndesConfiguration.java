@@ -70,12 +70,57 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     COORDINATOR_THRIFT_RECONNECT_TIMEOUT("coordination/thriftServerReconnectTimeout", "5", Long.class),
 
+    /**
+     * Maximum number of connections a node keeps to the thrift server of the coordinator. Slot requests of
+     * different queues are sent concurrently over separate connections up to this limit.
+     */
+    COORDINATION_THRIFT_CLIENT_POOL_SIZE("coordination/thriftClientPoolSize", "10", Integer.class),
+
+    /**
+     * Run the thrift server as a selector based non-blocking server instead of a thread per connection server.
+     * Clients then use framed transport, so all nodes of the cluster should have the same value.
+     */
+    COORDINATION_THRIFT_NON_BLOCKING_SERVER_ENABLED
+            ("coordination/thriftNonBlockingServer/@enabled", "false", Boolean.class),
+
+    /**
+     * Number of threads accepting and reading requests in the non-blocking thrift server
+     */
+    COORDINATION_THRIFT_NON_BLOCKING_SERVER_SELECTOR_THREADS
+            ("coordination/thriftNonBlockingServer/selectorThreads", "2", Integer.class),
+
+    /**
+     * Number of threads processing requests in the non-blocking thrift server
+     */
+    COORDINATION_THRIFT_NON_BLOCKING_SERVER_WORKER_THREADS
+            ("coordination/thriftNonBlockingServer/workerThreads", "16", Integer.class),
+
+    /**
+     * Spread slot coordination of queues across all nodes of the cluster instead of the coordinator alone. Each
+     * queue is coordinated by a node picked by consistent hashing over the cluster members. All nodes of the
+     * cluster should have the same value.
+     */
+    COORDINATION_SLOT_SHARDING_ENABLED("coordination/slotSharding/@enabled", "false", Boolean.class),
+
+    /**
+     * Number of points each node takes on the consistent hash ring used to pick the slot coordinator of a queue.
+     * More points spread queues more evenly. All nodes of the cluster should have the same value.
+     */
+    COORDINATION_SLOT_SHARDING_VIRTUAL_NODES
+            ("coordination/slotSharding/virtualNodesPerMember", "128", Integer.class),
+
     /**
      * We use Hazelcast reliable topics to share all notifications across the cluster (e.g. subscription changes).
      * And this property defines the time-to-live for a notification since its creation. (in Seconds)
      */
     COORDINATION_CLUSTER_NOTIFICATION_TIMEOUT("coordination/clusterNotificationTimeout", "10", Integer.class),
 
+    /**
+     * The interval at which, changes of queue message counts done by a node are notified to the other nodes of the
+     * cluster. Specified in milliseconds. Only effective if the message store keeps message counts in memory.
+     */
+    COORDINATION_MESSAGE_COUNT_SYNC_INTERVAL("coordination/messageCountSyncInterval", "5000", Integer.class),
+
     /**
      * Node ID is the unique identifier of a node within a cluster. By default, its generated using the IP of the node.
      * However, with this property, the Node ID can be explicitly set.
@@ -328,7 +373,27 @@ public enum AndesConfiguration implements ConfigurationProperty {
      * Indicates weather print cache related statistics in 2 minutes interval in carbon log.
      */
     PERSISTENCE_CACHE_PRINT_STATS("persistence/cache/printStats", "false", Boolean.class),
-    
+
+    /**
+     * Memory used to hold cached messages.
+     *
+     * <p>
+     * <ul>
+     *  <li>heap    - message objects are kept in the java heap</li>
+     *  <li>offHeap - message metadata and content bytes are kept in direct memory slabs, outside the java heap.
+     *                Direct memory limit of the JVM (-XX:MaxDirectMemorySize) should be larger than the cache size.
+     *  </li>
+     * </ul>
+     * </p>
+     */
+    PERSISTENCE_CACHE_MEMORY_TYPE("persistence/cache/memoryType", "heap", String.class),
+
+    /**
+     * Size of a direct memory slab of the off heap cache in MBs. Cache memory is allocated and evicted a slab at a
+     * time. Messages larger than a slab are not cached.
+     */
+    PERSISTENCE_CACHE_OFF_HEAP_SLAB_SIZE("persistence/cache/offHeapSlabSize", "4", Integer.class),
+
     /**
      * The ID generation class that is used to maintain unique IDs for each message that arrives at the server.
      */
@@ -341,6 +406,56 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERSISTENCE_STORE_HEALTH_CHECK_INTERVAL("persistence/storeHealthCheckInterval", "10", Integer.class),
 
+    /**
+     * Enable the local message journal. Received messages are written to a journal on the local disk and
+     * acknowledged to the publisher, then written to the message store in batches in the background. This
+     * separates publish latency from message store latency.
+     */
+    PERSISTENCE_JOURNAL_ENABLED("persistence/journal/@enabled", "false", Boolean.class),
+
+    /**
+     * Directory the message journal is written to. If not set the journal is written to
+     * repository/data/andes-journal within the carbon home.
+     */
+    PERSISTENCE_JOURNAL_DIRECTORY("persistence/journal/directory", "", String.class),
+
+    /**
+     * Size of a message journal segment file in MB
+     */
+    PERSISTENCE_JOURNAL_SEGMENT_SIZE("persistence/journal/segmentSize", "64", Integer.class),
+
+    /**
+     * Maximum number of journaled messages written to the message store in one batch
+     */
+    PERSISTENCE_JOURNAL_FLUSH_BATCH_SIZE("persistence/journal/flushBatchSize", "1000", Integer.class),
+
+    /**
+     * Maximum number of journaled messages not yet written to the message store. Publishing is blocked once this
+     * limit is reached until messages are written to the message store.
+     */
+    PERSISTENCE_JOURNAL_MAX_PENDING_MESSAGES("persistence/journal/maxPendingMessages", "100000", Integer.class),
+
+    /**
+     * Enable deferred deletion of acknowledged messages. Acknowledged messages are recorded as tombstones in memory
+     * and removed from the message store in the background, with a single range delete once all the messages of a
+     * slot are acknowledged.
+     */
+    PERSISTENCE_DEFERRED_DELETION_ENABLED("persistence/deferredDeletion/@enabled", "false", Boolean.class),
+
+    /**
+     * Interval in milliseconds at which tombstones of slots that are still being delivered are checked
+     */
+    PERSISTENCE_DEFERRED_DELETION_COMPACTION_INTERVAL("persistence/deferredDeletion/compactionInterval", "1000",
+            Integer.class),
+
+    /**
+     * Maximum time in milliseconds a tombstone is kept before the message is deleted by its ID, even if the rest of
+     * its slot is not yet acknowledged. This bounds the number of acknowledged messages redelivered after a node
+     * failure.
+     */
+    PERSISTENCE_DEFERRED_DELETION_MAX_TOMBSTONE_AGE("persistence/deferredDeletion/maxTombstoneAge", "5000",
+            Integer.class),
+
     /**
      * Andes core will store message content chunks according to this chunk size. Different database will
      * have limits and performance gains by tuning this parameter.
@@ -407,6 +522,21 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_SLOTS_WORKER_THREAD_COUNT("performanceTuning/slots/workerThreadCount", "5",
             Integer.class),
 
+    /**
+     * Interval in seconds in between runs of the task persisting slot boundaries of storage queues to the context
+     * store. On a cluster restart slots are recovered from these checkpoints and only messages written after the last
+     * checkpoint are read from the message store. Needs the MB_SLOT_CHECKPOINT table. Disabled when set to 0.
+     */
+    PERFORMANCE_TUNING_SLOTS_CHECKPOINT_INTERVAL("performanceTuning/slots/checkpointInterval", "0",
+            Integer.class),
+
+    /**
+     * Number of slots each storage queue requests from the slot coordinator ahead of delivery. Next slot is then
+     * available while the current one is being delivered instead of costing a coordinator round trip on the
+     * delivery thread. Disabled when set to 0.
+     */
+    PERFORMANCE_TUNING_SLOTS_PREFETCH_COUNT("performanceTuning/slots/prefetchCount", "1", Integer.class),
+
     /**
      * Published message information is sent to slot coordinator by the node when it either reaches the slot window
      * size or the window creation timeout in milliseconds. This configures the timeout for slot window creation task.
@@ -469,6 +599,14 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_DELIVERY_CONTENT_READ_BATCH_SIZE("performanceTuning/delivery/contentReadBatchSize", "65000",
             Integer.class),
 
+    /**
+     * Number of threads reading content of slots into the message cache ahead of delivery. Content of a slot is read
+     * in bulk while its metadata is buffered, so that delivery does not wait on the message store for content.
+     * Prefetching is disabled when set to 0 or when the message cache is disabled.
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_THREADS("performanceTuning/delivery/contentPrefetchThreads", "2",
+            Integer.class),
+
     /**
      * Specify the maximum number of entries the cache may contain
      */
@@ -489,6 +627,15 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_PARALLEL_MESSAGE_WRITERS("performanceTuning/inboundEvents/parallelMessageWriters", "1",
             Integer.class),
 
+    /**
+     * Number of parallel handlers used to route inbound messages to storage queues before message IDs are assigned.
+     * Messages are partitioned among the handlers by publisher channel. When set to 1, routing and message ID
+     * generation is done by a single message pre processor. Increasing this value will speedup topic fan-out
+     * at high publish rates.
+     */
+    PERFORMANCE_TUNING_PARALLEL_MESSAGE_PRE_PROCESSORS(
+            "performanceTuning/inboundEvents/parallelMessagePreProcessors", "1", Integer.class),
+
     /**
      * Number of parallel writers used to write content to message store for transaction based publishing.
      * Increasing this value will speedup commit duration for a transaction.
@@ -511,6 +658,32 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_MESSAGE_WRITER_BATCH_SIZE
             ("performanceTuning/inboundEvents/messageWriterBatchSize", "70", Integer.class),
 
+    /**
+     * Enable adapting the batch sizes of message writers and acknowledgement handlers to the observed latency of
+     * writing a batch. Configured batch sizes are used as the initial batch sizes.
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_BATCHING_ENABLED
+            ("performanceTuning/inboundEvents/adaptiveBatching/@enabled", "false", Boolean.class),
+
+    /**
+     * Targeted latency in milliseconds of writing a batch of messages or acknowledgements. Batches are grown while
+     * events are waiting and the latency is below this value and reduced once it is above.
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_BATCHING_TARGET_LATENCY
+            ("performanceTuning/inboundEvents/adaptiveBatching/targetLatency", "20", Integer.class),
+
+    /**
+     * Minimum batch size when adaptive batching is enabled
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_BATCHING_MIN_BATCH_SIZE
+            ("performanceTuning/inboundEvents/adaptiveBatching/minBatchSize", "1", Integer.class),
+
+    /**
+     * Maximum batch size when adaptive batching is enabled
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_BATCHING_MAX_BATCH_SIZE
+            ("performanceTuning/inboundEvents/adaptiveBatching/maxBatchSize", "1000", Integer.class),
+
     /**
      * Timeout for waiting for a queue purge event to end to get the purged count. Doesn't affect actual purging.
      * If purge takes time, increasing the value will improve the possibility of retrieving the correct purged count.
@@ -581,6 +754,15 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_PERIODIC_EXPIRY_MESSAGE_DELETION_INTERVAL
             ("performanceTuning/messageExpiration/periodicMessageDeletionInterval", "900", Integer.class),
 
+    /**
+     * Tick interval in milliseconds of the in memory expiry index. Messages with an expiration time are added to the
+     * index when written and deleted within a tick after they expire, instead of waiting for the periodic deletion
+     * task querying the store. The periodic task still runs for expired messages the index skipped. Set to 0 to
+     * disable the index.
+     */
+    PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL
+            ("performanceTuning/messageExpiration/expiryIndexTickInterval", "1000", Integer.class),
+
     /**
      * The number of expired messages to be cleared in one store operation.
      *
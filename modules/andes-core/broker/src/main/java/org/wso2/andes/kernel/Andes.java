@@ -213,30 +213,60 @@ public class Andes {
 
     /**
      * Acknowledgement received from clients for sent messages should be notified to Andes using this method.
+     * All the messages acknowledged together by a channel are notified as a single {@link AndesAckData}.
      *
      * @param ackData AndesAckData
      * @throws AndesException
      */
     public void ackReceived(AndesAckData ackData) throws AndesException {
 
-        //Tracing Message
-        MessageTracer.trace(ackData.getAcknowledgedMessage().getMessageID(),
-                ackData.getAcknowledgedMessage().getDestination(), MessageTracer.ACK_RECEIVED_FROM_PROTOCOL);
+        List<DeliverableAndesMetadata> acknowledgedMessages = ackData.getAcknowledgedMessages();
+        String messageRouterName = null;
+        String destination = null;
+        int sameDestinationCount = 0;
+
+        for (DeliverableAndesMetadata acknowledgedMessage : acknowledgedMessages) {
+            //Tracing Message
+            MessageTracer.trace(acknowledgedMessage.getMessageID(), acknowledgedMessage.getDestination(),
+                    MessageTracer.ACK_RECEIVED_FROM_PROTOCOL);
+
+            // Messages of a channel are mostly from the same destination. Metrics are updated once per destination
+            if (acknowledgedMessage.getMessageRouterName().equals(messageRouterName)
+                    && acknowledgedMessage.getDestination().equals(destination)) {
+                sameDestinationCount++;
+            } else {
+                updateAckMetrics(messageRouterName, destination, sameDestinationCount);
+                messageRouterName = acknowledgedMessage.getMessageRouterName();
+                destination = acknowledgedMessage.getDestination();
+                sameDestinationCount = 1;
+            }
+        }
+        updateAckMetrics(messageRouterName, destination, sameDestinationCount);
+
+        //We call this later as this call removes the ackData.getAcknowledgedMessage() message
+        inboundEventManager.ackReceived(ackData);
+    }
 
+    /**
+     * Update acknowledgement rate and count metrics of a destination
+     *
+     * @param messageRouterName message router of the destination
+     * @param destination       destination of the acknowledged messages
+     * @param ackCount          number of messages acknowledged
+     */
+    private void updateAckMetrics(String messageRouterName, String destination, int ackCount) {
+        if (ackCount == 0) {
+            return;
+        }
         //Adding metrics meter for ack rate
         Meter ackMeter = MetricManager.meter(MetricsConstants.ACK_RECEIVE_RATE + MetricsConstants.METRICS_NAME_SEPARATOR
-                + ackData.getAcknowledgedMessage().getMessageRouterName() + MetricsConstants.METRICS_NAME_SEPARATOR
-                + ackData.getAcknowledgedMessage().getDestination(), Level.INFO);
-        ackMeter.mark();
+                + messageRouterName + MetricsConstants.METRICS_NAME_SEPARATOR + destination, Level.INFO);
+        ackMeter.mark(ackCount);
 
         //Adding metrics counter for ack messages
         Counter counter = MetricManager.counter(MetricsConstants.ACK_MESSAGES + MetricsConstants.METRICS_NAME_SEPARATOR
-                + ackData.getAcknowledgedMessage().getMessageRouterName() + MetricsConstants.METRICS_NAME_SEPARATOR
-                + ackData.getAcknowledgedMessage().getDestination(), Level.INFO);
-        counter.inc();
-
-        //We call this later as this call removes the ackData.getAcknowledgedMessage() message
-        inboundEventManager.ackReceived(ackData);
+                + messageRouterName + MetricsConstants.METRICS_NAME_SEPARATOR + destination, Level.INFO);
+        counter.inc(ackCount);
     }
 
     /**
@@ -614,6 +644,20 @@ public class Andes {
         return MessagingEngine.getInstance().getNextNMessageMetadataFromQueue(queueName, firstMsgId, count);
     }
 
+    /**
+     * Stream message metadata from queue starting from given id up to a given message count.
+     *
+     * @param queueName  name of the queue
+     * @param firstMsgId id of the starting id
+     * @param count      maximum num of messages to read
+     * @param consumer   consumer receiving the metadata
+     * @throws AndesException
+     */
+    public void streamNextNMessageMetadataFromQueue(final String queueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        MessagingEngine.getInstance().streamNextNMessageMetadataFromQueue(queueName, firstMsgId, count, consumer);
+    }
+
     /**
      * Get message metadata in dlc for a queue for a given number of messages starting from a specified id.
      *
@@ -644,6 +688,20 @@ public class Andes {
         return MessagingEngine.getInstance().getNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count);
     }
 
+    /**
+     * Stream message metadata in dlc for a given number of messages starting from a specified id.
+     *
+     * @param dlcQueueName name of the dead letter channel queue
+     * @param firstMsgId   id of the starting id
+     * @param count        maximum num of messages to read
+     * @param consumer     consumer receiving the metadata
+     * @throws AndesException
+     */
+    public void streamNextNMessageMetadataFromDLC(final String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        MessagingEngine.getInstance().streamNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count, consumer);
+    }
+
     /**
      * Get expired but not yet deleted messages from message store.
      *
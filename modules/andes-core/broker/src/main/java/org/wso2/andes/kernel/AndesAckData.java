@@ -18,17 +18,22 @@
 
 package org.wso2.andes.kernel;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 /**
- * Wrapper class of message acknowledgment data publish to disruptor
+ * Wrapper class of message acknowledgment data publish to disruptor. A single instance carries all the messages
+ * acknowledged together by a channel (i.e. AMQP multiple acknowledgement), so that a range of acknowledgements
+ * occupies a single slot of the inbound ring
  */
 public class AndesAckData {
 
     /**
-     * Acknowledged message
+     * Acknowledged messages
      */
-    private DeliverableAndesMetadata acknowledgedMessage;
+    private final List<DeliverableAndesMetadata> acknowledgedMessages;
 
     /**
      * ID of the channel acknowledge is received
@@ -36,11 +41,10 @@ public class AndesAckData {
     private UUID channelID;
 
     /**
-     * Holds if acknowledged message is ready to be removed. If all channels
-     * acknowledged it becomes removable. Message reference cannot be used here
-     * as we need to keep it in disruptor data holder
+     * Acknowledged messages that are ready to be removed. If all channels acknowledged a message it becomes
+     * removable. Message status cannot be used here as we need to keep it in disruptor data holder
      */
-    private boolean isBaringMessageRemovable = false;
+    private List<DeliverableAndesMetadata> removableMessages = Collections.emptyList();
 
     /**
      * Generate AndesAckData object. This holds acknowledge event in disruptor
@@ -49,15 +53,33 @@ public class AndesAckData {
      */
     public AndesAckData(UUID channelID, DeliverableAndesMetadata acknowledgedMessage) {
         this.channelID = channelID;
-        this.acknowledgedMessage = acknowledgedMessage;
+        this.acknowledgedMessages = Collections.singletonList(acknowledgedMessage);
     }
 
     /**
-     * Get the reference of the message being acknowledged
+     * Generate AndesAckData object for a set of messages acknowledged together by a channel
+     * @param channelID ID of the channel ack is received
+     * @param acknowledgedMessages messages being acknowledged
+     */
+    public AndesAckData(UUID channelID, List<DeliverableAndesMetadata> acknowledgedMessages) {
+        this.channelID = channelID;
+        this.acknowledgedMessages = acknowledgedMessages;
+    }
+
+    /**
+     * Get the reference of the first message being acknowledged
      * @return Metadata of the acknowledged message
      */
     public DeliverableAndesMetadata getAcknowledgedMessage() {
-        return acknowledgedMessage;
+        return acknowledgedMessages.get(0);
+    }
+
+    /**
+     * Get references of all the messages being acknowledged
+     * @return Metadata of the acknowledged messages
+     */
+    public List<DeliverableAndesMetadata> getAcknowledgedMessages() {
+        return acknowledgedMessages;
     }
 
     /**
@@ -69,19 +91,23 @@ public class AndesAckData {
     }
 
     /**
-     * Check if message being acknowledged is ready to be removed
-     * @return true if removable
+     * Get acknowledged messages that are ready to be removed
+     * @return removable messages
      */
-    public boolean isBaringMessageRemovable() {
-        return isBaringMessageRemovable;
+    public List<DeliverableAndesMetadata> getRemovableMessages() {
+        return removableMessages;
     }
 
     /**
-     * Set message being acknowledged is ready to be removed. This happens
+     * Set an acknowledged message is ready to be removed. This happens
      * if acknowledgements are received from all channels
+     * @param message acknowledged message
      */
-    public void setBaringMessageRemovable() {
-        this.isBaringMessageRemovable = true;
+    public void addRemovableMessage(DeliverableAndesMetadata message) {
+        if (removableMessages.isEmpty()) {
+            removableMessages = new ArrayList<>(acknowledgedMessages.size());
+        }
+        removableMessages.add(message);
     }
 
 }
@@ -27,6 +27,7 @@ import org.wso2.andes.kernel.registry.StorageQueueRegistry;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.server.cluster.ClusterAgent;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationListenerManager;
+import org.wso2.andes.store.cache.AndesMessageCache;
 
 
 import java.util.List;
@@ -46,6 +47,12 @@ public class AndesContext {
     private MessageStore messageStore;
     private int deliveryTimeoutForMessage;
 
+    /**
+     * Cache of the messages stored and read by the message store. Shared with the delivery path, which pins
+     * messages read for delivery
+     */
+    private AndesMessageCache messageCache;
+
     /**
      * This is mainly used by Cluster Manager to manger cluster communication
      */
@@ -269,6 +276,24 @@ public class AndesContext {
         this.messageStore = messageStore;
     }
 
+    /**
+     * Gets the message cache used by the message store.
+     *
+     * @return The message cache.
+     */
+    public AndesMessageCache getMessageCache() {
+        return messageCache;
+    }
+
+    /**
+     * Sets message cache instance used by the message store
+     *
+     * @param messageCache The message cache
+     */
+    public void setMessageCache(AndesMessageCache messageCache) {
+        this.messageCache = messageCache;
+    }
+
     /**
      * Set storageQueueRegistry to context
      * @param storageQueueRegistry queue registry to set
@@ -37,6 +37,7 @@ import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
 import org.wso2.andes.server.cluster.coordination.CoordinationComponentFactory;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is for managing control information of
@@ -212,6 +213,9 @@ public class AndesContextInformationManager {
         StorageQueue registeredQueue = AndesContext.getInstance().getStorageQueueRegistry().getStorageQueue
                 (queueWithEvent.getName());
         registeredQueue.clearMessagesReadToBufferForDelivery();
+        messageStore.resetMessageCounterForQueue(registeredQueue.getName());
+        // Queue id of the queue changes if the store purges by retiring the partition of the queue
+        messageStore.removeLocalQueueData(registeredQueue.getName());
 
         log.info("Queue Sync [purge]: " + registeredQueue.getName());
     }
@@ -306,6 +310,7 @@ public class AndesContextInformationManager {
 
         // Remove queue information from database
         contextStore.deleteQueueInformation(storageQueueName);
+        contextStore.deleteSlotCheckpoints(storageQueueName, Long.MAX_VALUE);
         messageStore.removeQueue(storageQueueName);
 
         // Remove queue mapping from cache after removing it from DB
@@ -483,4 +488,25 @@ public class AndesContextInformationManager {
         log.info("Binding Sync [delete]: " + binding.toString());
     }
 
+    /**
+     * Notify changes of queue message counts done by this node since the last notification to other nodes
+     *
+     * @throws AndesException
+     */
+    public void publishMessageCountChanges() throws AndesException {
+        Map<String, Long> messageCountChanges = messageStore.drainMessageCountChanges();
+        if (!messageCountChanges.isEmpty()) {
+            clusterNotificationAgent.notifyMessageCountChange(messageCountChanges);
+        }
+    }
+
+    /**
+     * Handle notification of queue message count changes from a remote node
+     *
+     * @param messageCountChanges map of queue names and the change of the message count
+     */
+    public void syncMessageCountChanges(Map<String, Long> messageCountChanges) {
+        messageStore.applyMessageCountChanges(messageCountChanges);
+    }
+
 }
@@ -22,7 +22,9 @@ package org.wso2.andes.kernel;
 
 import org.wso2.andes.configuration.util.ConfigurationProperties;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.slot.LongRangeSet;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotCheckpoint;
 import org.wso2.andes.kernel.slot.SlotState;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
@@ -423,7 +425,7 @@ public interface AndesContextStore extends HealthAwareStore {
      * @return set of message ids
      * @throws AndesException
      */
-    TreeSet<Long> getMessageIds(String queueName) throws AndesException;
+    LongRangeSet getMessageIds(String queueName) throws AndesException;
 
     /**
      * Delete a message id.
@@ -473,6 +475,33 @@ public interface AndesContextStore extends HealthAwareStore {
      */
     void clearSlotStorage() throws AndesException;
 
+    /**
+     * Add slot checkpoints of a storage queue. Checkpoints are kept across cluster restarts, unlike the slot storage.
+     *
+     * @param storageQueueName name of the storage queue
+     * @param checkpoints      checkpoints in the ascending order of message ids
+     * @throws AndesException
+     */
+    void addSlotCheckpoints(String storageQueueName, List<SlotCheckpoint> checkpoints) throws AndesException;
+
+    /**
+     * Get slot checkpoints of a storage queue
+     *
+     * @param storageQueueName name of the storage queue
+     * @return checkpoints in the ascending order of message ids
+     * @throws AndesException
+     */
+    List<SlotCheckpoint> getSlotCheckpoints(String storageQueueName) throws AndesException;
+
+    /**
+     * Delete slot checkpoints of a storage queue ending before the given message id
+     *
+     * @param storageQueueName name of the storage queue
+     * @param messageIdLimit   checkpoints with an end message id less than this are deleted
+     * @throws AndesException
+     */
+    void deleteSlotCheckpoints(String storageQueueName, long messageIdLimit) throws AndesException;
+
     /**
      * Close the context store
      */
@@ -29,6 +29,8 @@ import org.wso2.andes.kernel.disruptor.inbound.InboundExchangeEvent;
 import org.wso2.andes.kernel.registry.MessageRouterRegistry;
 import org.wso2.andes.kernel.registry.StorageQueueRegistry;
 import org.wso2.andes.kernel.registry.SubscriptionRegistry;
+import org.wso2.andes.kernel.slot.SlotContentPrefetcher;
+import org.wso2.andes.kernel.slot.SlotCheckpointTask;
 import org.wso2.andes.kernel.slot.SlotCreator;
 import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
@@ -50,10 +52,14 @@ import org.wso2.andes.server.virtualhost.VirtualHostConfigSynchronizer;
 import org.wso2.andes.store.FailureObservingAndesContextStore;
 import org.wso2.andes.store.FailureObservingMessageStore;
 import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.cache.MessageCacheFactory;
+import org.wso2.andes.store.file.MessageJournal;
 import org.wso2.andes.thrift.MBThriftServer;
 import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.utils.ServerConstants;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -72,11 +78,21 @@ public class AndesKernelBoot {
 
     private static Log log = LogFactory.getLog(AndesKernelBoot.class);
 
+    /**
+     * Message journal directory relative to the carbon home used if not configured
+     */
+    private static final String MESSAGE_JOURNAL_DEFAULT_DIRECTORY = "repository/data/andes-journal";
+
     /**
      * Store for keeping messages (i.e persistent store)
      */
     private static MessageStore messageStore;
 
+    /**
+     * Local journal received messages are written to before the message store. Null if the journal is disabled
+     */
+    private static MessageJournal messageJournal;
+
     /**
      * Store for keeping AMQP based artifacts
      */
@@ -97,6 +113,11 @@ public class AndesKernelBoot {
      */
     private static ScheduledExecutorService expiryMessageDeletionTaskScheduler;
 
+    /**
+     * Scheduled thread pool executor to run the periodic slot checkpoint task. Null if slot checkpoints are disabled
+     */
+    private static ScheduledExecutorService slotCheckpointTaskScheduler;
+
     /**
      * Used to get information from context store
      */
@@ -135,6 +156,20 @@ public class AndesKernelBoot {
         if (AndesContext.getInstance().isClusteringEnabled()) {
             SlotDeletionExecutor.getInstance().init();
         }
+        startSlotContentPrefetcher();
+    }
+
+    /**
+     * Start reading content of slots into the message cache ahead of delivery if the cache is enabled
+     */
+    private static void startSlotContentPrefetcher() {
+        int prefetchThreadCount = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_THREADS);
+        int cacheSize = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE);
+        if (prefetchThreadCount > 0 && cacheSize > 0) {
+            SlotContentPrefetcher.getInstance().init(messageStore, AndesContext.getInstance().getMessageCache(),
+                    prefetchThreadCount);
+        }
     }
 
     /**
@@ -191,7 +226,7 @@ public class AndesKernelBoot {
             if (DLCQueueUtils.isDeadLetterQueue(queueName)) {
                 continue;
             }
-            Future submit = executorService.submit(new SlotCreator(messageStore, queueName));
+            Future submit = executorService.submit(new SlotCreator(messageStore, contextStore, queueName));
             futureSlotRecoveryExecutorList.add(submit);
         }
         for (Future slotRecoveryExecutor : futureSlotRecoveryExecutorList) {
@@ -280,6 +315,42 @@ public class AndesKernelBoot {
     }
 
 
+    /**
+     * Create and recover the message journal if it is enabled in broker.xml
+     *
+     * @param messageStore message store journaled messages are written to
+     * @return recovered message journal. Null if the journal is disabled
+     * @throws AndesException if the journal cannot be recovered
+     */
+    private static MessageJournal createMessageJournalFromConfig(MessageStore messageStore) throws AndesException {
+        Boolean journalEnabled = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_JOURNAL_ENABLED);
+        if (!journalEnabled) {
+            return null;
+        }
+
+        String configuredDirectory = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERSISTENCE_JOURNAL_DIRECTORY);
+        File journalDirectory;
+        if (configuredDirectory.isEmpty()) {
+            journalDirectory = new File(System.getProperty(ServerConstants.CARBON_HOME, "."),
+                    MESSAGE_JOURNAL_DEFAULT_DIRECTORY);
+        } else {
+            journalDirectory = new File(configuredDirectory);
+        }
+        Integer segmentSizeInMB = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERSISTENCE_JOURNAL_SEGMENT_SIZE);
+        Integer flushBatchSize = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERSISTENCE_JOURNAL_FLUSH_BATCH_SIZE);
+        Integer maxPendingMessages = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERSISTENCE_JOURNAL_MAX_PENDING_MESSAGES);
+
+        MessageJournal journal = new MessageJournal(journalDirectory, segmentSizeInMB * 1024L * 1024L,
+                flushBatchSize, maxPendingMessages, messageStore);
+        journal.recover();
+        log.info("Andes message journal initialised at " + journalDirectory.getAbsolutePath());
+        return journal;
+    }
+
     /**
      * Start all andes stores message store/context store and AMQP construct store
      *
@@ -294,12 +365,20 @@ public class AndesKernelBoot {
                 failureObservingStoreManager);
         AndesContext.getInstance().setAndesContextStore(contextStore);
 
+        // Message cache is shared by the message store and the delivery path, and kept when the store is
+        // reinitialized
+        AndesContext.getInstance().setMessageCache(new MessageCacheFactory().create());
+
         // directly wire the instance without wrapped instance
         messageStore = new FailureObservingMessageStore(createMessageStoreFromConfig(contextStoreInConfig),
                 failureObservingStoreManager);
         // Setting the message store in the context store
         AndesContext.getInstance().setMessageStore(messageStore);
 
+        // Messages journaled but not written to the message store in the last session are written once the
+        // messaging engine is started
+        messageJournal = createMessageJournalFromConfig(messageStore);
+
         //create AMQP Constructs store
         amqpConstructStore = new AMQPConstructStore(contextStore);
         AndesContext.getInstance().setAMQPConstructStore(amqpConstructStore);
@@ -341,7 +420,10 @@ public class AndesKernelBoot {
         }
 
         MessagingEngine messagingEngine = MessagingEngine.getInstance();
-        messagingEngine.initialise(messageStore, messageExpiryManager);
+        messagingEngine.initialise(messageStore, messageExpiryManager, messageJournal);
+        if (null != messageJournal) {
+            messageJournal.start();
+        }
 
         // initialise Andes context information related manager class
         AndesContextInformationManager contextInformationManager =
@@ -475,7 +557,13 @@ public class AndesKernelBoot {
 
         andesRecoveryTaskScheduler.scheduleAtFixedRate(andesRecoveryTask, recoveryTaskScheduledPeriod,
                 recoveryTaskScheduledPeriod, TimeUnit.SECONDS);
+        if (AndesContext.getInstance().isClusteringEnabled()) {
+            scheduleMessageCountSync(contextInformationManager);
+        }
         if (safeDeleteRegionSlotCount >= 1) {
+            scheduleExpiryIndexDeletionTask();
+            // DB based task is still needed for messages the expiry index skipped or does not hold and to expire
+            // messages in DLC
             expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(periodicExpiryMessageDeletionTask,
                     dbBasedDeletionTaskScheduledPeriod, dbBasedDeletionTaskScheduledPeriod, TimeUnit.SECONDS);
         } else {
@@ -483,9 +571,76 @@ public class AndesKernelBoot {
                     "a valid safe delete region slot count is not given");
         }
 
+        scheduleSlotCheckpointTask();
+
         ClusterResourceHolder.getInstance().setAndesRecoveryTask(andesRecoveryTask);
     }
 
+    /**
+     * Schedule the task persisting slot boundaries of storage queues if slot checkpoints are enabled
+     */
+    private static void scheduleSlotCheckpointTask() {
+        int checkpointInterval = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_SLOTS_CHECKPOINT_INTERVAL);
+        if (checkpointInterval <= 0) {
+            return;
+        }
+        int slotSize = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE);
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("SlotCheckpointTask-%d").build();
+        slotCheckpointTaskScheduler = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        slotCheckpointTaskScheduler.scheduleWithFixedDelay(new SlotCheckpointTask(messageStore, contextStore,
+                slotSize), checkpointInterval, checkpointInterval, TimeUnit.SECONDS);
+        log.info("Slot checkpoints are written every " + checkpointInterval + " seconds");
+    }
+
+    /**
+     * Schedule the task deleting messages of the in memory expiry index as they expire, if the index is enabled.
+     * The index is rebuilt from the message store before scheduling.
+     *
+     * @throws AndesException
+     */
+    private static void scheduleExpiryIndexDeletionTask() throws AndesException {
+        int tickInterval = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL);
+        if (tickInterval <= 0) {
+            return;
+        }
+        int deletionBatchSize = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_EXPIRATION_BATCH_SIZE);
+
+        TimerWheelExpiryMessageDeletionTask expiryIndexDeletionTask =
+                new TimerWheelExpiryMessageDeletionTask(tickInterval, deletionBatchSize);
+        // Set before recovering so that messages written meanwhile are not missed
+        MessagingEngine.getInstance().setExpiryIndexDeletionTask(expiryIndexDeletionTask);
+        expiryIndexDeletionTask.recoverExpiryIndex(messageStore);
+        expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(expiryIndexDeletionTask, tickInterval, tickInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule the task notifying changes of queue message counts done by this node to the other nodes of the
+     * cluster, so that message counts kept in memory by each node include messages of all the nodes
+     *
+     * @param contextInformationManager manager publishing the changes
+     */
+    private static void scheduleMessageCountSync(final AndesContextInformationManager contextInformationManager) {
+        int messageCountSyncInterval = AndesConfigurationManager.readValue
+                (AndesConfiguration.COORDINATION_MESSAGE_COUNT_SYNC_INTERVAL);
+        andesRecoveryTaskScheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    contextInformationManager.publishMessageCountChanges();
+                } catch (Throwable e) {
+                    // Task should keep running even if a run fails
+                    log.error("Error occurred while notifying message count changes to the cluster", e);
+                }
+            }
+        }, messageCountSyncInterval, messageCountSyncInterval, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Stop andes house keeping threads
      */
@@ -495,11 +650,21 @@ public class AndesKernelBoot {
         try {
             andesRecoveryTaskScheduler.shutdown();
             expiryMessageDeletionTaskScheduler.shutdown();
+            if (null != slotCheckpointTaskScheduler) {
+                slotCheckpointTaskScheduler.shutdown();
+            }
             expiryMessageDeletionTaskScheduler.awaitTermination(threadTerminationTimePerod, TimeUnit.SECONDS);
             andesRecoveryTaskScheduler.awaitTermination(threadTerminationTimePerod, TimeUnit.SECONDS);
+            // Checkpoint task should not write to the stores after they are closed
+            if (null != slotCheckpointTaskScheduler) {
+                slotCheckpointTaskScheduler.awaitTermination(threadTerminationTimePerod, TimeUnit.SECONDS);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             andesRecoveryTaskScheduler.shutdownNow();
+            if (null != slotCheckpointTaskScheduler) {
+                slotCheckpointTaskScheduler.shutdownNow();
+            }
             log.warn("Recovery task scheduler is forcefully shutdown.");
         }
 
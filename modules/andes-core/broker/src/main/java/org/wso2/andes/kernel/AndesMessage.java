@@ -37,6 +37,18 @@ public class AndesMessage {
      */
     private List<AndesMessagePart> contentChunkList;
 
+    /**
+     * Message owning the content of this message when the same content is routed to more than one storage queue.
+     * Message stores may persist the content once under the ID of the owner. Null if the content is not shared.
+     */
+    private AndesMessage contentOwner;
+
+    /**
+     * Message this message was cloned from when it was routed to more than one storage queue. Null if this message
+     * is not a clone.
+     */
+    private AndesMessage clonedFrom;
+
     public AndesMessage(AndesMessageMetadata metadata) {
         this.metadata = metadata;
         contentChunkList = new ArrayList<>();
@@ -75,4 +87,60 @@ public class AndesMessage {
     public void setChunkList(List<AndesMessagePart> chunkList) {
         this.contentChunkList = chunkList;
     }
+
+    /**
+     * Mark the content of this message as shared with the given owner message. The owner should be marked with
+     * itself as the owner.
+     *
+     * @param contentOwner {@link AndesMessage} owning the content
+     */
+    public void setContentOwner(AndesMessage contentOwner) {
+        this.contentOwner = contentOwner;
+    }
+
+    /**
+     * Check whether the content of this message is shared with other messages
+     *
+     * @return true if the content is shared
+     */
+    public boolean isContentShared() {
+        return null != contentOwner;
+    }
+
+    /**
+     * Check whether this message owns the shared content
+     *
+     * @return true if the content is shared and this message is the owner
+     */
+    public boolean isContentOwner() {
+        return this == contentOwner;
+    }
+
+    /**
+     * Get the ID shared content is referred with. This is the message ID of the content owner. Should be called
+     * only if the content is shared and message IDs are assigned.
+     *
+     * @return content ID
+     */
+    public long getContentId() {
+        return contentOwner.getMetadata().getMessageID();
+    }
+
+    /**
+     * Set the message this message was cloned from
+     *
+     * @param clonedFrom original {@link AndesMessage}
+     */
+    public void setClonedFrom(AndesMessage clonedFrom) {
+        this.clonedFrom = clonedFrom;
+    }
+
+    /**
+     * Get the message this message was cloned from
+     *
+     * @return original message, null if this message is not a clone
+     */
+    public AndesMessage getClonedFrom() {
+        return clonedFrom;
+    }
 }
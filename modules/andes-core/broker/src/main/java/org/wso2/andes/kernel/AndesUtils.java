@@ -181,6 +181,30 @@ public class AndesUtils {
         return new AndesAckData(channelID, metadata);
     }
 
+    /**
+     * create andes ack data message for a set of messages acknowledged together by a channel. Messages
+     * that are not tracked as delivered to the channel are skipped
+     *
+     * @param channelID  id of the connection messages were received
+     * @param messageIDs ids of the messages
+     * @return Andes Ack Data, null if none of the messages are tracked
+     */
+    public static AndesAckData generateAndesAckMessage(UUID channelID, List<Long> messageIDs) throws AndesException {
+        org.wso2.andes.kernel.subscription.AndesSubscription localSubscription = AndesContext.getInstance().
+                getAndesSubscriptionManager().getSubscriptionByProtocolChannel(channelID);
+        if (null == localSubscription) {
+            log.error("Cannot handle acknowledgement for " + messageIDs.size() + " messages as subscription is "
+                    + "closed channelID= " + channelID);
+            return null;
+        }
+        List<DeliverableAndesMetadata> acknowledgedMessages =
+                localSubscription.getSubscriberConnection().getUnAckedMessages(messageIDs);
+        if (acknowledgedMessages.isEmpty()) {
+            return null;
+        }
+        return new AndesAckData(channelID, acknowledgedMessages);
+    }
+
     /**
      * Get DeliverableAndesMetadata reference of a delivered message
      *
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes acknowledged messages from the message store outside the inbound event handlers.
+ * <p>
+ * Acknowledged messages are recorded as tombstones (message ids) against the slot they were delivered from. Once
+ * all the messages of a slot are acknowledged, the slot deletion executor asks to compact the slot and the
+ * messages are removed with a single range delete over the slot boundaries. Tombstones of slots that take long to
+ * be fully acknowledged are removed by their ids by a background task, which bounds the memory used and the
+ * number of acknowledged messages redelivered after a node failure.
+ * <p>
+ * Tombstones are kept until the messages are removed from the store, so that messages read again from the store
+ * (i.e. when a slot is re-read after its messages are returned) can be filtered out.
+ */
+public class DeferredMessageDeleter {
+
+    private static Log log = LogFactory.getLog(DeferredMessageDeleter.class);
+
+    private final MessageStore messageStore;
+
+    /**
+     * Maximum time in milliseconds a tombstone is kept before the message is deleted by its id
+     */
+    private final long maxTombstoneAge;
+
+    /**
+     * Tombstones of acknowledged messages not yet removed from the store, kept per slot
+     */
+    private final ConcurrentHashMap<Slot, SlotTombstones> tombstones;
+
+    /**
+     * Serializes store operations of compaction, which are triggered from the slot deletion executor as well as
+     * the scheduled compaction task
+     */
+    private final Object compactionLock = new Object();
+
+    private final ScheduledExecutorService compactionExecutor;
+
+    /**
+     * Create a deleter
+     *
+     * @param messageStore       store acknowledged messages are removed from
+     * @param compactionInterval interval in milliseconds old tombstones are checked
+     * @param maxTombstoneAge    maximum time in milliseconds a tombstone is kept
+     */
+    public DeferredMessageDeleter(MessageStore messageStore, int compactionInterval, int maxTombstoneAge) {
+        this.messageStore = messageStore;
+        this.maxTombstoneAge = maxTombstoneAge;
+        this.tombstones = new ConcurrentHashMap<>();
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("DeferredMessageDeleter-%d").build();
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        this.compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    deleteExpiredTombstones();
+                } catch (Throwable e) {
+                    log.error("Error while deleting acknowledged messages", e);
+                }
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record acknowledged messages to be deleted. Messages are marked as deleted straight away
+     *
+     * @param messages acknowledged messages
+     * @throws AndesException on an error deleting messages without a slot
+     */
+    public void recordDeletion(List<DeliverableAndesMetadata> messages) throws AndesException {
+        List<AndesMessageMetadata> messagesWithoutSlot = null;
+
+        for (DeliverableAndesMetadata message : messages) {
+            Slot slot = message.getSlot();
+            if (null == slot) {
+                if (null == messagesWithoutSlot) {
+                    messagesWithoutSlot = new ArrayList<>();
+                }
+                messagesWithoutSlot.add(message);
+                continue;
+            }
+            SlotTombstones slotTombstones = getTombstones(slot);
+            while (!slotTombstones.add(message.getMessageID())) {
+                // Tombstones were compacted and removed concurrently
+                tombstones.remove(slot, slotTombstones);
+                slotTombstones = getTombstones(slot);
+            }
+        }
+
+        if (null != messagesWithoutSlot) {
+            for (AndesMessageMetadata message : messagesWithoutSlot) {
+                messageStore.deleteMessages(message.getStorageQueueName(),
+                        Collections.<AndesMessageMetadata>singletonList(message));
+            }
+        }
+
+        for (DeliverableAndesMetadata message : messages) {
+            message.markAsDeletedMessage();
+        }
+    }
+
+    /**
+     * Remove messages that are already acknowledged from a list of messages read from the store for a slot
+     *
+     * @param slot     slot messages are read for
+     * @param messages messages read from the store
+     */
+    public void removeDeletedMessages(Slot slot, List<DeliverableAndesMetadata> messages) {
+        SlotTombstones slotTombstones = tombstones.get(slot);
+        if (null == slotTombstones) {
+            return;
+        }
+        Iterator<DeliverableAndesMetadata> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            DeliverableAndesMetadata message = iterator.next();
+            if (slotTombstones.contains(message.getMessageID())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Message id= " + message.getMessageID() + " is already acknowledged. Skipped from "
+                            + "delivery");
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove acknowledged messages of a slot from the store. All the messages of the slot are expected to be
+     * acknowledged, hence they are removed with a range delete. If the range has other messages (i.e. messages
+     * of an overlapping slot) the acknowledged messages are deleted by their ids. Errors are logged and the
+     * tombstones are kept to be retried.
+     *
+     * @param slot slot whose messages are acknowledged
+     */
+    public void compactSlot(Slot slot) {
+        SlotTombstones slotTombstones = tombstones.get(slot);
+        if (null == slotTombstones) {
+            return;
+        }
+        synchronized (compactionLock) {
+            LongArrayList messageIDs = slotTombstones.getMessageIDs();
+            if (messageIDs.isEmpty()) {
+                return;
+            }
+            try {
+                boolean deleted = messageStore.deleteMessagesInRange(slot.getStorageQueueName(),
+                        slot.getStartMessageId(), slot.getEndMessageId(), messageIDs);
+                if (!deleted) {
+                    messageStore.deleteMessages(toList(messageIDs));
+                    // Deletion by id is not attributed to a queue by the store
+                    messageStore.decrementMessageCountForQueue(slot.getStorageQueueName(), messageIDs.size());
+                }
+                removeTombstones(slot, slotTombstones, messageIDs);
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Removed " + messageIDs.size() + " acknowledged messages of slot " + slot.getId()
+                            + (deleted ? " with a range delete" : " by message id"));
+                }
+            } catch (AndesException e) {
+                log.error("Error while removing acknowledged messages of slot " + slot.getId()
+                        + ". Deletion will be retried", e);
+            }
+        }
+    }
+
+    /**
+     * Remove all acknowledged messages of a storage queue from the store. This is done before slots of the queue
+     * are handed over to other nodes, so that acknowledged messages are not delivered again.
+     *
+     * @param storageQueueName name of the storage queue
+     * @throws AndesException on an error removing messages
+     */
+    public void flushQueue(String storageQueueName) throws AndesException {
+        List<Map.Entry<Slot, SlotTombstones>> queueTombstones = new ArrayList<>();
+        for (Map.Entry<Slot, SlotTombstones> entry : tombstones.entrySet()) {
+            if (storageQueueName.equals(entry.getKey().getStorageQueueName())) {
+                queueTombstones.add(entry);
+            }
+        }
+        deleteByMessageIDs(queueTombstones);
+    }
+
+    /**
+     * Remove messages of tombstones older than the maximum tombstone age from the store
+     *
+     * @throws AndesException on an error removing messages
+     */
+    private void deleteExpiredTombstones() throws AndesException {
+        long expiryTime = System.currentTimeMillis() - maxTombstoneAge;
+        List<Map.Entry<Slot, SlotTombstones>> expiredTombstones = new ArrayList<>();
+        for (Map.Entry<Slot, SlotTombstones> entry : tombstones.entrySet()) {
+            long oldestTombstoneTime = entry.getValue().getOldestTombstoneTime();
+            if (oldestTombstoneTime > 0 && oldestTombstoneTime < expiryTime) {
+                expiredTombstones.add(entry);
+            }
+        }
+        deleteByMessageIDs(expiredTombstones);
+    }
+
+    /**
+     * Remove messages of the given tombstones from the store by their ids, in a single batch
+     *
+     * @param tombstoneEntries tombstones to remove
+     * @throws AndesException on an error removing messages
+     */
+    private void deleteByMessageIDs(List<Map.Entry<Slot, SlotTombstones>> tombstoneEntries) throws AndesException {
+        if (tombstoneEntries.isEmpty()) {
+            return;
+        }
+        synchronized (compactionLock) {
+            List<LongArrayList> messageIDsOfSlots = new ArrayList<>(tombstoneEntries.size());
+            List<Long> messageIDs = new ArrayList<>();
+            for (Map.Entry<Slot, SlotTombstones> entry : tombstoneEntries) {
+                LongArrayList messageIDsOfSlot = entry.getValue().getMessageIDs();
+                messageIDsOfSlots.add(messageIDsOfSlot);
+                messageIDs.addAll(toList(messageIDsOfSlot));
+            }
+            if (!messageIDs.isEmpty()) {
+                messageStore.deleteMessages(messageIDs);
+            }
+            for (int i = 0; i < tombstoneEntries.size(); i++) {
+                Map.Entry<Slot, SlotTombstones> entry = tombstoneEntries.get(i);
+                // Deletion by id is not attributed to a queue by the store
+                messageStore.decrementMessageCountForQueue(entry.getKey().getStorageQueueName(),
+                        messageIDsOfSlots.get(i).size());
+                removeTombstones(entry.getKey(), entry.getValue(), messageIDsOfSlots.get(i));
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Removed " + messageIDs.size() + " acknowledged messages of " + tombstoneEntries.size()
+                        + " slots by message id");
+            }
+        }
+    }
+
+    /**
+     * Remove all acknowledged messages from the store and stop the background compaction
+     */
+    public void close() {
+        compactionExecutor.shutdown();
+        try {
+            deleteByMessageIDs(new ArrayList<>(tombstones.entrySet()));
+        } catch (AndesException e) {
+            log.error("Error while removing acknowledged messages at shutdown. " + tombstones.size()
+                    + " slots have acknowledged messages in the store", e);
+        }
+    }
+
+    /**
+     * Get tombstones of a slot, creating them if absent
+     *
+     * @param slot slot of the messages
+     * @return tombstones of the slot
+     */
+    private SlotTombstones getTombstones(Slot slot) {
+        SlotTombstones slotTombstones = tombstones.get(slot);
+        if (null == slotTombstones) {
+            SlotTombstones newTombstones = new SlotTombstones();
+            slotTombstones = tombstones.putIfAbsent(slot, newTombstones);
+            if (null == slotTombstones) {
+                slotTombstones = newTombstones;
+            }
+        }
+        return slotTombstones;
+    }
+
+    /**
+     * Remove tombstones of messages removed from the store
+     *
+     * @param slot           slot of the tombstones
+     * @param slotTombstones tombstones of the slot
+     * @param messageIDs     ids of messages removed from the store
+     */
+    private void removeTombstones(Slot slot, SlotTombstones slotTombstones, LongArrayList messageIDs) {
+        if (slotTombstones.remove(messageIDs)) {
+            tombstones.remove(slot, slotTombstones);
+        }
+    }
+
+    private static List<Long> toList(LongArrayList messageIDs) {
+        List<Long> messageIDList = new ArrayList<>(messageIDs.size());
+        for (int i = 0; i < messageIDs.size(); i++) {
+            messageIDList.add(messageIDs.get(i));
+        }
+        return messageIDList;
+    }
+
+    /**
+     * Ids of acknowledged messages of a slot not yet removed from the store. Once all the ids are removed the
+     * instance is discarded and cannot be added to.
+     */
+    private static class SlotTombstones {
+
+        private final LongHashSet messageIDs = new LongHashSet();
+
+        /**
+         * Time the oldest tombstone in this instance was recorded. Zero if empty
+         */
+        private long oldestTombstoneTime;
+
+        private boolean discarded;
+
+        /**
+         * Add a tombstone
+         *
+         * @param messageID id of the acknowledged message
+         * @return false if the instance is discarded
+         */
+        synchronized boolean add(long messageID) {
+            if (discarded) {
+                return false;
+            }
+            if (messageIDs.isEmpty()) {
+                oldestTombstoneTime = System.currentTimeMillis();
+            }
+            messageIDs.add(messageID);
+            return true;
+        }
+
+        synchronized boolean contains(long messageID) {
+            return messageIDs.contains(messageID);
+        }
+
+        synchronized LongArrayList getMessageIDs() {
+            return LongArrayList.newListWith(messageIDs.toArray());
+        }
+
+        synchronized long getOldestTombstoneTime() {
+            return oldestTombstoneTime;
+        }
+
+        /**
+         * Remove tombstones of messages removed from the store
+         *
+         * @param removedMessageIDs ids of the removed messages
+         * @return true if no tombstones are left and the instance is discarded
+         */
+        synchronized boolean remove(LongArrayList removedMessageIDs) {
+            messageIDs.removeAll(removedMessageIDs);
+            if (messageIDs.isEmpty()) {
+                discarded = true;
+                oldestTombstoneTime = 0;
+            } else {
+                oldestTombstoneTime = System.currentTimeMillis();
+            }
+            return discarded;
+        }
+    }
+}
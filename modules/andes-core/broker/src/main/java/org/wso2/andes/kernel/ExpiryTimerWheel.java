@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timer wheel keeping expiration times of messages in memory. Scheduling a message and advancing
+ * the wheel by a tick are constant time operations regardless of the number of messages, so expired messages can
+ * be found on every tick instead of querying the store periodically.
+ * <p>
+ * Each level has the same number of buckets. A bucket of the lowest level spans one tick and a bucket of each upper
+ * level spans a full rotation of the level below it. Messages are placed in the lowest level whose rotation covers
+ * their expiration time and are moved down a level when the wheel reaches their bucket. Messages expiring beyond the
+ * top level are kept in an overflow list until the top level completes a rotation.
+ * <p>
+ * Methods are synchronized since messages are scheduled from the write path while the wheel is advanced by the
+ * expiry task.
+ */
+public class ExpiryTimerWheel {
+
+    /**
+     * Length of a tick in milliseconds
+     */
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    /**
+     * Buckets of each level
+     */
+    private final List<List<List<Entry>>> levels;
+
+    /**
+     * Number of ticks a bucket of each level spans
+     */
+    private final long[] bucketSpans;
+
+    /**
+     * Messages expiring beyond the range of the top level
+     */
+    private List<Entry> overflow = new ArrayList<>();
+
+    /**
+     * Messages found expired which are not yet returned by {@link #advance(long)}
+     */
+    private List<Entry> expired = new ArrayList<>();
+
+    /**
+     * Tick the wheel is currently at. All messages expiring at or before this tick are expired
+     */
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * Create a timer wheel
+     *
+     * @param tickMillis  length of a tick in milliseconds
+     * @param wheelSize   number of buckets in a level
+     * @param levelCount  number of levels
+     * @param currentTime time the wheel starts at in milliseconds
+     */
+    public ExpiryTimerWheel(long tickMillis, int wheelSize, int levelCount, long currentTime) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = currentTime / tickMillis;
+        this.levels = new ArrayList<>(levelCount);
+        this.bucketSpans = new long[levelCount + 1];
+
+        long bucketSpan = 1;
+        for (int level = 0; level < levelCount; level++) {
+            List<List<Entry>> buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<Entry>());
+            }
+            levels.add(buckets);
+            bucketSpans[level] = bucketSpan;
+            bucketSpan = bucketSpan * wheelSize;
+        }
+        // Span of a full rotation of the top level
+        bucketSpans[levelCount] = bucketSpan;
+    }
+
+    /**
+     * Schedule expiry of a message. A message already expired is returned on the next advance.
+     *
+     * @param messageId        id of the message
+     * @param storageQueueName storage queue of the message
+     * @param expirationTime   expiration time of the message in milliseconds
+     */
+    public synchronized void schedule(long messageId, String storageQueueName, long expirationTime) {
+        // Round up so that a message is never reported before its expiration time
+        long expiryTick = (expirationTime + tickMillis - 1) / tickMillis;
+        place(new Entry(messageId, storageQueueName, expiryTick));
+        size++;
+    }
+
+    /**
+     * Advance the wheel to the given time and get the messages expired by then
+     *
+     * @param currentTime current time in milliseconds
+     * @return map of storage queue names and ids of the expired messages of the queue
+     */
+    public synchronized Map<String, LongArrayList> advance(long currentTime) {
+        long targetTick = currentTime / tickMillis;
+
+        if (size == expired.size()) {
+            // Nothing waiting in the buckets. No need to walk through ticks in between
+            currentTick = Math.max(currentTick, targetTick);
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Move messages down from upper levels whose bucket is reached, starting from the top
+            if (currentTick % bucketSpans[levels.size()] == 0) {
+                List<Entry> overflowEntries = overflow;
+                overflow = new ArrayList<>();
+                placeAll(overflowEntries);
+            }
+            for (int level = levels.size() - 1; level > 0; level--) {
+                if (currentTick % bucketSpans[level] == 0) {
+                    List<Entry> bucket = levels.get(level).get(bucketIndex(level, currentTick));
+                    List<Entry> entries = new ArrayList<>(bucket);
+                    bucket.clear();
+                    placeAll(entries);
+                }
+            }
+            List<Entry> bucket = levels.get(0).get(bucketIndex(0, currentTick));
+            expired.addAll(bucket);
+            bucket.clear();
+        }
+
+        Map<String, LongArrayList> expiredMessages = new HashMap<>();
+        for (Entry entry : expired) {
+            LongArrayList messageIds = expiredMessages.get(entry.storageQueueName);
+            if (null == messageIds) {
+                messageIds = new LongArrayList();
+                expiredMessages.put(entry.storageQueueName, messageIds);
+            }
+            messageIds.add(entry.messageId);
+        }
+        size = size - expired.size();
+        expired = new ArrayList<>();
+        return expiredMessages;
+    }
+
+    /**
+     * @return number of messages in the wheel
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Remove all messages from the wheel
+     */
+    public synchronized void clear() {
+        for (List<List<Entry>> buckets : levels) {
+            for (List<Entry> bucket : buckets) {
+                bucket.clear();
+            }
+        }
+        overflow = new ArrayList<>();
+        expired = new ArrayList<>();
+        size = 0;
+    }
+
+    private void placeAll(List<Entry> entries) {
+        for (Entry entry : entries) {
+            place(entry);
+        }
+    }
+
+    /**
+     * Put a message in the lowest level whose current rotation includes its expiry tick
+     *
+     * @param entry message to place
+     */
+    private void place(Entry entry) {
+        if (entry.expiryTick <= currentTick) {
+            expired.add(entry);
+            return;
+        }
+        for (int level = 0; level < levels.size(); level++) {
+            // Buckets of the level in between the current tick and the expiry tick
+            long bucketDistance = entry.expiryTick / bucketSpans[level] - currentTick / bucketSpans[level];
+            if (bucketDistance < wheelSize) {
+                levels.get(level).get(bucketIndex(level, entry.expiryTick)).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private int bucketIndex(int level, long tick) {
+        return (int) ((tick / bucketSpans[level]) % wheelSize);
+    }
+
+    /**
+     * Expiry of a message
+     */
+    private static class Entry {
+
+        private final long messageId;
+
+        private final String storageQueueName;
+
+        private final long expiryTick;
+
+        Entry(long messageId, String storageQueueName, long expiryTick) {
+            this.messageId = messageId;
+            this.storageQueueName = storageQueueName;
+            this.expiryTick = expiryTick;
+        }
+    }
+}
@@ -16,16 +16,22 @@
 package org.wso2.andes.kernel;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.slot.ConnectionException;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotContentPrefetcher;
 import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
+import org.wso2.andes.kernel.slot.SlotCoordinator;
 import org.wso2.andes.kernel.slot.SlotDeliveryWorkerManager;
+import org.wso2.andes.kernel.slot.SlotPrefetcher;
 import org.wso2.andes.kernel.slot.SlotReAssignTask;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.server.queue.DLCQueueUtils;
+import org.wso2.andes.store.cache.AndesMessageCache;
 import org.wso2.andes.tools.utils.MessageTracer;
 
 import java.io.File;
@@ -58,6 +64,11 @@ public class MessageHandler {
      */
     private MessageStore messageStore;
 
+    /**
+     * Cache of the message store. Messages are pinned in it while they wait in the read-but-undelivered buffer
+     */
+    private AndesMessageCache messageCache;
+
     /**
      * Manager for message delivery to subscriptions.
      */
@@ -102,6 +113,11 @@ public class MessageHandler {
      */
     private final ExecutorService executor;
 
+    /**
+     * Slots of the queue requested from the coordinator ahead of delivery
+     */
+    private final SlotPrefetcher slotPrefetcher;
+
 
     public MessageHandler(String queueName) {
         this.queueName = queueName;
@@ -113,7 +129,12 @@ public class MessageHandler {
         this.messageDeliveryManager = SlotDeliveryWorkerManager.getInstance();
         this.lastPurgedTimestamp = 0L;
         this.messageStore = AndesContext.getInstance().getMessageStore();
+        this.messageCache = AndesContext.getInstance().getMessageCache();
         this.slotsRead = new ConcurrentHashMap<>();
+        Integer slotPrefetchCount = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_PREFETCH_COUNT);
+        // Slots are prefetched on the executor releasing slots so that the two never interleave
+        this.slotPrefetcher = new SlotPrefetcher(queueName, executor, slotPrefetchCount);
     }
 
     /**
@@ -123,6 +144,7 @@ public class MessageHandler {
      * @throws AndesException
      */
     public void startMessageDelivery(StorageQueue queue) throws AndesException {
+        slotPrefetcher.open();
         messageDeliveryManager.startMessageDeliveryForQueue(queue);
     }
 
@@ -133,9 +155,21 @@ public class MessageHandler {
      * @throws AndesException
      */
     public void stopMessageDelivery(StorageQueue queue) throws AndesException {
+        slotPrefetcher.close();
         messageDeliveryManager.stopDeliveryForQueue(queue);
     }
 
+    /**
+     * Get the next slot to deliver messages from. A slot prefetched from the coordinator is returned if available.
+     *
+     * @param slotCoordinator coordinator to request slots from
+     * @return next slot. The end message id is 0 if the coordinator has no slot for the queue
+     * @throws ConnectionException if connectivity to coordinator is lost
+     */
+    public Slot getNextSlot(SlotCoordinator slotCoordinator) throws ConnectionException {
+        return slotPrefetcher.getSlot(slotCoordinator);
+    }
+
     /***
      * @return Last purged timestamp of queue.
      */
@@ -154,6 +188,8 @@ public class MessageHandler {
     public int bufferMessages(Slot currentSlot) throws AndesException {
 
         List<DeliverableAndesMetadata> messagesReadFromStore = readMessagesFromMessageStore(currentSlot);
+        // Acknowledged messages can still be in the store if their deletion is deferred
+        MessagingEngine.getInstance().removeDeletedMessages(currentSlot, messagesReadFromStore);
 
         //if no messages are in the slot range, delete the slot from coordinator. No use of it
         if (messagesReadFromStore.isEmpty()) {
@@ -175,9 +211,15 @@ public class MessageHandler {
 
         trackedSlot.incrementPendingMessageCount(messagesReadFromStore.size());
 
+        LongArrayList bufferedMessageIds = new LongArrayList(messagesReadFromStore.size());
         for (DeliverableAndesMetadata message : messagesReadFromStore) {
             bufferMessage(message);
+            bufferedMessageIds.add(message.getMessageID());
         }
+        // Keep content of buffered messages in the cache until it is read for delivery
+        messageCache.pinMessages(currentSlot.getStorageQueueName(), bufferedMessageIds);
+        // Read content of messages not in the cache while they wait for delivery
+        SlotContentPrefetcher.getInstance().prefetch(trackedSlot, messagesReadFromStore);
 
         return messagesReadFromStore.size();
     }
@@ -308,7 +350,13 @@ public class MessageHandler {
     public int clearReadButUndeliveredMessages() {
         lastPurgedTimestamp = System.currentTimeMillis();
         int messageCount = readButUndeliveredMessages.size();
+        LongArrayList clearedMessageIds = new LongArrayList(messageCount);
+        for (Long messageId : readButUndeliveredMessages.keySet()) {
+            clearedMessageIds.add(messageId);
+        }
         readButUndeliveredMessages.clear();
+        messageCache.unpinMessages(clearedMessageIds);
+        slotPrefetcher.clear();
         for (Slot slot : slotsRead.values()) {
             if (log.isDebugEnabled()) {
                 log.debug("clear tracking of messages for slot = " + slot);
@@ -388,6 +436,8 @@ public class MessageHandler {
      * Schedule to release all non empty slots read back to the coordinator
      */
     public void releaseAllSlots() {
+        // Prefetched slots are released along with the slots read
+        slotPrefetcher.close();
         executor.submit(new SlotReAssignTask(queueName));
     }
 
@@ -19,6 +19,7 @@
 package org.wso2.andes.kernel;
 
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import org.wso2.andes.configuration.util.ConfigurationProperties;
 import org.wso2.andes.kernel.slot.Slot;
@@ -140,6 +141,20 @@ public interface MessageStore extends HealthAwareStore {
     List<DeliverableAndesMetadata> getMetadataList(Slot slot, final String storageQueueName, long firstMsgId,
             long lastMsgID) throws AndesException;
 
+    /**
+     * Stream metadata of messages within a message id range to a consumer without reading the whole range into
+     * memory
+     *
+     * @param slot             slot the messages are read for
+     * @param storageQueueName name of the queue messages are stored
+     * @param firstMsgId       first id of the range
+     * @param lastMsgID        last id of the range
+     * @param consumer         consumer receiving the metadata
+     * @throws AndesException
+     */
+    void streamMetadataList(Slot slot, String storageQueueName, long firstMsgId, long lastMsgID,
+            MetadataConsumer<DeliverableAndesMetadata> consumer) throws AndesException;
+
     /**
      * Get number of messages in the queue within the message id range
      *
@@ -164,6 +179,19 @@ public interface MessageStore extends HealthAwareStore {
     List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(final String storageQueueName, long firstMsgId,
             int count) throws AndesException;
 
+    /**
+     * Stream metadata of messages of a queue starting from a message id to a consumer without reading all of them
+     * into memory
+     *
+     * @param storageQueueName name of the queue
+     * @param firstMsgId       first id
+     * @param count            maximum number of messages to read
+     * @param consumer         consumer receiving the metadata
+     * @throws AndesException
+     */
+    void streamNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException;
+
     /**
      * Read a list of message ids from store specifying a starting message id
      * and a count
@@ -203,6 +231,19 @@ public interface MessageStore extends HealthAwareStore {
     List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count)
             throws AndesException;
 
+    /**
+     * Stream metadata of messages in a dead letter channel queue starting from a message id to a consumer without
+     * reading all of them into memory
+     *
+     * @param dlcQueueName name of the dead letter channel queue
+     * @param firstMsgId   first id
+     * @param count        maximum number of messages to read
+     * @param consumer     consumer receiving the metadata
+     * @throws AndesException
+     */
+    void streamNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException;
+
     /**
      * delete message metadata of messages for a queue
      *
@@ -234,6 +275,21 @@ public interface MessageStore extends HealthAwareStore {
      */
     void deleteMessages(List<Long> messagesToRemove) throws AndesException;
 
+    /**
+     * Delete all the messages of a storage queue within a message id range in one operation. Deletion is done only
+     * if the range contains exactly the given messages. Otherwise nothing is deleted, as the range holds
+     * messages that are not yet acknowledged (i.e. messages of an overlapping slot).
+     *
+     * @param storageQueueName name of the queue
+     * @param firstMsgId       first message id of the range
+     * @param lastMsgId        last message id of the range
+     * @param messageIDs       ids of the messages expected in the range
+     * @return true if the messages were deleted
+     * @throws AndesException
+     */
+    boolean deleteMessagesInRange(String storageQueueName, long firstMsgId, long lastMsgId, LongArrayList messageIDs)
+            throws AndesException;
+
     /**
      * Method to delete a list of messages from the dead letter channel.
      *
@@ -259,6 +315,15 @@ public interface MessageStore extends HealthAwareStore {
      */
     List<Long> getExpiredMessagesFromDLC() throws AndesException;
 
+    /**
+     * Get expiration times of all messages with an expiration time which are not in DLC. Used to rebuild the
+     * in memory expiry index at startup.
+     *
+     * @return map of storage queue names and expiration times of the messages of the queue keyed by message id
+     * @throws AndesException
+     */
+    Map<String, LongLongHashMap> getMessageExpirationTimes() throws AndesException;
+
     /**
      * add messages to expiry queue
      *
@@ -381,6 +446,30 @@ public interface MessageStore extends HealthAwareStore {
      */
     void decrementMessageCountForQueue(String storageQueueName, long decrementBy) throws AndesException;
 
+    /**
+     * Get the changes of queue message counts done by this node since the last call and clear them. Changes are
+     * published to the other nodes of the cluster.
+     *
+     * @return map of queue names and the change of the message count. Empty if counts are not kept in memory
+     */
+    Map<String, Long> drainMessageCountChanges();
+
+    /**
+     * Apply the changes of queue message counts published by another node of the cluster
+     *
+     * @param messageCountChanges map of queue names and the change of the message count
+     */
+    void applyMessageCountChanges(Map<String, Long> messageCountChanges);
+
+    /**
+     * Read content of messages which are not in the message cache from the store and add them to the cache. Used
+     * to read content ahead of delivery.
+     *
+     * @param metadataList metadata of the messages
+     * @throws AndesException on an error reading content
+     */
+    void cacheMessageContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException;
+
     /**
      * Store retained message list in the message store.
      *
@@ -420,6 +509,14 @@ public interface MessageStore extends HealthAwareStore {
      */
     DeliverableAndesMetadata getRetainedMetadata(String destination) throws AndesException;
 
+    /**
+     * Check whether the store persists the content of messages routed to several queues only once. Messages are
+     * marked as sharing content with the original message when they are cloned only if this is enabled.
+     *
+     * @return true if content is shared among the copies of a message
+     */
+    boolean isContentSharingEnabled();
+
     /**
      * close the message store
      */
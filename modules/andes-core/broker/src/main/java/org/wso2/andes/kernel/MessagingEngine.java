@@ -35,6 +35,7 @@ import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.MessageIdGenerator;
 import org.wso2.andes.server.cluster.coordination.TimeStampBasedMessageIdGenerator;
 import org.wso2.andes.server.queue.DLCQueueUtils;
+import org.wso2.andes.store.file.MessageJournal;
 import org.wso2.andes.thrift.MBThriftClient;
 import org.wso2.andes.tools.utils.MessageTracer;
 
@@ -80,6 +81,22 @@ public class MessagingEngine {
      */
     private MessageExpiryManager messageExpiryManager;
 
+    /**
+     * Local journal received messages are written to before the message store. Null if the journal is disabled
+     */
+    private MessageJournal messageJournal;
+
+    /**
+     * Removes acknowledged messages from the message store in the background. Null if deferred deletion is disabled
+     */
+    private DeferredMessageDeleter deferredMessageDeleter;
+
+    /**
+     * In memory expiry index messages with an expiration time are added to when written. Null if the index is
+     * disabled
+     */
+    private TimerWheelExpiryMessageDeletionTask expiryIndexDeletionTask;
+
     /**
      * private constructor for singleton pattern
      */
@@ -107,16 +124,28 @@ public class MessagingEngine {
      * storing strategy will be set according to the configurations by calling this.
      *
      * @param messageStore MessageStore
+     * @param messageExpiryManager MessageExpiryManager
+     * @param messageJournal journal received messages are written to. Null if the journal is disabled
      * @throws AndesException
      */
-    public void initialise(MessageStore messageStore, MessageExpiryManager messageExpiryManager)
-            throws AndesException {
+    public void initialise(MessageStore messageStore, MessageExpiryManager messageExpiryManager,
+                           MessageJournal messageJournal) throws AndesException {
 
         configureMessageIDGenerator();
 
         this.messageStore = messageStore;
         this.messageExpiryManager = messageExpiryManager;
-
+        this.messageJournal = messageJournal;
+
+        Boolean deferredDeletionEnabled = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERSISTENCE_DEFERRED_DELETION_ENABLED);
+        if (deferredDeletionEnabled) {
+            Integer compactionInterval = AndesConfigurationManager.readValue(
+                    AndesConfiguration.PERSISTENCE_DEFERRED_DELETION_COMPACTION_INTERVAL);
+            Integer maxTombstoneAge = AndesConfigurationManager.readValue(
+                    AndesConfiguration.PERSISTENCE_DEFERRED_DELETION_MAX_TOMBSTONE_AGE);
+            deferredMessageDeleter = new DeferredMessageDeleter(messageStore, compactionInterval, maxTombstoneAge);
+        }
 
         /*
         Initialize the SlotCoordinator
@@ -161,6 +190,50 @@ public class MessagingEngine {
      */
     public void messagesReceived(List<AndesMessage> messageList) throws AndesException {
         messageStore.storeMessages(messageList);
+        if (null != expiryIndexDeletionTask) {
+            expiryIndexDeletionTask.messagesWritten(messageList);
+        }
+    }
+
+    /**
+     * Write received messages to the message journal. Messages are written to the message store later and the slot
+     * message counter is informed by the journal once they are stored.
+     *
+     * @param messageList List of {@link org.wso2.andes.kernel.AndesMessage} to journal
+     * @throws AndesException
+     */
+    public void journalMessages(List<AndesMessage> messageList) throws AndesException {
+        messageJournal.append(messageList);
+        if (null != expiryIndexDeletionTask) {
+            expiryIndexDeletionTask.messagesWritten(messageList);
+        }
+    }
+
+    /**
+     * Set the in memory expiry index messages with an expiration time are added to when received
+     *
+     * @param expiryIndexDeletionTask task deleting messages of the index when they expire
+     */
+    public void setExpiryIndexDeletionTask(TimerWheelExpiryMessageDeletionTask expiryIndexDeletionTask) {
+        this.expiryIndexDeletionTask = expiryIndexDeletionTask;
+    }
+
+    /**
+     * Check if received messages are written to the message journal
+     *
+     * @return true if the message journal is enabled
+     */
+    public boolean isMessageJournalEnabled() {
+        return null != messageJournal;
+    }
+
+    /**
+     * Get the journal received messages are written to
+     *
+     * @return message journal. Null if the journal is disabled
+     */
+    public MessageJournal getMessageJournal() {
+        return messageJournal;
     }
 
     /**
@@ -267,6 +340,65 @@ public class MessagingEngine {
 
     }
 
+    /**
+     * Delete acknowledged messages. If deferred deletion is enabled messages are marked as deleted and removed
+     * from the store later in the background. Otherwise messages are deleted from the store before returning.
+     *
+     * @param messagesToRemove List of acknowledged messages to remove
+     * @throws AndesException
+     */
+    public void deleteAcknowledgedMessages(List<DeliverableAndesMetadata> messagesToRemove) throws AndesException {
+        if (null != deferredMessageDeleter) {
+            deferredMessageDeleter.recordDeletion(messagesToRemove);
+            // Content is no longer needed for delivery. Free the cache without waiting for the deletion
+            LongArrayList messageIds = new LongArrayList(messagesToRemove.size());
+            for (DeliverableAndesMetadata message : messagesToRemove) {
+                messageIds.add(message.getMessageID());
+            }
+            AndesContext.getInstance().getMessageCache().removeFromCache(messageIds);
+        } else {
+            deleteMessages(messagesToRemove);
+        }
+    }
+
+    /**
+     * Remove acknowledged messages of a slot which are not yet removed from the store by deferred deletion. Called
+     * once all the messages of the slot are acknowledged.
+     *
+     * @param slot slot to remove acknowledged messages of
+     */
+    public void compactDeletedMessagesOfSlot(Slot slot) {
+        if (null != deferredMessageDeleter) {
+            deferredMessageDeleter.compactSlot(slot);
+        }
+    }
+
+    /**
+     * Remove all acknowledged messages of a storage queue which are not yet removed from the store by deferred
+     * deletion
+     *
+     * @param storageQueueName name of the storage queue
+     * @throws AndesException
+     */
+    public void flushDeletedMessagesOfQueue(String storageQueueName) throws AndesException {
+        if (null != deferredMessageDeleter) {
+            deferredMessageDeleter.flushQueue(storageQueueName);
+        }
+    }
+
+    /**
+     * Remove messages which are acknowledged but not yet removed from the store from a list of messages read from
+     * the store
+     *
+     * @param slot     slot messages are read for
+     * @param messages messages read from the store
+     */
+    public void removeDeletedMessages(Slot slot, List<DeliverableAndesMetadata> messages) {
+        if (null != deferredMessageDeleter) {
+            deferredMessageDeleter.removeDeletedMessages(slot, messages);
+        }
+    }
+
     /**
      * Delete messages from store. Optionally move to dead letter channel.  Delete
      * call is blocking and then slot message count is dropped in order. Message state
@@ -425,6 +557,20 @@ public class MessagingEngine {
         return messageStore.getNextNMessageMetadataFromQueue(queueName, firstMsgId, count);
     }
 
+    /**
+     * Stream message metadata from queue starting from given id up to a given message count
+     *
+     * @param queueName  name of the queue
+     * @param firstMsgId id of the starting id
+     * @param count      maximum num of messages to read
+     * @param consumer   consumer receiving the metadata
+     * @throws AndesException
+     */
+    public void streamNextNMessageMetadataFromQueue(final String queueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        messageStore.streamNextNMessageMetadataFromQueue(queueName, firstMsgId, count, consumer);
+    }
+
     /**
      * Get message metadata from queue starting from given id up a given message count.
      *
@@ -454,6 +600,20 @@ public class MessagingEngine {
         return messageStore.getNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count);
     }
 
+    /**
+     * Stream message metadata from dead letter channel queue starting from given id up to a given message count
+     *
+     * @param dlcQueueName name of the dead letter channel queue name
+     * @param firstMsgId   id of the starting id
+     * @param count        maximum num of messages to read
+     * @param consumer     consumer receiving the metadata
+     * @throws AndesException
+     */
+    public void streamNextNMessageMetadataFromDLC(final String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        messageStore.streamNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count, consumer);
+    }
+
     /**
      * Get expired but not yet deleted messages from message store
      *
@@ -566,6 +726,12 @@ public class MessagingEngine {
     }
 
     public void completePendingStoreOperations() {
+        if (null != messageJournal) {
+            messageJournal.close();
+        }
+        if (null != deferredMessageDeleter) {
+            deferredMessageDeleter.close();
+        }
         messageStore.close();
     }
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+/**
+ * Receives message metadata streamed from the message store one message at a time, in the ascending order of
+ * message ids. Metadata of a message is read and parsed only when the consumer is ready to take it, so a consumer
+ * processing each message as it arrives does not need the whole range in memory.
+ *
+ * @param <T> type of the metadata
+ */
+public interface MetadataConsumer<T extends AndesMessageMetadata> {
+
+    /**
+     * Take the metadata of the next message
+     *
+     * @param metadata metadata of the message
+     * @return true to continue reading, false to stop reading further messages
+     * @throws AndesException on an error processing the message. Reading stops and the exception is propagated
+     */
+    boolean consume(T metadata) throws AndesException;
+}
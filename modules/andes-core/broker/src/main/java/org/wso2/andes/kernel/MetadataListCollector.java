@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MetadataConsumer} collecting all the streamed metadata into a list. Used by callers which need the whole
+ * range at once.
+ *
+ * @param <T> type of the metadata
+ */
+public class MetadataListCollector<T extends AndesMessageMetadata> implements MetadataConsumer<T> {
+
+    private final List<T> metadataList;
+
+    public MetadataListCollector() {
+        this.metadataList = new ArrayList<>();
+    }
+
+    /**
+     * Create a collector for a known number of messages
+     *
+     * @param expectedCount expected number of messages
+     */
+    public MetadataListCollector(int expectedCount) {
+        this.metadataList = new ArrayList<>(Math.max(expectedCount, 0));
+    }
+
+    @Override
+    public boolean consume(T metadata) {
+        metadataList.add(metadata);
+        return true;
+    }
+
+    /**
+     * @return collected metadata in the order they were streamed
+     */
+    public List<T> getMetadataList() {
+        return metadataList;
+    }
+}
@@ -28,8 +28,6 @@ import org.wso2.andes.server.subscription.Subscription;
 import org.wso2.andes.server.subscription.SubscriptionImpl;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -99,7 +97,8 @@ public class QueueBrowserDeliveryWorker {
     }
 
     /**
-     * Get message destination entries sorted using the message Id in the ascending order.
+     * Get message destination entries sorted using the message Id in the ascending order. Metadata is streamed from
+     * the store in message id order and converted to a queue entry as it is read.
      *
      * @return Sorted QueueEntry List
      * @throws AndesException
@@ -112,28 +111,18 @@ public class QueueBrowserDeliveryWorker {
         long lastReadMessageId = lastAssignedSlotMessageId - messageIdDifference;
         int countOfQueue = (int) MessagingEngine.getInstance().getMessageCountOfQueue(queueName);
 
-        List<AndesMessageMetadata> queueMessageMetaData = new ArrayList<AndesMessageMetadata>();
-        List<AndesMessageMetadata> currentlyReadMessageMetaData = MessagingEngine.getInstance()
-                .getNextNMessageMetadataFromQueue(queueName, lastReadMessageId, countOfQueue);
-
-        queueMessageMetaData.addAll(currentlyReadMessageMetaData);
-
-        CustomComparator orderComparator = new CustomComparator();
-        Collections.sort(queueMessageMetaData, orderComparator);
+        final List<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
         //todo: hasitha - what abt setting client identifier (it is skipped)?
-        List<AMQMessage>  AMQMessages  =  AMQPUtils.getEntryAMQMessageListFromAndesMetaDataList(queueMessageMetaData);
-        List<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
-        for(AMQMessage message : AMQMessages) {
-            queueEntries.add(AMQPUtils.convertAMQMessageToQueueEntry(message, queue));
-        }
+        MessagingEngine.getInstance().streamNextNMessageMetadataFromQueue(queueName, lastReadMessageId, countOfQueue,
+                new MetadataConsumer<AndesMessageMetadata>() {
+                    @Override
+                    public boolean consume(AndesMessageMetadata metadata) {
+                        AMQMessage message = AMQPUtils.getAMQMessageFromAndesMetaData(metadata);
+                        queueEntries.add(AMQPUtils.convertAMQMessageToQueueEntry(message, queue));
+                        return true;
+                    }
+                });
         return queueEntries;
     }
 
-    public class CustomComparator implements Comparator<AndesMessageMetadata>{
-
-        public int compare(AndesMessageMetadata message1, AndesMessageMetadata message2) {
-            return (int) (message1.getMessageID()-message2.getMessageID());
-        }
-    }
-
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.gs.collections.api.iterator.MutableLongIterator;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.slot.AbstractSlotManager;
+import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
+import org.wso2.andes.kernel.slot.SlotManagerStandalone;
+import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.HealthAwareStore;
+import org.wso2.andes.store.StoreHealthListener;
+import org.wso2.andes.tools.utils.MessageTracer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TimerWheelExpiryMessageDeletionTask deletes expired messages as soon as they expire using an in memory
+ * {@link ExpiryTimerWheel} instead of periodically querying the store for expired messages of each queue.
+ * <p>
+ * The wheel is filled with messages written by this node and rebuilt from the store at startup. When messages
+ * expire they are deleted only if they are in the safe deletion zone of their queue (not allocated to any slot),
+ * same as {@link PeriodicExpiryMessageDeletionTask}. Same as that task, deletion runs only in standalone mode or on
+ * the coordinator of the cluster. Other nodes drop expired entries of the wheel.
+ * <p>
+ * The wheel only deletes messages sooner. {@link PeriodicExpiryMessageDeletionTask} still runs to delete messages the
+ * wheel skipped because they were not in the safe deletion zone when they expired and messages written by other
+ * nodes. Expired messages of slots already allocated are deleted by the node delivering the slot when they reach the
+ * delivery path.
+ */
+public class TimerWheelExpiryMessageDeletionTask implements Runnable, StoreHealthListener {
+
+    private static Log log = LogFactory.getLog(TimerWheelExpiryMessageDeletionTask.class);
+
+    /**
+     * Number of buckets in a level of the wheel
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * Number of levels of the wheel. With 1 second ticks the levels cover around 8 minutes, 3 days and 4 years
+     */
+    private static final int WHEEL_LEVEL_COUNT = 3;
+
+    private final ExpiryTimerWheel expiryTimerWheel;
+
+    /**
+     * Maximum number of messages deleted in one store operation
+     */
+    private final int deletionBatchSize;
+
+    /**
+     * Holds the slot manager based on broker running mode
+     */
+    private final AbstractSlotManager slotManager;
+
+    private final boolean isClusteringEnabled;
+
+    /**
+     * Set while message stores are unavailable. Expired messages are kept in the wheel until stores are back
+     */
+    private volatile boolean messageStoresUnavailable;
+
+    /**
+     * Create the deletion task
+     *
+     * @param tickMillis        length of a tick of the wheel in milliseconds
+     * @param deletionBatchSize maximum number of messages deleted in one store operation
+     */
+    public TimerWheelExpiryMessageDeletionTask(long tickMillis, int deletionBatchSize) {
+        this.expiryTimerWheel = new ExpiryTimerWheel(tickMillis, WHEEL_SIZE, WHEEL_LEVEL_COUNT,
+                System.currentTimeMillis());
+        this.deletionBatchSize = deletionBatchSize;
+
+        isClusteringEnabled = AndesContext.getInstance().isClusteringEnabled();
+        if (isClusteringEnabled) {
+            this.slotManager = SlotManagerClusterMode.getInstance();
+        } else {
+            this.slotManager = SlotManagerStandalone.getInstance();
+        }
+        FailureObservingStoreManager.registerStoreHealthListener(this);
+    }
+
+    /**
+     * Load expiration times of messages in the store to the wheel
+     *
+     * @param messageStore store to load from
+     * @throws AndesException
+     */
+    public void recoverExpiryIndex(MessageStore messageStore) throws AndesException {
+        int messageCount = 0;
+        for (Map.Entry<String, LongLongHashMap> entry : messageStore.getMessageExpirationTimes().entrySet()) {
+            String storageQueueName = entry.getKey();
+            LongLongHashMap expirationTimes = entry.getValue();
+            MutableLongIterator iterator = expirationTimes.keySet().longIterator();
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                expiryTimerWheel.schedule(messageId, storageQueueName, expirationTimes.get(messageId));
+            }
+            messageCount = messageCount + expirationTimes.size();
+        }
+        log.info("Expiry index recovered with " + messageCount + " messages");
+    }
+
+    /**
+     * Add messages written to the store to the wheel
+     *
+     * @param messages messages written
+     */
+    public void messagesWritten(List<AndesMessage> messages) {
+        for (AndesMessage message : messages) {
+            AndesMessageMetadata metadata = message.getMetadata();
+            if (metadata.isExpirationDefined()) {
+                expiryTimerWheel.schedule(metadata.getMessageID(), metadata.getStorageQueueName(),
+                        metadata.getExpirationTime());
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        if (messageStoresUnavailable) {
+            return;
+        }
+        try {
+            long currentTime = System.currentTimeMillis();
+            Map<String, LongArrayList> expiredMessages = expiryTimerWheel.advance(currentTime);
+            // This logic belongs to an MB run in stand alone mode / the coordinator node run in cluster mode
+            if (isClusteringEnabled && !AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+                return;
+            }
+            for (Map.Entry<String, LongArrayList> entry : expiredMessages.entrySet()) {
+                try {
+                    deleteExpiredMessages(entry.getKey(), entry.getValue());
+                } catch (AndesException e) {
+                    log.error("Error while deleting expired messages of queue " + entry.getKey()
+                            + ". Deletion will be retried", e);
+                    // Put back to the wheel to be returned on the next run
+                    MutableLongIterator iterator = entry.getValue().longIterator();
+                    while (iterator.hasNext()) {
+                        expiryTimerWheel.schedule(iterator.next(), entry.getKey(), currentTime);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            // Task should keep running even if a run fails
+            log.error("Error occurred during the timer wheel expiry message deletion task", e);
+        }
+    }
+
+    /**
+     * Delete expired messages of a queue which are in the safe deletion zone
+     *
+     * @param storageQueueName storage queue of the messages
+     * @param messageIds       ids of the expired messages
+     * @throws AndesException
+     */
+    private void deleteExpiredMessages(String storageQueueName, LongArrayList messageIds) throws AndesException {
+        long lowerBoundId = slotManager.getSafeZoneLowerBoundId(storageQueueName);
+        // Lower bound id -1 represents that there is no valid region to perform the delete
+        if (-1 == lowerBoundId) {
+            return;
+        }
+        try {
+            List<Long> messagesToDelete = new ArrayList<>(Math.min(messageIds.size(), deletionBatchSize));
+            MutableLongIterator iterator = messageIds.longIterator();
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                if (messageId < lowerBoundId) {
+                    // Allocated or about to be allocated to a slot. Deleted when it reaches the delivery path
+                    continue;
+                }
+                messagesToDelete.add(messageId);
+                if (MessageTracer.isEnabled()) {
+                    MessageTracer.trace(messageId, "", MessageTracer.EXPIRED_MESSAGE_DETECTED_FROM_DATABASE);
+                }
+                if (messagesToDelete.size() >= deletionBatchSize) {
+                    MessagingEngine.getInstance().deleteMessagesById(messagesToDelete);
+                    messagesToDelete = new ArrayList<>(deletionBatchSize);
+                }
+            }
+            if (!messagesToDelete.isEmpty()) {
+                MessagingEngine.getInstance().deleteMessagesById(messagesToDelete);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug(messageIds.size() + " messages expired in queue " + storageQueueName);
+            }
+        } finally {
+            //clear the safe deletion state in the slot manager after deletion completes
+            slotManager.clearDeletionTaskState();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeNonOperational(HealthAwareStore store, Exception ex) {
+        log.warn("Message store became not operational.");
+        messageStoresUnavailable = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeOperational(HealthAwareStore store) {
+        log.info("Message store became operational.");
+        messageStoresUnavailable = false;
+    }
+}
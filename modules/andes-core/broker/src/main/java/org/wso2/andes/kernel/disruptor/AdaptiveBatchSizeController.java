@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides the batch size of a {@link ConcurrentBatchEventHandler} from the observed latency of handling a batch.
+ * <p>
+ * Batch size is grown while events are waiting in the ring (i.e. the batch was handed over because it was full and
+ * not because the end of available events was reached) and both the last and the smoothed batch latency are below
+ * the target. Batch size is reduced multiplicatively once the smoothed latency goes above the target. At low
+ * publishing rates batches stay small and are written with low latency, at high rates batches grow until the store
+ * reaches the target latency.
+ * <p>
+ * Controller is used by the single thread of the owning event handler. Batch size is read by metrics reporters
+ * from other threads.
+ */
+public class AdaptiveBatchSizeController {
+
+    /**
+     * Weight of the latest latency sample in the smoothed latency
+     */
+    private static final double LATENCY_SMOOTHING_FACTOR = 0.2;
+
+    /**
+     * Factor batch size is multiplied by when the latency is above the target
+     */
+    private static final double DECREASE_FACTOR = 0.75;
+
+    /**
+     * Fraction of the current batch size added when events are waiting and latency is below the target
+     */
+    private static final int INCREASE_DIVISOR = 4;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final long targetLatencyNanos;
+
+    /**
+     * Smoothed latency of handling a batch in nano seconds. Negative until the first sample
+     */
+    private double smoothedLatencyNanos = -1;
+
+    private volatile int batchSize;
+
+    /**
+     * Create a controller
+     *
+     * @param initialBatchSize batch size to start with
+     * @param minBatchSize     minimum batch size
+     * @param maxBatchSize     maximum batch size
+     * @param targetLatency    targeted latency of handling a batch in milliseconds
+     */
+    public AdaptiveBatchSizeController(int initialBatchSize, int minBatchSize, int maxBatchSize,
+                                       long targetLatency) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Invalid batch size range [" + minBatchSize + ", " + maxBatchSize
+                    + "]");
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+        this.batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, initialBatchSize));
+    }
+
+    /**
+     * Get the batch size to be used for the next batch
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Update the batch size after a batch is handled
+     *
+     * @param latencyNanos time taken to handle the batch in nano seconds
+     * @param backlogged   true if more events were waiting in the ring when the batch was handed over
+     */
+    public void batchHandled(long latencyNanos, boolean backlogged) {
+        if (smoothedLatencyNanos < 0) {
+            smoothedLatencyNanos = latencyNanos;
+        } else {
+            smoothedLatencyNanos = (LATENCY_SMOOTHING_FACTOR * latencyNanos)
+                    + ((1 - LATENCY_SMOOTHING_FACTOR) * smoothedLatencyNanos);
+        }
+
+        int currentBatchSize = batchSize;
+        if (smoothedLatencyNanos > targetLatencyNanos) {
+            batchSize = Math.max(minBatchSize, (int) (currentBatchSize * DECREASE_FACTOR));
+            // Latency is expected to drop with the batch size. Otherwise the lagging average keeps reducing it
+            smoothedLatencyNanos = smoothedLatencyNanos * batchSize / currentBatchSize;
+        } else if (backlogged && latencyNanos <= targetLatencyNanos) {
+            batchSize = Math.min(maxBatchSize, currentBatchSize + Math.max(1, currentBatchSize / INCREASE_DIVISOR));
+        }
+    }
+}
@@ -69,6 +69,11 @@ public class ConcurrentBatchEventHandler implements EventHandler<InboundEventCon
      */
     private final List<InboundEventContainer> eventList;
 
+    /**
+     * Decides the batch size from observed batch latency. Null if the batch size is fixed
+     */
+    private final AdaptiveBatchSizeController batchSizeController;
+
     /**
      * Creates an event handler that can be used with a batch processor to do custom batching of inbound
      * event using inbound event type
@@ -82,6 +87,24 @@ public class ConcurrentBatchEventHandler implements EventHandler<InboundEventCon
      */
     public ConcurrentBatchEventHandler(long turn, int groupCount, int batchSize,
                                        InboundEventContainer.Type eventType, BatchEventHandler eventHandler) {
+        this(turn, groupCount, batchSize, eventType, eventHandler, null);
+    }
+
+    /**
+     * Creates an event handler that can be used with a batch processor to do custom batching of inbound
+     * event using inbound event type. Batch size is decided by the given controller.
+     *
+     * @param turn                is the value of, sequence % groupCount this batch processor process events. Turn
+     *                            must be less than groupCount
+     * @param groupCount          total number of concurrent batch processors for the event type
+     * @param batchSize           maximum size of the batch. Used if no controller is given
+     * @param eventType           type of event to batch
+     * @param eventHandler        event handler that does the actual per event, event handling
+     * @param batchSizeController controller deciding the batch size. Null to use a fixed batch size
+     */
+    public ConcurrentBatchEventHandler(long turn, int groupCount, int batchSize,
+                                       InboundEventContainer.Type eventType, BatchEventHandler eventHandler,
+                                       AdaptiveBatchSizeController batchSizeController) {
         
         if (turn >= groupCount) {
             throw new IllegalArgumentException("Turn should be less than groupCount");
@@ -92,6 +115,7 @@ public class ConcurrentBatchEventHandler implements EventHandler<InboundEventCon
         this.batchSize = batchSize;
         this.eventType = eventType;
         this.eventHandler = eventHandler;
+        this.batchSizeController = batchSizeController;
         eventList = new ArrayList<>(this.batchSize);
 
     }
@@ -121,10 +145,16 @@ public class ConcurrentBatchEventHandler implements EventHandler<InboundEventCon
 
         // Batch and invoke event handler. Irrespective of event type following should execute.
         // End of batch may come in an irrelevant event type slot.
-        if (((eventList.size() >= batchSize) || endOfBatch)
+        int currentBatchSize = (null == batchSizeController) ? batchSize : batchSizeController.getBatchSize();
+        if (((eventList.size() >= currentBatchSize) || endOfBatch)
                 && !eventList.isEmpty()) {
+            long startTime = System.nanoTime();
             try {
                 eventHandler.onEvent(eventList);
+                if (null != batchSizeController) {
+                    // Batch handed over before reaching the end of available events indicates a backlog
+                    batchSizeController.batchHandled(System.nanoTime() - startTime, !endOfBatch);
+                }
                 if (log.isDebugEnabled()) {
                     log.debug("Event handler called with " + eventList.size() + " events. EventType "
                             + eventType);
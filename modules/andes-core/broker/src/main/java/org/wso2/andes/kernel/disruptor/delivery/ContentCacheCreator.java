@@ -27,11 +27,13 @@ import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
 import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DisruptorCachedContent;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.ProtocolMessage;
+import org.wso2.andes.store.cache.AndesMessageCache;
 import org.wso2.andes.tools.utils.MessageTracer;
 
 import java.util.ArrayList;
@@ -95,11 +97,13 @@ public class ContentCacheCreator {
 
         LongHashSet messagesToFetch = new LongHashSet();
         List<DeliveryEventData> messagesWithoutCachedContent = new ArrayList<>();
+        LongHashSet messagesToUnpin = new LongHashSet();
 
         for (DeliveryEventData deliveryEventData : eventDataList) {
             ProtocolMessage metadata = deliveryEventData.getMetadata();
             long messageID = metadata.getMessageID();
             int contentLength = metadata.getMessage().getMessageContentLength();
+            messagesToUnpin.add(messageID);
 
             if (contentLength > 0) {
 
@@ -181,6 +185,23 @@ public class ContentCacheCreator {
             MessageTracer.trace(metadata.getMessage(), MessageTracer.CONTENT_READ);
             logFailedMessageContentRetreivalErrors();
         }
+
+        unpinMessages(messagesToUnpin);
+    }
+
+    /**
+     * Release the pins of messages kept in the message cache while they waited in the delivery buffer. Content of
+     * the messages is read for delivery, hence they can be evicted again.
+     *
+     * @param messageIDs ids of the messages read for delivery
+     */
+    private void unpinMessages(LongHashSet messageIDs) {
+        AndesMessageCache messageCache = AndesContext.getInstance().getMessageCache();
+        if (null != messageCache && !messageIDs.isEmpty()) {
+            LongArrayList messagesToUnpin = new LongArrayList(messageIDs.size());
+            messagesToUnpin.addAll(messageIDs);
+            messageCache.unpinMessages(messagesToUnpin);
+        }
     }
 
     /**
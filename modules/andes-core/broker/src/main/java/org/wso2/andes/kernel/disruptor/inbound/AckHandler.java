@@ -79,12 +79,14 @@ public class AckHandler implements BatchEventHandler, StoreHealthListener {
         if (log.isTraceEnabled()) {
             StringBuilder messageIDsString = new StringBuilder();
             for (InboundEventContainer inboundEvent : eventList) {
-                messageIDsString.append(inboundEvent.ackData.getAcknowledgedMessage().getMessageID()).append(" , ");
+                for (DeliverableAndesMetadata message : inboundEvent.ackData.getAcknowledgedMessages()) {
+                    messageIDsString.append(message.getMessageID()).append(" , ");
+                }
             }
-            log.trace(eventList.size() + " messages received : " + messageIDsString);
+            log.trace(eventList.size() + " acknowledgement events received : " + messageIDsString);
         }
         if (log.isDebugEnabled()) {
-            log.debug(eventList.size() + " acknowledgements received from disruptor.");
+            log.debug(eventList.size() + " acknowledgement events received from disruptor.");
         }
 
         try {
@@ -109,22 +111,24 @@ public class AckHandler implements BatchEventHandler, StoreHealthListener {
 
             AndesAckData ack = event.ackData;
             // For topics message is shared. If all acknowledgements are received only we should remove message
-            boolean deleteMessage = ack.getAcknowledgedMessage().markAsAcknowledgedByChannel(ack.getChannelID());
+            for (DeliverableAndesMetadata message : ack.getAcknowledgedMessages()) {
+                if (message.markAsAcknowledgedByChannel(ack.getChannelID())) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Ok to delete message id " + message.getMessageID());
+                    }
+                    //it is a must to set this to event container. Otherwise, multiple event handlers will see the
+                    // status
+                    ack.addRemovableMessage(message);
+                    messagesToRemove.add(message);
+                }
+            }
 
+            // All the messages of an event are acknowledged by the same channel
             AndesSubscription subscription = subscriptionManager
                     .getSubscriptionByProtocolChannel(ack.getChannelID());
 
-            subscription.onMessageAck(ack.getAcknowledgedMessage().getMessageID());
+            subscription.onMessageAck(ack.getAcknowledgedMessages());
 
-            if (deleteMessage) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Ok to delete message id " + ack.getAcknowledgedMessage().getMessageID());
-                }
-                //it is a must to set this to event container. Otherwise, multiple event handlers will see the status
-                event.ackData.setBaringMessageRemovable();
-                messagesToRemove.add(ack.getAcknowledgedMessage());
-            }
-            
         }
 
         /*
@@ -145,7 +149,7 @@ public class AckHandler implements BatchEventHandler, StoreHealthListener {
      */
     private void deleteMessagesFromStore(int numberOfRetriesBefore) throws AndesException {
         try {
-            messagingEngine.deleteMessages(messagesToRemove);
+            messagingEngine.deleteAcknowledgedMessages(messagesToRemove);
 
             if (log.isTraceEnabled()) {
                 StringBuilder messageIDsString = new StringBuilder();
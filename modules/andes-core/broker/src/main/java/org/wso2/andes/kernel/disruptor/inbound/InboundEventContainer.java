@@ -25,6 +25,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.slot.SlotMessageCounter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -90,6 +91,13 @@ public class InboundEventContainer {
      * For storing retained messages for topic
      */
     public AndesMessage retainMessage;
+
+    /**
+     * Messages which matched no storage queue. They are acknowledged to the publisher by {@link MessagePreProcessor}
+     * once message IDs are assigned.
+     */
+    public final List<AndesMessage> unroutedMessages = new ArrayList<>();
+
     public boolean preProcessed;
 
     /**
@@ -219,6 +227,7 @@ public class InboundEventContainer {
     public void clear() {
         messageList.clear();
         retainMessage = null;
+        unroutedMessages.clear();
         ackData = null;
         stateEvent = null;
         eventType = Type.IGNORE_EVENT;
@@ -29,8 +29,10 @@ import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.kernel.AndesAckData;
 import org.wso2.andes.kernel.AndesChannel;
 import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DisablePubAckImpl;
 import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.kernel.disruptor.AdaptiveBatchSizeController;
 import org.wso2.andes.kernel.disruptor.ConcurrentBatchEventHandler;
 import org.wso2.andes.kernel.disruptor.LogExceptionHandler;
 import org.wso2.andes.kernel.disruptor.compression.LZ4CompressionHelper;
@@ -49,9 +51,14 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.MAX_TRANSACTION_BATCH_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACKNOWLEDGEMENT_HANDLER_BATCH_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLER_COUNT;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_BATCHING_ENABLED;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_BATCHING_MAX_BATCH_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_BATCHING_MIN_BATCH_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_BATCHING_TARGET_LATENCY;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_WRITER_BATCH_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_MESSAGE_PRE_PROCESSORS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_MESSAGE_WRITERS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_TRANSACTION_MESSAGE_WRITERS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PUBLISHING_BUFFER_SIZE;
@@ -96,6 +103,8 @@ public class InboundEventManager {
                 PERFORMANCE_TUNING_PARALLEL_TRANSACTION_MESSAGE_WRITERS);
         Integer transactionBatchSize = AndesConfigurationManager.readValue(
                 MAX_TRANSACTION_BATCH_SIZE);
+        Integer preProcessorCount = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_PARALLEL_MESSAGE_PRE_PROCESSORS);
 
         disablePubAck = new DisablePubAckImpl();
         int maxContentChunkSize = AndesConfigurationManager.readValue(
@@ -135,7 +144,8 @@ public class InboundEventManager {
             concurrentBatchEventHandlers[turn] = new ConcurrentBatchEventHandler(turn, writeHandlerCount,
                     writerBatchSize,
                     MESSAGE_EVENT,
-                    new MessageWriter(messagingEngine, writerBatchSize));
+                    new MessageWriter(messagingEngine, writerBatchSize, messagingEngine.isMessageJournalEnabled()),
+                    createBatchSizeController(writerBatchSize, MESSAGE_EVENT, turn));
         }
 
         for (int turn = 0; turn < transactionHandlerCount; turn++) {
@@ -151,18 +161,30 @@ public class InboundEventManager {
                     new ConcurrentBatchEventHandler(turn, ackHandlerCount,
                             ackHandlerBatchSize,
                             ACKNOWLEDGEMENT_EVENT,
-                            new AckHandler(messagingEngine));
+                            new AckHandler(messagingEngine),
+                            createBatchSizeController(ackHandlerBatchSize, ACKNOWLEDGEMENT_EVENT, turn));
         }
 
-        MessagePreProcessor preProcessor = new MessagePreProcessor();
-        StateEventHandler stateEventHandler = new StateEventHandler();
+        StateEventHandler stateEventHandler = new StateEventHandler(messagingEngine.getMessageJournal());
+        MessagePreProcessor preProcessor;
 
         // Order in which handlers run in Disruptor
         // - ContentChunkHandlers
+        // - MessageRoutingHandlers (only if parallel pre processing is enabled)
         // - MessagePreProcessor
         // - MessageWriters and AckHandlers
         // - StateEventHandler
-        disruptor.handleEventsWith(chunkHandlers).then(preProcessor);
+        if (preProcessorCount > 1) {
+            MessageRoutingHandler[] routingHandlers = new MessageRoutingHandler[preProcessorCount];
+            for (int turn = 0; turn < preProcessorCount; turn++) {
+                routingHandlers[turn] = new MessageRoutingHandler(turn, preProcessorCount);
+            }
+            preProcessor = new MessagePreProcessor(true);
+            disruptor.handleEventsWith(chunkHandlers).then(routingHandlers).then(preProcessor);
+        } else {
+            preProcessor = new MessagePreProcessor();
+            disruptor.handleEventsWith(chunkHandlers).then(preProcessor);
+        }
         disruptor.after(preProcessor).handleEventsWith(concurrentBatchEventHandlers);
 
         // State event handler update the state of Andes after other handlers work is done.
@@ -176,6 +198,43 @@ public class InboundEventManager {
         MetricManager.gauge(MetricsConstants.DISRUPTOR_MESSAGE_ACK, Level.INFO, new AckedMessageCountGauge());
     }
 
+    /**
+     * Create a controller adapting the batch size of a batch event handler if adaptive batching is enabled. Chosen
+     * batch size is published as a metric.
+     *
+     * @param initialBatchSize configured batch size
+     * @param eventType        event type batched by the handler
+     * @param turn             turn of the handler
+     * @return batch size controller. Null if adaptive batching is disabled
+     */
+    private AdaptiveBatchSizeController createBatchSizeController(int initialBatchSize,
+                                                                  InboundEventContainer.Type eventType, int turn) {
+        Boolean adaptiveBatchingEnabled = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_ADAPTIVE_BATCHING_ENABLED);
+        if (!adaptiveBatchingEnabled) {
+            return null;
+        }
+
+        Integer targetLatency = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_ADAPTIVE_BATCHING_TARGET_LATENCY);
+        Integer minBatchSize = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_ADAPTIVE_BATCHING_MIN_BATCH_SIZE);
+        Integer maxBatchSize = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_ADAPTIVE_BATCHING_MAX_BATCH_SIZE);
+
+        final AdaptiveBatchSizeController controller = new AdaptiveBatchSizeController(initialBatchSize,
+                minBatchSize, maxBatchSize, targetLatency);
+        MetricManager.gauge(MetricsConstants.DISRUPTOR_INBOUND_BATCH_SIZE
+                + MetricsConstants.METRICS_NAME_SEPARATOR + eventType
+                + MetricsConstants.METRICS_NAME_SEPARATOR + turn, Level.INFO, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return controller.getBatchSize();
+            }
+        });
+        return controller;
+    }
+
     /**
      * When a message is received from a transport it is handed over to MessagingEngine through the implementation of
      * inbound event manager. (e.g: through a disruptor ring buffer) Eventually the message will be stored
@@ -204,12 +263,13 @@ public class InboundEventManager {
     }
 
     /**
-     * Acknowledgement received from clients for sent messages will be handled through this method
+     * Acknowledgement received from clients for sent messages will be handled through this method. All the
+     * messages acknowledged together by a channel are published as a single event
      * @param ackData AndesAckData
      */
     public void ackReceived(AndesAckData ackData) {
         //For metrics
-        ackedMessageCount.getAndIncrement();
+        ackedMessageCount.getAndAdd(ackData.getAcknowledgedMessages().size());
         
         // Publishers claim events in sequence
         long sequence = ringBuffer.next();
@@ -222,13 +282,16 @@ public class InboundEventManager {
 
         //Tracing message
         if (MessageTracer.isEnabled()) {
-            MessageTracer.trace(ackData.getAcknowledgedMessage().getMessageID(), ackData.getAcknowledgedMessage()
-                    .getDestination(), MessageTracer.ACK_PUBLISHED_TO_DISRUPTOR);
+            for (DeliverableAndesMetadata acknowledgedMessage : ackData.getAcknowledgedMessages()) {
+                MessageTracer.trace(acknowledgedMessage.getMessageID(), acknowledgedMessage.getDestination(),
+                        MessageTracer.ACK_PUBLISHED_TO_DISRUPTOR);
+            }
         }
 
         if (log.isDebugEnabled()) {
             log.debug("[ sequence: " + sequence + " ] Message acknowledgement published to disruptor. Message id " +
-                    ackData.getAcknowledgedMessage().getMessageID());
+                    ackData.getAcknowledgedMessage().getMessageID() + ", acknowledged message count "
+                    + ackData.getAcknowledgedMessages().size());
         }
     }
 
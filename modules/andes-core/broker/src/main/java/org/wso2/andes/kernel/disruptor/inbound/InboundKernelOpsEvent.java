@@ -26,6 +26,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesKernelBoot;
 import org.wso2.andes.kernel.FlowControlManager;
 import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.kernel.slot.SlotContentPrefetcher;
 import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.server.ClusterResourceHolder;
@@ -218,6 +219,8 @@ public class InboundKernelOpsEvent implements AndesInboundStateEvent {
             // Slot deletion shutdown at this point
             SlotDeletionExecutor.getInstance().stopSlotDeletionExecutor();
 
+            SlotContentPrefetcher.getInstance().stop();
+
             //Stop Slot manager in coordinator
             if (AndesContext.getInstance().isClusteringEnabled() && (AndesContext.getInstance().getClusterAgent().isCoordinator())) {
                 SlotManagerClusterMode.getInstance().shutDownSlotManager();
@@ -21,27 +21,15 @@ package org.wso2.andes.kernel.disruptor.inbound;
 import com.lmax.disruptor.EventHandler;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.andes.kernel.AndesChannel;
-import org.wso2.andes.kernel.AndesContext;
-import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
-import org.wso2.andes.kernel.AndesMessageMetadata;
 import org.wso2.andes.kernel.AndesMessagePart;
-import org.wso2.andes.kernel.router.AndesMessageRouter;
-import org.wso2.andes.kernel.subscription.StorageQueue;
-import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.tools.utils.MessageTracer;
-import org.wso2.carbon.metrics.manager.Level;
-import org.wso2.carbon.metrics.manager.Meter;
-import org.wso2.carbon.metrics.manager.MetricManager;
-
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
 
 /**
  * This event processor goes through the ring buffer first and update AndesMessage data event objects.
+ * When message routing is done by parallel {@link MessageRoutingHandler}s this processor only assigns message IDs
+ * to the routed messages.
  * NOTE: Only one instance of this processor should process events from the ring buffer
  */
 public class MessagePreProcessor implements EventHandler<InboundEventContainer> {
@@ -49,19 +37,38 @@ public class MessagePreProcessor implements EventHandler<InboundEventContainer>
     private static final Log log = LogFactory.getLog(MessagePreProcessor.class);
     private final MessageIDGenerator idGenerator;
 
+    /**
+     * True if messages are routed by {@link MessageRoutingHandler}s running ahead of this processor
+     */
+    private final boolean routedByRoutingHandlers;
+
     public MessagePreProcessor() {
+        this(false);
+    }
+
+    /**
+     * Create the pre processor
+     *
+     * @param routedByRoutingHandlers true if {@link MessageRoutingHandler}s route the messages before this
+     *                                processor. Then only the message IDs are assigned by this processor
+     */
+    public MessagePreProcessor(boolean routedByRoutingHandlers) {
         idGenerator = new MessageIDGenerator();
+        this.routedByRoutingHandlers = routedByRoutingHandlers;
     }
 
     @Override
     public void onEvent(InboundEventContainer inboundEvent, long sequence, boolean endOfBatch ) throws Exception {
         switch (inboundEvent.getEventType()) {
             case MESSAGE_EVENT:
-                // NOTE: This is the MESSAGE_EVENT and this is the first processing event for this message
-                // published to ring. Therefore there should be exactly one message in the list.
-                // NO NEED TO CHECK FOR LIST SIZE
-                AndesMessage message = inboundEvent.popMessage();
-                updateRoutingInformation(inboundEvent, message, sequence);
+                if (!routedByRoutingHandlers) {
+                    // NOTE: This is the MESSAGE_EVENT and this is the first processing event for this message
+                    // published to ring. Therefore there should be exactly one message in the list.
+                    // NO NEED TO CHECK FOR LIST SIZE
+                    AndesMessage message = inboundEvent.popMessage();
+                    MessageRoutingHandler.routeMessage(inboundEvent, message);
+                }
+                setMessageIDs(inboundEvent, sequence);
                 break;
             case TRANSACTION_COMMIT_EVENT:
                 preProcessTransaction(inboundEvent, sequence);
@@ -82,24 +89,17 @@ public class MessagePreProcessor implements EventHandler<InboundEventContainer>
     }
 
     /**
-     * Pre process transaction related messages. This is
+     * Pre process transaction related messages. Routing information of all the messages of current transaction is
+     * updated and messages are duplicated as needed.
+     *
      * @param eventContainer InboundEventContainer
      * @param sequence Disruptor ring sequence number.
-     * @throws AndesException
      */
-    private void preProcessTransaction(InboundEventContainer eventContainer, long sequence) throws AndesException {
-
-        // Routing information of all the messages of current transaction is updated.
-        // Messages duplicated as needed.
-        Collection<AndesMessage> messageList = eventContainer.getTransactionEvent().getQueuedMessages();
-        for (AndesMessage message : messageList) {
-            updateRoutingInformation(eventContainer, message, sequence);
+    private void preProcessTransaction(InboundEventContainer eventContainer, long sequence) {
+        if (!routedByRoutingHandlers) {
+            MessageRoutingHandler.routeTransaction(eventContainer);
         }
-
-        // Internal message list of transaction object is updated to reflect the messages
-        // actually written to DB
-        eventContainer.getTransactionEvent().clearMessages();
-        eventContainer.getTransactionEvent().addMessages(eventContainer.getMessageList());
+        setMessageIDs(eventContainer, sequence);
     }
 
     /**
@@ -116,131 +116,44 @@ public class MessagePreProcessor implements EventHandler<InboundEventContainer>
     }
 
     /**
-     * Route the message to queue/queues of subscribers matching in AMQP way. Hierarchical topic message routing is
-     * evaluated here. This will duplicate message for each "subscription destination (not message destination)" at
-     * different nodes
+     * Set message IDs for the routed messages of the event. Messages are processed in the order they arrive at ring
+     * buffer by this processor. By setting message ID through message pre processor we assure, even in a multi
+     * publisher scenario, there is no message id ordering issue at node level.
+     * <p>
+     * Messages which matched no storage queue get an ID as well before they are acknowledged to the publisher, and
+     * so does the retained message, so that neither is acknowledged or persisted without a message ID.
      *
-     * @param event InboundEventContainer containing the message list
-     * @param message Routing details updated for the given {@link org.wso2.andes.kernel.AndesMessage}
+     * @param event InboundEventContainer containing the routed message list
      * @param sequence Disruptor slot sequence number
      */
-    private void updateRoutingInformation(InboundEventContainer event, AndesMessage message, long sequence) {
-
-        AndesChannel andesChannel = event.getChannel();
-
-        // Messages are processed in the order they arrive at ring buffer By this processor.
-        // By setting message ID through message pre processor we assure, even in a multi publisher scenario, there is
-        // no message id ordering issue at node level.
-        setMessageID(message);
-
-        if(log.isDebugEnabled()){
-            log.debug("[ Sequence " + sequence + " ] Pre processing message. Message ID "
-                    + message.getMetadata().getMessageID());
-        }
-
-        preProcessIncomingMessage(event, message, andesChannel);
-    }
-
-    private void preProcessIncomingMessage(InboundEventContainer event, AndesMessage message,
-                                           AndesChannel andesChannel) {
-
-        boolean isMessageRouted = false;
-
-        //Get storage queues bound to the message router
-        String messageRouterName = message.getMetadata().getMessageRouterName();
-        AndesMessageRouter messageRouter = AndesContext.getInstance().
-                getMessageRouterRegistry().getMessageRouter(messageRouterName);
-
-        //do topic matching with the routing key of the message and get a list of
-        //mating binding keys
-        Set<StorageQueue> matchingQueues = messageRouter.getMatchingStorageQueues(message);
-
-        boolean originalMessageConsumed = false;
+    private void setMessageIDs(InboundEventContainer event, long sequence) {
+        for (AndesMessage message : event.getMessageList()) {
+            setMessageID(message);
 
-        for (StorageQueue matchingQueue : matchingQueues) {
-
-            if (!originalMessageConsumed) {
-                message.getMetadata().setStorageQueueName(matchingQueue.getName());
-
-                // add the topic wise cloned message to the events list. Message writers will pick that and
-                // write it.
-                event.addMessage(message);
-                originalMessageConsumed = true;
-
-            } else {
-                AndesMessage clonedMessage = cloneAndesMessageMetadataAndContent(message);
-
-                //Message should be written to storage queue name. This is
-                //determined by destination of the message. So should be
-                //updated (but internal metadata will have topic name as usual)
-                clonedMessage.getMetadata().setStorageQueueName(matchingQueue.getName());
-
-                /**
-                 * Update cloned message metadata if isCompressed set true.
-                 */
-                if (clonedMessage.getMetadata().isCompressed()) {
-                    clonedMessage.getMetadata().updateMetadata(true);
-                }
-
-                if (MessageTracer.isEnabled()) {
-                    MessageTracer.trace(message, MessageTracer.MESSAGE_CLONED + clonedMessage.getMetadata()
-                            .getMessageID() + " for " + clonedMessage.getMetadata().getStorageQueueName());
-                }
-
-                // add the topic wise cloned message to the events list. Message writers will pick that and
-                // write it.
-                event.addMessage(clonedMessage);
+            if(log.isDebugEnabled()){
+                log.debug("[ Sequence " + sequence + " ] Pre processing message. Message ID "
+                        + message.getMetadata().getMessageID());
             }
 
-            isMessageRouted = true;
-        }
-
-
-        //TODO: validate this
-        // If retain enabled, need to store the retained message. Set the retained message
-        // so the message writer will persist the retained message
-        if (message.getMetadata().isRetain()) {
-            event.retainMessage = message;
+            // Original message is always before its clones in the list, hence it already has an ID
+            AndesMessage clonedFrom = message.getClonedFrom();
+            if (null != clonedFrom && MessageTracer.isEnabled()) {
+                MessageTracer.trace(clonedFrom, MessageTracer.MESSAGE_CLONED + message.getMetadata()
+                        .getMessageID() + " for " + message.getMetadata().getStorageQueueName());
+            }
         }
 
-        // If there is no matching subscriber at the moment there is no point of storing the message
-        if (!isMessageRouted) {
-
-            // Even though we drop the message pub ack needs to be sent
-            event.pubAckHandler.ack(message.getMetadata());
-
-            //Adding metrics meter for ack rate
-            Meter ackMeter = MetricManager.meter(MetricsConstants.ACK_SENT_RATE
-                    + MetricsConstants.METRICS_NAME_SEPARATOR + message.getMetadata().getMessageRouterName()
-                    + MetricsConstants.METRICS_NAME_SEPARATOR + message.getMetadata().getDestination(), Level.INFO);
-            ackMeter.mark();
-
-            // since inbound message has no routes, inbound message list will be cleared.
-            event.clearMessageList(andesChannel);
-            log.info("Message routing key: " + message.getMetadata().getDestination() + " No routes in " +
-                    "cluster. Ignoring Message id " + message.getMetadata().getMessageID());
+        for (AndesMessage message : event.unroutedMessages) {
+            setMessageID(message);
+            MessageRoutingHandler.ackUnroutedMessage(event, message);
         }
-    }
 
-    /**
-     * Create a clone of the message
-     *
-     * @param message message to be cloned
-     * @return Cloned reference of AndesMessage
-     */
-    private AndesMessage cloneAndesMessageMetadataAndContent(AndesMessage message) {
-        long newMessageId = idGenerator.getNextId();
-        AndesMessageMetadata clonedMetadata = message.getMetadata().shallowCopy(newMessageId);
-        AndesMessage clonedMessage = new AndesMessage(clonedMetadata);
-
-        //Duplicate message content
-        List<AndesMessagePart> messageParts = message.getContentChunkList();
-        for (AndesMessagePart messagePart : messageParts) {
-            clonedMessage.addMessagePart(messagePart.shallowCopy(newMessageId));
+        // Retained message may have been dropped from the message list along with the other messages of the event
+        AndesMessage retainMessage = event.retainMessage;
+        if (null != retainMessage
+                && MessageRoutingHandler.UNASSIGNED_MESSAGE_ID == retainMessage.getMetadata().getMessageID()) {
+            setMessageID(retainMessage);
         }
-
-        return clonedMessage;
-
     }
 
     /**
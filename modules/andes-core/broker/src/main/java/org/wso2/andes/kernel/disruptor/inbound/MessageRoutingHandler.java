@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.lmax.disruptor.EventHandler;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.Meter;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Routes inbound messages to matching storage queues and clones the message for each additional queue.
+ * <p>
+ * Several instances of this handler can run in parallel ahead of the {@link MessagePreProcessor}. Events are
+ * partitioned by publisher channel so that all messages of a channel are routed by the same handler, which keeps
+ * messages of a channel in order. Message IDs are not assigned here, they are assigned afterwards by the single
+ * {@link MessagePreProcessor} in ring buffer order. Messages which match no storage queue are therefore
+ * acknowledged to the publisher by the {@link MessagePreProcessor} once they have an ID.
+ */
+public class MessageRoutingHandler implements EventHandler<InboundEventContainer> {
+
+    private static final Log log = LogFactory.getLog(MessageRoutingHandler.class);
+
+    /**
+     * Message ID set to cloned messages until the {@link MessagePreProcessor} assigns the real ID
+     */
+    static final long UNASSIGNED_MESSAGE_ID = 0L;
+
+    /**
+     * Turn is the value of, channel ID % groupCount this handler routes events. Turn must be less than groupCount
+     */
+    private final long turn;
+
+    /**
+     * Total number of routing handlers working on the ring buffer
+     */
+    private final int groupCount;
+
+    /**
+     * Create a routing handler that routes messages of the channels belonging to the given turn
+     *
+     * @param turn       channel partition handled by this handler. Must be less than groupCount
+     * @param groupCount total number of routing handlers
+     */
+    public MessageRoutingHandler(long turn, int groupCount) {
+        if (turn >= groupCount) {
+            throw new IllegalArgumentException("Turn should be less than groupCount");
+        }
+        this.turn = turn;
+        this.groupCount = groupCount;
+    }
+
+    @Override
+    public void onEvent(InboundEventContainer inboundEvent, long sequence, boolean endOfBatch) throws Exception {
+        switch (inboundEvent.getEventType()) {
+            case MESSAGE_EVENT:
+                if (isMyTurn(inboundEvent)) {
+                    // There is exactly one message in the list for a fresh message event
+                    routeMessage(inboundEvent, inboundEvent.popMessage());
+                }
+                break;
+            case TRANSACTION_COMMIT_EVENT:
+                if (isMyTurn(inboundEvent)) {
+                    routeTransaction(inboundEvent);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Check whether the channel of the event belongs to the partition of this handler
+     *
+     * @param inboundEvent {@link InboundEventContainer}
+     * @return true if this handler should route the messages of the event
+     */
+    private boolean isMyTurn(InboundEventContainer inboundEvent) {
+        return getTurn(inboundEvent.getChannel().getId(), groupCount) == turn;
+    }
+
+    /**
+     * Get the turn of the routing handler which routes the messages of a publisher channel
+     *
+     * @param channelId  ID of the publisher channel
+     * @param groupCount total number of routing handlers
+     * @return turn of the routing handler, less than groupCount
+     */
+    static long getTurn(long channelId, int groupCount) {
+        return Math.abs(channelId % groupCount);
+    }
+
+    /**
+     * Route all the messages of a transaction and update the transaction to reflect the messages actually
+     * written to DB
+     *
+     * @param eventContainer InboundEventContainer
+     */
+    static void routeTransaction(InboundEventContainer eventContainer) {
+        Collection<AndesMessage> messageList = eventContainer.getTransactionEvent().getQueuedMessages();
+        for (AndesMessage message : messageList) {
+            routeMessage(eventContainer, message);
+        }
+
+        eventContainer.getTransactionEvent().clearMessages();
+        eventContainer.getTransactionEvent().addMessages(eventContainer.getMessageList());
+    }
+
+    /**
+     * Route the message to queue/queues of subscribers matching in AMQP way. Hierarchical topic message routing is
+     * evaluated here. This will duplicate message for each "subscription destination (not message destination)" at
+     * different nodes. Duplicated messages are added to the event with an unassigned message ID.
+     *
+     * @param event   InboundEventContainer containing the message list
+     * @param message Routing details updated for the given {@link org.wso2.andes.kernel.AndesMessage}
+     */
+    static void routeMessage(InboundEventContainer event, AndesMessage message) {
+
+        AndesChannel andesChannel = event.getChannel();
+        boolean isMessageRouted = false;
+
+        //Get storage queues bound to the message router
+        String messageRouterName = message.getMetadata().getMessageRouterName();
+        AndesMessageRouter messageRouter = AndesContext.getInstance().
+                getMessageRouterRegistry().getMessageRouter(messageRouterName);
+
+        //do topic matching with the routing key of the message and get a list of
+        //mating binding keys
+        Set<StorageQueue> matchingQueues = messageRouter.getMatchingStorageQueues(message);
+
+        boolean originalMessageConsumed = false;
+
+        for (StorageQueue matchingQueue : matchingQueues) {
+
+            if (!originalMessageConsumed) {
+                message.getMetadata().setStorageQueueName(matchingQueue.getName());
+
+                // add the topic wise cloned message to the events list. Message writers will pick that and
+                // write it.
+                event.addMessage(message);
+                originalMessageConsumed = true;
+
+            } else {
+                AndesMessage clonedMessage = cloneAndesMessageMetadataAndContent(message);
+
+                // Clones refer the same content. Message stores can use this to persist the content only once
+                if (AndesContext.getInstance().getMessageStore().isContentSharingEnabled()) {
+                    message.setContentOwner(message);
+                    clonedMessage.setContentOwner(message);
+                }
+
+                //Message should be written to storage queue name. This is
+                //determined by destination of the message. So should be
+                //updated (but internal metadata will have topic name as usual)
+                clonedMessage.getMetadata().setStorageQueueName(matchingQueue.getName());
+
+                // Metadata bytes of the clone are shared with the original message. They are not re-encoded per
+                // clone since compression state is already written to them by the content chunk handlers.
+
+                // Clone is traced by the pre processor once message IDs are assigned
+                clonedMessage.setClonedFrom(message);
+
+                // add the topic wise cloned message to the events list. Message writers will pick that and
+                // write it.
+                event.addMessage(clonedMessage);
+            }
+
+            isMessageRouted = true;
+        }
+
+        // If retain enabled, need to store the retained message. Set the retained message
+        // so the message writer will persist the retained message
+        if (message.getMetadata().isRetain()) {
+            event.retainMessage = message;
+        }
+
+        // If there is no matching subscriber at the moment there is no point of storing the message
+        if (!isMessageRouted) {
+            // since inbound message has no routes, inbound message list will be cleared. Publisher is acknowledged
+            // once a message ID is assigned
+            event.clearMessageList(andesChannel);
+            event.unroutedMessages.add(message);
+        }
+    }
+
+    /**
+     * Acknowledge a message which matched no storage queue to the publisher. Message ID should be assigned
+     * before this is called.
+     *
+     * @param event   InboundEventContainer the message was published with
+     * @param message message matching no storage queue
+     */
+    static void ackUnroutedMessage(InboundEventContainer event, AndesMessage message) {
+        // Even though we drop the message pub ack needs to be sent
+        event.pubAckHandler.ack(message.getMetadata());
+
+        //Adding metrics meter for ack rate
+        Meter ackMeter = MetricManager.meter(MetricsConstants.ACK_SENT_RATE
+                + MetricsConstants.METRICS_NAME_SEPARATOR + message.getMetadata().getMessageRouterName()
+                + MetricsConstants.METRICS_NAME_SEPARATOR + message.getMetadata().getDestination(), Level.INFO);
+        ackMeter.mark();
+
+        log.info("Message routing key: " + message.getMetadata().getDestination() + " No routes in " +
+                "cluster. Ignoring Message id " + message.getMetadata().getMessageID());
+    }
+
+    /**
+     * Create a clone of the message. Message ID of the clone is assigned later by the
+     * {@link MessagePreProcessor}
+     *
+     * @param message message to be cloned
+     * @return Cloned reference of AndesMessage
+     */
+    private static AndesMessage cloneAndesMessageMetadataAndContent(AndesMessage message) {
+        AndesMessageMetadata clonedMetadata = message.getMetadata().shallowCopy(UNASSIGNED_MESSAGE_ID);
+        AndesMessage clonedMessage = new AndesMessage(clonedMetadata);
+
+        //Duplicate message content
+        List<AndesMessagePart> messageParts = message.getContentChunkList();
+        for (AndesMessagePart messagePart : messageParts) {
+            clonedMessage.addMessagePart(messagePart.shallowCopy(UNASSIGNED_MESSAGE_ID));
+        }
+
+        return clonedMessage;
+    }
+}
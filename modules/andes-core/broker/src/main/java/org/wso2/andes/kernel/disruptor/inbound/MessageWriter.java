@@ -74,8 +74,26 @@ public class MessageWriter implements BatchEventHandler, StoreHealthListener {
      */
     private final MessagingEngine messagingEngine;
 
+    /**
+     * True if messages are written to the message journal instead of the message store
+     */
+    private final boolean journalMessages;
+
     public MessageWriter(MessagingEngine messagingEngine, int messageBatchSize) {
+        this(messagingEngine, messageBatchSize, false);
+    }
+
+    /**
+     * Create a message writer
+     *
+     * @param messagingEngine  messaging engine used to store messages
+     * @param messageBatchSize expected number of messages written at once
+     * @param journalMessages  if true messages are written to the message journal. Slot message counter is then
+     *                         informed by the journal once messages are in the message store
+     */
+    public MessageWriter(MessagingEngine messagingEngine, int messageBatchSize, boolean journalMessages) {
         this.messagingEngine = messagingEngine;
+        this.journalMessages = journalMessages;
         /*
          * For topics the size may be more than messageBatchSize since inbound
          * event might contain more than one message
@@ -109,7 +127,7 @@ public class MessageWriter implements BatchEventHandler, StoreHealthListener {
                 log.info("Attempting to store previously failed list of messages of size: "
                          + previouslyFailedMessageList.size());
                 try {
-                    messagingEngine.messagesReceived(previouslyFailedMessageList);
+                    writeMessages(previouslyFailedMessageList);
 
                 } catch (AndesException ex) {
                     log.error("errors encountered while persisting previously failed messages batch, "
@@ -121,7 +139,7 @@ public class MessageWriter implements BatchEventHandler, StoreHealthListener {
             }
 
             try {
-                messagingEngine.messagesReceived(currentMessageList);
+                writeMessages(currentMessageList);
 
                 if (!retainMap.isEmpty()) {
                     messagingEngine.storeRetainedMessages(retainMap);
@@ -183,6 +201,20 @@ public class MessageWriter implements BatchEventHandler, StoreHealthListener {
         }
     }
 
+    /**
+     * Write messages to the message journal if enabled for this writer, otherwise to the message store
+     *
+     * @param messages messages to write
+     * @throws AndesException on an error writing messages
+     */
+    private void writeMessages(List<AndesMessage> messages) throws AndesException {
+        if (journalMessages) {
+            messagingEngine.journalMessages(messages);
+        } else {
+            messagingEngine.messagesReceived(messages);
+        }
+    }
+
     /**
      * Move the messages to previouslyFailedMessageList and clear currentMessageList and retainMap
      */
@@ -27,6 +27,7 @@ import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.MessageStatus;
 import org.wso2.andes.kernel.slot.SlotMessageCounter;
 import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.andes.store.file.MessageJournal;
 import org.wso2.andes.tools.utils.MessageTracer;
 import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.Meter;
@@ -41,6 +42,25 @@ public class StateEventHandler implements EventHandler<InboundEventContainer> {
 
     private static Log log = LogFactory.getLog(StateEventHandler.class);
 
+    /**
+     * Journal message writers write received messages to. When set, the slot message counter is informed about
+     * received messages by the message journal once they are written to the message store
+     */
+    private final MessageJournal messageJournal;
+
+    public StateEventHandler() {
+        this(null);
+    }
+
+    /**
+     * Create a state event handler
+     *
+     * @param messageJournal journal messages are written to by message writers. Null if the journal is disabled
+     */
+    public StateEventHandler(MessageJournal messageJournal) {
+        this.messageJournal = messageJournal;
+    }
+
     @Override
     public void onEvent(InboundEventContainer event, long sequence, boolean endOfBatch) throws Exception {
 
@@ -78,21 +98,26 @@ public class StateEventHandler implements EventHandler<InboundEventContainer> {
     }
 
     private void updateTrackerWithAck(InboundEventContainer event) throws AndesException {
-        DeliverableAndesMetadata acknowledgedMessage = event.ackData.getAcknowledgedMessage();
         //we need both conditions to prevent multiple events seeing that message is deleted
-        if (acknowledgedMessage.getLatestState().equals(MessageStatus.DELETED)
-                && event.ackData.isBaringMessageRemovable()) {
-            acknowledgedMessage.getSlot().decrementPendingMessageCount();
+        for (DeliverableAndesMetadata acknowledgedMessage : event.ackData.getRemovableMessages()) {
+            if (acknowledgedMessage.getLatestState().equals(MessageStatus.DELETED)) {
+                acknowledgedMessage.getSlot().decrementPendingMessageCount();
+            }
         }
     }
 
     /**
-     * Communicate this node's safe zone to the coordinator for evaluation.
+     * Communicate this node's safe zone to the coordinator for evaluation. Slots of journaled messages are
+     * submitted only after they are written to the message store, hence the safe zone is kept below the lowest
+     * message still in the journal.
      * @param event event
      */
     private void updateSlotDeleteSafeZone(InboundEventContainer event) {
 
         long currentSafeZoneVal = event.getSafeZoneLimit();
+        if (null != messageJournal) {
+            currentSafeZoneVal = Math.min(currentSafeZoneVal, messageJournal.getLowestPendingMessageId());
+        }
         SlotMessageCounter.getInstance().updateSafeZoneForNode(currentSafeZoneVal);
     }
 
@@ -106,7 +131,9 @@ public class StateEventHandler implements EventHandler<InboundEventContainer> {
         List<AndesMessage> messageList = eventContainer.getMessageList();
         // update last message ID in slot message counter. When the slot is filled the last message
         // ID of the slot will be submitted to the slot manager by SlotMessageCounter
-        SlotMessageCounter.getInstance().recordMetadataCountInSlot(messageList);
+        if (null == messageJournal) {
+            SlotMessageCounter.getInstance().recordMetadataCountInSlot(messageList);
+        }
 
         for (AndesMessage message : messageList) {
             //Tracing Message
@@ -32,6 +32,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
 /**
@@ -85,6 +87,12 @@ public class TopicRoutingMatcher {
      */
     private List<Map<String, BitSet>> constituentTables = new ArrayList<>();
 
+    /**
+     * Guards the storage queue list, binding key constituents and constituent tables. Routing keys are matched by
+     * message routing handlers in parallel while storage queues are added and removed on subscription changes.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
     /**
      * Initialize BitMapHandler with the protocol type.
      *
@@ -109,6 +117,15 @@ public class TopicRoutingMatcher {
 
 
     public void addStorageQueue(StorageQueue storageQueue) throws AndesException {
+        lock.writeLock().lock();
+        try {
+            addStorageQueueColumns(storageQueue);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addStorageQueueColumns(StorageQueue storageQueue) throws AndesException {
         String bindingKey = storageQueue.getMessageRouterBindingKey();
 
         if (StringUtils.isNotEmpty(bindingKey)) {
@@ -160,9 +177,12 @@ public class TopicRoutingMatcher {
 
             // Should not allow to modify this list until the update is complete
             // Otherwise the storageQueue indexes will be invalid
-            synchronized (storageQueueList) {
+            lock.writeLock().lock();
+            try {
                 storageQueueList.remove(index);
                 storageQueueList.add(index, storageQueue);
+            } finally {
+                lock.writeLock().unlock();
             }
         }
     }
@@ -381,7 +401,7 @@ public class TopicRoutingMatcher {
         if (noOfqueues > 0) {
 
             // Null constituent will always be true for empty constituents, hence need to flip
-            nullBitSet.flip(0, noOfqueues - 1);
+            nullBitSet.flip(0, noOfqueues);
 
             for (int queueIndex = 0; queueIndex < noOfqueues; queueIndex++) {
                 // For 'other', if subscribers last constituent is multi level wild card then matching
@@ -408,6 +428,15 @@ public class TopicRoutingMatcher {
      * @param storageQueue The storageQueue to remove
      */
     public void removeStorageQueue(StorageQueue storageQueue) {
+        lock.writeLock().lock();
+        try {
+            removeStorageQueueColumn(storageQueue);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeStorageQueueColumn(StorageQueue storageQueue) {
         int queueIndex = storageQueueList.indexOf(storageQueue);
 
         if (queueIndex > -1) {
@@ -444,7 +473,12 @@ public class TopicRoutingMatcher {
 
 
     public boolean isStorageQueueAvailable(StorageQueue storageQueue) {
-        return storageQueueList.contains(storageQueue);
+        lock.readLock().lock();
+        try {
+            return storageQueueList.contains(storageQueue);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
 
@@ -461,57 +495,77 @@ public class TopicRoutingMatcher {
             // constituentDelimiter is quoted to avoid making the delimiter a regex symbol
             String[] constituents = routingKey.split(Pattern.quote(constituentsDelimiter),-1);
 
-            int noOfCurrentMaxConstituents = constituentTables.size();
-
-            // If given routingKey has more constituents than any subscriber has, then create constituent tables
-            // for those before collecting matching subscribers
-            if (constituents.length > noOfCurrentMaxConstituents) {
-                for (int i = noOfCurrentMaxConstituents; i < constituents.length; i++) {
-                    addEmptyConstituentTable();
+            lock.readLock().lock();
+            try {
+                // If given routingKey has more constituents than any subscriber has, then create constituent
+                // tables for those before collecting matching subscribers
+                if (constituents.length > constituentTables.size()) {
+                    lock.readLock().unlock();
+                    lock.writeLock().lock();
+                    try {
+                        for (int i = constituentTables.size(); i < constituents.length; i++) {
+                            addEmptyConstituentTable();
+                        }
+                    } finally {
+                        // Downgrade to the read lock before releasing the write lock
+                        lock.readLock().lock();
+                        lock.writeLock().unlock();
+                    }
                 }
+
+                collectMatchingStorageQueues(constituents, matchingQueues);
+            } finally {
+                lock.readLock().unlock();
             }
 
-            // Keeps the results of 'AND' operations between each bit sets
-            BitSet andBitSet = new BitSet(storageQueueList.size());
+        } else {
+            log.warn("Cannot retrieve storage queues via bitmap handler since routingKey to match is empty");
+        }
 
-            // Since BitSet is initialized with false for each element we need to flip
-            andBitSet.flip(0, storageQueueList.size());
+        return matchingQueues;
+    }
 
-            // Get corresponding bit set for each constituent in the routingKey and operate bitwise AND operation
-            for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                String constituent = constituents[constituentIndex];
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
+    /**
+     * Collect storage queues matching the constituents of a routing key. Should be called holding the read lock.
+     *
+     * @param constituents   constituents of the routing key
+     * @param matchingQueues set to add matching storage queues to
+     */
+    private void collectMatchingStorageQueues(String[] constituents, Set<StorageQueue> matchingQueues) {
+        // Keeps the results of 'AND' operations between each bit sets
+        BitSet andBitSet = new BitSet(storageQueueList.size());
 
-                BitSet bitSetForAnd = constituentTable.get(constituent);
+        // Since BitSet is initialized with false for each element we need to flip
+        andBitSet.flip(0, storageQueueList.size());
 
-                if (null == bitSetForAnd) {
-                    // The constituent is not found in the table, hence matching with 'other' constituent
-                    bitSetForAnd = constituentTable.get(OTHER_CONSTITUENT);
-                }
+        // Get corresponding bit set for each constituent in the routingKey and operate bitwise AND operation
+        for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
+            String constituent = constituents[constituentIndex];
+            Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
 
-                andBitSet.and(bitSetForAnd);
-            }
+            BitSet bitSetForAnd = constituentTable.get(constituent);
 
-            // If there are more constituent tables, get the null constituent in each of them and operate bitwise AND
-            for (int constituentIndex = constituents.length; constituentIndex < constituentTables.size();
-                 constituentIndex++) {
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-                andBitSet.and(constituentTable.get(NULL_CONSTITUENT));
+            if (null == bitSetForAnd) {
+                // The constituent is not found in the table, hence matching with 'other' constituent
+                bitSetForAnd = constituentTable.get(OTHER_CONSTITUENT);
             }
 
+            andBitSet.and(bitSetForAnd);
+        }
 
-            // Valid queues are filtered, need to pick from queue pool
-            int nextSetBitIndex = andBitSet.nextSetBit(0);
-            while (nextSetBitIndex > -1) {
-                matchingQueues.add(storageQueueList.get(nextSetBitIndex));
-                nextSetBitIndex = andBitSet.nextSetBit(nextSetBitIndex + 1);
-            }
-
-        } else {
-            log.warn("Cannot retrieve storage queues via bitmap handler since routingKey to match is empty");
+        // If there are more constituent tables, get the null constituent in each of them and operate bitwise AND
+        for (int constituentIndex = constituents.length; constituentIndex < constituentTables.size();
+             constituentIndex++) {
+            Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
+            andBitSet.and(constituentTable.get(NULL_CONSTITUENT));
         }
 
-        return matchingQueues;
+        // Valid queues are filtered, need to pick from queue pool
+        int nextSetBitIndex = andBitSet.nextSetBit(0);
+        while (nextSetBitIndex > -1) {
+            matchingQueues.add(storageQueueList.get(nextSetBitIndex));
+            nextSetBitIndex = andBitSet.nextSetBit(nextSetBitIndex + 1);
+        }
     }
 
     /**
@@ -520,7 +574,12 @@ public class TopicRoutingMatcher {
      * @return List of all storage queues
      */
     public List<StorageQueue> getAllStorageQueues() {
-        return storageQueueList;
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(storageQueueList);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
 
@@ -532,29 +591,33 @@ public class TopicRoutingMatcher {
     public Set<String> getAllBindingKeys() {
         Set<String> topics = new HashSet<>();
 
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, String[]> subcriberConstituent : queueConstituents.entrySet()) {
 
-        for (Map.Entry<Integer, String[]> subcriberConstituent : queueConstituents.entrySet()) {
+                StringBuilder topic = new StringBuilder();
+                String[] constituents =  subcriberConstituent.getValue();
 
-            StringBuilder topic = new StringBuilder();
-            String[] constituents =  subcriberConstituent.getValue();
+                for (int i = 0; i < constituents.length; i++) {
+                    String constituent = constituents[i];
+                    // if this is a wildcard constituent, we provide it as 'ANY' in it's place for readability
+                    if (multiLevelWildCard.equals(constituent) || singleLevelWildCard.equals(constituent)) {
+                        topic.append("ANY");
+                    } else {
+                        topic.append(constituent);
+                    }
 
-            for (int i = 0; i < constituents.length; i++) {
-                String constituent = constituents[i];
-                // if this is a wildcard constituent, we provide it as 'ANY' in it's place for readability
-                if (multiLevelWildCard.equals(constituent) || singleLevelWildCard.equals(constituent)) {
-                    topic.append("ANY");
-                } else {
-                    topic.append(constituent);
-                }
+                    // append the delimiter if there are more constituents to come
+                    if ((constituents.length - 1) > i) {
+                        topic.append(constituentsDelimiter);
+                    }
 
-                // append the delimiter if there are more constituents to come
-                if ((constituents.length - 1) > i) {
-                    topic.append(constituentsDelimiter);
                 }
 
+                topics.add(topic.toString());
             }
-
-            topics.add(topic.toString());
+        } finally {
+            lock.readLock().unlock();
         }
 
         return topics;
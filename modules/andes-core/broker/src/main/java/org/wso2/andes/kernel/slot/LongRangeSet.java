@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+/**
+ * Sorted set of long values kept as disjoint, non adjacent ranges in a primitive array. Used for message ID
+ * bookkeeping of slots instead of a {@link java.util.TreeSet} of boxed values, so that a value costs at most two
+ * array slots and consecutive values share one range.
+ * <p>
+ * Values are usually added in ascending order and removed from the lowest end, so both are amortized constant
+ * time. Adding or removing in the middle of the set shifts the ranges after it.
+ * <p>
+ * This class is not thread safe.
+ */
+public class LongRangeSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_RANGE_CAPACITY = 4;
+
+    /**
+     * Start and end of each range, both inclusive. Range i of the set is at index 2 * (head + i)
+     */
+    private long[] ranges;
+
+    /**
+     * Index of the first range in use. Ranges removed from the lowest end are skipped rather than shifted
+     */
+    private int head;
+
+    /**
+     * Number of ranges in use
+     */
+    private int rangeCount;
+
+    /**
+     * Number of values in the set
+     */
+    private long size;
+
+    public LongRangeSet() {
+        ranges = new long[INITIAL_RANGE_CAPACITY * 2];
+    }
+
+    /**
+     * Add a value to the set
+     *
+     * @param value value to add
+     * @return true if the value was not in the set
+     */
+    public boolean add(long value) {
+        return addRange(value, value);
+    }
+
+    /**
+     * Add all values from start to end, both inclusive. Ranges overlapping with or adjacent to the given range are
+     * merged into one.
+     *
+     * @param start lowest value of the range
+     * @param end   highest value of the range
+     * @return true if any of the values were not in the set
+     */
+    public boolean addRange(long start, long end) {
+        if (start > end) {
+            throw new IllegalArgumentException("Range start " + start + " is greater than range end " + end);
+        }
+        // First range ending at or after the value before start, i.e. overlapping or touching the new range
+        int first = (start == Long.MIN_VALUE) ? 0 : indexOfFirstRangeEndingAtOrAfter(start - 1);
+        // Ranges from first up to last overlap or touch the new range
+        int last = first - 1;
+        while (last + 1 < rangeCount && (end == Long.MAX_VALUE || startOf(last + 1) <= end + 1)) {
+            last++;
+        }
+
+        if (last < first) {
+            insertRange(first, start, end);
+            size = size + (end - start + 1);
+            return true;
+        }
+
+        long mergedStart = Math.min(start, startOf(first));
+        long mergedEnd = Math.max(end, endOf(last));
+        long removedSize = 0;
+        for (int i = first; i <= last; i++) {
+            removedSize = removedSize + (endOf(i) - startOf(i) + 1);
+        }
+        long addedSize = mergedEnd - mergedStart + 1;
+        removeRanges(first + 1, last - first);
+        setRange(first, mergedStart, mergedEnd);
+        size = size - removedSize + addedSize;
+        return addedSize != removedSize;
+    }
+
+    /**
+     * Remove a value from the set
+     *
+     * @param value value to remove
+     * @return true if the value was in the set
+     */
+    public boolean remove(long value) {
+        int index = indexOfFirstRangeEndingAtOrAfter(value);
+        if (index == rangeCount || startOf(index) > value) {
+            return false;
+        }
+        long start = startOf(index);
+        long end = endOf(index);
+        if (start == end) {
+            removeRanges(index, 1);
+        } else if (start == value) {
+            setRange(index, value + 1, end);
+        } else if (end == value) {
+            setRange(index, start, value - 1);
+        } else {
+            setRange(index, start, value - 1);
+            insertRange(index + 1, value + 1, end);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Check whether a value is in the set
+     *
+     * @param value value to check
+     * @return true if the value is in the set
+     */
+    public boolean contains(long value) {
+        int index = indexOfFirstRangeEndingAtOrAfter(value);
+        return index < rangeCount && startOf(index) <= value;
+    }
+
+    /**
+     * Get the lowest value of the set
+     *
+     * @return lowest value
+     * @throws NoSuchElementException if the set is empty
+     */
+    public long first() {
+        checkNotEmpty();
+        return startOf(0);
+    }
+
+    /**
+     * Get the highest value of the set
+     *
+     * @return highest value
+     * @throws NoSuchElementException if the set is empty
+     */
+    public long last() {
+        checkNotEmpty();
+        return endOf(rangeCount - 1);
+    }
+
+    /**
+     * Remove and return the lowest value of the set
+     *
+     * @return lowest value
+     * @throws NoSuchElementException if the set is empty
+     */
+    public long pollFirst() {
+        checkNotEmpty();
+        long value = startOf(0);
+        if (value == endOf(0)) {
+            head++;
+            rangeCount--;
+            if (rangeCount == 0) {
+                head = 0;
+            }
+        } else {
+            ranges[2 * head] = value + 1;
+        }
+        size--;
+        return value;
+    }
+
+    /**
+     * Get the value at a given position of the set in ascending order
+     *
+     * @param index position of the value, starting from 0
+     * @return value at the position
+     * @throws IndexOutOfBoundsException if the index is negative or not less than the size of the set
+     */
+    public long get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long remaining = index;
+        for (int i = 0; i < rangeCount; i++) {
+            long rangeSize = endOf(i) - startOf(i) + 1;
+            if (remaining < rangeSize) {
+                return startOf(i) + remaining;
+            }
+            remaining = remaining - rangeSize;
+        }
+        throw new IllegalStateException("Size " + size + " does not match the ranges of the set");
+    }
+
+    /**
+     * @return number of values in the set
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the set has no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of disjoint ranges the values of the set are kept in
+     */
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    /**
+     * Get the lowest value of a range
+     *
+     * @param rangeIndex position of the range, starting from 0
+     * @return lowest value of the range
+     */
+    public long getRangeStart(int rangeIndex) {
+        checkRangeIndex(rangeIndex);
+        return startOf(rangeIndex);
+    }
+
+    /**
+     * Get the highest value of a range
+     *
+     * @param rangeIndex position of the range, starting from 0
+     * @return highest value of the range
+     */
+    public long getRangeEnd(int rangeIndex) {
+        checkRangeIndex(rangeIndex);
+        return endOf(rangeIndex);
+    }
+
+    /**
+     * Remove all values of the set
+     */
+    public void clear() {
+        head = 0;
+        rangeCount = 0;
+        size = 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LongRangeSet)) {
+            return false;
+        }
+        LongRangeSet other = (LongRangeSet) o;
+        if (size != other.size || rangeCount != other.rangeCount) {
+            return false;
+        }
+        for (int i = 0; i < rangeCount; i++) {
+            if (startOf(i) != other.startOf(i) || endOf(i) != other.endOf(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < rangeCount; i++) {
+            result = 31 * result + (int) (startOf(i) ^ (startOf(i) >>> 32));
+            result = 31 * result + (int) (endOf(i) ^ (endOf(i) >>> 32));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < rangeCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(startOf(i));
+            if (endOf(i) != startOf(i)) {
+                builder.append('-').append(endOf(i));
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    private long startOf(int rangeIndex) {
+        return ranges[2 * (head + rangeIndex)];
+    }
+
+    private long endOf(int rangeIndex) {
+        return ranges[2 * (head + rangeIndex) + 1];
+    }
+
+    private void setRange(int rangeIndex, long start, long end) {
+        int position = 2 * (head + rangeIndex);
+        ranges[position] = start;
+        ranges[position + 1] = end;
+    }
+
+    /**
+     * Binary search for the first range whose end is not less than the given value
+     *
+     * @return index of the range or the range count if there is none
+     */
+    private int indexOfFirstRangeEndingAtOrAfter(long value) {
+        int low = 0;
+        int high = rangeCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (endOf(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void insertRange(int rangeIndex, long start, long end) {
+        if (2 * (head + rangeCount + 1) > ranges.length) {
+            if (head > 0 && 2 * (rangeCount + 1) <= ranges.length / 2) {
+                // Reuse the space left by ranges removed from the lowest end
+                System.arraycopy(ranges, 2 * head, ranges, 0, 2 * rangeCount);
+                head = 0;
+            } else {
+                long[] newRanges = new long[Math.max(ranges.length * 2, 2 * INITIAL_RANGE_CAPACITY)];
+                System.arraycopy(ranges, 2 * head, newRanges, 0, 2 * rangeCount);
+                ranges = newRanges;
+                head = 0;
+            }
+        }
+        int position = 2 * (head + rangeIndex);
+        System.arraycopy(ranges, position, ranges, position + 2, 2 * (rangeCount - rangeIndex));
+        rangeCount++;
+        setRange(rangeIndex, start, end);
+    }
+
+    private void removeRanges(int rangeIndex, int count) {
+        if (count == 0) {
+            return;
+        }
+        int position = 2 * (head + rangeIndex);
+        int tail = 2 * (rangeCount - rangeIndex - count);
+        System.arraycopy(ranges, position + 2 * count, ranges, position, tail);
+        rangeCount = rangeCount - count;
+        if (rangeCount == 0) {
+            head = 0;
+        }
+    }
+
+    private void checkNotEmpty() {
+        if (rangeCount == 0) {
+            throw new NoSuchElementException("Range set is empty");
+        }
+    }
+
+    private void checkRangeIndex(int rangeIndex) {
+        if (rangeIndex < 0 || rangeIndex >= rangeCount) {
+            throw new IndexOutOfBoundsException("Range index: " + rangeIndex + ", Range count: " + rangeCount);
+        }
+    }
+}
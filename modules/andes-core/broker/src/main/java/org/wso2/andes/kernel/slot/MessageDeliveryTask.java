@@ -145,7 +145,8 @@ final class MessageDeliveryTask extends Task {
     }
 
     /**
-     * Get a slot from the Slot to deliver ( from the coordinator if the MB is clustered)
+     * Get a slot from the Slot to deliver ( from the coordinator if the MB is clustered). A slot prefetched by the
+     * storage queue is returned if available.
      *
      * @param storageQueueName the storage queue name for from which a slot should be returned.
      * @return a {@link Slot}
@@ -154,9 +155,8 @@ final class MessageDeliveryTask extends Task {
     private Slot requestSlot(String storageQueueName) throws ConnectionException {
 
         long startTime = System.currentTimeMillis();
-        Slot currentSlot = slotCoordinator.getSlot(storageQueueName);
+        Slot currentSlot = storageQueue.getNextSlot(slotCoordinator);
         long endTime = System.currentTimeMillis();
-        currentSlot.setDestinationOfMessagesInSlot(storageQueueName);
 
         if (log.isDebugEnabled()) {
             log.debug((endTime - startTime) + " milli seconds to get a slot from slot manager");
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import java.util.List;
+
+/**
+ * Thrown when a batch of slot operations spanning several slot coordinators fails for some of them. Operations
+ * sent to the other coordinators are applied, hence their results are kept in the exception.
+ */
+public class SlotBatchException extends ConnectionException {
+
+    /**
+     * Message id updates sent to the failed coordinators. These may not have been applied.
+     */
+    private final List<Slot> failedMessageIdUpdates;
+
+    /**
+     * Slot assigned for each slot request in the requested order. Null for requests sent to the failed coordinators
+     */
+    private final List<Slot> assignedSlots;
+
+    public SlotBatchException(String message, Exception cause, List<Slot> failedMessageIdUpdates,
+                              List<Slot> assignedSlots) {
+        super(message, cause);
+        this.failedMessageIdUpdates = failedMessageIdUpdates;
+        this.assignedSlots = assignedSlots;
+    }
+
+    /**
+     * @return message id updates which may not have been applied
+     */
+    public List<Slot> getFailedMessageIdUpdates() {
+        return failedMessageIdUpdates;
+    }
+
+    /**
+     * @return slot assigned for each slot request in the requested order. Null for failed requests
+     */
+    public List<Slot> getAssignedSlots() {
+        return assignedSlots;
+    }
+}
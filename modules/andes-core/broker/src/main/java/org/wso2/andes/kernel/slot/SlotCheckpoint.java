@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+/**
+ * Boundaries of a slot of a storage queue persisted in the context store while the broker runs. On a cluster
+ * restart slots are recovered from the checkpoints and only messages after the last checkpoint are read from the
+ * message store.
+ */
+public class SlotCheckpoint {
+
+    /**
+     * First message id of the slot at the time of the checkpoint
+     */
+    private final long startMessageId;
+
+    /**
+     * Last message id of the slot
+     */
+    private final long endMessageId;
+
+    /**
+     * Number of messages in the slot at the time of the checkpoint
+     */
+    private final int messageCount;
+
+    public SlotCheckpoint(long startMessageId, long endMessageId, int messageCount) {
+        this.startMessageId = startMessageId;
+        this.endMessageId = endMessageId;
+        this.messageCount = messageCount;
+    }
+
+    public long getStartMessageId() {
+        return startMessageId;
+    }
+
+    public long getEndMessageId() {
+        return endMessageId;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SlotCheckpoint [startMessageId=" + startMessageId + ", endMessageId=" + endMessageId
+                + ", messageCount=" + messageCount + "]";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.queue.DLCQueueUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Periodically persists slot boundaries of storage queues to the context store, so that a cluster restart recovers
+ * slots from the checkpoints instead of reading every message id of every queue (see {@link SlotCreator}).
+ * <p>
+ * Each run reads message ids written after the last checkpoint of a queue one slot window at a time and checkpoints
+ * the full windows. The partial window at the tail is left for the next run. Checkpoints ending before the first
+ * message of the queue are deleted since all their messages are already removed.
+ * <p>
+ * In a cluster only the coordinator runs the task.
+ */
+public class SlotCheckpointTask implements Runnable {
+
+    private static Log log = LogFactory.getLog(SlotCheckpointTask.class);
+
+    private final MessageStore messageStore;
+
+    private final AndesContextStore contextStore;
+
+    /**
+     * Number of messages in a checkpoint
+     */
+    private final int slotSize;
+
+    /**
+     * Last checkpointed message id of each storage queue. Loaded from the context store when a queue is first
+     * seen, and reloaded when this node becomes the coordinator since another node may have added checkpoints.
+     */
+    private final Map<String, Long> lastCheckpointedIds = new HashMap<>();
+
+    /**
+     * True if the task ran on this node in the previous run
+     */
+    private boolean ranLastTime = false;
+
+    public SlotCheckpointTask(MessageStore messageStore, AndesContextStore contextStore, int slotSize) {
+        this.messageStore = messageStore;
+        this.contextStore = contextStore;
+        this.slotSize = slotSize;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (AndesContext.getInstance().isClusteringEnabled()
+                    && !AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+                ranLastTime = false;
+                return;
+            }
+            if (!ranLastTime) {
+                lastCheckpointedIds.clear();
+                ranLastTime = true;
+            }
+            checkpointQueues();
+        } catch (Throwable e) {
+            // Task should keep running even if a run fails
+            log.error("Error occurred while checkpointing slots", e);
+        }
+    }
+
+    /**
+     * Checkpoint slots of all the storage queues except dead letter channels
+     *
+     * @throws AndesException on an error reading or writing the stores
+     */
+    private void checkpointQueues() throws AndesException {
+        Set<String> queueNames = new HashSet<>();
+        for (StorageQueue queue : contextStore.getAllQueuesStored()) {
+            String queueName = queue.getName();
+            if (DLCQueueUtils.isDeadLetterQueue(queueName)) {
+                continue;
+            }
+            queueNames.add(queueName);
+            checkpointQueue(queueName);
+        }
+        // Forget deleted queues
+        lastCheckpointedIds.keySet().retainAll(queueNames);
+    }
+
+    /**
+     * Remove checkpoints of messages already removed from the queue and checkpoint the full slot windows written
+     * after the last checkpoint
+     *
+     * @param queueName name of the storage queue
+     * @throws AndesException on an error reading or writing the stores
+     */
+    private void checkpointQueue(String queueName) throws AndesException {
+        Long lastCheckpointedId = lastCheckpointedIds.get(queueName);
+        if (null == lastCheckpointedId) {
+            lastCheckpointedId = getLastCheckpointedId(queueName);
+        }
+
+        LongArrayList firstMessageId = messageStore.getNextNMessageIdsFromQueue(queueName, 0, 1);
+        if (firstMessageId.isEmpty()) {
+            // Queue is empty. Every checkpoint is obsolete
+            contextStore.deleteSlotCheckpoints(queueName, Long.MAX_VALUE);
+        } else {
+            contextStore.deleteSlotCheckpoints(queueName, firstMessageId.get(0));
+        }
+
+        List<SlotCheckpoint> checkpoints = new ArrayList<>();
+        LongArrayList messageIdList =
+                messageStore.getNextNMessageIdsFromQueue(queueName, lastCheckpointedId + 1, slotSize);
+        while (messageIdList.size() == slotSize) {
+            long endMessageId = messageIdList.get(slotSize - 1);
+            checkpoints.add(new SlotCheckpoint(messageIdList.get(0), endMessageId, slotSize));
+            lastCheckpointedId = endMessageId;
+            messageIdList = messageStore.getNextNMessageIdsFromQueue(queueName, lastCheckpointedId + 1, slotSize);
+        }
+
+        if (!checkpoints.isEmpty()) {
+            contextStore.addSlotCheckpoints(queueName, checkpoints);
+            if (log.isDebugEnabled()) {
+                log.debug("Added " + checkpoints.size() + " slot checkpoints for queue " + queueName
+                        + " up to message id " + lastCheckpointedId);
+            }
+        }
+        lastCheckpointedIds.put(queueName, lastCheckpointedId);
+    }
+
+    /**
+     * Read the last checkpointed message id of a queue from the context store
+     *
+     * @param queueName name of the storage queue
+     * @return last checkpointed message id. 0 if the queue has no checkpoints
+     * @throws AndesException on an error reading the context store
+     */
+    private long getLastCheckpointedId(String queueName) throws AndesException {
+        List<SlotCheckpoint> checkpoints = contextStore.getSlotCheckpoints(queueName);
+        if (checkpoints.isEmpty()) {
+            return 0;
+        }
+        return checkpoints.get(checkpoints.size() - 1).getEndMessageId();
+    }
+}
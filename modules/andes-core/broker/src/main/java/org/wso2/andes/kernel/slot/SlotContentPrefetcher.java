@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.MessageStatus;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.store.cache.AndesMessageCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads content of messages of a slot into the message cache in the background while the metadata of the slot is
+ * being buffered for delivery. Content reads of the delivery path are then served from the cache instead of going
+ * to the message store for each delivery batch.
+ * <p>
+ * Slots are prefetched in the order of their message ids, so that content of older slots, which are delivered first,
+ * is read first.
+ */
+public class SlotContentPrefetcher {
+
+    private static Log log = LogFactory.getLog(SlotContentPrefetcher.class);
+
+    /**
+     * Thread factory of the prefetch threads
+     */
+    private static ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+            .setNameFormat("SlotContentPrefetcher-%d").build();
+
+    /**
+     * SlotContentPrefetcher instance
+     */
+    private static SlotContentPrefetcher instance;
+
+    /**
+     * Slots waiting to be prefetched ordered by the first message id
+     */
+    private final PriorityBlockingQueue<PrefetchRequest> prefetchRequests = new PriorityBlockingQueue<>();
+
+    private ExecutorService prefetchExecutorService;
+
+    private MessageStore messageStore;
+
+    /**
+     * Cache of the message store. Prefetched messages are pinned in it until their content is read for delivery
+     */
+    private AndesMessageCache messageCache;
+
+    /**
+     * Condition running the prefetch tasks
+     */
+    private volatile boolean isLive;
+
+    private SlotContentPrefetcher() {
+
+    }
+
+    /**
+     * Start the prefetch threads
+     *
+     * @param messageStore store to read content from and cache content in
+     * @param messageCache cache of the message store
+     * @param threadCount  number of slots prefetched in parallel
+     */
+    public void init(MessageStore messageStore, AndesMessageCache messageCache, int threadCount) {
+        this.messageStore = messageStore;
+        this.messageCache = messageCache;
+        isLive = true;
+        prefetchExecutorService = Executors.newFixedThreadPool(threadCount, namedThreadFactory);
+        for (int i = 0; i < threadCount; i++) {
+            prefetchExecutorService.submit(new PrefetchTask());
+        }
+    }
+
+    /**
+     * Schedule reading content of messages of a slot into the message cache. Does nothing if the prefetcher is
+     * not started.
+     *
+     * @param slot     slot the messages are read from
+     * @param messages messages buffered for delivery
+     */
+    public void prefetch(Slot slot, List<DeliverableAndesMetadata> messages) {
+        if (isLive && !messages.isEmpty()) {
+            prefetchRequests.add(new PrefetchRequest(slot, new ArrayList<>(messages)));
+        }
+    }
+
+    /**
+     * Stop the prefetch threads. Pending prefetch requests are dropped.
+     */
+    public void stop() {
+        if (null != prefetchExecutorService) {
+            isLive = false;
+            prefetchExecutorService.shutdown();
+            prefetchRequests.clear();
+        }
+    }
+
+    /**
+     * Return prefetcher object
+     *
+     * @return SlotContentPrefetcher object
+     */
+    public static synchronized SlotContentPrefetcher getInstance() {
+        if (null == instance) {
+            instance = new SlotContentPrefetcher();
+        }
+        return instance;
+    }
+
+    /**
+     * Task taking slots from the prefetch queue and reading their content
+     */
+    private class PrefetchTask implements Runnable {
+
+        @Override
+        public void run() {
+            while (isLive) {
+                try {
+                    PrefetchRequest request = prefetchRequests.poll(1, TimeUnit.SECONDS);
+                    if (null != request) {
+                        prefetch(request);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable throwable) {
+                    // Delivery reads content from the store if prefetch fails. Task should keep running
+                    log.error("Error while prefetching content of slot", throwable);
+                }
+            }
+        }
+
+        /**
+         * Read content of messages which are still waiting for delivery into the cache and pin them until their
+         * content is read for delivery
+         *
+         * @param request slot and its messages
+         * @throws AndesException on an error reading content
+         */
+        private void prefetch(PrefetchRequest request) throws AndesException {
+            List<DeliverableAndesMetadata> messagesToPrefetch = new ArrayList<>(request.messages.size());
+            LongArrayList messageIds = new LongArrayList(request.messages.size());
+            for (DeliverableAndesMetadata message : request.messages) {
+                if (isWaitingForDelivery(message)) {
+                    messagesToPrefetch.add(message);
+                    messageIds.add(message.getMessageID());
+                }
+            }
+            if (messagesToPrefetch.isEmpty()) {
+                return;
+            }
+
+            messageStore.cacheMessageContent(messagesToPrefetch);
+            messageCache.pinMessages(request.slot.getStorageQueueName(), messageIds);
+
+            // Messages acknowledged while their content was read have already been removed from the cache, and
+            // pins of messages scheduled to be sent meanwhile may have been released when the content was read for
+            // delivery. Their content cached above would otherwise stay pinned until the pin expires
+            LongArrayList completedMessageIds = new LongArrayList();
+            LongArrayList scheduledMessageIds = new LongArrayList();
+            for (DeliverableAndesMetadata message : messagesToPrefetch) {
+                if (message.isPurgedOrDeletedOrExpired() || message.isAknowledgedByAll()) {
+                    completedMessageIds.add(message.getMessageID());
+                } else if (!isWaitingForDelivery(message)) {
+                    scheduledMessageIds.add(message.getMessageID());
+                }
+            }
+            if (!completedMessageIds.isEmpty()) {
+                messageCache.removeFromCache(completedMessageIds);
+            }
+            if (!scheduledMessageIds.isEmpty()) {
+                messageCache.unpinMessages(scheduledMessageIds);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Prefetched content of " + messagesToPrefetch.size() + " messages of slot "
+                        + request.slot);
+            }
+        }
+
+        /**
+         * Check whether a message is buffered but not yet scheduled to be sent
+         *
+         * @param message message to check
+         * @return true if content of the message is yet to be read for delivery
+         */
+        private boolean isWaitingForDelivery(DeliverableAndesMetadata message) {
+            MessageStatus latestState = message.getLatestState();
+            return !message.isPurgedOrDeletedOrExpired() && !message.isAknowledgedByAll()
+                    && (MessageStatus.READ == latestState || MessageStatus.BUFFERED == latestState);
+        }
+    }
+
+    /**
+     * Messages of a slot to prefetch. Ordered by the first message id of the slot.
+     */
+    private static class PrefetchRequest implements Comparable<PrefetchRequest> {
+
+        private final Slot slot;
+
+        private final List<DeliverableAndesMetadata> messages;
+
+        PrefetchRequest(Slot slot, List<DeliverableAndesMetadata> messages) {
+            this.slot = slot;
+            this.messages = messages;
+        }
+
+        @Override
+        public int compareTo(PrefetchRequest other) {
+            long startMessageId = slot.getStartMessageId();
+            long otherStartMessageId = other.slot.getStartMessageId();
+            return startMessageId < otherStartMessageId ? -1 : (startMessageId == otherStartMessageId ? 0 : 1);
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.wso2.andes.kernel.slot;
 
+import java.util.List;
+
 /**
  * This interface is responsible for coordinating with the SlotManagerClusterMode
  */
@@ -41,6 +43,14 @@ public interface SlotCoordinator {
      */
     public void updateMessageId(String queueName,long startMessageId, long endMessageId, long localSafeZone) throws ConnectionException;
 
+    /**
+     * Record last message IDs of slots of many queues in a single coordinator operation
+     * @param slots Slots to record. Each slot has the storage queue name, start and end message IDs
+     * @param localSafeZone Minimum message ID of the node that is deemed safe
+     * @throws ConnectionException
+     */
+    public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException;
+
     /**
      *  Record safe zone to delete slots by node. This ping comes from nodes as messages are not
      *  published by them so that safe zone value keeps moving ahead.
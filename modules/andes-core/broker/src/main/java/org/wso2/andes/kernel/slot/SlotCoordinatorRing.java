@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring mapping storage queues to the node coordinating their slots. Each node is placed on the ring
+ * at a number of virtual points and a queue belongs to the node owning the first point at or after the hash of the
+ * queue name. When a node joins or leaves, only the queues of the points it takes or gives up change their owner.
+ * <p>
+ * The owner of a queue depends only on the set of node IDs, so all nodes seeing the same members agree on the
+ * owner of every queue. Instances are immutable. A new ring is built on each membership change.
+ */
+public class SlotCoordinatorRing {
+
+    /**
+     * Default number of points of each node on the ring. Keeps the share of queues of each node within a few
+     * percent of the average
+     */
+    public static final int DEFAULT_VIRTUAL_NODE_COUNT = 128;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Node ID at each point of the ring, keyed by the position of the point
+     */
+    private final TreeMap<Long, String> ring;
+
+    private final SortedSet<String> nodeIds;
+
+    /**
+     * Create a ring of the given nodes
+     *
+     * @param nodeIds          IDs of the nodes coordinating slots. Null IDs are ignored
+     * @param virtualNodeCount number of points of each node on the ring
+     */
+    public SlotCoordinatorRing(Collection<String> nodeIds, int virtualNodeCount) {
+        if (virtualNodeCount <= 0) {
+            throw new IllegalArgumentException("Virtual node count should be positive. Given: " + virtualNodeCount);
+        }
+        TreeSet<String> sortedNodeIds = new TreeSet<>();
+        for (String nodeId : nodeIds) {
+            if (null != nodeId) {
+                sortedNodeIds.add(nodeId);
+            }
+        }
+        ring = new TreeMap<>();
+        // Nodes are placed in sorted order and a taken point is not overwritten, so that colliding points are
+        // resolved the same way on every node
+        for (String nodeId : sortedNodeIds) {
+            for (int i = 0; i < virtualNodeCount; i++) {
+                Long point = hash(nodeId + "#" + i);
+                if (!ring.containsKey(point)) {
+                    ring.put(point, nodeId);
+                }
+            }
+        }
+        this.nodeIds = Collections.unmodifiableSortedSet(sortedNodeIds);
+    }
+
+    /**
+     * Get the node coordinating slots of a queue
+     *
+     * @param queueName storage queue name
+     * @return node ID of the owner, null if the ring has no nodes
+     */
+    public String getOwner(String queueName) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash(queueName));
+        if (null == point) {
+            // Wrap around to the first point of the ring
+            point = ring.firstEntry();
+        }
+        return point.getValue();
+    }
+
+    /**
+     * @return IDs of the nodes of the ring in sorted order
+     */
+    public SortedSet<String> getNodeIds() {
+        return nodeIds;
+    }
+
+    /**
+     * @return true if the ring has no nodes
+     */
+    public boolean isEmpty() {
+        return nodeIds.isEmpty();
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of a string followed by a finalizing mix, so that similar names such as
+     * virtual points of the same node are spread over the whole ring
+     */
+    private static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+}
@@ -24,11 +24,17 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesContextStore;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.MessageStore;
 
+import java.util.List;
+
 /**
  * SlotCreator is used to recover slots belonging to a storage queue when the cluster is restarted.
+ * <p>
+ * If slot checkpoints are enabled, slots are first recovered from the checkpoints written by
+ * {@link SlotCheckpointTask} and only messages after the last checkpoint are read from the message store.
  */
 public class SlotCreator implements Runnable {
 
@@ -57,11 +63,31 @@ public class SlotCreator implements Runnable {
      */
     private final MessageStore messageStore;
 
-    public SlotCreator(MessageStore messageStore, String queueName) {
+    /**
+     * Context store instance used to read slot checkpoints
+     */
+    private final AndesContextStore contextStore;
+
+    /**
+     * True if slots are recovered from slot checkpoints
+     */
+    private final boolean checkpointsEnabled;
+
+    public SlotCreator(MessageStore messageStore, AndesContextStore contextStore, String queueName) {
+        this(messageStore, contextStore, queueName,
+                AndesConfigurationManager.<Integer>readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE),
+                AndesConfigurationManager.<Integer>readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_SLOTS_CHECKPOINT_INTERVAL) > 0);
+    }
+
+    SlotCreator(MessageStore messageStore, AndesContextStore contextStore, String queueName, int slotSize,
+                boolean checkpointsEnabled) {
         this.messageStore = messageStore;
+        this.contextStore = contextStore;
         this.queueName = queueName;
-        this.slotSize = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE);
+        this.slotSize = slotSize;
+        this.checkpointsEnabled = checkpointsEnabled;
     }
 
     @Override
@@ -86,7 +112,12 @@ public class SlotCreator implements Runnable {
         int restoreMessagesCounter = 0;
         long messageCountOfQueue = messageStore.getMessageCountForQueue(queueName);
 
-        LongArrayList messageIdList = messageStore.getNextNMessageIdsFromQueue(queueName, 0, slotSize);
+        long startMessageId = 0;
+        if (checkpointsEnabled) {
+            startMessageId = recoverSlotsFromCheckpoints() + 1;
+        }
+
+        LongArrayList messageIdList = messageStore.getNextNMessageIdsFromQueue(queueName, startMessageId, slotSize);
         int numberOfMessages = messageIdList.size();
 
         databaseReadsCounter++;
@@ -105,13 +136,7 @@ public class SlotCreator implements Runnable {
                 log.debug("Created a slot with " + messageIdList.size() + " messages for queue (" + queueName + ")");
             }
 
-            if (AndesContext.getInstance().isClusteringEnabled()) {
-                SlotManagerClusterMode.getInstance().updateMessageID(queueName,
-                        AndesContext.getInstance().getClusterAgent().getLocalNodeIdentifier(), firstMessageID,
-                        lastMessageID, lastMessageID);
-            } else {
-                SlotManagerStandalone.getInstance().updateMessageID(queueName, lastMessageID);
-            }
+            submitSlot(firstMessageID, lastMessageID);
 
             long currentTimeInMillis = System.currentTimeMillis();
             if (currentTimeInMillis - lastStatPublishTime > STAT_PUBLISHING_INTERVAL) {
@@ -134,4 +159,58 @@ public class SlotCreator implements Runnable {
         log.info("Recovered " + restoreMessagesCounter + " messages for queue \"" + queueName + "\" using "
                 + databaseReadsCounter + " database calls");
     }
+
+    /**
+     * Recover slots of the storage queue from slot checkpoints. Slots are recovered back to back, each starting
+     * right after the previous one, so that messages written in between checkpointed windows are also covered.
+     *
+     * @return last message id covered by the checkpoints. 0 if there are no checkpoints
+     * @throws AndesException
+     */
+    private long recoverSlotsFromCheckpoints() throws AndesException {
+        List<SlotCheckpoint> checkpoints = contextStore.getSlotCheckpoints(queueName);
+        if (checkpoints.isEmpty()) {
+            return 0;
+        }
+
+        LongArrayList firstMessageId = messageStore.getNextNMessageIdsFromQueue(queueName, 0, 1);
+        if (firstMessageId.isEmpty()) {
+            return 0;
+        }
+
+        long startMessageId = firstMessageId.get(0);
+        long checkpointedMessageCount = 0;
+        int recoveredSlotCount = 0;
+        for (SlotCheckpoint checkpoint : checkpoints) {
+            // Skip checkpoints of messages already removed from the queue
+            if (checkpoint.getEndMessageId() < startMessageId) {
+                continue;
+            }
+            submitSlot(Math.min(startMessageId, checkpoint.getStartMessageId()), checkpoint.getEndMessageId());
+            startMessageId = checkpoint.getEndMessageId() + 1;
+            checkpointedMessageCount = checkpointedMessageCount + checkpoint.getMessageCount();
+            recoveredSlotCount++;
+        }
+
+        log.info("Recovered " + recoveredSlotCount + " slots of up to " + checkpointedMessageCount
+                + " messages for queue \"" + queueName + "\" from slot checkpoints");
+        return startMessageId - 1;
+    }
+
+    /**
+     * Submit a recovered slot to the slot manager
+     *
+     * @param firstMessageID first message id of the slot
+     * @param lastMessageID  last message id of the slot
+     * @throws AndesException
+     */
+    void submitSlot(long firstMessageID, long lastMessageID) throws AndesException {
+        if (AndesContext.getInstance().isClusteringEnabled()) {
+            SlotManagerClusterMode.getInstance().updateMessageID(queueName,
+                    AndesContext.getInstance().getClusterAgent().getLocalNodeIdentifier(), firstMessageID,
+                    lastMessageID, lastMessageID);
+        } else {
+            SlotManagerStandalone.getInstance().updateMessageID(queueName, lastMessageID);
+        }
+    }
 }
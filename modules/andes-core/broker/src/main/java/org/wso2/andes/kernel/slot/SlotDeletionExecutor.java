@@ -111,6 +111,9 @@ public class SlotDeletionExecutor implements NetworkPartitionListener {
                     // Check current slot to delete is not null
                     if (slot != null) {
 
+                        // Remove acknowledged messages of the slot which are yet to be deleted at once
+                        MessagingEngine.getInstance().compactDeletedMessagesOfSlot(slot);
+
                         // Check DB for any remaining messages. (JIRA FIX: MB-1612)
                         // If there are any remaining messages wait till overlapped slot delivers the messages
                         if (MessagingEngine.getInstance().getMessageCountForQueueInRange(
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+/**
+ * Fixed set of lock objects slot managers synchronize on, picked by the hash of a queue name or a node ID.
+ * <p>
+ * Getting a lock does not build or intern a key string and does not allocate, so the lock lookup stays cheap and
+ * does not contend on the JVM string table when many queues are served. Names sharing a stripe share the lock.
+ * A thread holding the lock of one name should therefore never take the lock of another name from the same
+ * registry, otherwise two threads may deadlock on colliding stripes. Use separate registries for queues and nodes.
+ */
+public class SlotLockRegistry {
+
+    /**
+     * Default number of stripes. Keeps the chance of two busy queues sharing a lock low
+     */
+    public static final int DEFAULT_STRIPE_COUNT = 1024;
+
+    private final Object[] locks;
+
+    /**
+     * Mask applied to the hash to pick a stripe. Stripe count is a power of two
+     */
+    private final int mask;
+
+    /**
+     * Create a registry with the default number of stripes
+     */
+    public SlotLockRegistry() {
+        this(DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * Create a registry
+     *
+     * @param stripeCount minimum number of locks. Rounded up to a power of two
+     */
+    public SlotLockRegistry(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count should be positive. Given: " + stripeCount);
+        }
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size = size << 1;
+        }
+        locks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new Object();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Get the lock of a queue or a node. The same object is returned for the same name
+     *
+     * @param name storage queue name or node ID
+     * @return object to synchronize on
+     */
+    public Object getLock(String name) {
+        int hash = name.hashCode();
+        // Spread higher bits to lower bits as only the lower bits are used to pick the stripe
+        hash ^= (hash >>> 16);
+        return locks[hash & mask];
+    }
+}
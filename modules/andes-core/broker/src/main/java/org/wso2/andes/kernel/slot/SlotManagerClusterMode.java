@@ -24,12 +24,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.server.cluster.coordination.SlotAgent;
 import org.wso2.andes.server.cluster.coordination.hazelcast.HazelcastAgent;
 import org.wso2.andes.server.cluster.coordination.rdbms.DatabaseSlotAgent;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Executors;
@@ -37,6 +39,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Slot Manager Cluster Mode is responsible of slot allocating, slot creating,
@@ -71,6 +74,23 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
 
     private SlotAgent slotAgent;
 
+    /**
+     * Locks guarding slot operations of a storage queue
+     */
+    private final SlotLockRegistry queueLocks = new SlotLockRegistry();
+
+    /**
+     * Locks guarding slot assignments of a node. Taken while holding a queue lock, never the other way round
+     */
+    private final SlotLockRegistry nodeLocks = new SlotLockRegistry();
+
+    /**
+     * Last message ID recorded for each queue, by node ID. A node retries a whole slot batch when recording some of
+     * its slots fails, hence slots already recorded are recognized by these IDs and ignored.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Long>> lastRecordedMessageIds =
+            new ConcurrentHashMap<>();
+
     private SlotManagerClusterMode() {
 
         //start a thread to calculate slot delete safe zone
@@ -115,29 +135,60 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
          *First look in the unassigned slots pool for free slots. These slots are previously own by
          * other nodes
          */
-        String lockKey = queueName + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
-            slotToBeAssigned = getUnassignedSlot(queueName);
+        Lock clusterLock = lockQueueInCluster(queueName);
+        try {
+            synchronized (queueLocks.getLock(queueName)) {
+                slotToBeAssigned = getUnassignedSlot(queueName);
 
-            if (null == slotToBeAssigned) {
-                slotToBeAssigned = getOverlappedSlot(nodeId, queueName);
-            }
-            if (null == slotToBeAssigned) {
-                slotToBeAssigned = getFreshSlot(queueName, nodeId);
-            }
+                if (null == slotToBeAssigned) {
+                    slotToBeAssigned = getOverlappedSlot(nodeId, queueName);
+                }
+                if (null == slotToBeAssigned) {
+                    slotToBeAssigned = getFreshSlot(queueName, nodeId);
+                }
 
-            if (null != slotToBeAssigned) {
-                updateSlotAssignmentMap(queueName, slotToBeAssigned, nodeId);
-                if (log.isDebugEnabled()) {
-                    log.debug("Assigning slot for node : " + nodeId + " | " + slotToBeAssigned);
+                if (null != slotToBeAssigned) {
+                    updateSlotAssignmentMap(queueName, slotToBeAssigned, nodeId);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Assigning slot for node : " + nodeId + " | " + slotToBeAssigned);
+                    }
                 }
             }
+        } finally {
+            unlockQueueInCluster(clusterLock);
         }
 
         return slotToBeAssigned;
 
     }
 
+    /**
+     * Take the cluster wide lock of a queue if slot coordination is spread across the cluster. The slot store is
+     * read and updated in several steps while assigning and recording slots, so the old and the new slot
+     * coordinator of a queue should not update it at the same time during a membership change.
+     *
+     * @param queueName name of the queue
+     * @return acquired lock, null if no cluster wide lock is needed
+     */
+    private Lock lockQueueInCluster(String queueName) {
+        Lock clusterLock = AndesContext.getInstance().getClusterAgent().getSlotCoordinationLock(queueName);
+        if (null != clusterLock) {
+            clusterLock.lock();
+        }
+        return clusterLock;
+    }
+
+    /**
+     * Release a lock taken by {@link #lockQueueInCluster(String)}
+     *
+     * @param clusterLock acquired lock. Ignored if null
+     */
+    private void unlockQueueInCluster(Lock clusterLock) {
+        if (null != clusterLock) {
+            clusterLock.unlock();
+        }
+    }
+
     /**
      * Create a new slot from store
      *
@@ -149,7 +200,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
 
         Slot slotToBeAssigned = null;
         Long endMessageId = null;
-        TreeSet<Long> messageIDSet;
+        LongRangeSet messageIDSet;
         // Get message id set from database
         messageIDSet = slotAgent.getSlotBasedMessageIds(queueName);
         //start msgID will be last assigned ID + 1 so that slots are created with no
@@ -159,7 +210,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
          * End message id that needs to be allocated to this slot
          * End messageID will be the lowest in published message ID list. Get and remove
          */
-        if(null != messageIDSet){
+        if (null != messageIDSet && !messageIDSet.isEmpty()) {
             endMessageId = messageIDSet.pollFirst();
         }
         /**
@@ -213,8 +264,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      */
     private Slot getUnassignedSlot(String queueName) throws AndesException {
         Slot slotToBeAssigned;
-        String lockKey = queueName + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             //get oldest unassigned slot from database
             slotToBeAssigned = slotAgent.getUnAssignedSlot(queueName);
 
@@ -238,8 +288,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      */
     private Slot getOverlappedSlot(String nodeId, String queueName) throws AndesException {
         Slot slotToBeAssigned;
-        String lockKey = queueName + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             //get oldest overlapped slot from database
             slotToBeAssigned = slotAgent.getOverlappedSlot(nodeId, queueName);
             if (log.isDebugEnabled()) {
@@ -260,8 +309,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      */
     private void updateSlotAssignmentMap(String queueName, Slot allocatedSlot, String nodeId) throws AndesException {
         //Lock is used because this method will be called by multiple nodes at the same time
-        String lockKey = nodeId + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
+        synchronized (nodeLocks.getLock(nodeId)) {
             //Update assigned node, assigned queue and set state to assigned
             slotAgent.updateSlotAssignment(nodeId, queueName, allocatedSlot);
         }
@@ -278,6 +326,37 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      */
     public void updateMessageID(String queueName, String nodeId, long startMessageIdInTheSlot,
                                 long lastMessageIdInTheSlot, long localSafeZone) throws AndesException {
+        recordMessageID(queueName, nodeId, startMessageIdInTheSlot, lastMessageIdInTheSlot);
+        //record local safe zone
+        slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+    }
+
+    /**
+     * Record last message IDs of slots of many queues submitted by a node in one request. The local safe zone of
+     * the node is recorded once for the whole batch.
+     *
+     * @param nodeId        Node ID of the node that is sending the request.
+     * @param slots         slots submitted by the node. Each slot has the storage queue name, start and end
+     *                      message IDs
+     * @param localSafeZone Local safe zone of the requesting node.
+     */
+    public void updateMessageIDs(String nodeId, List<Slot> slots, long localSafeZone) throws AndesException {
+        for (Slot slot : slots) {
+            recordMessageID(slot.getStorageQueueName(), nodeId, slot.getStartMessageId(), slot.getEndMessageId());
+        }
+        slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+    }
+
+    /**
+     * Record Slot's last message ID related to a particular queue without updating the local safe zone of the node
+     *
+     * @param queueName               name of the queue which this message ID belongs to
+     * @param nodeId                  Node ID of the node that is sending the request.
+     * @param startMessageIdInTheSlot start message ID of the slot
+     * @param lastMessageIdInTheSlot  last message ID of the slot
+     */
+    private void recordMessageID(String queueName, String nodeId, long startMessageIdInTheSlot,
+                                 long lastMessageIdInTheSlot) throws AndesException {
 
         //setting up first message id of the slot
         if (firstMessageId > startMessageIdInTheSlot || firstMessageId == -1) {
@@ -288,12 +367,50 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
             queuesToRecover.remove(queueName);
         }
 
+        Lock clusterLock = lockQueueInCluster(queueName);
+        try {
+            ConcurrentHashMap<String, Long> recordedMessageIdsOfNode = lastRecordedMessageIds.get(nodeId);
+            if (null == recordedMessageIdsOfNode) {
+                recordedMessageIdsOfNode = new ConcurrentHashMap<>();
+                ConcurrentHashMap<String, Long> existingMessageIds =
+                        lastRecordedMessageIds.putIfAbsent(nodeId, recordedMessageIdsOfNode);
+                if (null != existingMessageIds) {
+                    recordedMessageIdsOfNode = existingMessageIds;
+                }
+            }
+
+            Long lastRecordedMessageId = recordedMessageIdsOfNode.get(queueName);
+            if (null != lastRecordedMessageId && lastMessageIdInTheSlot <= lastRecordedMessageId) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Ignoring already recorded slot submit from node " + nodeId + " for queue "
+                            + queueName + ". StartMessageID : " + startMessageIdInTheSlot + " EndMessageID : "
+                            + lastMessageIdInTheSlot + " last recorded : " + lastRecordedMessageId);
+                }
+                return;
+            }
+
+            recordMessageIDInStore(queueName, nodeId, startMessageIdInTheSlot, lastMessageIdInTheSlot);
+            recordedMessageIdsOfNode.put(queueName, lastMessageIdInTheSlot);
+        } finally {
+            unlockQueueInCluster(clusterLock);
+        }
+    }
+
+    /**
+     * Record Slot's last message ID in the slot store. Called holding the cluster wide lock of the queue.
+     *
+     * @param queueName               name of the queue which this message ID belongs to
+     * @param nodeId                  Node ID of the node that is sending the request.
+     * @param startMessageIdInTheSlot start message ID of the slot
+     * @param lastMessageIdInTheSlot  last message ID of the slot
+     */
+    private void recordMessageIDInStore(String queueName, String nodeId, long startMessageIdInTheSlot,
+                                        long lastMessageIdInTheSlot) throws AndesException {
         // Read message Id set for slots from store
-        TreeSet<Long> messageIdSet;
+        LongRangeSet messageIdSet;
         messageIdSet = slotAgent.getSlotBasedMessageIds(queueName);
 
-        String lockKey = queueName + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             //Get last assigned message id from database
             long lastAssignedMessageId = slotAgent.getQueueToLastAssignedId(queueName);
 
@@ -363,8 +480,6 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
                             lastMessageIdInTheSlot + " to store");
                 }
             }
-            //record local safe zone
-            slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
         }
     }
 
@@ -397,6 +512,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
                 log.debug("No slots to return from node " + nodeId + " as member left");
             }
         }
+        lastRecordedMessageIds.remove(nodeId);
     }
 
     /**
@@ -415,8 +531,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
             log.debug("Trying to delete slot. safeZone= " + getSlotDeleteSafeZone() + " startMsgID: " + startMsgId);
         }
         if (slotDeleteSafeZone > endMsgId) {
-            String lockKey = nodeId + SlotManagerClusterMode.class;
-            synchronized (lockKey.intern()) {
+            synchronized (nodeLocks.getLock(nodeId)) {
                 slotDeleted = slotAgent.deleteSlot(nodeId, storageQueueName, startMsgId, endMsgId);
                 if (log.isDebugEnabled()) {
                     log.debug(" Deleted slot id = " + emptySlot.getId() + " queue name = " + storageQueueName
@@ -439,8 +554,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      * @param queueName name of the queue whose slots to be reassigned
      */
     public void reAssignSlotWhenNoSubscribers(String nodeId, String queueName) throws AndesException {
-        String lockKeyForNodeId = nodeId + SlotManagerClusterMode.class;
-        synchronized (lockKeyForNodeId.intern()) {
+        synchronized (nodeLocks.getLock(nodeId)) {
             slotAgent.deleteSlotAssignmentByQueueName(nodeId, queueName);
             if (log.isDebugEnabled()) {
                 log.debug("Cleared assigned slots of queue " + queueName + " Assigned to node " +
@@ -493,10 +607,20 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
         if (log.isDebugEnabled()) {
             log.debug("Clearing all slots for queue " + queueName);
         }
-        //Clear related slots in slot table
-        slotAgent.deleteSlotsByQueueName(queueName);
-        //Clear message ids from message id table
-        slotAgent.deleteMessageIdsByQueueName(queueName);
+        Lock clusterLock = lockQueueInCluster(queueName);
+        try {
+            synchronized (queueLocks.getLock(queueName)) {
+                //Clear related slots in slot table
+                slotAgent.deleteSlotsByQueueName(queueName);
+                //Clear message ids from message id table
+                slotAgent.deleteMessageIdsByQueueName(queueName);
+                for (ConcurrentHashMap<String, Long> recordedMessageIdsOfNode : lastRecordedMessageIds.values()) {
+                    recordedMessageIdsOfNode.remove(queueName);
+                }
+            }
+        } finally {
+            unlockQueueInCluster(clusterLock);
+        }
     }
 
     /**
@@ -528,9 +652,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
         TreeSet<Slot> overlappedSlots = new TreeSet<>();
         TreeSet<Slot> assignedOverlappingSlots = new TreeSet<>();
 
-        String lockKey = queueName + SlotManagerClusterMode.class;
-
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             // Get all slots created for given queue name
             TreeSet<Slot> slotListForQueue = slotAgent.getAllSlotsByQueueName(queueName);
 
@@ -614,6 +736,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
                         }
                     }
                     slotRecoveryScheduled.set(false);
+                    lastRecordedMessageIds.remove(deletedNodeId);
                     try {
                         if (log.isDebugEnabled()) {
                             log.debug("Removing " + deletedNodeId + " from safe zone calculation.");
@@ -650,6 +773,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      */
     public void clearSlotStorage() throws AndesException {
         slotAgent.clearSlotStorage();
+        lastRecordedMessageIds.clear();
     }
 
     /**
@@ -658,18 +782,22 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
     @Override
     public long getSafeZoneLowerBoundId(String queueName) throws AndesException {
         long lowerBoundId = -1;
-        String lockKey = queueName + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
-            //get the upper bound messageID for each unassigned slots as a set for the specific queue
-            TreeSet<Long> messageIDSet = slotAgent.getSlotBasedMessageIds(queueName);
-
-            if (messageIDSet.size() >= safetySlotCount) {
-                lowerBoundId = messageIDSet.toArray(new Long[messageIDSet.size()])[safetySlotCount - 1] + 1;
-                /**
-                 * Inform the slot manager regarding the current expiry deletion range and queue
-                 */
-                setDeletionTaskState(queueName, lowerBoundId);
+        Lock clusterLock = lockQueueInCluster(queueName);
+        try {
+            synchronized (queueLocks.getLock(queueName)) {
+                //get the upper bound messageID for each unassigned slots as a set for the specific queue
+                LongRangeSet messageIDSet = slotAgent.getSlotBasedMessageIds(queueName);
+
+                if (messageIDSet.size() >= safetySlotCount) {
+                    lowerBoundId = messageIDSet.get(safetySlotCount - 1) + 1;
+                    /**
+                     * Inform the slot manager regarding the current expiry deletion range and queue
+                     */
+                    setDeletionTaskState(queueName, lowerBoundId);
+                }
             }
+        } finally {
+            unlockQueueInCluster(clusterLock);
         }
         return lowerBoundId;
     }
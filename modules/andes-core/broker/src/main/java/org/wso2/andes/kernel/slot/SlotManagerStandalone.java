@@ -37,7 +37,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
     /**
      * To keep message IDs against queues.
      */
-    private ConcurrentHashMap<String, TreeSet<Long>> slotIDMap;
+    private ConcurrentHashMap<String, LongRangeSet> slotIDMap;
 
     /**
      * To keep track of last assigned message ID against queue.
@@ -56,6 +56,11 @@ public class SlotManagerStandalone extends AbstractSlotManager {
      */
     private ConcurrentHashMap<String, TreeSet<Slot>> slotAssignmentMap;
 
+    /**
+     * Locks guarding slot operations of a queue
+     */
+    private final SlotLockRegistry queueLocks = new SlotLockRegistry();
+
 
     private static SlotManagerStandalone slotManagerStandalone = new SlotManagerStandalone();
 
@@ -80,8 +85,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
      */
     public Slot getSlot(String queueName) {
         Slot slotToBeAssigned;
-        String lockKey = queueName + SlotManagerStandalone.class;
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             //First look at slots which are returned when last subscriber leaves
             slotToBeAssigned = getUnassignedSlot(queueName);
             if (null == slotToBeAssigned) {
@@ -126,7 +130,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
 
         Slot slotToBeAssigned = null;
         Long endMessageId = null;
-        TreeSet<Long> messageIDSet = slotIDMap.get(queueName);
+        LongRangeSet messageIDSet = slotIDMap.get(queueName);
         //start msgID will be last assigned ID + 1 so that slots are created with no
         // message ID gaps in-between
         Long lastAssignedId = queueToLastAssignedIDMap.get(queueName);
@@ -134,7 +138,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
          * Last message id that needs to be allocated to this slot
          * End messageID will be the lowest in published message ID list. Get and remove
          */
-         if(null != messageIDSet){
+         if (null != messageIDSet && !messageIDSet.isEmpty()) {
              endMessageId = messageIDSet.pollFirst();
          }
         /**
@@ -195,12 +199,11 @@ public class SlotManagerStandalone extends AbstractSlotManager {
      */
     public void updateMessageID(String queueName, Long lastMessageIdInTheSlot) {
 
-        TreeSet<Long> messageIdSet = slotIDMap.get(queueName);
+        LongRangeSet messageIdSet = slotIDMap.get(queueName);
         if (messageIdSet == null) {
-            messageIdSet = new TreeSet<>();
+            messageIdSet = new LongRangeSet();
         }
-        String lockKey = queueName + SlotManagerStandalone.class;
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             /**
              * Update the slotIDMap
              */
@@ -225,8 +228,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
      * @return Whether deleted or not
      */
     public boolean deleteSlot(String queueName, Slot slotToBeDeleted) {
-        String lockKey = queueName + SlotManagerStandalone.class;
-        synchronized (lockKey.intern()) {
+        synchronized (queueLocks.getLock(queueName)) {
             TreeSet<Slot> assignedSlotSet = slotAssignmentMap.get(queueName);
             if (null != assignedSlotSet) {
                 Iterator assignedSlotIterator = assignedSlotSet.iterator();
@@ -250,9 +252,8 @@ public class SlotManagerStandalone extends AbstractSlotManager {
      */
     public void reAssignSlotWhenNoSubscribers(String queueName) {
         TreeSet<Slot> slotsToBeReAssigned = slotAssignmentMap.remove(queueName);
-        String lockKey = queueName + SlotManagerStandalone.class;
         if (null != slotsToBeReAssigned) {
-            synchronized (lockKey.intern()) {
+            synchronized (queueLocks.getLock(queueName)) {
                 TreeSet<Slot> unassignedSlots = unAssignedSlotMap.get(queueName);
                 if (null == unassignedSlots) {
                     unassignedSlots = new TreeSet<>();
@@ -270,14 +271,16 @@ public class SlotManagerStandalone extends AbstractSlotManager {
      */
     public void clearAllActiveSlotRelationsToQueue(String queueName) {
 
-        if (null != slotIDMap) {
-            slotIDMap.remove(queueName);
-        }
-        if (null != slotAssignmentMap) {
-            slotAssignmentMap.remove(queueName);
-        }
-        if (null != unAssignedSlotMap) {
-            unAssignedSlotMap.remove(queueName);
+        synchronized (queueLocks.getLock(queueName)) {
+            if (null != slotIDMap) {
+                slotIDMap.remove(queueName);
+            }
+            if (null != slotAssignmentMap) {
+                slotAssignmentMap.remove(queueName);
+            }
+            if (null != unAssignedSlotMap) {
+                unAssignedSlotMap.remove(queueName);
+            }
         }
 
     }
@@ -313,12 +316,11 @@ public class SlotManagerStandalone extends AbstractSlotManager {
     @Override
     public long getSafeZoneLowerBoundId(String queueName) throws AndesException {
         long lowerBoundId = -1;
-        String lockKey = queueName + SlotManagerStandalone.class;
-        synchronized (lockKey.intern()) {
-            TreeSet<Long> messageIDSet = slotIDMap.get(queueName);
+        synchronized (queueLocks.getLock(queueName)) {
+            LongRangeSet messageIDSet = slotIDMap.get(queueName);
             //set the lower bound Id for safety delete region as the safety slot count interval upper bound id + 1
-            if (messageIDSet.size() >= safetySlotCount) {
-                lowerBoundId = messageIDSet.toArray(new Long[messageIDSet.size()])[safetySlotCount - 1] + 1;
+            if (null != messageIDSet && messageIDSet.size() >= safetySlotCount) {
+                lowerBoundId = messageIDSet.get(safetySlotCount - 1) + 1;
                 /**
                  * Inform the slot manager regarding the current expiry deletion range and queue
                  */
@@ -36,7 +36,11 @@ import org.wso2.andes.store.FailureObservingStoreManager;
 import org.wso2.andes.store.HealthAwareStore;
 import org.wso2.andes.store.StoreHealthListener;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,7 +68,6 @@ public class SlotMessageCounter implements StoreHealthListener {
     private final ScheduledExecutorService submitSlotToCoordinatorExecutor;
 
     private Log log = LogFactory.getLog(SlotMessageCounter.class);
-    private static SlotMessageCounter slotMessageCounter = new SlotMessageCounter();
     private final int slotWindowSize;
     private long currentSlotDeleteSafeZone;
 
@@ -92,19 +95,40 @@ public class SlotMessageCounter implements StoreHealthListener {
      */
     private volatile boolean messageStoresUnavailable;
 
-    private SlotMessageCounter() {
+    /**
+     * Holder of the singleton instance, created when it is first used since it reads the broker configuration
+     */
+    private static class InstanceHolder {
+        private static final SlotMessageCounter INSTANCE = new SlotMessageCounter();
+    }
 
-        SLOT_SUBMIT_TIMEOUT = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SUBMIT_SLOT_TIMER_PERIOD);
+    private SlotMessageCounter() {
+        this(MessagingEngine.getInstance().getSlotCoordinator(),
+                AndesConfigurationManager.<Integer>readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE),
+                AndesConfigurationManager.<Long>readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MESSAGE_ACCUMULATION_TIMEOUT),
+                AndesConfigurationManager.<Integer>readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_SUBMIT_SLOT_TIMER_PERIOD));
+    }
 
-        slotWindowSize = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE);
+    /**
+     * Create a slot message counter submitting slots to the given coordinator
+     *
+     * @param slotCoordinator           coordinator slots are submitted to
+     * @param slotWindowSize            number of messages which fills a slot
+     * @param timeOutForMessagesInQueue time in milliseconds after which a slot is submitted though it is not full
+     * @param slotSubmitTimeout         time in milliseconds between successive slot submit tasks
+     */
+    SlotMessageCounter(SlotCoordinator slotCoordinator, int slotWindowSize, long timeOutForMessagesInQueue,
+                       int slotSubmitTimeout) {
 
-        timeOutForMessagesInQueue = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MESSAGE_ACCUMULATION_TIMEOUT);
+        SLOT_SUBMIT_TIMEOUT = slotSubmitTimeout;
+        this.slotWindowSize = slotWindowSize;
+        this.timeOutForMessagesInQueue = timeOutForMessagesInQueue;
 
         slotSubmitLoopSkipCount = 0;
-        slotCoordinator = MessagingEngine.getInstance().getSlotCoordinator();
+        this.slotCoordinator = slotCoordinator;
 
         messageStoresUnavailable = false;
         FailureObservingStoreManager.registerStoreHealthListener(this);
@@ -209,11 +233,85 @@ public class SlotMessageCounter implements StoreHealthListener {
                 } catch (ConnectionException e) {
                     // we only log here since this is called again from timer task if previous attempt failed
                     log.error("Error occurred while connecting to the thrift coordinator.", e);
+                    returnSlot(storageQueueName, slot, lastSlotUpdateTime);
                 }
             }
         }
     }
 
+    /**
+     * Submit all the slots that reached the slot window size or timed out to the coordinator in a single
+     * operation. Slots of queues with a low publish rate time out together, so a single call to the coordinator
+     * replaces a call per queue.
+     */
+    public synchronized void submitReadySlots() {
+        List<Slot> readySlots = new ArrayList<>();
+        Set<String> readyQueueNames = new HashSet<>();
+
+        for (Map.Entry<String, Long> entry : slotTimeOutMap.entrySet()) {
+            String storageQueueName = entry.getKey();
+            Slot slot = queueToSlotMap.get(storageQueueName);
+
+            if (null != slot && (checkMessageLimitReached(slot) || checkTimeOutReached(entry.getValue()))) {
+                slot.setStorageQueueName(storageQueueName);
+                readySlots.add(slot);
+                readyQueueNames.add(storageQueueName);
+            }
+        }
+
+        if (readySlots.isEmpty()) {
+            return;
+        }
+
+        long localSafeZone = inferLocalSafeZone(readyQueueNames);
+        Map<String, Long> slotUpdateTimes = new HashMap<>(readyQueueNames.size());
+        for (String storageQueueName : readyQueueNames) {
+            slotUpdateTimes.put(storageQueueName, slotTimeOutMap.remove(storageQueueName));
+            queueToSlotMap.remove(storageQueueName);
+        }
+
+        try {
+            slotCoordinator.updateMessageIds(readySlots, localSafeZone);
+            if (log.isDebugEnabled()) {
+                log.debug("Submitted " + readySlots.size() + " slots to the coordinator with local safe zone "
+                        + localSafeZone);
+            }
+        } catch (SlotBatchException e) {
+            // Slots sent to the other coordinators are recorded, only the failed ones are submitted again
+            log.error("Error occurred while connecting to the thrift coordinator. "
+                    + e.getFailedMessageIdUpdates().size() + " of " + readySlots.size()
+                    + " slots will be submitted again.", e);
+            for (Slot failedSlot : e.getFailedMessageIdUpdates()) {
+                returnSlot(failedSlot.getStorageQueueName(), failedSlot,
+                        slotUpdateTimes.get(failedSlot.getStorageQueueName()));
+            }
+        } catch (ConnectionException e) {
+            log.error("Error occurred while connecting to the thrift coordinator. Slots will be submitted again.", e);
+            for (Slot readySlot : readySlots) {
+                returnSlot(readySlot.getStorageQueueName(), readySlot,
+                        slotUpdateTimes.get(readySlot.getStorageQueueName()));
+            }
+        }
+    }
+
+    /**
+     * Put back a slot which could not be submitted to the coordinator so that it is submitted by the next timer
+     * task. If messages of the queue were counted in a new slot meanwhile, the failed slot is merged into it.
+     *
+     * @param storageQueueName   name of the queue which the slot belongs to
+     * @param failedSlot         slot which could not be submitted
+     * @param lastSlotUpdateTime time the failed slot was started at
+     */
+    private void returnSlot(String storageQueueName, Slot failedSlot, Long lastSlotUpdateTime) {
+        Slot newerSlot = queueToSlotMap.putIfAbsent(storageQueueName, failedSlot);
+        if (null != newerSlot) {
+            newerSlot.setStartMessageId(failedSlot.getStartMessageId());
+            newerSlot.setMessageCount(newerSlot.getMessageCount() + failedSlot.getMessageCount());
+        }
+        // Keep the earlier start time so that the slot is not held back for another timeout
+        slotTimeOutMap.put(storageQueueName, lastSlotUpdateTime);
+    }
+
     /**
      * Figure out if the currentStorageQueue's endMessageID is larger than startMessageID's of other queues. If yes,
      * set the minimum startMessageID from those queues as the local safe Zone.
@@ -222,12 +320,25 @@ public class SlotMessageCounter implements StoreHealthListener {
      * @return Local Safe Zone
      */
     private long inferLocalSafeZone(String currentStorageQueueName) {
+        return inferLocalSafeZone(Collections.singleton(currentStorageQueueName));
+    }
+
+    /**
+     * Infer the local safe zone for submitting slots of several queues together. This is the minimum of the
+     * endMessageIDs of the submitted slots and the startMessageIDs of the slots of other queues.
+     *
+     * @param submittedStorageQueueNames names of the queues whose slots are submitted
+     * @return Local Safe Zone
+     */
+    private long inferLocalSafeZone(Set<String> submittedStorageQueueNames) {
 
-        long localSafeZone = queueToSlotMap.get(currentStorageQueueName).getEndMessageId();
+        long localSafeZone = Long.MAX_VALUE;
 
         for (Map.Entry<String, Slot> queueSlotEntry : queueToSlotMap.entrySet()) {
 
-            if (!queueSlotEntry.getKey().equals(currentStorageQueueName)) {
+            if (submittedStorageQueueNames.contains(queueSlotEntry.getKey())) {
+                localSafeZone = Math.min(queueSlotEntry.getValue().getEndMessageId(), localSafeZone);
+            } else {
                 localSafeZone = Math.min(queueSlotEntry.getValue().getStartMessageId(), localSafeZone);
             }
         }
@@ -251,7 +362,7 @@ public class SlotMessageCounter implements StoreHealthListener {
      * @return SlotMessageCounter instance
      */
     public static SlotMessageCounter getInstance() {
-        return slotMessageCounter;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
@@ -295,9 +406,13 @@ public class SlotMessageCounter implements StoreHealthListener {
                 log.info("Starting publisher slot recovery event with recovery message id " + recoveryMessageId);
                 AndesContextStore contextStore = AndesContext.getInstance().getAndesContextStore();
                 List<StorageQueue> queueList = contextStore.getAllQueuesStored();
+                List<Slot> recoverySlots = new ArrayList<>(queueList.size());
                 for (StorageQueue queue : queueList) {
-                    slotCoordinator.updateMessageId(queue.getName(), recoveryMessageId, recoveryMessageId,
-                            currentSlotDeleteSafeZone);
+                    Slot recoverySlot = new Slot();
+                    recoverySlot.setStartMessageId(recoveryMessageId);
+                    recoverySlot.setEndMessageId(recoveryMessageId);
+                    recoverySlot.setStorageQueueName(queue.getName());
+                    recoverySlots.add(recoverySlot);
                     // NOTE: Two queues can't have the same message id at the MB_SLOT_MESSAGE_ID table hence incrementing.
 
                     // Get fresh slot logic deletes the current 'last-queue-to-message-id' mapping with only the
@@ -306,6 +421,9 @@ public class SlotMessageCounter implements StoreHealthListener {
                     log.info("Moving last published message id of queue " + queue.getName() + " to "
                              + recoveryMessageId);
                 }
+                if (!recoverySlots.isEmpty()) {
+                    slotCoordinator.updateMessageIds(recoverySlots, currentSlotDeleteSafeZone);
+                }
                 log.info("Publisher slot recovery event completed for " + queueList.size() +
                          " queue(s). Recovery message id " + recoveryMessageId);
 
@@ -325,10 +443,8 @@ public class SlotMessageCounter implements StoreHealthListener {
         @Override
         public void run() {
             try {
-                Set<Map.Entry<String, Long>> slotTimeoutEntries = slotTimeOutMap.entrySet();
-
-                if (!slotTimeoutEntries.isEmpty()) {
-                    updateCoordinatorWithTimedOutSlots(slotTimeoutEntries);
+                if (!slotTimeOutMap.isEmpty()) {
+                    submitReadySlots();
                 } else {
                     updateCoordinatorWithCurrentSafezone();
                 }
@@ -338,28 +454,6 @@ public class SlotMessageCounter implements StoreHealthListener {
             }
         }
 
-        /**
-         * Find and submit timed out slots to slot coordinator
-         *
-         * @param slotTimeoutEntries Set of slot last update time entries
-         */
-        private void updateCoordinatorWithTimedOutSlots(Set<Map.Entry<String, Long>> slotTimeoutEntries) {
-            for (Map.Entry<String, Long> entry : slotTimeoutEntries) {
-
-                Long lastSlotUpdateTime = entry.getValue();
-                String storageQueueName = entry.getKey();
-
-                if (checkTimeOutReached(lastSlotUpdateTime)) {
-                    try {
-                        submitSlot(storageQueueName);
-                    } catch (AndesException exception) {
-                        // We do not do anything here since this thread will be run periodically
-                        log.error("Error occurred while connecting to the thrift coordinator ", exception);
-                    }
-                }
-            }
-        }
-
         /**
          * Local nodes safe-zone is sent to the coordinator. This is done to keep the safezone moving forward when
          * there are no publishers in the local node.
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps slots of a storage queue requested from the slot coordinator ahead of delivery, so that the delivery task
+ * gets the next slot without waiting for a coordinator round trip while the current slot is being delivered.
+ * <p>
+ * Slots are requested on the executor releasing slots of the queue back to the coordinator. Requests are therefore
+ * never run concurrently with a release, and a slot assigned by a request submitted before the prefetcher is closed
+ * is assigned before the release runs and is returned by it.
+ */
+public class SlotPrefetcher {
+
+    private static Log log = LogFactory.getLog(SlotPrefetcher.class);
+
+    /**
+     * Storage queue slots are requested for
+     */
+    private final String storageQueueName;
+
+    /**
+     * Executor running the slot requests
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Maximum number of slots held or requested ahead of delivery
+     */
+    private final int prefetchCount;
+
+    /**
+     * Slots received from the coordinator and not yet taken for delivery
+     */
+    private final ConcurrentLinkedQueue<Slot> prefetchedSlots = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of slot requests submitted and not yet completed
+     */
+    private final AtomicInteger pendingRequests = new AtomicInteger(0);
+
+    /**
+     * Coordinator slots are requested from. Set by the delivery task
+     */
+    private volatile SlotCoordinator slotCoordinator;
+
+    /**
+     * True while messages of the queue are delivered by this node. Slots are not requested ahead when closed
+     */
+    private volatile boolean isOpen = false;
+
+    /**
+     * Incremented on each close. Requests submitted before a close are skipped since a release of the slots of
+     * the queue is submitted after them
+     */
+    private final AtomicInteger generation = new AtomicInteger(0);
+
+    /**
+     * Create a slot prefetcher for a storage queue
+     *
+     * @param storageQueueName storage queue slots are requested for
+     * @param executor         executor running the slot requests. Should be the executor releasing slots of the
+     *                         queue
+     * @param prefetchCount    maximum number of slots requested ahead. 0 disables prefetching
+     */
+    public SlotPrefetcher(String storageQueueName, ExecutorService executor, int prefetchCount) {
+        this.storageQueueName = storageQueueName;
+        this.executor = executor;
+        this.prefetchCount = prefetchCount;
+    }
+
+    /**
+     * Start requesting slots ahead of delivery
+     */
+    public void open() {
+        isOpen = true;
+    }
+
+    /**
+     * Stop requesting slots ahead of delivery and drop slots held. Should be called before slots of the queue are
+     * released back to the coordinator.
+     */
+    public void close() {
+        isOpen = false;
+        generation.incrementAndGet();
+        clear();
+    }
+
+    /**
+     * Drop slots held. Dropped slots stay assigned to this node until they are released back to the coordinator
+     * or cleared by a purge.
+     */
+    public void clear() {
+        prefetchedSlots.clear();
+    }
+
+    /**
+     * Get the next slot to deliver. A prefetched slot is returned if available, otherwise a slot is requested from
+     * the coordinator on the calling thread. Requests for following slots are submitted before returning.
+     *
+     * @param coordinator coordinator to request slots from
+     * @return next slot to deliver. The end message id is 0 if the coordinator has no slot for the queue
+     * @throws ConnectionException if connectivity to coordinator is lost
+     */
+    public Slot getSlot(SlotCoordinator coordinator) throws ConnectionException {
+        slotCoordinator = coordinator;
+        Slot slot = prefetchedSlots.poll();
+        if (null == slot) {
+            slot = requestSlot(coordinator);
+        } else if (log.isDebugEnabled()) {
+            log.debug("Prefetched slot " + slot.getStartMessageId() + " - " + slot.getEndMessageId()
+                    + " taken for storage queue " + storageQueueName);
+        }
+
+        // Request more only while the coordinator has slots for the queue
+        if (0 != slot.getEndMessageId()) {
+            prefetch();
+        }
+        return slot;
+    }
+
+    /**
+     * Submit slot requests until the prefetch count is reached
+     */
+    private void prefetch() {
+        while (isOpen && prefetchedSlots.size() + pendingRequests.get() < prefetchCount) {
+            pendingRequests.incrementAndGet();
+            try {
+                executor.submit(new SlotRequestTask(generation.get()));
+            } catch (RejectedExecutionException e) {
+                pendingRequests.decrementAndGet();
+                log.warn("Could not prefetch a slot for storage queue " + storageQueueName, e);
+                return;
+            }
+        }
+    }
+
+    private Slot requestSlot(SlotCoordinator coordinator) throws ConnectionException {
+        Slot slot = coordinator.getSlot(storageQueueName);
+        slot.setDestinationOfMessagesInSlot(storageQueueName);
+        return slot;
+    }
+
+    /**
+     * Task requesting a slot from the coordinator and holding it until the delivery task takes it
+     */
+    private class SlotRequestTask implements Runnable {
+
+        /**
+         * Generation of the prefetcher when the request was submitted
+         */
+        private final int requestGeneration;
+
+        SlotRequestTask(int requestGeneration) {
+            this.requestGeneration = requestGeneration;
+        }
+
+        private boolean isCurrent() {
+            return isOpen && requestGeneration == generation.get();
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!isCurrent()) {
+                    return;
+                }
+                Slot slot = requestSlot(slotCoordinator);
+                if (0 != slot.getEndMessageId()) {
+                    if (isCurrent()) {
+                        prefetchedSlots.add(slot);
+                    } else if (log.isDebugEnabled()) {
+                        // Release submitted after closing returns the slot
+                        log.debug("Dropped slot " + slot.getStartMessageId() + " - " + slot.getEndMessageId()
+                                + " prefetched for closed storage queue " + storageQueueName);
+                    }
+                }
+            } catch (Throwable e) {
+                log.error("Error occurred while prefetching a slot for storage queue " + storageQueueName, e);
+            } finally {
+                pendingRequests.decrementAndGet();
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.wso2.andes.kernel.slot;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.MessagingEngine;
 
 import java.util.TimerTask;
@@ -52,6 +53,8 @@ public class SlotReAssignTask extends TimerTask {
             log.debug("Trying to reAssign slots for queue " + storageQueue);
         }
         try {
+            // Acknowledged messages should be removed from the store before slots are given to other nodes
+            MessagingEngine.getInstance().flushDeletedMessagesOfQueue(storageQueue);
             MessagingEngine.getInstance().getSlotCoordinator().reAssignSlotWhenNoSubscribers(storageQueue);
 
             if (log.isDebugEnabled()) {
@@ -60,6 +63,9 @@ public class SlotReAssignTask extends TimerTask {
 
         } catch (ConnectionException e) {
             log.error("Error occurred while re-assigning the slot to slot manager", e);
+        } catch (AndesException e) {
+            log.error("Error occurred while removing acknowledged messages of queue " + storageQueue
+                    + ". Slots are not re-assigned", e);
         }
     }
 
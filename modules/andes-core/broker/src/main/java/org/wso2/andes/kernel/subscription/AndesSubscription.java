@@ -210,6 +210,16 @@ public class AndesSubscription {
         subscriberConnection.onMessageAck(messageID);
     }
 
+    /**
+     * Perform on acknowledgement receive for a set of messages acknowledged together
+     *
+     * @param acknowledgedMessages messages acknowledged
+     * @throws AndesException on an issue when handling ack
+     */
+    public void onMessageAck(List<DeliverableAndesMetadata> acknowledgedMessages) throws AndesException {
+        subscriberConnection.onMessageAck(acknowledgedMessages);
+    }
+
     /**
      * Perform on reject receive for a message
      *
@@ -65,6 +65,17 @@ public class OutBoundMessageTracker {
         return messageSendingTracker.remove(messageID);
     }
 
+    /**
+     * Remove a set of acknowledged messages from sending tracker
+     *
+     * @param messages messages to remove
+     */
+    public void removeSentMessagesFromTracker(List<DeliverableAndesMetadata> messages) {
+        for (DeliverableAndesMetadata message : messages) {
+            messageSendingTracker.remove(message.getMessageID());
+        }
+    }
+
     /**
      * Get message metadata reference by message ID. Returns null if the reference
      * is not found
@@ -81,6 +92,34 @@ public class OutBoundMessageTracker {
         return metadata;
     }
 
+    /**
+     * Get message metadata references of a set of messages. Messages whose reference is not found are skipped
+     * and reported together
+     *
+     * @param messageIDs IDs of the messages
+     * @return references of the messages found, in the given order
+     */
+    public List<DeliverableAndesMetadata> getMessagesByMessageIDs(List<Long> messageIDs) {
+        List<DeliverableAndesMetadata> messages = new ArrayList<>(messageIDs.size());
+        List<Long> clearedMessageIDs = null;
+        for (Long messageID : messageIDs) {
+            DeliverableAndesMetadata metadata = messageSendingTracker.get(messageID);
+            if (null == metadata) {
+                if (null == clearedMessageIDs) {
+                    clearedMessageIDs = new ArrayList<>();
+                }
+                clearedMessageIDs.add(messageID);
+            } else {
+                messages.add(metadata);
+            }
+        }
+        if (null != clearedMessageIDs) {
+            log.error("Message reference has been already cleared for message ids " + clearedMessageIDs
+                    + ". Acknowledge or Nak is already received");
+        }
+        return messages;
+    }
+
 
     /**
      * Check if this associated subscription has ability to accept messages
@@ -27,7 +27,9 @@ import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.MessageHandler;
 import org.wso2.andes.kernel.SubscriptionAlreadyExistsException;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.slot.ConnectionException;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotCoordinator;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -378,6 +380,18 @@ public class StorageQueue {
         messageHandler.deleteSlot(slotToDelete);
     }
 
+    /**
+     * Get the next slot to load messages for delivery from. Slots are requested from the coordinator ahead of
+     * delivery, so a slot is usually available without a coordinator round trip.
+     *
+     * @param slotCoordinator coordinator to request slots from
+     * @return next slot. The end message id is 0 if the coordinator has no slot for the queue
+     * @throws ConnectionException if connectivity to coordinator is lost
+     */
+    public Slot getNextSlot(SlotCoordinator slotCoordinator) throws ConnectionException {
+        return messageHandler.getNextSlot(slotCoordinator);
+    }
+
     /**
      * Check if storage queue read message buffer is not reached
      * the limit. This should be checked before calling
@@ -228,6 +228,17 @@ public class SubscriberConnection {
         return outBoundMessageTracker.getMessageByMessageID(messageID);
     }
 
+    /**
+     * Get un-acknowledged messages of a set of message IDs. Messages not tracked as sent to the connection are
+     * skipped
+     *
+     * @param messageIDs IDs of the messages
+     * @return DeliverableAndesMetadata instances of the tracked messages
+     */
+    public List<DeliverableAndesMetadata> getUnAckedMessages(List<Long> messageIDs) {
+        return outBoundMessageTracker.getMessagesByMessageIDs(messageIDs);
+    }
+
     /**
      * Get all sent but not acknowledged messages to connection
      *
@@ -264,6 +275,19 @@ public class SubscriberConnection {
         return ackedMessage;
     }
 
+    /**
+     * Perform on acknowledgement receive for a set of messages acknowledged together
+     * @param acknowledgedMessages messages acknowledged
+     * @throws AndesException
+     */
+    public void onMessageAck(List<DeliverableAndesMetadata> acknowledgedMessages) throws AndesException {
+        outBoundMessageTracker.removeSentMessagesFromTracker(acknowledgedMessages);
+        if (log.isDebugEnabled()) {
+            log.debug("Ack. Removed " + acknowledgedMessages.size() + " message references. channelID= "
+                    + protocolChannelID);
+        }
+    }
+
     /**
      * Perform on reject receive for a message
      * @param messageID id of the message acknowledged
@@ -150,6 +150,11 @@ public class MetricsConstants {
      */
     public static final String DISRUPTOR_MESSAGE_ACK = PREFIX + "inbound.disruptor.ack.count";
 
+    /**
+     * Batch size currently used by an inbound message writer or acknowledgement handler
+     */
+    public static final String DISRUPTOR_INBOUND_BATCH_SIZE = PREFIX + "inbound.disruptor.batch.size";
+
     /**
      * At a given time the number of messages in the outbound ring
      */
@@ -986,9 +986,17 @@ public class AMQChannel implements SessionConfig, AMQSessionModel
             Collection<QueueEntry> ackedMessages = getAckedMessages(deliveryTag, multiple);
             _transaction.dequeue(ackedMessages, new MessageAcknowledgeAction(ackedMessages));
 
-            for (QueueEntry entry : ackedMessages) {
-                // When the message is acknowledged it is informed to Andes Kernel
-                QpidAndesBridge.ackReceived(this.getId(), entry.getMessage().getMessageNumber());
+            // When the messages are acknowledged they are informed to Andes Kernel. A multiple acknowledgement is
+            // informed at once
+            if (ackedMessages.size() == 1) {
+                QpidAndesBridge.ackReceived(this.getId(), ackedMessages.iterator().next().getMessage()
+                        .getMessageNumber());
+            } else if (!ackedMessages.isEmpty()) {
+                List<Long> ackedMessageIDs = new ArrayList<Long>(ackedMessages.size());
+                for (QueueEntry entry : ackedMessages) {
+                    ackedMessageIDs.add(entry.getMessage().getMessageNumber());
+                }
+                QpidAndesBridge.ackReceived(this.getId(), ackedMessageIDs);
             }
 
             updateTransactionalActivity();
@@ -23,6 +23,7 @@ import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
 
 import java.net.InetSocketAddress;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 /**
  * This is responsible for handling cluster communication
@@ -72,6 +73,34 @@ public interface ClusterAgent {
      */
     InetSocketAddress getThriftAddressOfCoordinator();
 
+    /**
+     * Check if the current node coordinates slots of a queue. This is the coordinator unless slot coordination is
+     * spread across the cluster.
+     *
+     * @param queueName storage queue name
+     * @return true if the current node coordinates slots of the queue, else false
+     */
+    boolean isSlotCoordinatorOf(String queueName);
+
+    /**
+     * Return the socket address of the thrift server of the node coordinating slots of a queue
+     *
+     * @param queueName storage queue name
+     * @return Socket address of the thrift server of the slot coordinator of the queue if present, null otherwise
+     */
+    InetSocketAddress getThriftAddressOfSlotCoordinator(String queueName);
+
+    /**
+     * Return the cluster wide lock guarding slot operations of a queue. When slot coordination is spread across the
+     * cluster, the old and the new slot coordinator of a queue may both handle requests while a membership change
+     * is seen by the nodes, so slot operations of the queue are serialized across the cluster. Queues may share a
+     * lock, hence a thread holding the lock of one queue should not take the lock of another queue.
+     *
+     * @param queueName storage queue name
+     * @return lock of the queue, null if slot coordination is not spread across the cluster
+     */
+    Lock getSlotCoordinationLock(String queueName);
+
     /**
      * Start listening to cluster events
      *
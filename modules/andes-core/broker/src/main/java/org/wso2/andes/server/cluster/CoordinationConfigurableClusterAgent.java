@@ -18,10 +18,13 @@
 
 package org.wso2.andes.server.cluster;
 
+import com.hazelcast.core.EntryEvent;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
 import com.hazelcast.core.IdGenerator;
 import com.hazelcast.core.Member;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -29,17 +32,25 @@ import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.SlotCoordinatorRing;
 import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
 import org.wso2.andes.server.cluster.error.detection.DisabledNetworkPartitionDetector;
 import org.wso2.andes.server.cluster.error.detection.HazelcastBasedNetworkPartitionDetector;
 import org.wso2.andes.server.cluster.error.detection.NetworkPartitionDetector;
 import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
+import org.wso2.andes.thrift.MBThriftClient;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Hazelcast based cluster agent implementation
@@ -80,10 +91,48 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
      */
     private IMap<String, String> nodeIdMap;
 
+    /**
+     * Thrift server address of each node stored against the node ID in <host>:<port> format. Used to reach the slot
+     * coordinator of a queue when slot coordination is spread across the cluster.
+     */
+    private IMap<String, String> nodeThriftAddressMap;
+
     /**
      * Implementation of scheme used to detect network partitions
      */
     private NetworkPartitionDetector networkPartitionDetector;
+
+    /**
+     * True if slot coordination of queues is spread across the cluster members
+     */
+    private final boolean slotShardingEnabled;
+
+    /**
+     * Number of points of each node on the slot coordinator ring
+     */
+    private final int slotShardingVirtualNodeCount;
+
+    /**
+     * Ring picking the slot coordinator of each queue. Replaced when cluster membership changes.
+     */
+    private volatile SlotCoordinatorRing slotCoordinatorRing =
+            new SlotCoordinatorRing(Collections.<String>emptyList(), 1);
+
+    /**
+     * Thrift server addresses of the nodes of the slot coordinator ring. Entries of a node are removed only after a
+     * ring without the node is in place, so that a node on the ring always has an address.
+     */
+    private final Map<String, InetSocketAddress> slotCoordinatorAddresses = new ConcurrentHashMap<>();
+
+    /**
+     * Registration id of the listener on thrift addresses published by nodes
+     */
+    private String thriftAddressListenerId;
+
+    /**
+     * Node ID of the local node, read once the agent is started
+     */
+    private String localNodeId;
     
     /*
     * Maximum number of attempts to read node id of a cluster member
@@ -94,6 +143,11 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
 
         this.hazelcastInstance = hazelcastInstance;
         nodeIdMap = hazelcastInstance.getMap(CoordinationConstants.NODE_ID_MAP_NAME);
+        nodeThriftAddressMap = hazelcastInstance.getMap(CoordinationConstants.NODE_THRIFT_ADDRESS_MAP_NAME);
+        slotShardingEnabled = AndesConfigurationManager.readValue(
+                AndesConfiguration.COORDINATION_SLOT_SHARDING_ENABLED);
+        slotShardingVirtualNodeCount = AndesConfigurationManager.readValue(
+                AndesConfiguration.COORDINATION_SLOT_SHARDING_VIRTUAL_NODES);
 
         boolean isNetworkPartitionDectectionEnabled = AndesConfigurationManager.readValue(
                                                          AndesConfiguration.RECOVERY_NETWORK_PARTITIONS_DETECTION);
@@ -120,6 +174,7 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
      * @param nodeId Node ID of the new member
      */
     public void memberAdded(String nodeId) {
+        updateSlotCoordinatorRing();
         manager.memberAdded(nodeId);
     }
 
@@ -130,6 +185,7 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
      * @throws AndesException
      */
     public void memberRemoved(String nodeId) throws AndesException {
+        updateSlotCoordinatorRing();
         manager.memberRemoved(nodeId);
     }
 
@@ -176,6 +232,121 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
         return coordinationStrategy.getThriftAddressOfCoordinator();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSlotCoordinatorOf(String queueName) {
+        String ownerNodeId = getSlotCoordinatorNodeId(queueName);
+        if (null == ownerNodeId) {
+            return isCoordinator();
+        }
+        return ownerNodeId.equals(localNodeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InetSocketAddress getThriftAddressOfSlotCoordinator(String queueName) {
+        String ownerNodeId = getSlotCoordinatorNodeId(queueName);
+        if (null == ownerNodeId) {
+            return getThriftAddressOfCoordinator();
+        }
+        return slotCoordinatorAddresses.get(ownerNodeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Lock getSlotCoordinationLock(String queueName) {
+        if (!slotShardingEnabled) {
+            return null;
+        }
+        // A fixed set of locks is used, since Hazelcast keeps a lock until it is destroyed
+        int hash = queueName.hashCode();
+        hash ^= (hash >>> 16);
+        int stripe = hash & (CoordinationConstants.SLOT_COORDINATION_LOCK_STRIPE_COUNT - 1);
+        // Hazelcast releases the lock if the holding member leaves the cluster
+        return hazelcastInstance.getLock(CoordinationConstants.SLOT_COORDINATION_LOCK_PREFIX + stripe);
+    }
+
+    /**
+     * Get the node coordinating slots of a queue
+     *
+     * @param queueName storage queue name
+     * @return node ID picked by the slot coordinator ring, null if slot coordination is not spread across the
+     * cluster or no node is known yet. The coordinator handles the queue then.
+     */
+    private String getSlotCoordinatorNodeId(String queueName) {
+        if (!slotShardingEnabled) {
+            return null;
+        }
+        return slotCoordinatorRing.getOwner(queueName);
+    }
+
+    /**
+     * Rebuild the slot coordinator ring from the current cluster members. Only members which have published their
+     * thrift server address are placed on the ring. Queues owned by a member which left are taken over by the
+     * remaining members, and a joining member takes over a share of the queues of the others. Slot state is kept in
+     * the shared slot store. Since the old and the new coordinator of a queue may both serve requests until every
+     * node sees the new ring, slot operations hold the lock given by {@link #getSlotCoordinationLock(String)}.
+     * <p>
+     * Thrift clients to nodes which left are closed.
+     */
+    private synchronized void updateSlotCoordinatorRing() {
+        if (!slotShardingEnabled) {
+            return;
+        }
+        try {
+            Map<String, InetSocketAddress> ringAddresses = new HashMap<>();
+            for (String nodeId : coordinationStrategy.getAllNodeIdentifiers()) {
+                if (null == nodeId) {
+                    continue;
+                }
+                String thriftAddress = nodeThriftAddressMap.get(nodeId);
+                if (null != thriftAddress) {
+                    InetSocketAddress address = toSocketAddress(thriftAddress);
+                    slotCoordinatorAddresses.put(nodeId, address);
+                    ringAddresses.put(nodeId, address);
+                }
+            }
+
+            SlotCoordinatorRing ring = new SlotCoordinatorRing(ringAddresses.keySet(), slotShardingVirtualNodeCount);
+            if (!ring.getNodeIds().equals(slotCoordinatorRing.getNodeIds())) {
+                slotCoordinatorRing = ring;
+                log.info("Slot coordination is spread across nodes " + ring.getNodeIds());
+            }
+
+            Iterator<Map.Entry<String, InetSocketAddress>> addressIterator =
+                    slotCoordinatorAddresses.entrySet().iterator();
+            while (addressIterator.hasNext()) {
+                Map.Entry<String, InetSocketAddress> addressEntry = addressIterator.next();
+                if (!ringAddresses.containsKey(addressEntry.getKey())) {
+                    addressIterator.remove();
+                    if (!ringAddresses.containsValue(addressEntry.getValue())) {
+                        MBThriftClient.removeClients(addressEntry.getValue());
+                    }
+                }
+            }
+        } catch (AndesException e) {
+            log.error("Error while updating slot coordinators of queues", e);
+        }
+    }
+
+    /**
+     * Parse a thrift server address published in <host>:<port> format
+     *
+     * @param thriftAddress published address
+     * @return socket address
+     */
+    private InetSocketAddress toSocketAddress(String thriftAddress) {
+        int separatorIndex = thriftAddress.lastIndexOf(CoordinationConstants.HOSTNAME_PORT_SEPARATOR);
+        return new InetSocketAddress(thriftAddress.substring(0, separatorIndex),
+                Integer.parseInt(thriftAddress.substring(separatorIndex + 1)));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -208,8 +379,18 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
         InetSocketAddress thriftAddress = new InetSocketAddress(thriftCoordinatorServerIP, thriftCoordinatorServerPort);
         InetSocketAddress hazelcastAddress = hazelcastInstance.getCluster().getLocalMember().getSocketAddress();
 
+        localNodeId = getLocalNodeIdentifier();
+        if (slotShardingEnabled) {
+            // Rebuild the ring when a node publishes its address, since the address may be published after the
+            // membership event of the node is handled
+            thriftAddressListenerId = nodeThriftAddressMap.addEntryListener(new ThriftAddressListener(), false);
+            nodeThriftAddressMap.set(localNodeId, thriftCoordinatorServerIP
+                    + CoordinationConstants.HOSTNAME_PORT_SEPARATOR + thriftCoordinatorServerPort);
+        }
+
         coordinationStrategy.start(this, getLocalNodeIdentifier(), thriftAddress,
                 hazelcastAddress);
+        updateSlotCoordinatorRing();
 
         networkPartitionDetector.start();
     }
@@ -265,6 +446,10 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
     @Override
     public void stop() {
         coordinationStrategy.stop();
+        if (null != thriftAddressListenerId) {
+            nodeThriftAddressMap.removeEntryListener(thriftAddressListenerId);
+            nodeThriftAddressMap.remove(localNodeId);
+        }
     }
 
     /**
@@ -324,4 +509,21 @@ public class CoordinationConfigurableClusterAgent implements ClusterAgent {
     public void addNetworkPartitionListener(int priority, NetworkPartitionListener listener) {
         networkPartitionDetector.addNetworkPartitionListener(priority, listener);
     }
+
+    /**
+     * Rebuilds the slot coordinator ring when a node publishes or changes its thrift server address
+     */
+    private class ThriftAddressListener implements EntryAddedListener<String, String>,
+            EntryUpdatedListener<String, String> {
+
+        @Override
+        public void entryAdded(EntryEvent<String, String> event) {
+            updateSlotCoordinatorRing();
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<String, String> event) {
+            updateSlotCoordinatorRing();
+        }
+    }
 }
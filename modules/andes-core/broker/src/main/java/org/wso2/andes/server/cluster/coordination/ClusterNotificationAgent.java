@@ -23,6 +23,8 @@ import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
+import java.util.Map;
+
 /**
  * Interface for implementations notifying message router, queue, binding and subscription
  * changes to cluster. Any handler listening to these notifications should
@@ -77,4 +79,12 @@ public interface ClusterNotificationAgent {
      */
     void notifyAnyDBChange() throws AndesException;
 
+    /**
+     * Notify changes of queue message counts done by this node
+     *
+     * @param messageCountChanges map of queue names and the change of the message count
+     * @throws AndesException
+     */
+    void notifyMessageCountChange(Map<String, Long> messageCountChanges) throws AndesException;
+
 }
@@ -122,4 +122,20 @@ public final class CoordinationConstants {
      * Name of the distributed map to store coordinator node's host address and port
      */
     public static String COORDINATOR_NODE_DETAILS_MAP_NAME = "coordinatorNodeDetailsMap";
+
+    /**
+     * Name of the distributed map to store the thrift server address of each node against its node ID
+     */
+    public static String NODE_THRIFT_ADDRESS_MAP_NAME = "nodeThriftAddressMap";
+
+    /**
+     * Prefix of the distributed lock names guarding slot operations of queues
+     */
+    public static final String SLOT_COORDINATION_LOCK_PREFIX = "SlotCoordinationLock-";
+
+    /**
+     * Number of distributed locks guarding slot operations. Queues are spread over a fixed set of locks so that the
+     * cluster does not keep a lock for every queue ever seen. Must be a power of two
+     */
+    public static final int SLOT_COORDINATION_LOCK_STRIPE_COUNT = 256;
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesContextInformationManager;
+import org.wso2.andes.kernel.ClusterNotificationListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ClusterNotificationListener implementation listening for changes of queue message counts done by other nodes
+ * and applying them to the message counts kept in memory
+ */
+public class MessageCountNotificationHandler implements ClusterNotificationListener {
+
+    private static Log log = LogFactory.getLog(MessageCountNotificationHandler.class);
+
+    /**
+     * Separator of the change count and the queue name of an encoded change
+     */
+    private static final char COUNT_SEPARATOR = ':';
+
+    /**
+     * Separator of the encoded changes of queues
+     */
+    private static final char CHANGE_SEPARATOR = '\n';
+
+    /**
+     * Manager applying the changes to the message store
+     */
+    private AndesContextInformationManager contextInformationManager;
+
+    /**
+     * Create a listener to listen for message count changes in cluster
+     *
+     * @param contextInformationManager manager to handle notification inside Andes kernel
+     */
+    public MessageCountNotificationHandler(AndesContextInformationManager contextInformationManager) {
+        this.contextInformationManager = contextInformationManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handleClusterNotification(ClusterNotification notification) {
+        try {
+            contextInformationManager.syncMessageCountChanges(
+                    decodeMessageCountChanges(notification.getEncodedObjectAsString()));
+        } catch (RuntimeException e) {
+            log.error("Error while applying message count changes " + notification.getEncodedObjectAsString(), e);
+        }
+    }
+
+    /**
+     * Encode changes of queue message counts to be sent as a cluster notification. Each change is encoded as
+     * {@code <change>:<queue name>} in its own line.
+     *
+     * @param messageCountChanges map of queue names and the change of the message count
+     * @return encoded changes
+     */
+    public static String encodeMessageCountChanges(Map<String, Long> messageCountChanges) {
+        StringBuilder encodedChanges = new StringBuilder();
+        for (Map.Entry<String, Long> entry : messageCountChanges.entrySet()) {
+            if (encodedChanges.length() > 0) {
+                encodedChanges.append(CHANGE_SEPARATOR);
+            }
+            encodedChanges.append(entry.getValue()).append(COUNT_SEPARATOR).append(entry.getKey());
+        }
+        return encodedChanges.toString();
+    }
+
+    /**
+     * Decode changes of queue message counts encoded by {@link #encodeMessageCountChanges(Map)}
+     *
+     * @param encodedChanges encoded changes
+     * @return map of queue names and the change of the message count
+     */
+    public static Map<String, Long> decodeMessageCountChanges(String encodedChanges) {
+        Map<String, Long> messageCountChanges = new HashMap<>();
+        if (encodedChanges.isEmpty()) {
+            return messageCountChanges;
+        }
+        for (String encodedChange : encodedChanges.split(String.valueOf(CHANGE_SEPARATOR))) {
+            int separatorIndex = encodedChange.indexOf(COUNT_SEPARATOR);
+            messageCountChanges.put(encodedChange.substring(separatorIndex + 1),
+                    Long.parseLong(encodedChange.substring(0, separatorIndex)));
+        }
+        return messageCountChanges;
+    }
+}
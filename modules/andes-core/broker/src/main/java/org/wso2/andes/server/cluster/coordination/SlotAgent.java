@@ -21,6 +21,7 @@
 package org.wso2.andes.server.cluster.coordination;
 
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.LongRangeSet;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.SlotState;
 
@@ -174,7 +175,7 @@ public interface SlotAgent {
 	/**
 	 * Get message ids from database
 	 */
-	TreeSet<Long> getSlotBasedMessageIds(String queueName) throws AndesException;
+	LongRangeSet getSlotBasedMessageIds(String queueName) throws AndesException;
 
 	/**
 	 * Delete message ids
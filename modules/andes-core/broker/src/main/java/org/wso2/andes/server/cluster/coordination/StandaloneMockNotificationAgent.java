@@ -23,6 +23,8 @@ import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
+import java.util.Map;
+
 /**
  * This class represents a ClusterNotificationAgent which does nothing.
  * Usually this is set when operating in standalone mode
@@ -72,4 +74,12 @@ public class StandaloneMockNotificationAgent implements ClusterNotificationAgent
     public void notifyAnyDBChange() throws AndesException {
 
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyMessageCountChange(Map<String, Long> messageCountChanges) throws AndesException {
+
+    }
 }
@@ -30,6 +30,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.LongRangeSet;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.SlotState;
 import org.wso2.andes.kernel.slot.SlotUtils;
@@ -37,6 +38,12 @@ import org.wso2.andes.server.cluster.CoordinationConfigurableClusterAgent;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
 import org.wso2.andes.server.cluster.coordination.SlotAgent;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.AddMessageIdProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.AddUnassignedSlotProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.AssignSlotProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.PollQueueSlotProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.PollUnassignedSlotProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.RemoveMessageIdProcessor;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.HashmapStringTreeSetWrapper;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
@@ -368,18 +375,10 @@ public class HazelcastAgent implements SlotAgent {
      */
     @Override
     public Slot getUnAssignedSlot(String queueName) throws AndesException {
-        Slot slotToBeAssigned = null;
+        Slot slotToBeAssigned;
         try {
-            TreeSetSlotWrapper unAssignedSlotWrapper = unAssignedSlotMap.get(queueName);
-            if (null != unAssignedSlotWrapper) {
-                TreeSet<Slot> slotsFromUnassignedSlotMap = unAssignedSlotWrapper.getSlotTreeSet();
-                if (null != slotsFromUnassignedSlotMap && !(slotsFromUnassignedSlotMap.isEmpty())) {
-                    //Get and remove slot and update hazelcast map
-                    slotToBeAssigned = slotsFromUnassignedSlotMap.pollFirst();
-                    unAssignedSlotWrapper.setSlotTreeSet(slotsFromUnassignedSlotMap);
-                    unAssignedSlotMap.set(queueName, unAssignedSlotWrapper);
-                }
-            }
+            //Get and remove slot on the member owning the entry
+            slotToBeAssigned = (Slot) unAssignedSlotMap.executeOnKey(queueName, new PollUnassignedSlotProcessor());
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to get unassigned slot for queue : " +
                     queueName, ex);
@@ -392,32 +391,11 @@ public class HazelcastAgent implements SlotAgent {
      */
     @Override
     public void updateSlotAssignment(String nodeId, String queueName, Slot allocatedSlot) throws AndesException {
-        TreeSet<Slot> currentSlotList;
-        HashMap<String, TreeSet<Slot>> queueToSlotMap;
-
         try {
-            HashmapStringTreeSetWrapper wrapper = this.slotAssignmentMap.get(nodeId);
-            if (null == wrapper) {
-                wrapper = new HashmapStringTreeSetWrapper();
-                queueToSlotMap = new HashMap<>();
-                wrapper.setStringListHashMap(queueToSlotMap);
-                this.slotAssignmentMap.putIfAbsent(nodeId, wrapper);
-            }
-            wrapper = this.slotAssignmentMap.get(nodeId);
-            queueToSlotMap = wrapper.getStringListHashMap();
-            currentSlotList = queueToSlotMap.get(queueName);
-            if (null == currentSlotList) {
-                currentSlotList = new TreeSet<>();
-            }
-
             //update slot state
             if (allocatedSlot.addState(SlotState.ASSIGNED)) {
                 //remove any similar slot from hazelcast and add the updated one
-                currentSlotList.remove(allocatedSlot);
-                currentSlotList.add(allocatedSlot);
-                queueToSlotMap.put(queueName, currentSlotList);
-                wrapper.setStringListHashMap(queueToSlotMap);
-                this.slotAssignmentMap.set(nodeId, wrapper);
+                this.slotAssignmentMap.executeOnKey(nodeId, new AssignSlotProcessor(queueName, allocatedSlot));
             }
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to update slot assignment for queue : " +
@@ -491,23 +469,11 @@ public class HazelcastAgent implements SlotAgent {
      */
     @Override
     public Slot getOverlappedSlot(String nodeId, String queueName) throws AndesException {
-        Slot slotToBeAssigned = null;
-        TreeSet<Slot> currentSlotList;
-        HashMap<String, TreeSet<Slot>> queueToSlotMap;
+        Slot slotToBeAssigned;
         try {
-            HashmapStringTreeSetWrapper wrapper = this.overlappedSlotMap.get(nodeId);
-            if (null != wrapper) {
-                queueToSlotMap = wrapper.getStringListHashMap();
-                currentSlotList = queueToSlotMap.get(queueName);
-                if (null != currentSlotList && !(currentSlotList.isEmpty())) {
-                    //get and remove slot
-                    slotToBeAssigned = currentSlotList.pollFirst();
-                    queueToSlotMap.put(queueName, currentSlotList);
-                    //update hazelcast map
-                    wrapper.setStringListHashMap(queueToSlotMap);
-                    this.overlappedSlotMap.set(nodeId, wrapper);
-                }
-            }
+            //get and remove slot on the member owning the entry
+            slotToBeAssigned = (Slot) this.overlappedSlotMap.executeOnKey(nodeId,
+                    new PollQueueSlotProcessor(queueName));
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to getOverlappedSlot for queue : " +
                     queueName + " from node " + nodeId, ex);
@@ -521,11 +487,7 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void addMessageId(String queueName, long messageId) throws AndesException {
         try {
-            TreeSet<Long> messageIdSet = this.getSlotBasedMessageIds(queueName);
-            TreeSetLongWrapper wrapper = this.slotIdMap.get(queueName);
-            messageIdSet.add(messageId);
-            wrapper.setLongTreeSet(messageIdSet);
-            this.slotIdMap.set(queueName, wrapper);
+            this.slotIdMap.executeOnKey(queueName, new AddMessageIdProcessor(messageId));
         }  catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to addMessageId for queue : " +
                     queueName, ex);
@@ -536,7 +498,7 @@ public class HazelcastAgent implements SlotAgent {
      * {@inheritDoc}
      */
     @Override
-    public TreeSet<Long> getSlotBasedMessageIds(String queueName) throws AndesException {
+    public LongRangeSet getSlotBasedMessageIds(String queueName) throws AndesException {
         TreeSetLongWrapper wrapper = null;
         try {
             wrapper = this.slotIdMap.get(queueName);
@@ -548,7 +510,7 @@ public class HazelcastAgent implements SlotAgent {
             throw new AndesException("Failed to getSlotBasedMessageIds for queue : " +
                     queueName, ex);
         }
-        return wrapper.getLongTreeSet();
+        return wrapper.getMessageIdSet();
     }
 
     /**
@@ -557,15 +519,7 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void deleteMessageId(String queueName, long messageId) throws AndesException {
         try {
-            TreeSetLongWrapper wrapper = this.slotIdMap.get(queueName);
-            TreeSet<Long> messageIDSet;
-            messageIDSet = wrapper.getLongTreeSet();
-            if (null != messageIDSet && !(messageIDSet.isEmpty())) {
-                messageIDSet.pollFirst();
-                //set modified published ID map to hazelcast
-                wrapper.setLongTreeSet(messageIDSet);
-                this.slotIdMap.set(queueName, wrapper);
-            }
+            this.slotIdMap.executeOnKey(queueName, new RemoveMessageIdProcessor(messageId));
         }  catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to deleteMessageId for queue : " +
                     queueName, ex);
@@ -712,20 +666,9 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void reassignSlot(Slot slotToBeReassigned) throws AndesException {
         try {
-            TreeSet<Slot> freeSlotTreeSet = new TreeSet<>();
-            TreeSetSlotWrapper treeSetStringWrapper = new TreeSetSlotWrapper();
-
-            treeSetStringWrapper.setSlotTreeSet(freeSlotTreeSet);
-
-            this.unAssignedSlotMap.putIfAbsent(slotToBeReassigned.getStorageQueueName(),
-                    treeSetStringWrapper);
-
             if (slotToBeReassigned.addState(SlotState.RETURNED)) {
-                treeSetStringWrapper = this.unAssignedSlotMap.get(slotToBeReassigned.getStorageQueueName());
-                freeSlotTreeSet = treeSetStringWrapper.getSlotTreeSet();
-                freeSlotTreeSet.add(slotToBeReassigned);
-                treeSetStringWrapper.setSlotTreeSet(freeSlotTreeSet);
-                this.unAssignedSlotMap.set(slotToBeReassigned.getStorageQueueName(), treeSetStringWrapper);
+                this.unAssignedSlotMap.executeOnKey(slotToBeReassigned.getStorageQueueName(),
+                        new AddUnassignedSlotProcessor(slotToBeReassigned));
             }
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to reassign slot", ex);
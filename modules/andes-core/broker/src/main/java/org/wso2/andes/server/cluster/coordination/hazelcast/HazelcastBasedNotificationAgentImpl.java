@@ -25,6 +25,9 @@ import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.MessageCountNotificationHandler;
+
+import java.util.Map;
 
 /**
  * This class represents a ClusterNotificationAgent implementation which uses
@@ -200,4 +203,30 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
                     + clusterNotification.getEncodedObjectAsString(), e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyMessageCountChange(Map<String, Long> messageCountChanges) throws AndesException {
+
+        ClusterNotification clusterNotification = new ClusterNotification(
+                MessageCountNotificationHandler.encodeMessageCountChanges(messageCountChanges),
+                ClusterNotificationListener.NotifiedArtifact.MessageCount.toString(),
+                "",
+                "Message Count Notification Message",
+                localNodeID);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+        }
+        try {
+            clusterNotificationChannel.publish(clusterNotification);
+        } catch (Exception e) {
+            log.error("Error while sending message count change notification : "
+                    + clusterNotification.getEncodedObjectAsString(), e);
+            throw new AndesException("Error while sending message count change notification : "
+                    + clusterNotification.getEncodedObjectAsString(), e);
+        }
+    }
 }
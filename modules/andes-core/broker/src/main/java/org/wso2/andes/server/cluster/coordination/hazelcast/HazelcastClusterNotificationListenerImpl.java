@@ -31,6 +31,7 @@ import org.wso2.andes.server.cluster.coordination.ClusterNotificationListenerMan
 import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
 import org.wso2.andes.server.cluster.coordination.DBSyncNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.ExchangeNotificationHandler;
+import org.wso2.andes.server.cluster.coordination.MessageCountNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.QueueNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationHandler;
 
@@ -161,6 +162,8 @@ public class HazelcastClusterNotificationListenerImpl implements ClusterNotifica
                 (contextInformationManager, inboundEventManager));
         hzBasedClusterNotificationListener.addQueueNotificationHandler(new QueueNotificationHandler
                 (contextInformationManager, inboundEventManager));
+        hzBasedClusterNotificationListener.addMessageCountNotificationHandler(new MessageCountNotificationHandler
+                (contextInformationManager));
 
         clusterEventListenerId = checkAndRegisterListerToTopic(clusterNotifierChannel,
                 hzBasedClusterNotificationListener, clusterEventListenerId);
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Add a message ID to the message ID set of a queue. The set is created if the queue has none.
+ */
+public class AddMessageIdProcessor extends SlotMapEntryProcessor<TreeSetLongWrapper> {
+
+    private long messageId;
+
+    /**
+     * Used when reading the processor
+     */
+    public AddMessageIdProcessor() {
+    }
+
+    public AddMessageIdProcessor(long messageId) {
+        this.messageId = messageId;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, TreeSetLongWrapper> entry) {
+        TreeSetLongWrapper wrapper = entry.getValue();
+        if (null == wrapper) {
+            wrapper = new TreeSetLongWrapper();
+        }
+        wrapper.getMessageIdSet().add(messageId);
+        entry.setValue(wrapper);
+        return null;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeLong(messageId);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        messageId = in.readLong();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.SlotSerializationUtils;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Add a slot to the unassigned slots of a queue. The slot set is created if the queue has none.
+ */
+public class AddUnassignedSlotProcessor extends SlotMapEntryProcessor<TreeSetSlotWrapper> {
+
+    private Slot slot;
+
+    /**
+     * Used when reading the processor
+     */
+    public AddUnassignedSlotProcessor() {
+    }
+
+    public AddUnassignedSlotProcessor(Slot slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, TreeSetSlotWrapper> entry) {
+        TreeSetSlotWrapper wrapper = entry.getValue();
+        if (null == wrapper) {
+            wrapper = new TreeSetSlotWrapper();
+        }
+        TreeSet<Slot> slots = wrapper.getSlotTreeSet();
+        if (null == slots) {
+            slots = new TreeSet<>();
+            wrapper.setSlotTreeSet(slots);
+        }
+        slots.add(slot);
+        entry.setValue(wrapper);
+        return null;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        SlotSerializationUtils.writeSlot(out, slot);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        slot = SlotSerializationUtils.readSlot(in);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.SlotSerializationUtils;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.HashmapStringTreeSetWrapper;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Record a slot of a queue as assigned to the node the entry belongs to. A slot already recorded with the same
+ * message ID range is replaced so that the recorded slot has the latest states.
+ */
+public class AssignSlotProcessor extends SlotMapEntryProcessor<HashmapStringTreeSetWrapper> {
+
+    private String queueName;
+
+    private Slot slot;
+
+    /**
+     * Used when reading the processor
+     */
+    public AssignSlotProcessor() {
+    }
+
+    public AssignSlotProcessor(String queueName, Slot slot) {
+        this.queueName = queueName;
+        this.slot = slot;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, HashmapStringTreeSetWrapper> entry) {
+        HashmapStringTreeSetWrapper wrapper = entry.getValue();
+        if (null == wrapper) {
+            wrapper = new HashmapStringTreeSetWrapper();
+        }
+        HashMap<String, TreeSet<Slot>> queueToSlotMap = wrapper.getStringListHashMap();
+        TreeSet<Slot> slots = queueToSlotMap.get(queueName);
+        if (null == slots) {
+            slots = new TreeSet<>();
+            queueToSlotMap.put(queueName, slots);
+        }
+        slots.remove(slot);
+        slots.add(slot);
+        entry.setValue(wrapper);
+        return null;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeUTF(queueName);
+        SlotSerializationUtils.writeSlot(out, slot);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        queueName = in.readUTF();
+        slot = SlotSerializationUtils.readSlot(in);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Remove and return the oldest unassigned slot of a queue. Returns null if the queue has no unassigned slots.
+ */
+public class PollUnassignedSlotProcessor extends SlotMapEntryProcessor<TreeSetSlotWrapper> {
+
+    @Override
+    public Object process(Map.Entry<String, TreeSetSlotWrapper> entry) {
+        Slot slot = null;
+        TreeSetSlotWrapper wrapper = entry.getValue();
+        if (null != wrapper) {
+            TreeSet<Slot> slots = wrapper.getSlotTreeSet();
+            if (null != slots && !slots.isEmpty()) {
+                slot = slots.pollFirst();
+                entry.setValue(wrapper);
+            }
+        }
+        return slot;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        // Nothing to write
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        // Nothing to read
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.util.Map;
+
+/**
+ * Base class of entry processors updating slot bookkeeping values in Hazelcast maps in place. Only the processor,
+ * which carries the changed message ID or slot, is sent to the owner and the backups of the entry instead of the
+ * whole value.
+ * <p>
+ * The same processor is applied on backups, so {@link #process(Map.Entry)} should give the same result for the
+ * same value.
+ *
+ * @param <V> type of the map value
+ */
+public abstract class SlotMapEntryProcessor<V> implements EntryProcessor<String, V>,
+        EntryBackupProcessor<String, V>, DataSerializable {
+
+    @Override
+    public void processBackup(Map.Entry<String, V> entry) {
+        process(entry);
+    }
+
+    @Override
+    public EntryBackupProcessor<String, V> getBackupProcessor() {
+        return this;
+    }
+}
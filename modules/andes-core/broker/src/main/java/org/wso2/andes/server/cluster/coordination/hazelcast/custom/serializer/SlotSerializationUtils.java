@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.wso2.andes.kernel.slot.LongRangeSet;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.io.IOException;
+import java.util.TreeSet;
+
+/**
+ * Binary encoding of message ID and slot sets stored in Hazelcast maps. Sorted sets are written as the differences
+ * between consecutive values using a variable length encoding, so that the size of a set depends on the number of
+ * elements or ranges and the gaps between them rather than on the magnitude of message IDs.
+ */
+public final class SlotSerializationUtils {
+
+    private SlotSerializationUtils() {
+    }
+
+    /**
+     * Write a set of message IDs. Each range of the set is written as its distance from the previous range and
+     * its length
+     *
+     * @param out        output to write to
+     * @param messageIds set of message IDs
+     * @throws IOException if writing fails
+     */
+    public static void writeMessageIds(ObjectDataOutput out, LongRangeSet messageIds) throws IOException {
+        int rangeCount = messageIds.getRangeCount();
+        writeVarLong(out, rangeCount);
+        long previousEnd = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            long start = messageIds.getRangeStart(i);
+            long end = messageIds.getRangeEnd(i);
+            writeVarLong(out, zigZagEncode(start - previousEnd));
+            writeVarLong(out, end - start);
+            previousEnd = end;
+        }
+    }
+
+    /**
+     * Read a set of message IDs written by {@link #writeMessageIds(ObjectDataOutput, LongRangeSet)}
+     *
+     * @param in input to read from
+     * @return set of message IDs
+     * @throws IOException if reading fails
+     */
+    public static LongRangeSet readMessageIds(ObjectDataInput in) throws IOException {
+        long rangeCount = readVarLong(in);
+        LongRangeSet messageIds = new LongRangeSet();
+        long previousEnd = 0;
+        for (long i = 0; i < rangeCount; i++) {
+            long start = previousEnd + zigZagDecode(readVarLong(in));
+            long end = start + readVarLong(in);
+            messageIds.addRange(start, end);
+            previousEnd = end;
+        }
+        return messageIds;
+    }
+
+    /**
+     * Write a set of slots. Storage queue name is written only when it differs from the previous slot
+     *
+     * @param out   output to write to
+     * @param slots set of slots
+     * @throws IOException if writing fails
+     */
+    public static void writeSlots(ObjectDataOutput out, TreeSet<Slot> slots) throws IOException {
+        writeVarLong(out, slots.size());
+        long previousStartId = 0;
+        String previousQueueName = null;
+        for (Slot slot : slots) {
+            writeVarLong(out, zigZagEncode(slot.getStartMessageId() - previousStartId));
+            writeVarLong(out, zigZagEncode(slot.getEndMessageId() - slot.getStartMessageId()));
+            writeVarLong(out, zigZagEncode(slot.getMessageCount()));
+            String queueName = slot.getStorageQueueName();
+            boolean isSameQueue = null != queueName && queueName.equals(previousQueueName);
+            out.writeBoolean(isSameQueue);
+            if (!isSameQueue) {
+                out.writeUTF(queueName);
+            }
+            out.writeUTF(slot.encodeSlotStates());
+            out.writeBoolean(slot.isSlotActive());
+            previousStartId = slot.getStartMessageId();
+            previousQueueName = queueName;
+        }
+    }
+
+    /**
+     * Read a set of slots written by {@link #writeSlots(ObjectDataOutput, TreeSet)}
+     *
+     * @param in input to read from
+     * @return set of slots
+     * @throws IOException if reading fails
+     */
+    public static TreeSet<Slot> readSlots(ObjectDataInput in) throws IOException {
+        long size = readVarLong(in);
+        TreeSet<Slot> slots = new TreeSet<>();
+        long startId = 0;
+        String queueName = null;
+        for (long i = 0; i < size; i++) {
+            startId = startId + zigZagDecode(readVarLong(in));
+            long endId = startId + zigZagDecode(readVarLong(in));
+            Slot slot = new Slot();
+            slot.setStartMessageId(startId);
+            slot.setEndMessageId(endId);
+            slot.setMessageCount(zigZagDecode(readVarLong(in)));
+            if (!in.readBoolean()) {
+                queueName = in.readUTF();
+            }
+            slot.setStorageQueueName(queueName);
+            slot.decodeAndSetSlotStates(in.readUTF());
+            if (!in.readBoolean()) {
+                slot.setSlotInactive();
+            }
+            slots.add(slot);
+        }
+        return slots;
+    }
+
+    /**
+     * Write a single slot
+     *
+     * @param out  output to write to
+     * @param slot slot to write
+     * @throws IOException if writing fails
+     */
+    public static void writeSlot(ObjectDataOutput out, Slot slot) throws IOException {
+        TreeSet<Slot> slots = new TreeSet<>();
+        slots.add(slot);
+        writeSlots(out, slots);
+    }
+
+    /**
+     * Read a single slot written by {@link #writeSlot(ObjectDataOutput, Slot)}
+     *
+     * @param in input to read from
+     * @return slot read
+     * @throws IOException if reading fails
+     */
+    public static Slot readSlot(ObjectDataInput in) throws IOException {
+        return readSlots(in).first();
+    }
+
+    /**
+     * Write a non negative value using 7 bits per byte. Higher bit of each byte is set if more bytes follow
+     */
+    private static void writeVarLong(ObjectDataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ObjectDataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length value");
+    }
+
+    /**
+     * Map signed values to unsigned so that values close to zero are written in few bytes
+     */
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -18,17 +18,16 @@
 
 package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer;
 
-import com.google.gson.*;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
 import com.hazelcast.nio.serialization.StreamSerializer;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
 
 import java.io.IOException;
-import java.util.TreeSet;
 
 /**
- * This class implements the custom serialization methods for TreeSetLongWrapper objects.
+ * This class implements the custom serialization methods for TreeSetLongWrapper objects. Message IDs are
+ * written in a compact binary form using {@link SlotSerializationUtils}.
  */
 @SuppressWarnings("unused")
 public class TreeSetLongWrapperSerializer implements StreamSerializer<TreeSetLongWrapper> {
@@ -37,26 +36,13 @@ public class TreeSetLongWrapperSerializer implements StreamSerializer<TreeSetLon
     @Override
     public void write(ObjectDataOutput objectDataOutput, TreeSetLongWrapper treeSetLongWrapper)
             throws IOException {
-        //Convert the TreeSetLongWrapper object to a json string and save it in hazelcast map
-        JsonArray jsonArray = new JsonArray();
-        for (long elem : treeSetLongWrapper.getLongTreeSet()) {
-            JsonPrimitive jsonPrimitive = new JsonPrimitive(elem);
-            jsonArray.add(jsonPrimitive);
-        }
-        objectDataOutput.writeUTF(jsonArray.toString());
+        SlotSerializationUtils.writeMessageIds(objectDataOutput, treeSetLongWrapper.getMessageIdSet());
     }
 
     @Override
     public TreeSetLongWrapper read(ObjectDataInput objectDataInput) throws IOException {
-        //Build TreeSetLongWrapper object using json string.
-        String jsonString = objectDataInput.readUTF();
-        JsonArray jsonArray = new JsonParser().parse(jsonString).getAsJsonArray();
-        TreeSet<Long> treeSet = new TreeSet<Long>();
-        for (JsonElement jsonElement : jsonArray) {
-            treeSet.add(Long.valueOf(jsonElement.toString()));
-        }
         TreeSetLongWrapper wrapper = new TreeSetLongWrapper();
-        wrapper.setLongTreeSet(treeSet);
+        wrapper.setMessageIdSet(SlotSerializationUtils.readMessageIds(objectDataInput));
         return wrapper;
     }
 
@@ -18,7 +18,6 @@
 
 package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer;
 
-import com.google.gson.*;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
 import com.hazelcast.nio.serialization.StreamSerializer;
@@ -29,69 +28,30 @@ import java.io.IOException;
 import java.util.TreeSet;
 
 /**
- * This class implements the custom serialization methods for TreeSetSlotWrapper objects.
+ * This class implements the custom serialization methods for TreeSetSlotWrapper objects. Slots are written in a
+ * compact binary form using {@link SlotSerializationUtils}.
  */
 @SuppressWarnings("unused")
 public class TreeSetSlotWrapperSerializer implements StreamSerializer<TreeSetSlotWrapper> {
 
     @Override
     public void write(ObjectDataOutput objectDataOutput, TreeSetSlotWrapper treeSetStringWrapper) throws IOException {
-        //Convert the treeSetStringWrapper object to a json string and save it in hazelcast map
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("{");
         TreeSet<Slot> treeSet = treeSetStringWrapper.getSlotTreeSet();
-        if (treeSet != null) {
-            stringBuilder.append("\"slotTreeSet\":[");
-            for (Slot slot : treeSet) {
-                String isActiveString;
-                if (slot.isSlotActive()) {
-                    isActiveString = "true";
-                } else {
-                    isActiveString = "false";
-                }
-                stringBuilder.append("{\"messageCount\":").append(slot.getMessageCount()).
-                        append(",").append("\"startMessageId\":").append(slot.getStartMessageId()).
-                        append(",").append("\"endMessageId\":").append(slot.getEndMessageId()).
-                        append(",\"storageQueueName\":\"").append(slot.getStorageQueueName()).
-                        append("\",\"destinationOfMessagesInSlot\":\"").append(slot.getDestinationOfMessagesInSlot()).
-                        append("\",\"states\":\"").append(slot.encodeSlotStates()).
-                        append("\",\"isAnOverlappingSlot\":").append(String.valueOf(slot.isAnOverlappingSlot())).
-                        append(",\"isSlotActive\":").append(isActiveString).append("},");
-            }
-            if (treeSet.size() != 0) {
-                stringBuilder.deleteCharAt(stringBuilder.length() - 1);
-            }
-            stringBuilder.append("]");
+        objectDataOutput.writeBoolean(null != treeSet);
+        if (null != treeSet) {
+            SlotSerializationUtils.writeSlots(objectDataOutput, treeSet);
         }
-        stringBuilder.append("}");
-
-        objectDataOutput.writeUTF(stringBuilder.toString());
     }
 
     @Override
     public TreeSetSlotWrapper read(ObjectDataInput objectDataInput) throws IOException {
-        //Build treeSetStringWrapper object using json string.
-        String jsonString = objectDataInput.readUTF();
-        JsonArray jsonArray = new JsonParser().parse(jsonString).getAsJsonObject().getAsJsonArray
-                ("slotTreeSet");
-        TreeSet<Slot> treeSet = new TreeSet<>();
-        for (JsonElement jsonElement : jsonArray) {
-            JsonObject jsonObject = (JsonObject) jsonElement;
-            Slot slot = new Slot();
-            slot.setMessageCount(jsonObject.get("messageCount").getAsInt());
-            slot.setStartMessageId(jsonObject.get("startMessageId").getAsLong());
-            slot.setEndMessageId(jsonObject.get("endMessageId").getAsLong());
-            slot.setStorageQueueName(jsonObject.get("storageQueueName").getAsString());
-            slot.decodeAndSetSlotStates(jsonObject.get("states").getAsString());
-            if (!jsonObject.get("isSlotActive").getAsBoolean()) {
-                slot.setSlotInactive();
-            }
-            treeSet.add(slot);
-        }
         TreeSetSlotWrapper wrapper = new TreeSetSlotWrapper();
-        wrapper.setSlotTreeSet(treeSet);
+        if (objectDataInput.readBoolean()) {
+            wrapper.setSlotTreeSet(SlotSerializationUtils.readSlots(objectDataInput));
+        } else {
+            wrapper.setSlotTreeSet(null);
+        }
         return wrapper;
-
     }
 
     @Override
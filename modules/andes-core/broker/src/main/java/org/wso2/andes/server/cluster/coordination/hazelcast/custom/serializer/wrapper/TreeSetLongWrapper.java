@@ -18,23 +18,24 @@
 
 package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper;
 
+import org.wso2.andes.kernel.slot.LongRangeSet;
+
 import java.io.Serializable;
-import java.util.TreeSet;
 
 /**
- * This class is a wrapper class to a Long TreeSet.It encapsulates a Treeset in order to customize
- * the serialization of a long treeset in hazelcast. This class is used because general TreeSet
- * class should not affect with the custom serialization.
+ * This class is a wrapper class to the message ID set of a queue. It encapsulates the set in order to customize
+ * the serialization of message IDs in hazelcast. The class name is kept from when the set was a Long TreeSet since
+ * the custom serializer is registered against it.
  */
 public class TreeSetLongWrapper implements Serializable {
 
-    private TreeSet<Long> longTreeSet = new TreeSet<Long>();
+    private LongRangeSet messageIdSet = new LongRangeSet();
 
-    public TreeSet<Long> getLongTreeSet() {
-        return longTreeSet;
+    public LongRangeSet getMessageIdSet() {
+        return messageIdSet;
     }
 
-    public void setLongTreeSet(TreeSet<Long> longTreeSet) {
-        this.longTreeSet = longTreeSet;
+    public void setMessageIdSet(LongRangeSet messageIdSet) {
+        this.messageIdSet = messageIdSet;
     }
 }
@@ -25,6 +25,7 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextStore;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.LongRangeSet;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.SlotState;
 import org.wso2.andes.server.cluster.coordination.SlotAgent;
@@ -380,11 +381,11 @@ public class DatabaseSlotAgent implements SlotAgent, StoreHealthListener {
      * {@inheritDoc}
      */
     @Override
-    public TreeSet<Long> getSlotBasedMessageIds(String queueName) throws AndesException {
+    public LongRangeSet getSlotBasedMessageIds(String queueName) throws AndesException {
 
         String task = "get message ids for queue: " + queueName;
 
-        TreeSet<Long> messageIds = new TreeSet<>();
+        LongRangeSet messageIds = new LongRangeSet();
         for (int attemptCount = 1; attemptCount <= MAX_STORE_FAILURE_TOLERANCE_COUNT; attemptCount++) {
             waitUntilStoresBecomeAvailable(task);
             try {
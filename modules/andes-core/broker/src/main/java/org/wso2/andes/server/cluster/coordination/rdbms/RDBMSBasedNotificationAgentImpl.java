@@ -28,8 +28,10 @@ import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.MessageCountNotificationHandler;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents a ClusterNotificationAgent implementation which uses
@@ -149,6 +151,24 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
         publishNotificationToDB(clusterNotification);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyMessageCountChange(Map<String, Long> messageCountChanges) throws AndesException {
+        ClusterNotification clusterNotification = new ClusterNotification(
+                MessageCountNotificationHandler.encodeMessageCountChanges(messageCountChanges),
+                ClusterNotificationListener.NotifiedArtifact.MessageCount.toString(),
+                "",
+                "Message Count Notification Message",
+                localNodeID);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+        }
+        publishNotificationToDB(clusterNotification);
+    }
+
     /**
      * Store notification in the DB. Duplicate the cluster notification for all nodes in
      * the cluster and store them destined to the respective  to each node.
@@ -43,6 +43,7 @@ import org.wso2.andes.kernel.AndesUtils;
 import org.wso2.andes.kernel.DisablePubAckImpl;
 import org.wso2.andes.kernel.FlowControlListener;
 import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.kernel.MetadataListCollector;
 import org.wso2.andes.kernel.ProtocolType;
 import org.wso2.andes.kernel.disruptor.compression.LZ4CompressionHelper;
 import org.wso2.andes.kernel.disruptor.inbound.InboundQueueEvent;
@@ -546,19 +547,17 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
             @MBeanOperationParameter(name = "maxMsgCount",
                                      description = "Maximum message count per " + "request") int maxMsgCount)
             throws MBeanException {
-        List<CompositeData> compositeDataList = new ArrayList<>();
         try {
 
-            List<AndesMessageMetadata> nextNMessageMetadataFromQueue;
+            // Metadata is collected first so that content is read after the metadata cursor is closed
+            MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>();
             if (!DLCQueueUtils.isDeadLetterQueue(queueName)) {
-                nextNMessageMetadataFromQueue = Andes.getInstance()
-                        .getNextNMessageMetadataFromQueue(queueName, nextMsgId, maxMsgCount);
+                Andes.getInstance().streamNextNMessageMetadataFromQueue(queueName, nextMsgId, maxMsgCount, collector);
             } else {
-                nextNMessageMetadataFromQueue = Andes.getInstance()
-                        .getNextNMessageMetadataFromDLC(queueName, nextMsgId, maxMsgCount);
+                Andes.getInstance().streamNextNMessageMetadataFromDLC(queueName, nextMsgId, maxMsgCount, collector);
             }
 
-            return getDisplayableMetaData(nextNMessageMetadataFromQueue);
+            return getDisplayableMetaData(collector.getMetadataList());
 
         } catch (AndesException e) {
             throw new MBeanException(e, "Error occurred in browse queue.");
@@ -593,17 +592,19 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
 
         try {
 
-            List<AndesMessageMetadata> nextNMessageMetadataFromQueue;
             if (!DLCQueueUtils.isDeadLetterQueue(queueName)) {
-                nextNMessageMetadataFromQueue = Andes.getInstance().getNextNMessageMetadataInDLCForQueue(queueName,
-                        DLCQueueUtils.identifyTenantInformationAndGenerateDLCString(queueName), nextMsgId,
-                        maxMessageCount);
+                List<AndesMessageMetadata> nextNMessageMetadataFromQueue = Andes.getInstance()
+                        .getNextNMessageMetadataInDLCForQueue(queueName,
+                                DLCQueueUtils.identifyTenantInformationAndGenerateDLCString(queueName), nextMsgId,
+                                maxMessageCount);
+                return getDisplayableMetaData(nextNMessageMetadataFromQueue);
             } else {
-                nextNMessageMetadataFromQueue = Andes.getInstance().getNextNMessageMetadataFromDLC(
+                MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>();
+                Andes.getInstance().streamNextNMessageMetadataFromDLC(
                         DLCQueueUtils.identifyTenantInformationAndGenerateDLCString(queueName), nextMsgId,
-                        maxMessageCount);
+                        maxMessageCount, collector);
+                return getDisplayableMetaData(collector.getMetadataList());
             }
-            return getDisplayableMetaData(nextNMessageMetadataFromQueue);
         } catch (AndesException e) {
             throw new MBeanException(e, "Error occurred in browse queue.");
         }
@@ -937,39 +938,70 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
     }
 
     /**
-     * Method to display a list of messages when browsed.
+     * Method to display a list of messages when browsed. Content of all the messages is read from the store in a
+     * single call.
      *
      * @param metadataList the list of message metadata
      * @return Composite data array of properties of all messages
      * @throws MBeanException
      */
     private CompositeData[] getDisplayableMetaData(List<AndesMessageMetadata> metadataList) throws MBeanException {
-        List<CompositeData> compositeDataList = new ArrayList<>();
+        LongArrayList messageIDs = new LongArrayList(metadataList.size());
+        for (AndesMessageMetadata andesMessageMetadata : metadataList) {
+            messageIDs.add(andesMessageMetadata.getMessageID());
+        }
+        LongObjectHashMap<List<AndesMessagePart>> contentOfMessages;
         try {
-            for (AndesMessageMetadata andesMessageMetadata : metadataList) {
-                Object[] itemValues = getItemValues(andesMessageMetadata);
-                if (null != itemValues) {
-                    CompositeDataSupport support = new CompositeDataSupport(_msgContentType,
-                            VIEW_MSG_CONTENT_COMPOSITE_ITEM_NAMES_DESC
-                                    .toArray(new String[VIEW_MSG_CONTENT_COMPOSITE_ITEM_NAMES_DESC.size()]),
-                            itemValues);
-                    compositeDataList.add(support);
-                }
+            contentOfMessages = MessagingEngine.getInstance().getContent(messageIDs);
+        } catch (AndesException e) {
+            throw new MBeanException(e, "Error occurred while reading content of browsed messages.");
+        }
+
+        List<CompositeData> compositeDataList = new ArrayList<>();
+        for (AndesMessageMetadata andesMessageMetadata : metadataList) {
+            CompositeData compositeData = getDisplayableMetaData(andesMessageMetadata,
+                    contentOfMessages.get(andesMessageMetadata.getMessageID()));
+            if (null != compositeData) {
+                compositeDataList.add(compositeData);
             }
+        }
+        return compositeDataList.toArray(new CompositeData[compositeDataList.size()]);
+    }
+
+    /**
+     * Method to get displayable properties of a single message.
+     *
+     * @param andesMessageMetadata andes message metadata
+     * @param contentParts         content parts of the message read from the store. Null if none were found
+     * @return Composite data of properties of the message. Null if the message has no displayable properties
+     * @throws MBeanException
+     */
+    private CompositeData getDisplayableMetaData(AndesMessageMetadata andesMessageMetadata,
+                                                 List<AndesMessagePart> contentParts) throws MBeanException {
+        Object[] itemValues = getItemValues(andesMessageMetadata, contentParts);
+        if (null == itemValues) {
+            return null;
+        }
+        try {
+            return new CompositeDataSupport(_msgContentType,
+                    VIEW_MSG_CONTENT_COMPOSITE_ITEM_NAMES_DESC
+                            .toArray(new String[VIEW_MSG_CONTENT_COMPOSITE_ITEM_NAMES_DESC.size()]),
+                    itemValues);
         } catch (OpenDataException exception) {
             throw new MBeanException(exception, "Error occurred in browse queue.");
         }
-        return compositeDataList.toArray(new CompositeData[compositeDataList.size()]);
     }
 
     /**
      * Method to get an array of properties of a single message.
      *
      * @param andesMessageMetadata andes message metadata to be parsed
+     * @param contentParts         content parts of the message read from the store. Null if none were found
      * @return an array of properties of the message
      * @throws MBeanException
      */
-    private Object[] getItemValues(AndesMessageMetadata andesMessageMetadata) throws MBeanException {
+    private Object[] getItemValues(AndesMessageMetadata andesMessageMetadata, List<AndesMessagePart> contentParts)
+            throws MBeanException {
         try {
 
             Object[] itemValues = null;
@@ -1011,7 +1043,7 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
             //content is constructing
             final int bodySize = (int) amqMessage.getSize();
 
-            AndesMessagePart constructedContent = constructContent(bodySize, amqMessage);
+            AndesMessagePart constructedContent = constructContent(bodySize, amqMessage, contentParts);
             byte[] messageContent = constructedContent.getData();
             int position = constructedContent.getOffset();
 
@@ -1045,55 +1077,36 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
     /**
      * Method to construct message body of a single message.
      *
-     * @param bodySize   Original content size of the message
-     * @param amqMessage AMQMessage
+     * @param bodySize     Original content size of the message
+     * @param amqMessage   AMQMessage
+     * @param contentParts content parts of the message read from the store. Null if none were found
      * @return Message content and last position of written data as an AndesMessagePart
-     * @throws MBeanException
      */
-    private AndesMessagePart constructContent(int bodySize, AMQMessage amqMessage) throws MBeanException {
+    private AndesMessagePart constructContent(int bodySize, AMQMessage amqMessage,
+                                              List<AndesMessagePart> contentParts) {
 
         AndesMessagePart andesMessagePart;
 
-        if (amqMessage.getMessageMetaData().isCompressed()) {
+        if (amqMessage.getMessageMetaData().isCompressed() && null != contentParts) {
             /* If the current message was compressed by the server, decompress the message content and, get it as an
              * AndesMessagePart
              */
-            long messageID = amqMessage.getMessageId();
-            LongArrayList messList = new LongArrayList();
-            messList.add(messageID);
-
-            try {
-                LongObjectHashMap<List<AndesMessagePart>> contentListMap = MessagingEngine.getInstance()
-                        .getContent(messList);
-                List<AndesMessagePart> contentList = contentListMap.get(messageID);
-
-                andesMessagePart = lz4CompressionHelper.getDecompressedMessage(contentList, bodySize);
-
-            } catch (AndesException e) {
-                throw new MBeanException(e,
-                        "Error occurred while construct the message content. Message ID:" + amqMessage.getMessageId());
-            }
+            andesMessagePart = lz4CompressionHelper.getDecompressedMessage(contentParts, bodySize);
         } else {
             byte[] messageContent = new byte[bodySize];
 
-            //Getting a buffer, to write data into the byte array and to the buffer at the same time
-            java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(messageContent);
-
             int position = 0;
 
-            while (position < bodySize) {
-                position = position + amqMessage.getContent(buffer, position);
-
-                //If position did not proceed, there is an error receiving content
-                if ((0 != bodySize) && (0 == position)) {
-                    break;
+            if (null != contentParts) {
+                // Offset of a content part is the position of its first byte in the message
+                for (AndesMessagePart contentPart : contentParts) {
+                    if (null == contentPart.getData() || contentPart.getOffset() >= bodySize) {
+                        continue;
+                    }
+                    int length = Math.min(contentPart.getDataLength(), bodySize - contentPart.getOffset());
+                    System.arraycopy(contentPart.getData(), 0, messageContent, contentPart.getOffset(), length);
+                    position = position + length;
                 }
-
-                //The limit is setting to the current position and then the position of the buffer is setting to zero
-                buffer.flip();
-
-                //The position of the buffer is setting to zero, the limit is setting to the capacity
-                buffer.clear();
             }
 
             andesMessagePart = new AndesMessagePart();
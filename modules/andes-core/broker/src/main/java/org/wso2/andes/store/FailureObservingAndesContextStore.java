@@ -25,7 +25,9 @@ import org.wso2.andes.kernel.AndesContextStore;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.DurableStoreConnection;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.slot.LongRangeSet;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotCheckpoint;
 import org.wso2.andes.kernel.slot.SlotState;
 import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEvent;
 import org.wso2.andes.server.cluster.NodeHeartBeatData;
@@ -783,7 +785,7 @@ public class FailureObservingAndesContextStore implements AndesContextStore {
      * @throws AndesException
      */
     @Override
-    public TreeSet<Long> getMessageIds(String queueName) throws AndesException {
+    public LongRangeSet getMessageIds(String queueName) throws AndesException {
         try {
             return wrappedAndesContextStoreInstance.getMessageIds(queueName);
         } catch (AndesStoreUnavailableException exception) {
@@ -884,6 +886,45 @@ public class FailureObservingAndesContextStore implements AndesContextStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addSlotCheckpoints(String storageQueueName, List<SlotCheckpoint> checkpoints) throws AndesException {
+        try {
+            wrappedAndesContextStoreInstance.addSlotCheckpoints(storageQueueName, checkpoints);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SlotCheckpoint> getSlotCheckpoints(String storageQueueName) throws AndesException {
+        try {
+            return wrappedAndesContextStoreInstance.getSlotCheckpoints(storageQueueName);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteSlotCheckpoints(String storageQueueName, long messageIdLimit) throws AndesException {
+        try {
+            wrappedAndesContextStoreInstance.deleteSlotCheckpoints(storageQueueName, messageIdLimit);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -19,6 +19,7 @@
 package org.wso2.andes.store;
 
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.util.ConfigurationProperties;
@@ -30,6 +31,7 @@ import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DurableStoreConnection;
 import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataConsumer;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.tools.utils.MessageTracer;
 
@@ -225,6 +227,20 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamMetadataList(Slot slot, String storageQueueName, long firstMsgId, long lastMsgID,
+            MetadataConsumer<DeliverableAndesMetadata> consumer) throws AndesException {
+        try {
+            wrappedInstance.streamMetadataList(slot, storageQueueName, firstMsgId, lastMsgID, consumer);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -265,6 +281,20 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        try {
+            wrappedInstance.streamNextNMessageMetadataFromQueue(storageQueueName, firstMsgId, count, consumer);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -294,6 +324,20 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        try {
+            wrappedInstance.streamNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count, consumer);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -352,6 +396,29 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteMessagesInRange(String storageQueueName, long firstMsgId, long lastMsgId,
+                                         LongArrayList messageIDs) throws AndesException {
+        try {
+            boolean deleted = wrappedInstance.deleteMessagesInRange(storageQueueName, firstMsgId, lastMsgId,
+                    messageIDs);
+
+            //Tracing message activity
+            if (deleted && MessageTracer.isEnabled()) {
+                for (int i = 0; i < messageIDs.size(); i++) {
+                    MessageTracer.trace(messageIDs.get(i), storageQueueName, MessageTracer.MESSAGE_DELETED);
+                }
+            }
+            return deleted;
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -571,6 +638,48 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> drainMessageCountChanges() {
+        return wrappedInstance.drainMessageCountChanges();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyMessageCountChanges(Map<String, Long> messageCountChanges) {
+        wrappedInstance.applyMessageCountChanges(messageCountChanges);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, LongLongHashMap> getMessageExpirationTimes() throws AndesException {
+        try {
+            return wrappedInstance.getMessageExpirationTimes();
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cacheMessageContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+        try {
+            wrappedInstance.cacheMessageContent(metadataList);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -623,6 +732,14 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isContentSharingEnabled() {
+        return wrappedInstance.isContentSharingEnabled();
+    }
+
     /**
      * {@inheritDoc}
      */
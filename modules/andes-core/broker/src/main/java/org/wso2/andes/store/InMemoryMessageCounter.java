@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps message counts of storage queues in memory so that a count can be read without counting the rows of the
+ * queue in the message store.
+ * <p>
+ * Counts are updated by the message store when messages are added to or removed from a queue. Changes done by this
+ * node are accumulated until they are drained to be published to the other nodes of the cluster. Changes published
+ * by other nodes are applied without being published again.
+ * <p>
+ * Counts are approximate. A queue count is unknown until it is initialised from the store and it is corrected
+ * periodically against the store through {@link #startReconciliation()} and
+ * {@link #completeReconciliation(Map, Set)}. Changes applied before the store is counted are already part of the
+ * counted values and are dropped. Only changes applied after the counts are read are added to the counted values.
+ */
+public class InMemoryMessageCounter {
+
+    /**
+     * Value returned when the count of a queue is not known
+     */
+    public static final long UNKNOWN_COUNT = -1;
+
+    /**
+     * Counter of each storage queue
+     */
+    private final ConcurrentMap<String, QueueCounter> queueCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Get the message count of a queue
+     *
+     * @param storageQueueName name of the queue
+     * @return message count or {@link #UNKNOWN_COUNT} if the count is not initialised
+     */
+    public long getCount(String storageQueueName) {
+        QueueCounter counter = queueCounters.get(storageQueueName);
+        if (null == counter) {
+            return UNKNOWN_COUNT;
+        }
+        return counter.getCount();
+    }
+
+    /**
+     * Initialise the count of a queue with the count read from the store. Count is not changed if it is already
+     * known.
+     *
+     * @param storageQueueName name of the queue
+     * @param storedCount      message count read from the store
+     */
+    public void initializeCount(String storageQueueName, long storedCount) {
+        getQueueCounter(storageQueueName).initialize(storedCount);
+    }
+
+    /**
+     * Record a change of the message count done by this node
+     *
+     * @param storageQueueName name of the queue
+     * @param delta            number of messages added, negative if messages are removed
+     */
+    public void recordLocalChange(String storageQueueName, long delta) {
+        if (0 != delta) {
+            getQueueCounter(storageQueueName).change(delta, true);
+        }
+    }
+
+    /**
+     * Apply a change of the message count published by another node
+     *
+     * @param storageQueueName name of the queue
+     * @param delta            number of messages added, negative if messages are removed
+     */
+    public void applyRemoteChange(String storageQueueName, long delta) {
+        if (0 != delta) {
+            getQueueCounter(storageQueueName).change(delta, false);
+        }
+    }
+
+    /**
+     * Set the count of a queue to zero. Used when all messages of the queue are removed.
+     *
+     * @param storageQueueName name of the queue
+     */
+    public void reset(String storageQueueName) {
+        getQueueCounter(storageQueueName).reset();
+    }
+
+    /**
+     * Remove the counter of a deleted queue
+     *
+     * @param storageQueueName name of the queue
+     */
+    public void remove(String storageQueueName) {
+        queueCounters.remove(storageQueueName);
+    }
+
+    /**
+     * Get the changes done by this node since the last call and clear them
+     *
+     * @return map of queue names and the change of the message count. Queues without a change are not included
+     */
+    public Map<String, Long> drainLocalChanges() {
+        Map<String, Long> changes = new HashMap<>();
+        for (Map.Entry<String, QueueCounter> entry : queueCounters.entrySet()) {
+            long change = entry.getValue().drainUnpublishedChange();
+            if (0 != change) {
+                changes.put(entry.getKey(), change);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Mark the point the store counts are taken at. Must be called right after the store is read. Changes applied
+     * before this call are taken as included in the counts read from the store and are dropped.
+     */
+    public void startReconciliation() {
+        for (QueueCounter counter : queueCounters.values()) {
+            counter.startReconciliation();
+        }
+    }
+
+    /**
+     * Replace the counts with the counts read from the store before {@link #startReconciliation()}. Changes applied
+     * after that call are added to the stored counts. Known queues not counted by the store have no messages in the
+     * store. Counters of queues that are no longer known are removed.
+     *
+     * @param storedCounts    map of queue names and message counts read from the store
+     * @param knownQueueNames names of all the queues of the broker
+     */
+    public void completeReconciliation(Map<String, Long> storedCounts, Set<String> knownQueueNames) {
+        for (Map.Entry<String, Long> entry : storedCounts.entrySet()) {
+            getQueueCounter(entry.getKey()).reconcile(entry.getValue());
+        }
+        for (Map.Entry<String, QueueCounter> entry : queueCounters.entrySet()) {
+            if (!storedCounts.containsKey(entry.getKey())) {
+                if (knownQueueNames.contains(entry.getKey())) {
+                    entry.getValue().reconcile(0);
+                } else {
+                    queueCounters.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the counter of a queue, creating it with an unknown count if it does not exist
+     *
+     * @param storageQueueName name of the queue
+     * @return counter of the queue
+     */
+    private QueueCounter getQueueCounter(String storageQueueName) {
+        QueueCounter counter = queueCounters.get(storageQueueName);
+        if (null == counter) {
+            QueueCounter newCounter = new QueueCounter();
+            counter = queueCounters.putIfAbsent(storageQueueName, newCounter);
+            if (null == counter) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Message count of a single storage queue
+     */
+    private static class QueueCounter {
+
+        /**
+         * Message count. Only meaningful if the count is known
+         */
+        private long count;
+
+        private boolean countKnown;
+
+        /**
+         * Changes done by this node which are not yet published to other nodes
+         */
+        private long unpublishedChange;
+
+        /**
+         * Changes applied since the store counts of the reconciliation were read
+         */
+        private long changeSinceReconciliation;
+
+        synchronized long getCount() {
+            return countKnown ? count : UNKNOWN_COUNT;
+        }
+
+        synchronized void initialize(long storedCount) {
+            if (!countKnown) {
+                count = storedCount;
+                countKnown = true;
+            }
+        }
+
+        synchronized void change(long delta, boolean local) {
+            count = count + delta;
+            changeSinceReconciliation = changeSinceReconciliation + delta;
+            if (local) {
+                unpublishedChange = unpublishedChange + delta;
+            }
+        }
+
+        synchronized void reset() {
+            count = 0;
+            countKnown = true;
+            changeSinceReconciliation = 0;
+        }
+
+        synchronized long drainUnpublishedChange() {
+            long change = unpublishedChange;
+            unpublishedChange = 0;
+            return change;
+        }
+
+        synchronized void startReconciliation() {
+            changeSinceReconciliation = 0;
+        }
+
+        synchronized void reconcile(long storedCount) {
+            count = Math.max(0, storedCount + changeSinceReconciliation);
+            countKnown = true;
+            changeSinceReconciliation = 0;
+        }
+    }
+}
@@ -63,6 +63,14 @@ public interface AndesMessageCache {
      */
     abstract AndesMessage getMessageFromCache(long messageId);
 
+    /**
+     * Check whether a message is in the cache without reading its content
+     *
+     * @param messageId message id to look up
+     * @return true if the message is found in the cache
+     */
+    abstract boolean isInCache(long messageId);
+
     /**
      * Get the list of messages found from the cache.
      * <b> This method modifies the provided messageIDList </b>
@@ -82,4 +90,22 @@ public interface AndesMessageCache {
      */
     abstract AndesMessagePart getContentFromCache(long messageId, int offsetValue);
 
+    /**
+     * Keep given messages of a queue in the cache until they are unpinned or removed. Messages are pinned when
+     * they are read to the delivery buffer, since their content is about to be read. Messages not found in the
+     * cache are ignored.
+     *
+     * @param storageQueueName name of the queue messages are read for
+     * @param messageIDs       ids of the messages read for delivery
+     */
+    abstract void pinMessages(String storageQueueName, LongArrayList messageIDs);
+
+    /**
+     * Let given pinned messages be evicted from the cache again. Used once the content of the messages is read for
+     * delivery, and when messages are dropped from the delivery buffer without being delivered.
+     *
+     * @param messageIDs ids of the messages
+     */
+    abstract void unpinMessages(LongArrayList messageIDs);
+
 }
\ No newline at end of file
@@ -63,6 +63,14 @@ public class DisabledMessageCacheImpl implements AndesMessageCache {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInCache(long messageId) {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -80,4 +88,18 @@ public class DisabledMessageCacheImpl implements AndesMessageCache {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pinMessages(String storageQueueName, LongArrayList messageIDs) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unpinMessages(LongArrayList messageIDs) {
+    }
+
 }
@@ -20,6 +20,8 @@ package org.wso2.andes.store.cache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.cache.Weigher;
 import com.gs.collections.api.iterator.MutableLongIterator;
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
@@ -28,17 +30,29 @@ import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
 import org.wso2.andes.kernel.AndesMessagePart;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Message cache implementation based on Guava {@link Cache}
+ * <p>
+ * Messages read to the delivery buffer are pinned. Pinned messages are moved out of the Guava cache so that they
+ * are not evicted until their content is read for delivery or they are dropped from the delivery buffer (unpinned),
+ * or they are acknowledged by all (removed). Pinned messages are limited to the size of the cache, and pins not
+ * released within the maximum pin duration are released by the maintenance task.
+ * When the cache is full, messages of queues which are not being read for delivery are not admitted, so that they
+ * do not evict content which is about to be read.
  */
 public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
 
@@ -60,6 +74,47 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
      */
     private final Cache<Long, AndesMessage> cache;
 
+    /**
+     * Maximum time a message is kept pinned. Messages pinned longer are assumed to be left behind (e.g. removed
+     * from the store without going through the cache) and are moved back to the cache to be evicted normally.
+     */
+    private static final long MAX_PIN_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Messages in the delivery window. Not counted for the size of the cache
+     */
+    private final ConcurrentMap<Long, PinnedMessage> pinnedMessages = new ConcurrentHashMap<>();
+
+    /**
+     * Content size of the pinned messages. Limited to the size of the cache, so that pinned messages do not grow
+     * the memory used beyond twice the cache size when delivery falls behind. Updated under the pin lock.
+     */
+    private long pinnedWeight;
+
+    /**
+     * Guards moving messages between the cache and the pinned messages against concurrent removals, so that a
+     * removed message is not pinned or put back to the cache afterwards
+     */
+    private final Object pinLock = new Object();
+
+    /**
+     * How often messages of each queue are read for delivery. Used for admission when the cache is full
+     */
+    private final QueueAccessFrequency queueAccessFrequency =
+            new QueueAccessFrequency(QueueAccessFrequency.DEFAULT_SAMPLE_SIZE);
+
+    /**
+     * Content size of the messages in the Guava cache
+     */
+    private final AtomicLong cachedWeight = new AtomicLong();
+
+    private final long maximumWeight;
+
+    /**
+     * Number of messages not admitted to the cache since it was full
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
     /**
      * Used to schedule a cache clean up task and print cache statistics ( used for debugging perposes)
      */
@@ -77,57 +132,81 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
     private static int DEFAULT_CONTENT_CHUNK_SIZE;
 
     public GuavaBasedMessageCacheImpl() {
+        this(1024L * 1024L * AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_CONCURRENCY_LEVEL),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS),
+                CACHE_VALUE_REF_TYPE_WEAK.equalsIgnoreCase(AndesConfigurationManager.<String>readValue(
+                        AndesConfiguration.PERSISTENCE_CACHE_VALUE_REFERENCE_TYPE)),
+                AndesConfigurationManager.<Boolean>readValue(AndesConfiguration.PERSISTENCE_CACHE_PRINT_STATS),
+                AndesConfigurationManager.<Integer>readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE));
+
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        maintenanceExecutor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                cache.cleanUp();
+                unpinExpiredMessages(System.currentTimeMillis());
+                recalculateCachedWeight();
 
-        DEFAULT_CONTENT_CHUNK_SIZE = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
+                if (printStats) {
+                    log.info("cache stats:" + cache.stats().toString() + ", pinned=" + pinnedMessages.size()
+                            + ", rejected=" + rejectedCount.get());
+                }
 
-        long cacheSizeInBytes =
-                1024L * 1024L * ((int) AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE));
+            }
+        }, 2, 2, TimeUnit.MINUTES);
 
-        int cacheConcurrency = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERSISTENCE_CACHE_CONCURRENCY_LEVEL);
+    }
 
-        int cacheExpirySeconds = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS);
+    /**
+     * Create a cache without the maintenance task, which unpins expired messages and prints statistics
+     *
+     * @param cacheSizeInBytes maximum content size of the cached messages
+     * @param cacheConcurrency concurrency level of the Guava cache
+     * @param expirySeconds    number of seconds a message is kept in the cache after it is last accessed
+     * @param weakValues       true if messages should be kept using weak references
+     * @param printStats       true if cache statistics should be printed on logs
+     * @param contentChunkSize max chunk size of the stored content
+     */
+    GuavaBasedMessageCacheImpl(long cacheSizeInBytes, int cacheConcurrency, int expirySeconds, boolean weakValues,
+                               boolean printStats, int contentChunkSize) {
 
-        String valueRefType = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERSISTENCE_CACHE_VALUE_REFERENCE_TYPE);
-        printStats = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_PRINT_STATS);
+        DEFAULT_CONTENT_CHUNK_SIZE = contentChunkSize;
+        this.printStats = printStats;
+        maximumWeight = cacheSizeInBytes;
 
         CacheBuilder<Long, AndesMessage> builder = CacheBuilder.newBuilder().concurrencyLevel(cacheConcurrency)
-                .expireAfterAccess(cacheExpirySeconds, TimeUnit.SECONDS).maximumWeight(cacheSizeInBytes)
+                .expireAfterAccess(expirySeconds, TimeUnit.SECONDS).maximumWeight(cacheSizeInBytes)
                 .weigher(new Weigher<Long, AndesMessage>() {
                     @Override
                     public int weigh(Long l, AndesMessage m) {
                         return m.getMetadata().getMessageContentLength();
                     }
+                }).removalListener(new RemovalListener<Long, AndesMessage>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<Long, AndesMessage> notification) {
+                        AndesMessage message = notification.getValue();
+                        // Value is null if it is collected when weak references are used. Weight of such
+                        // messages is corrected by the maintenance task
+                        if (null != message) {
+                            cachedWeight.addAndGet(-message.getMetadata().getMessageContentLength());
+                        }
+                    }
                 });
 
         if (printStats) {
             builder = builder.recordStats();
         }
 
-        if (CACHE_VALUE_REF_TYPE_WEAK.equalsIgnoreCase(valueRefType)) {
+        if (weakValues) {
             builder = builder.weakValues();
         }
 
         this.cache = builder.build();
 
-        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
-
-        maintenanceExecutor.scheduleAtFixedRate(new Runnable() {
-
-            @Override
-            public void run() {
-                cache.cleanUp();
-
-                if (printStats) {
-                    log.info("cache stats:" + cache.stats().toString());
-                }
-
-            }
-        }, 2, 2, TimeUnit.MINUTES);
-
     }
 
     /**
@@ -136,7 +215,17 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
     @Override
     public void addToCache(AndesMessage message) {
 
-        cache.put(message.getMetadata().getMessageID(), message);
+        AndesMessageMetadata metadata = message.getMetadata();
+        int weight = metadata.getMessageContentLength();
+        if (cachedWeight.get() + weight > maximumWeight
+                && queueAccessFrequency.isCold(metadata.getStorageQueueName())) {
+            // Cache is full and messages of the queue are not being read. Admitting the message would evict
+            // content which is more likely to be read
+            rejectedCount.incrementAndGet();
+            return;
+        }
+        cachedWeight.addAndGet(weight);
+        cache.put(metadata.getMessageID(), message);
 
     }
 
@@ -150,7 +239,12 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
         while (iterator.hasNext()) {
             arrayList.add(iterator.next());
         }
-        cache.invalidateAll(arrayList);
+        synchronized (pinLock) {
+            cache.invalidateAll(arrayList);
+            for (Long messageId : arrayList) {
+                releasePin(messageId);
+            }
+        }
     }
 
     /**
@@ -158,7 +252,10 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
      */
     @Override
     public void removeFromCache(long messageToRemove) {
-        cache.invalidate(messageToRemove);
+        synchronized (pinLock) {
+            cache.invalidate(messageToRemove);
+            releasePin(messageToRemove);
+        }
     }
 
     /**
@@ -167,10 +264,23 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
     @Override
     public AndesMessage getMessageFromCache(long messageId) {
 
+        PinnedMessage pinnedMessage = pinnedMessages.get(messageId);
+        if (null != pinnedMessage) {
+            return pinnedMessage.message;
+        }
         return cache.getIfPresent(messageId);
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInCache(long messageId) {
+        // Looked up through the map view so that the check does not count as an access of the entry
+        return pinnedMessages.containsKey(messageId) || cache.asMap().containsKey(messageId);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -184,7 +294,7 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
 
             Long messageID = iterator.next();
 
-            AndesMessage andesMessage = cache.getIfPresent(messageID);
+            AndesMessage andesMessage = getMessageFromCache(messageID);
 
             if (null != andesMessage) {
                 contentList.put(messageID, andesMessage.getContentChunkList());
@@ -206,9 +316,113 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
             //'fillBufferFromContent' in {@link org.wso2.andes.amqp.AMQPUtils}
             //therefore, offsetValue / DEFAULT_CONTENT_CHUNK_SIZE gives the correct index of a particular chunk
             // in the content chunk list
-            part = getMessageFromCache(messageId).getContentChunkList().get(offsetValue / DEFAULT_CONTENT_CHUNK_SIZE);
+            part = cachedMessage.getContentChunkList().get(offsetValue / DEFAULT_CONTENT_CHUNK_SIZE);
         }
         return part;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pinMessages(String storageQueueName, LongArrayList messageIDs) {
+        queueAccessFrequency.recordAccess(storageQueueName, messageIDs.size());
+        long pinnedTime = System.currentTimeMillis();
+        MutableLongIterator iterator = messageIDs.longIterator();
+        synchronized (pinLock) {
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                AndesMessage message = cache.getIfPresent(messageId);
+                if (null != message) {
+                    int weight = message.getMetadata().getMessageContentLength();
+                    if (pinnedWeight + weight > maximumWeight) {
+                        // Left in the cache to be evicted normally
+                        continue;
+                    }
+                    pinnedWeight = pinnedWeight + weight;
+                    pinnedMessages.put(messageId, new PinnedMessage(message, pinnedTime));
+                    cache.invalidate(messageId);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unpinMessages(LongArrayList messageIDs) {
+        MutableLongIterator iterator = messageIDs.longIterator();
+        synchronized (pinLock) {
+            while (iterator.hasNext()) {
+                PinnedMessage pinnedMessage = releasePin(iterator.next());
+                if (null != pinnedMessage) {
+                    addToCache(pinnedMessage.message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move messages pinned longer than the maximum pin duration back to the cache. Pins are normally released
+     * when the content is read for delivery, hence this only releases pins left behind.
+     *
+     * @param currentTimeMillis current time in milliseconds
+     */
+    void unpinExpiredMessages(long currentTimeMillis) {
+        long expiryTime = currentTimeMillis - MAX_PIN_DURATION_MILLIS;
+        synchronized (pinLock) {
+            Iterator<Map.Entry<Long, PinnedMessage>> iterator = pinnedMessages.entrySet().iterator();
+            while (iterator.hasNext()) {
+                PinnedMessage pinnedMessage = iterator.next().getValue();
+                if (pinnedMessage.pinnedTime < expiryTime) {
+                    iterator.remove();
+                    pinnedWeight = pinnedWeight - pinnedMessage.message.getMetadata().getMessageContentLength();
+                    addToCache(pinnedMessage.message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the pin of a message. Should be called under the pin lock.
+     *
+     * @param messageId id of the message
+     * @return the pinned message, or null if the message is not pinned
+     */
+    private PinnedMessage releasePin(long messageId) {
+        PinnedMessage pinnedMessage = pinnedMessages.remove(messageId);
+        if (null != pinnedMessage) {
+            pinnedWeight = pinnedWeight - pinnedMessage.message.getMetadata().getMessageContentLength();
+        }
+        return pinnedMessage;
+    }
+
+    /**
+     * Recalculate the content size of the cached messages. Corrects the drift caused by messages removed without
+     * a removal notification carrying the message
+     */
+    private void recalculateCachedWeight() {
+        long weight = 0;
+        for (AndesMessage message : cache.asMap().values()) {
+            weight = weight + message.getMetadata().getMessageContentLength();
+        }
+        cachedWeight.set(weight);
+    }
+
+    /**
+     * A message kept out of eviction along with the time it is pinned
+     */
+    private static class PinnedMessage {
+
+        private final AndesMessage message;
+
+        private final long pinnedTime;
+
+        PinnedMessage(AndesMessage message, long pinnedTime) {
+            this.message = message;
+            this.pinnedTime = pinnedTime;
+        }
+    }
+
 }
@@ -27,10 +27,15 @@ import org.wso2.andes.configuration.enums.AndesConfiguration;
  */
 public class MessageCacheFactory {
 
+    /**
+     * Cache memory type keeping messages outside the java heap
+     */
+    private static final String CACHE_MEMORY_TYPE_OFF_HEAP = "offHeap";
     
     /***
      * Create a {@link AndesMessageCache} with the configurations passed.
-     * currently it will either returns a {@link GuavaBasedMessageCacheImpl} or
+     * currently it will either returns a {@link GuavaBasedMessageCacheImpl},
+     * {@link OffHeapMessageCacheImpl} if memoryType is configured as 'offHeap' or
      * {@link DisabledMessageCacheImpl} if cacheSize is configured as '0' in
      * broker.xml
      * 
@@ -41,11 +46,15 @@ public class MessageCacheFactory {
     public AndesMessageCache create() {
 
         int cacheSizeInMegaBytes = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE);
+        String memoryType = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_MEMORY_TYPE);
                                     
         AndesMessageCache cache = null;
         
+
         if ( cacheSizeInMegaBytes <= 0){
             cache = new DisabledMessageCacheImpl();
+        } else if (CACHE_MEMORY_TYPE_OFF_HEAP.equalsIgnoreCase(memoryType)) {
+            cache = new OffHeapMessageCacheImpl();
         } else {
             cache = new GuavaBasedMessageCacheImpl();
         }
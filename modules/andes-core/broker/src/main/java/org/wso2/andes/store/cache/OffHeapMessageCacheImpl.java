@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.api.iterator.LongIterator;
+import com.gs.collections.api.iterator.MutableLongIterator;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Message cache keeping metadata and content bytes of messages in direct memory, so that a large cache does not
+ * add long lived objects to the java heap. Only a small index entry per message is kept in the heap.
+ * <p>
+ * Memory is divided into fixed size slabs used as a ring. Messages are appended to the current slab. When the
+ * current slab is full the next slab is reused, evicting all the messages in it. Removing a message only removes
+ * its index entry, space is reclaimed when the slab is reused. Messages are treated as expired once they are in the
+ * cache longer than the configured expiry time.
+ * <p>
+ * Messages read to the delivery buffer are pinned. When a slab is reused its pinned messages are rewritten to the
+ * start of the slab instead of being evicted, and they do not expire. When the cache is full, messages of queues
+ * which are not being read for delivery are not admitted, so that they do not evict content which is about to be
+ * read.
+ * <p>
+ * Messages are copied out of direct memory on each read. Hence a message read from the cache is a new object each
+ * time.
+ */
+public class OffHeapMessageCacheImpl implements AndesMessageCache {
+
+    private static final Logger log = Logger.getLogger(OffHeapMessageCacheImpl.class);
+
+    /**
+     * Minimum number of slabs. With a single slab all cached messages are evicted whenever the slab is full
+     */
+    private static final int MIN_SLAB_COUNT = 2;
+
+    /**
+     * Slabs of direct memory. A slab is allocated on first use
+     */
+    private final ByteBuffer[] slabs;
+
+    /**
+     * Messages written to each slab. Used to remove index entries when a slab is reused
+     */
+    private final LongArrayList[] messagesInSlabs;
+
+    private final int slabSize;
+
+    /**
+     * Index of the slab messages are currently written to
+     */
+    private int currentSlab;
+
+    /**
+     * Position of the next write in the current slab
+     */
+    private int writePosition;
+
+    /**
+     * Location of each cached message in the slabs
+     */
+    private final LongObjectHashMap<CachedEntry> index = new LongObjectHashMap<>();
+
+    /**
+     * Maximum time a message is kept pinned. Older pins are assumed to be left behind and are ignored
+     */
+    private static final long MAX_PIN_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Pinned messages and the time they are pinned
+     */
+    private final LongLongHashMap pinTimes = new LongLongHashMap();
+
+    /**
+     * How often messages of each queue are read for delivery. Used for admission when the cache is full
+     */
+    private final QueueAccessFrequency queueAccessFrequency =
+            new QueueAccessFrequency(QueueAccessFrequency.DEFAULT_SAMPLE_SIZE);
+
+    /**
+     * Guards the index and the slabs. Reads copy from slabs holding the read lock so that a slab is not reused
+     * during a copy
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final long expiryMillis;
+
+    /**
+     * Used to schedule a task removing expired index entries and printing cache statistics
+     */
+    private ScheduledExecutorService maintenanceExecutor;
+
+    /**
+     * Flag indicating cache statistics should be printed on logs
+     */
+    private final boolean printStats;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private long evictionCount;
+
+    private long rejectedCount;
+
+    public OffHeapMessageCacheImpl() {
+        this(AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_OFF_HEAP_SLAB_SIZE),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS),
+                AndesConfigurationManager.<Boolean>readValue(AndesConfiguration.PERSISTENCE_CACHE_PRINT_STATS));
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("OffHeapMessageCacheMaintenance-%d").build();
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        maintenanceExecutor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                removeExpiredEntries();
+
+                if (printStats) {
+                    log.info("cache stats: hitCount=" + hitCount.get() + ", missCount=" + missCount.get()
+                            + ", evictionCount=" + evictionCount + ", rejectedCount=" + rejectedCount);
+                }
+            }
+        }, 2, 2, TimeUnit.MINUTES);
+
+        log.info("Off heap message cache created with " + slabs.length + " slabs of " + slabSize + " bytes");
+    }
+
+    /**
+     * Create an off heap cache
+     *
+     * @param cacheSizeInMegaBytes total size of the slabs in MBs
+     * @param slabSizeInMegaBytes  size of a slab in MBs
+     * @param expirySeconds        number of seconds a message is kept in the cache
+     * @param printStats           true if cache statistics should be printed on logs
+     */
+    OffHeapMessageCacheImpl(int cacheSizeInMegaBytes, int slabSizeInMegaBytes, int expirySeconds,
+                            boolean printStats) {
+        this.slabSize = 1024 * 1024 * slabSizeInMegaBytes;
+        int slabCount = Math.max(MIN_SLAB_COUNT, cacheSizeInMegaBytes / slabSizeInMegaBytes);
+        this.slabs = new ByteBuffer[slabCount];
+        this.messagesInSlabs = new LongArrayList[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            messagesInSlabs[i] = new LongArrayList();
+        }
+        this.expiryMillis = TimeUnit.SECONDS.toMillis(expirySeconds);
+        this.printStats = printStats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToCache(AndesMessage message) {
+        AndesMessageMetadata metadata = message.getMetadata();
+        byte[] metadataBytes = metadata.getMetadata();
+        List<AndesMessagePart> parts = message.getContentChunkList();
+
+        int entrySize = metadataBytes.length;
+        int[] partOffsets = new int[parts.size()];
+        int[] partLengths = new int[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            AndesMessagePart part = parts.get(i);
+            partOffsets[i] = part.getOffset();
+            partLengths[i] = part.getData().length;
+            entrySize = entrySize + partLengths[i];
+        }
+
+        if (entrySize > slabSize) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (writePosition + entrySize > slabSize) {
+                int nextSlab = (currentSlab + 1) % slabs.length;
+                if (!messagesInSlabs[nextSlab].isEmpty()
+                        && queueAccessFrequency.isCold(metadata.getStorageQueueName())) {
+                    // Cache is full and messages of the queue are not being read. Admitting the message would
+                    // evict content which is more likely to be read
+                    rejectedCount++;
+                    return;
+                }
+            }
+            int movedSlabCount = 0;
+            while (writePosition + entrySize > slabSize) {
+                // Pinned messages are kept when reusing a slab unless all slabs are full of pinned messages
+                moveToNextSlab(movedSlabCount < slabs.length);
+                movedSlabCount++;
+            }
+            if (null == slabs[currentSlab]) {
+                slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+            }
+            ByteBuffer slab = slabs[currentSlab];
+            slab.position(writePosition);
+            slab.put(metadataBytes);
+            for (AndesMessagePart part : parts) {
+                slab.put(part.getData());
+            }
+
+            long messageId = metadata.getMessageID();
+            index.put(messageId, new CachedEntry(currentSlab, writePosition, metadataBytes.length, partOffsets,
+                    partLengths, metadata.getStorageQueueName(), System.currentTimeMillis()));
+            messagesInSlabs[currentSlab].add(messageId);
+            writePosition = writePosition + entrySize;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Start writing to the next slab of the ring, evicting the messages written to it earlier. Pinned messages are
+     * rewritten to the start of the slab if they should be kept. Must be called holding the write lock.
+     *
+     * @param keepPinned true if pinned messages should be kept in the slab
+     */
+    private void moveToNextSlab(boolean keepPinned) {
+        currentSlab = (currentSlab + 1) % slabs.length;
+        writePosition = 0;
+
+        LongArrayList messagesInSlab = messagesInSlabs[currentSlab];
+        LongArrayList keptMessages = new LongArrayList();
+        List<byte[]> keptBytes = new ArrayList<>();
+        long currentTime = System.currentTimeMillis();
+
+        MutableLongIterator iterator = messagesInSlab.longIterator();
+        while (iterator.hasNext()) {
+            long messageId = iterator.next();
+            CachedEntry entry = index.get(messageId);
+            if (null == entry || entry.slab != currentSlab) {
+                continue;
+            }
+            if (keepPinned && isPinned(messageId, currentTime)) {
+                // Copy out before rewriting since kept messages may overlap when moved to the start of the slab
+                byte[] bytes = new byte[entry.size()];
+                ByteBuffer slab = slabs[currentSlab].duplicate();
+                slab.position(entry.position);
+                slab.get(bytes);
+                keptMessages.add(messageId);
+                keptBytes.add(bytes);
+            } else {
+                index.remove(messageId);
+                pinTimes.remove(messageId);
+                evictionCount++;
+            }
+        }
+        messagesInSlab.clear();
+
+        for (int i = 0; i < keptMessages.size(); i++) {
+            long messageId = keptMessages.get(i);
+            byte[] bytes = keptBytes.get(i);
+            ByteBuffer slab = slabs[currentSlab];
+            slab.position(writePosition);
+            slab.put(bytes);
+            index.put(messageId, index.get(messageId).moveTo(currentSlab, writePosition));
+            messagesInSlab.add(messageId);
+            writePosition = writePosition + bytes.length;
+        }
+    }
+
+    /**
+     * Check whether a message is pinned. Must be called holding a lock.
+     *
+     * @param messageId   id of the message
+     * @param currentTime current time in milliseconds
+     * @return true if the message is pinned within the maximum pin duration
+     */
+    private boolean isPinned(long messageId, long currentTime) {
+        long pinTime = pinTimes.get(messageId);
+        return 0 != pinTime && currentTime - pinTime < MAX_PIN_DURATION_MILLIS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(LongArrayList messagesToRemove) {
+        lock.writeLock().lock();
+        try {
+            MutableLongIterator iterator = messagesToRemove.longIterator();
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                index.remove(messageId);
+                pinTimes.remove(messageId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(long messageToRemove) {
+        lock.writeLock().lock();
+        try {
+            index.remove(messageToRemove);
+            pinTimes.remove(messageToRemove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessage getMessageFromCache(long messageId) {
+        lock.readLock().lock();
+        try {
+            CachedEntry entry = getLiveEntry(messageId);
+            if (null == entry) {
+                return null;
+            }
+            ByteBuffer slab = slabs[entry.slab].duplicate();
+            slab.position(entry.position);
+
+            byte[] metadataBytes = new byte[entry.metadataLength];
+            slab.get(metadataBytes);
+            AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, true);
+            metadata.setStorageQueueName(entry.storageQueueName);
+
+            AndesMessage message = new AndesMessage(metadata);
+            message.setChunkList(readContent(messageId, entry, slab));
+            return message;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInCache(long messageId) {
+        lock.readLock().lock();
+        try {
+            // Not counted as a hit or a miss since no content is read
+            return isLive(messageId, index.get(messageId), System.currentTimeMillis());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void fillContentFromCache(LongArrayList messageIDList,
+                                     LongObjectHashMap<List<AndesMessagePart>> contentList) {
+        lock.readLock().lock();
+        try {
+            MutableLongIterator iterator = messageIDList.longIterator();
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                CachedEntry entry = getLiveEntry(messageId);
+                if (null != entry) {
+                    ByteBuffer slab = slabs[entry.slab].duplicate();
+                    slab.position(entry.position + entry.metadataLength);
+                    contentList.put(messageId, readContent(messageId, entry, slab));
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContentFromCache(long messageId, int offsetValue) {
+        lock.readLock().lock();
+        try {
+            CachedEntry entry = getLiveEntry(messageId);
+            if (null == entry) {
+                return null;
+            }
+            int position = entry.position + entry.metadataLength;
+            for (int i = 0; i < entry.partOffsets.length; i++) {
+                if (entry.partOffsets[i] == offsetValue) {
+                    ByteBuffer slab = slabs[entry.slab].duplicate();
+                    slab.position(position);
+                    return readPart(messageId, entry, i, slab);
+                }
+                position = position + entry.partLengths[i];
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pinMessages(String storageQueueName, LongArrayList messageIDs) {
+        queueAccessFrequency.recordAccess(storageQueueName, messageIDs.size());
+        long pinnedTime = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            MutableLongIterator iterator = messageIDs.longIterator();
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                if (index.containsKey(messageId)) {
+                    pinTimes.put(messageId, pinnedTime);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unpinMessages(LongArrayList messageIDs) {
+        lock.writeLock().lock();
+        try {
+            MutableLongIterator iterator = messageIDs.longIterator();
+            while (iterator.hasNext()) {
+                pinTimes.remove(iterator.next());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the index entry of a message if it is pinned or not expired. Must be called holding a lock.
+     *
+     * @param messageId id of the message
+     * @return index entry or null if the message is not cached or expired
+     */
+    private CachedEntry getLiveEntry(long messageId) {
+        CachedEntry entry = index.get(messageId);
+        if (!isLive(messageId, entry, System.currentTimeMillis())) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Check whether an index entry can be read. Must be called holding a lock.
+     *
+     * @param messageId   id of the message
+     * @param entry       index entry of the message or null if the message is not cached
+     * @param currentTime current time in milliseconds
+     * @return true if the message is cached and pinned or not expired
+     */
+    private boolean isLive(long messageId, CachedEntry entry, long currentTime) {
+        return null != entry
+                && (currentTime - entry.addedTime <= expiryMillis || isPinned(messageId, currentTime));
+    }
+
+    /**
+     * Copy all content parts of a message out of direct memory
+     *
+     * @param messageId id of the message
+     * @param entry     index entry of the message
+     * @param slab      slab buffer positioned at the start of the content
+     * @return content parts
+     */
+    private List<AndesMessagePart> readContent(long messageId, CachedEntry entry, ByteBuffer slab) {
+        List<AndesMessagePart> parts = new ArrayList<>(entry.partOffsets.length);
+        for (int i = 0; i < entry.partOffsets.length; i++) {
+            parts.add(readPart(messageId, entry, i, slab));
+        }
+        return parts;
+    }
+
+    /**
+     * Copy a content part of a message out of direct memory
+     *
+     * @param messageId id of the message
+     * @param entry     index entry of the message
+     * @param partIndex index of the part in the message
+     * @param slab      slab buffer positioned at the start of the part
+     * @return content part
+     */
+    private AndesMessagePart readPart(long messageId, CachedEntry entry, int partIndex, ByteBuffer slab) {
+        byte[] data = new byte[entry.partLengths[partIndex]];
+        slab.get(data);
+
+        AndesMessagePart part = new AndesMessagePart();
+        part.setMessageID(messageId);
+        part.setOffSet(entry.partOffsets[partIndex]);
+        part.setData(data);
+        part.setDataLength(data.length);
+        return part;
+    }
+
+    /**
+     * Remove index entries of expired messages. Space of expired messages is reclaimed when their slab is reused.
+     */
+    private void removeExpiredEntries() {
+        long currentTime = System.currentTimeMillis();
+        long expiryTime = currentTime - expiryMillis;
+        lock.writeLock().lock();
+        try {
+            LongArrayList expiredPins = new LongArrayList();
+            LongIterator pinIterator = pinTimes.keysView().longIterator();
+            while (pinIterator.hasNext()) {
+                long messageId = pinIterator.next();
+                if (!isPinned(messageId, currentTime)) {
+                    expiredPins.add(messageId);
+                }
+            }
+            MutableLongIterator expiredPinIterator = expiredPins.longIterator();
+            while (expiredPinIterator.hasNext()) {
+                pinTimes.remove(expiredPinIterator.next());
+            }
+
+            for (LongArrayList messagesInSlab : messagesInSlabs) {
+                MutableLongIterator iterator = messagesInSlab.longIterator();
+                while (iterator.hasNext()) {
+                    long messageId = iterator.next();
+                    CachedEntry entry = index.get(messageId);
+                    if (null != entry && entry.addedTime < expiryTime && !pinTimes.containsKey(messageId)) {
+                        index.remove(messageId);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Location of a cached message in the slabs. Metadata bytes are followed by the content parts.
+     */
+    private static class CachedEntry {
+
+        private final int slab;
+
+        private final int position;
+
+        private final int metadataLength;
+
+        private final int[] partOffsets;
+
+        private final int[] partLengths;
+
+        private final String storageQueueName;
+
+        private final long addedTime;
+
+        CachedEntry(int slab, int position, int metadataLength, int[] partOffsets, int[] partLengths,
+                    String storageQueueName, long addedTime) {
+            this.slab = slab;
+            this.position = position;
+            this.metadataLength = metadataLength;
+            this.partOffsets = partOffsets;
+            this.partLengths = partLengths;
+            this.storageQueueName = storageQueueName;
+            this.addedTime = addedTime;
+        }
+
+        /**
+         * @return number of bytes the message takes in the slab
+         */
+        int size() {
+            int size = metadataLength;
+            for (int partLength : partLengths) {
+                size = size + partLength;
+            }
+            return size;
+        }
+
+        /**
+         * Create an entry for the message moved to a different location
+         *
+         * @param newSlab     slab the message is moved to
+         * @param newPosition position of the message in the new slab
+         * @return entry with the new location
+         */
+        CachedEntry moveTo(int newSlab, int newPosition) {
+            return new CachedEntry(newSlab, newPosition, metadataLength, partOffsets, partLengths, storageQueueName,
+                    addedTime);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps how often messages of each storage queue are read for delivery. Used by message caches to admit messages
+ * of queues which are being delivered when the cache is full, instead of evicting content which is about to be
+ * read for content of queues nobody reads from.
+ * <p>
+ * Frequencies are aged by halving all of them once the number of recorded accesses reaches the sample size, so
+ * that queues which are no longer read lose their frequency.
+ */
+class QueueAccessFrequency {
+
+    /**
+     * Default number of accesses in between two agings
+     */
+    static final int DEFAULT_SAMPLE_SIZE = 100000;
+
+    private final ConcurrentMap<String, AtomicInteger> frequencies = new ConcurrentHashMap<>();
+
+    /**
+     * Accesses recorded since the last aging
+     */
+    private final AtomicInteger accessCount = new AtomicInteger();
+
+    private final int sampleSize;
+
+    /**
+     * Create a frequency tracker
+     *
+     * @param sampleSize number of accesses in between two agings
+     */
+    QueueAccessFrequency(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Record messages of a queue read for delivery
+     *
+     * @param storageQueueName name of the queue
+     * @param messageCount     number of messages read
+     */
+    void recordAccess(String storageQueueName, int messageCount) {
+        AtomicInteger frequency = frequencies.get(storageQueueName);
+        if (null == frequency) {
+            AtomicInteger newFrequency = new AtomicInteger();
+            frequency = frequencies.putIfAbsent(storageQueueName, newFrequency);
+            if (null == frequency) {
+                frequency = newFrequency;
+            }
+        }
+        frequency.addAndGet(messageCount);
+
+        if (accessCount.addAndGet(messageCount) >= sampleSize) {
+            age();
+        }
+    }
+
+    /**
+     * Get the frequency of a queue
+     *
+     * @param storageQueueName name of the queue
+     * @return frequency, 0 if messages of the queue are not read recently
+     */
+    int getFrequency(String storageQueueName) {
+        AtomicInteger frequency = frequencies.get(storageQueueName);
+        if (null == frequency) {
+            return 0;
+        }
+        return frequency.get();
+    }
+
+    /**
+     * Check whether messages of a queue are not read while messages of other queues are. Messages of such a queue
+     * should not evict cached messages when the cache is full.
+     *
+     * @param storageQueueName name of the queue, may be null if not known
+     * @return true if messages of other queues are read recently but not of the given queue
+     */
+    boolean isCold(String storageQueueName) {
+        return null != storageQueueName && !frequencies.isEmpty() && 0 == getFrequency(storageQueueName);
+    }
+
+    /**
+     * Halve all frequencies and forget queues whose frequency drops to 0
+     */
+    private synchronized void age() {
+        if (accessCount.get() < sampleSize) {
+            // Aged by another thread
+            return;
+        }
+        accessCount.set(0);
+        Iterator<Map.Entry<String, AtomicInteger>> iterator = frequencies.entrySet().iterator();
+        while (iterator.hasNext()) {
+            AtomicInteger frequency = iterator.next().getValue();
+            int current = frequency.get();
+            frequency.addAndGet(-(current - current / 2));
+            if (0 == frequency.get()) {
+                iterator.remove();
+            }
+        }
+    }
+}
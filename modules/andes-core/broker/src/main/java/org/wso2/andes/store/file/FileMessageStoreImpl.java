@@ -0,0 +1,1690 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataConsumer;
+import org.wso2.andes.kernel.MetadataListCollector;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.andes.server.queue.DLCQueueUtils;
+import org.wso2.andes.store.cache.AndesMessageCache;
+import org.wso2.andes.store.cache.MessageCacheFactory;
+import org.wso2.andes.tools.utils.MessageTracer;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer.Context;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * File based implementation of the message store for single node deployments. Initialization fails if clustering is
+ * enabled since the segments are not shared with other nodes.
+ * <p>
+ * All changes are appended as records to segment files in the data directory. Metadata and content of a message
+ * are written as a single record, acknowledged messages are recorded as tombstones. An in memory index per queue
+ * points to the records of live messages and is rebuilt by replaying the segments at startup. A segment is deleted
+ * as a whole once none of its records belong to a live message and the segments its tombstones refer are deleted.
+ * <p>
+ * Records are appended by a single writer at a time. Index updates are applied by decoding the records written,
+ * so the index is maintained by the same code at runtime and on recovery.
+ */
+public class FileMessageStoreImpl implements MessageStore {
+
+    private static final Log log = LogFactory.getLog(FileMessageStoreImpl.class);
+
+    /**
+     * Segment size is limited so that a sealed segment can be memory mapped as a single buffer
+     */
+    private static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+
+    private FileStoreConnection connection;
+
+    private File dataDirectory;
+
+    private long segmentSize;
+
+    private boolean syncOnWrite;
+
+    /**
+     * Segments in the order they are created. Last segment is the active segment
+     */
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Segment records are appended to
+     */
+    private LogSegment activeSegment;
+
+    /**
+     * Appends and index updates are done holding this lock
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Reads from segments hold the read lock. Segment files are deleted holding the write lock
+     */
+    private final ReadWriteLock segmentFileLock = new ReentrantReadWriteLock();
+
+    /**
+     * All live messages by message id
+     */
+    private final ConcurrentHashMap<Long, MessageIndexEntry> messages = new ConcurrentHashMap<>();
+
+    /**
+     * Messages not in DLC by storage queue, ordered by message id
+     */
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, MessageIndexEntry>> queueIndex =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Messages in DLC by dead letter channel queue, ordered by message id
+     */
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, MessageIndexEntry>> dlcIndex =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Messages with an expiration time
+     */
+    private final ConcurrentHashMap<Long, MessageIndexEntry> expiringMessages = new ConcurrentHashMap<>();
+
+    /**
+     * Retained messages by destination
+     */
+    private final ConcurrentHashMap<String, MessageIndexEntry> retainedMessages = new ConcurrentHashMap<>();
+
+    /**
+     * Retained messages by message id
+     */
+    private final ConcurrentHashMap<Long, MessageIndexEntry> retainedMessagesById = new ConcurrentHashMap<>();
+
+    /**
+     * Applies records to the index
+     */
+    private final RecordApplier recordApplier = new RecordApplier();
+
+    /**
+     * Cache to keep messages written recently
+     */
+    private AndesMessageCache messageCache;
+
+    private ScheduledExecutorService compactionExecutor;
+
+    private volatile boolean closed;
+
+    public FileMessageStoreImpl() {
+    }
+
+    /**
+     * Create a message store using the given cache instead of the configured one
+     *
+     * @param messageCache cache to keep messages written recently
+     */
+    FileMessageStoreImpl(AndesMessageCache messageCache) {
+        this.messageCache = messageCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DurableStoreConnection initializeMessageStore(AndesContextStore contextStore,
+            ConfigurationProperties connectionProperties) throws AndesException {
+
+        if (AndesContext.getInstance().isClusteringEnabled()) {
+            throw new AndesException("File based message store cannot be used when clustering is enabled. "
+                    + "Configure a shared RDBMS message store for clustered deployments");
+        }
+
+        connection = new FileStoreConnection();
+        connection.initialize(connectionProperties);
+        dataDirectory = connection.getConnection();
+
+        segmentSize = Math.min(MAX_SEGMENT_SIZE, readLongProperty(connectionProperties,
+                FileStoreConstants.PROP_SEGMENT_SIZE, FileStoreConstants.DEFAULT_SEGMENT_SIZE));
+        String configuredSync = connectionProperties.getProperty(FileStoreConstants.PROP_SYNC_ON_WRITE);
+        syncOnWrite = (null == configuredSync || configuredSync.isEmpty())
+                ? FileStoreConstants.DEFAULT_SYNC_ON_WRITE : Boolean.parseBoolean(configuredSync);
+        int compactionInterval = (int) readLongProperty(connectionProperties,
+                FileStoreConstants.PROP_COMPACTION_INTERVAL, FileStoreConstants.DEFAULT_COMPACTION_INTERVAL);
+
+        if (null == messageCache) {
+            // Cache is created by the kernel when it starts, so that the delivery path can pin messages in it
+            this.messageCache = AndesContext.getInstance().getMessageCache();
+        }
+        if (null == messageCache) {
+            this.messageCache = (new MessageCacheFactory()).create();
+        }
+
+        recover();
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("FileMessageStoreCompactionTask-%d").build();
+        compactionExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compactSegments();
+                } catch (Throwable e) {
+                    // Task should keep running even if a run fails
+                    log.error("Error occurred while compacting message store segments", e);
+                }
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+
+        log.info("File message store initialized at " + dataDirectory.getAbsolutePath() + " with "
+                + messages.size() + " messages in " + segments.size() + " segments");
+        return connection;
+    }
+
+    /**
+     * Read a numeric property falling back to the default value if not configured
+     *
+     * @param connectionProperties message store properties
+     * @param name                 property name
+     * @param defaultValue         default value
+     * @return property value
+     */
+    private long readLongProperty(ConfigurationProperties connectionProperties, String name, long defaultValue) {
+        String value = connectionProperties.getProperty(name);
+        if (null == value || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    /**
+     * Replay all segments in the data directory to rebuild the index. Incomplete records at the end of the last
+     * segment (i.e. a write interrupted by a crash) are discarded.
+     *
+     * @throws AndesException on a file system error
+     */
+    private void recover() throws AndesException {
+        File[] segmentFiles = dataDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(FileStoreConstants.SEGMENT_FILE_EXTENSION);
+            }
+        });
+
+        try {
+            if (null != segmentFiles) {
+                Arrays.sort(segmentFiles);
+                for (File segmentFile : segmentFiles) {
+                    LogSegment segment = LogSegment.open(segmentFile);
+                    segments.put(segment.getId(), segment);
+                }
+            }
+
+            synchronized (writeLock) {
+                for (LogSegment segment : segments.values()) {
+                    long validEnd = segment.recover(recordApplier);
+                    if (validEnd < segment.getSize()) {
+                        if (segment == segments.lastEntry().getValue()) {
+                            log.warn("Discarding " + (segment.getSize() - validEnd) + " bytes of incomplete "
+                                    + "records at the end of segment " + segment);
+                            segment.truncate(validEnd);
+                        } else {
+                            log.error("Records after position " + validEnd + " of segment " + segment
+                                    + " are corrupted and ignored");
+                        }
+                    }
+                }
+
+                Map.Entry<Long, LogSegment> lastEntry = segments.lastEntry();
+                for (LogSegment segment : segments.values()) {
+                    if (null == lastEntry || segment != lastEntry.getValue()) {
+                        segment.seal();
+                    }
+                }
+
+                if (null == lastEntry) {
+                    activeSegment = createSegment(0);
+                } else if (lastEntry.getValue().getSize() >= segmentSize) {
+                    lastEntry.getValue().seal();
+                    activeSegment = createSegment(lastEntry.getKey() + 1);
+                } else {
+                    activeSegment = lastEntry.getValue();
+                }
+            }
+        } catch (IOException e) {
+            throw new AndesException("Error occurred while recovering message store from "
+                    + dataDirectory.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Create a new segment and register it
+     *
+     * @param segmentId id of the segment
+     * @return created segment
+     * @throws IOException on a file system error
+     */
+    private LogSegment createSegment(long segmentId) throws IOException {
+        LogSegment segment = LogSegment.create(dataDirectory, segmentId);
+        segments.put(segmentId, segment);
+        return segment;
+    }
+
+    /**
+     * Append records to the active segment and apply them to the index. Must be called holding the write lock.
+     *
+     * @param records encoded records
+     * @throws AndesException on a file system error
+     */
+    private void appendRecords(LogRecordBuffer records) throws AndesException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            throw new AndesException("File message store is closed");
+        }
+
+        Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        try {
+            ByteBuffer buffer = records.flip();
+            if (activeSegment.getSize() > 0 && activeSegment.getSize() + buffer.remaining() > segmentSize) {
+                activeSegment.seal();
+                activeSegment = createSegment(activeSegment.getId() + 1);
+            }
+
+            long position = activeSegment.append(buffer.duplicate());
+            if (syncOnWrite) {
+                activeSegment.force();
+            }
+            activeSegment.visitAppended(buffer, position, recordApplier);
+        } catch (IOException e) {
+            throw new AndesException("Error occurred while writing to message store segment " + activeSegment, e);
+        } finally {
+            contextWrite.stop();
+        }
+    }
+
+    /**
+     * Delete segments which are not referred by any live message. Segment files are deleted outside the write lock
+     * so that writers are not blocked by readers of the deleted segments.
+     */
+    void compactSegments() {
+        List<LogSegment> segmentsToDelete = new ArrayList<>();
+        synchronized (writeLock) {
+            boolean segmentRemoved = true;
+            while (segmentRemoved) {
+                segmentRemoved = false;
+                for (LogSegment segment : segments.values()) {
+                    if (isSegmentRemovable(segment)) {
+                        segments.remove(segment.getId());
+                        segmentsToDelete.add(segment);
+                        segmentRemoved = true;
+                    }
+                }
+            }
+        }
+
+        if (segmentsToDelete.isEmpty()) {
+            return;
+        }
+
+        segmentFileLock.writeLock().lock();
+        try {
+            for (LogSegment segment : segmentsToDelete) {
+                if (!segment.delete()) {
+                    log.warn("Could not delete message store segment " + segment);
+                }
+            }
+        } finally {
+            segmentFileLock.writeLock().unlock();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Deleted " + segmentsToDelete.size() + " message store segments " + segmentsToDelete);
+        }
+    }
+
+    /**
+     * Check if a segment can be deleted. Must be called holding the write lock.
+     *
+     * @param segment segment to check
+     * @return true if the segment is sealed, not referred by any live message and all the segments its tombstones
+     * refer are deleted
+     */
+    private boolean isSegmentRemovable(LogSegment segment) {
+        if (segment == activeSegment || !segment.isSealed() || segment.getReferences() > 0) {
+            return false;
+        }
+        for (Long dependency : segment.getDependencies()) {
+            if (segments.containsKey(dependency)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read bytes at the given location
+     *
+     * @param location location within a segment
+     * @return bytes read. Null if the segment is already deleted
+     * @throws AndesException on a file system error
+     */
+    private byte[] read(MessageIndexEntry.Location location) throws AndesException {
+        Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
+        segmentFileLock.readLock().lock();
+        try {
+            LogSegment segment = segments.get(location.segmentId);
+            if (null == segment) {
+                return null;
+            }
+            return segment.read(location.position, location.length);
+        } catch (IOException e) {
+            throw new AndesException("Error occurred while reading from message store segment "
+                    + location.segmentId, e);
+        } finally {
+            segmentFileLock.readLock().unlock();
+            contextRead.stop();
+        }
+    }
+
+    /**
+     * Read metadata bytes of a message
+     *
+     * @param entry index entry of the message
+     * @return metadata bytes. Null if the message is deleted meanwhile
+     * @throws AndesException on a file system error
+     */
+    private byte[] readMetadata(MessageIndexEntry entry) throws AndesException {
+        MessageIndexEntry.Location location = entry.metadata;
+        return (null == location) ? null : read(location);
+    }
+
+    /**
+     * Read all content chunks of a message
+     *
+     * @param entry index entry of the message
+     * @return content chunks
+     * @throws AndesException on a file system error
+     */
+    private List<AndesMessagePart> readContent(MessageIndexEntry entry) throws AndesException {
+        List<AndesMessagePart> parts = new ArrayList<>();
+
+        MessageIndexEntry.Location contentLocation = entry.content;
+        if (null != contentLocation) {
+            byte[] content = read(contentLocation);
+            if (null != content) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                int partCount = buffer.getInt();
+                for (int i = 0; i < partCount; i++) {
+                    parts.add(readMessagePart(entry.messageId, buffer));
+                }
+            }
+        }
+
+        List<MessageIndexEntry.Location> separateParts = entry.separateParts;
+        if (null != separateParts) {
+            for (MessageIndexEntry.Location partLocation : separateParts) {
+                byte[] part = read(partLocation);
+                if (null != part) {
+                    ByteBuffer buffer = ByteBuffer.wrap(part);
+                    buffer.getLong();
+                    parts.add(readMessagePart(entry.messageId, buffer));
+                }
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Decode a content chunk written as [int offset][int length][bytes]
+     *
+     * @param messageId message id of the chunk
+     * @param buffer    buffer positioned at the chunk
+     * @return content chunk
+     */
+    private AndesMessagePart readMessagePart(long messageId, ByteBuffer buffer) {
+        int offset = buffer.getInt();
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+
+        AndesMessagePart messagePart = new AndesMessagePart();
+        messagePart.setMessageID(messageId);
+        messagePart.setOffSet(offset);
+        messagePart.setData(data);
+        messagePart.setDataLength(data.length);
+        return messagePart;
+    }
+
+    /**
+     * Encode a message record
+     *
+     * @param records buffer to write to
+     * @param message message to encode
+     */
+    private void encodeMessage(LogRecordBuffer records, AndesMessage message) {
+        AndesMessageMetadata metadata = message.getMetadata();
+        records.beginRecord(FileStoreConstants.RECORD_MESSAGE);
+        records.putLong(metadata.getMessageID());
+        records.putString(metadata.getStorageQueueName());
+        records.putLong(metadata.isExpirationDefined() ? metadata.getExpirationTime() : 0L);
+        records.putBytes(metadata.getMetadata());
+        encodeContent(records, message.getContentChunkList());
+        records.endRecord();
+    }
+
+    /**
+     * Encode content chunks as [int count] followed by [int offset][int length][bytes] for each chunk
+     *
+     * @param records buffer to write to
+     * @param parts   content chunks
+     */
+    private void encodeContent(LogRecordBuffer records, List<AndesMessagePart> parts) {
+        records.putInt(parts.size());
+        for (AndesMessagePart part : parts) {
+            records.putInt(part.getOffset());
+            records.putBytes(part.getData());
+        }
+    }
+
+    /**
+     * Encode a tombstone for a message
+     *
+     * @param records   buffer to write to
+     * @param messageId id of the deleted message
+     */
+    private void encodeDelete(LogRecordBuffer records, long messageId) {
+        records.beginRecord(FileStoreConstants.RECORD_DELETE);
+        records.putLong(messageId);
+        records.endRecord();
+    }
+
+    /**
+     * Encode an update of the queue and the metadata of a message
+     *
+     * @param records          buffer to write to
+     * @param messageId        id of the message
+     * @param storageQueueName new storage queue
+     * @param metadata         new metadata bytes
+     */
+    private void encodeUpdate(LogRecordBuffer records, long messageId, String storageQueueName, byte[] metadata) {
+        records.beginRecord(FileStoreConstants.RECORD_UPDATE);
+        records.putLong(messageId);
+        records.putString(storageQueueName);
+        records.putBytes(metadata);
+        records.endRecord();
+    }
+
+    /**
+     * Encode moving a message to DLC
+     *
+     * @param records            buffer to write to
+     * @param messageId          id of the message
+     * @param dlcQueueName       DLC queue
+     * @param expireMessageInDLC whether expiry is checked in DLC
+     */
+    private void encodeMoveToDLC(LogRecordBuffer records, long messageId, String dlcQueueName,
+            boolean expireMessageInDLC) {
+        records.beginRecord(FileStoreConstants.RECORD_MOVE_TO_DLC);
+        records.putLong(messageId);
+        records.putString(dlcQueueName);
+        records.putBoolean(expireMessageInDLC);
+        records.endRecord();
+    }
+
+    /**
+     * Encode an expiration time set after a message is stored
+     *
+     * @param records        buffer to write to
+     * @param messageId      id of the message
+     * @param expirationTime expiration time of the message
+     */
+    private void encodeExpiry(LogRecordBuffer records, long messageId, long expirationTime) {
+        records.beginRecord(FileStoreConstants.RECORD_EXPIRY);
+        records.putLong(messageId);
+        records.putLong(expirationTime);
+        records.endRecord();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessagePart(List<AndesMessagePart> partList) throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(1024);
+        for (AndesMessagePart part : partList) {
+            records.beginRecord(FileStoreConstants.RECORD_MESSAGE_PART);
+            records.putLong(part.getMessageID());
+            records.putInt(part.getOffset());
+            records.putBytes(part.getData());
+            records.endRecord();
+        }
+        synchronized (writeLock) {
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContent(long messageId, int offsetValue) throws AndesException {
+        AndesMessage cachedMessage = messageCache.getMessageFromCache(messageId);
+        List<AndesMessagePart> parts = null;
+        if (null != cachedMessage) {
+            parts = cachedMessage.getContentChunkList();
+        } else {
+            MessageIndexEntry entry = messages.get(messageId);
+            if (null != entry) {
+                parts = readContent(entry);
+            }
+        }
+
+        if (null != parts) {
+            for (AndesMessagePart part : parts) {
+                if (part.getOffset() == offsetValue) {
+                    return part;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList) throws AndesException {
+        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messageIDList.size());
+        messageCache.fillContentFromCache(messageIDList, contentList);
+
+        for (int i = 0; i < messageIDList.size(); i++) {
+            long messageId = messageIDList.get(i);
+            MessageIndexEntry entry = messages.get(messageId);
+            if (null != entry) {
+                List<AndesMessagePart> parts = readContent(entry);
+                if (!parts.isEmpty()) {
+                    contentList.put(messageId, parts);
+                }
+            }
+        }
+        return contentList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessages(List<AndesMessage> messageList) throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(messageList.size() * 1024);
+        for (AndesMessage message : messageList) {
+            encodeMessage(records, message);
+        }
+
+        synchronized (writeLock) {
+            appendRecords(records);
+        }
+
+        for (AndesMessage message : messageList) {
+            messageCache.addToCache(message);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToQueue(long messageId, String currentQueueName, String targetQueueName)
+            throws AndesException {
+        synchronized (writeLock) {
+            MessageIndexEntry entry = messages.get(messageId);
+            if (null == entry || !currentQueueName.equals(entry.storageQueueName)) {
+                return;
+            }
+            byte[] metadata = readMetadata(entry);
+            if (null == metadata) {
+                return;
+            }
+            LogRecordBuffer records = new LogRecordBuffer(metadata.length + 128);
+            encodeUpdate(records, messageId, targetQueueName, metadata);
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(long messageId, String dlcQueueName, boolean expireMessageInDLC)
+            throws AndesException {
+        messageCache.removeFromCache(messageId);
+
+        LogRecordBuffer records = new LogRecordBuffer(128);
+        encodeMoveToDLC(records, messageId, dlcQueueName, expireMessageInDLC);
+        synchronized (writeLock) {
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(List<AndesMessageMetadata> messages, String dlcQueueName,
+            boolean expireMessageInDLC) throws AndesException {
+        LongArrayList messageIDsToRemoveFromCache = new LongArrayList(messages.size());
+        LogRecordBuffer records = new LogRecordBuffer(messages.size() * 64);
+        for (AndesMessageMetadata message : messages) {
+            messageIDsToRemoveFromCache.add(message.getMessageID());
+            encodeMoveToDLC(records, message.getMessageID(), dlcQueueName, expireMessageInDLC);
+        }
+        messageCache.removeFromCache(messageIDsToRemoveFromCache);
+
+        synchronized (writeLock) {
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMetadataInformation(String currentQueueName, List<AndesMessageMetadata> metadataList)
+            throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(metadataList.size() * 512);
+        synchronized (writeLock) {
+            for (AndesMessageMetadata metadata : metadataList) {
+                MessageIndexEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry && currentQueueName.equals(entry.storageQueueName)) {
+                    encodeUpdate(records, metadata.getMessageID(), metadata.getStorageQueueName(),
+                            metadata.getMetadata());
+                }
+            }
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessageMetadata getMetadata(long messageId) throws AndesException {
+        AndesMessage cachedMessage = messageCache.getMessageFromCache(messageId);
+        if (null != cachedMessage) {
+            return cachedMessage.getMetadata();
+        }
+
+        MessageIndexEntry entry = messages.get(messageId);
+        if (null == entry) {
+            return null;
+        }
+        byte[] metadata = readMetadata(entry);
+        return (null == metadata) ? null : new AndesMessageMetadata(messageId, metadata, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getMetadataList(Slot slot, String storageQueueName, long firstMsgId,
+            long lastMsgID) throws AndesException {
+        MetadataListCollector<DeliverableAndesMetadata> collector = new MetadataListCollector<>();
+        streamMetadataList(slot, storageQueueName, firstMsgId, lastMsgID, collector);
+
+        if (log.isDebugEnabled()) {
+            log.debug("request: metadata range (" + firstMsgId + " , " + lastMsgID + ") in destination queue "
+                    + storageQueueName + ", response: metadata count " + collector.getMetadataList().size());
+        }
+        return collector.getMetadataList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamMetadataList(Slot slot, String storageQueueName, long firstMsgId, long lastMsgID,
+            MetadataConsumer<DeliverableAndesMetadata> consumer) throws AndesException {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+        if (null == queue) {
+            return;
+        }
+
+        Context metaListRetrievalContext = MetricManager.timer(MetricsConstants.GET_META_DATA_LIST, Level.INFO)
+                .start();
+        try {
+            for (MessageIndexEntry entry : queue.subMap(firstMsgId, true, lastMsgID, true).values()) {
+                byte[] metadata = readMetadata(entry);
+                if (null != metadata) {
+                    DeliverableAndesMetadata md = new DeliverableAndesMetadata(slot, entry.messageId, metadata, true);
+                    md.setStorageQueueName(storageQueueName);
+                    //Tracing message
+                    MessageTracer.trace(md, MessageTracer.METADATA_READ_FROM_DB + " slot = " + slot.getId());
+                    if (!consumer.consume(md)) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            metaListRetrievalContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInRange(String storageQueueName, long firstMessageId, long lastMessageId)
+            throws AndesException {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+        if (null == queue) {
+            return 0;
+        }
+        return queue.subMap(firstMessageId, true, lastMessageId, true).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId,
+            int count) throws AndesException {
+        MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>(count);
+        streamNextNMessageMetadataFromQueue(storageQueueName, firstMsgId, count, collector);
+        return collector.getMetadataList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        readMetadataFrom(queueIndex.get(storageQueueName), null, storageQueueName, firstMsgId, count, consumer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongArrayList getNextNMessageIdsFromQueue(String storageQueueName, long firstMsgId, int count)
+            throws AndesException {
+        LongArrayList messageIds = new LongArrayList(count);
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+        if (null != queue) {
+            for (Long messageId : queue.tailMap(firstMsgId, true).keySet()) {
+                if (messageIds.size() == count) {
+                    break;
+                }
+                messageIds.add(messageId);
+            }
+        }
+        return messageIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataForQueueFromDLC(String storageQueueName,
+            String dlcQueueName, long firstMsgId, int count) throws AndesException {
+        MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>(count);
+        readMetadataFrom(dlcIndex.get(dlcQueueName), storageQueueName, storageQueueName, firstMsgId, count,
+                collector);
+        return collector.getMetadataList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count)
+            throws AndesException {
+        MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>(count);
+        streamNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count, collector);
+        return collector.getMetadataList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        readMetadataFrom(dlcIndex.get(dlcQueueName), null, dlcQueueName, firstMsgId, count, consumer);
+    }
+
+    /**
+     * Read metadata of the messages of an index starting from the given message id
+     *
+     * @param index               queue or DLC index to read
+     * @param storageQueueFilter  if not null only the messages of this storage queue are read
+     * @param queueNameToSet      storage queue name set to the read metadata
+     * @param firstMsgId          first message id
+     * @param count               maximum number of messages to read
+     * @param consumer            consumer receiving the metadata
+     * @throws AndesException on a file system error
+     */
+    private void readMetadataFrom(ConcurrentSkipListMap<Long, MessageIndexEntry> index, String storageQueueFilter,
+            String queueNameToSet, long firstMsgId, int count, MetadataConsumer<AndesMessageMetadata> consumer)
+            throws AndesException {
+        if (null == index) {
+            return;
+        }
+
+        int readCount = 0;
+        for (MessageIndexEntry entry : index.tailMap(firstMsgId, true).values()) {
+            if (readCount == count) {
+                break;
+            }
+            if (null != storageQueueFilter && !storageQueueFilter.equals(entry.storageQueueName)) {
+                continue;
+            }
+            byte[] metadata = readMetadata(entry);
+            if (null != metadata) {
+                AndesMessageMetadata md = new AndesMessageMetadata(entry.messageId, metadata, true);
+                md.setStorageQueueName(queueNameToSet);
+                readCount++;
+                if (!consumer.consume(md)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessageMetadataFromQueue(String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(messagesToRemove.size() * 32);
+        synchronized (writeLock) {
+            for (AndesMessageMetadata metadata : messagesToRemove) {
+                MessageIndexEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry && storageQueueName.equals(entry.storageQueueName)) {
+                    encodeDelete(records, metadata.getMessageID());
+                }
+            }
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+        LongArrayList messageIds = new LongArrayList(messagesToRemove.size());
+        for (AndesMessageMetadata metadata : messagesToRemove) {
+            messageIds.add(metadata.getMessageID());
+        }
+        deleteMessages(messageIds);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Metadata and content removed: " + messagesToRemove.size() + " for destination queue:"
+                    + storageQueueName);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
+        LongArrayList messageIds = new LongArrayList(messagesToRemove.size());
+        for (Long messageId : messagesToRemove) {
+            messageIds.add(messageId);
+        }
+        deleteMessages(messageIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Deletes are appended as tombstones to the log. Hence the messages are deleted by their ids
+     */
+    @Override
+    public boolean deleteMessagesInRange(String storageQueueName, long firstMsgId, long lastMsgId,
+                                         LongArrayList messageIDs) throws AndesException {
+        deleteMessages(messageIDs);
+        return true;
+    }
+
+    /**
+     * Write tombstones for the given messages and remove them from the cache
+     *
+     * @param messageIds ids of messages to delete
+     * @throws AndesException on a file system error
+     */
+    private void deleteMessages(LongArrayList messageIds) throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(messageIds.size() * 32);
+        for (int i = 0; i < messageIds.size(); i++) {
+            encodeDelete(records, messageIds.get(i));
+        }
+        messageCache.removeFromCache(messageIds);
+
+        synchronized (writeLock) {
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(messagesToRemove.size() * 32);
+        synchronized (writeLock) {
+            for (AndesMessageMetadata metadata : messagesToRemove) {
+                MessageIndexEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry && entry.isInDLC()) {
+                    encodeDelete(records, metadata.getMessageID());
+                }
+            }
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessages(long lowerBoundMessageID, String queueName) throws AndesException {
+        List<Long> expiredMessages = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (MessageIndexEntry entry : expiringMessages.values()) {
+            if (entry.expirationTime < now && entry.messageId >= lowerBoundMessageID
+                    && queueName.equals(entry.storageQueueName)) {
+                expiredMessages.add(entry.messageId);
+            }
+        }
+        return expiredMessages;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessagesFromDLC() throws AndesException {
+        List<Long> expiredMessages = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (MessageIndexEntry entry : expiringMessages.values()) {
+            if (entry.expirationTime < now && entry.isInDLC() && entry.expireInDLC) {
+                expiredMessages.add(entry.messageId);
+            }
+        }
+        return expiredMessages;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, LongLongHashMap> getMessageExpirationTimes() throws AndesException {
+        Map<String, LongLongHashMap> expirationTimes = new HashMap<>();
+        for (MessageIndexEntry entry : expiringMessages.values()) {
+            if (!entry.isInDLC()) {
+                LongLongHashMap expirationTimesOfQueue = expirationTimes.get(entry.storageQueueName);
+                if (null == expirationTimesOfQueue) {
+                    expirationTimesOfQueue = new LongLongHashMap();
+                    expirationTimes.put(entry.storageQueueName, expirationTimesOfQueue);
+                }
+                expirationTimesOfQueue.put(entry.messageId, entry.expirationTime);
+            }
+        }
+        return expirationTimes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageToExpiryQueue(Long messageId, Long expirationTime, boolean isMessageForTopic,
+            String destination) throws AndesException {
+        // Expiration time known when the message is stored is written with the message record. This records an
+        // expiration time set afterwards
+        LogRecordBuffer records = new LogRecordBuffer(64);
+        encodeExpiry(records, messageId, expirationTime);
+        synchronized (writeLock) {
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteAllMessageMetadata(String storageQueueName) throws AndesException {
+        synchronized (writeLock) {
+            int messageCount = 0;
+            for (MessageIndexEntry entry : messages.values()) {
+                if (storageQueueName.equals(entry.storageQueueName)) {
+                    messageCount++;
+                }
+            }
+
+            LogRecordBuffer records = new LogRecordBuffer(128);
+            records.beginRecord(FileStoreConstants.RECORD_CLEAR_QUEUE);
+            records.putString(storageQueueName);
+            records.endRecord();
+            appendRecords(records);
+
+            if (log.isDebugEnabled()) {
+                log.debug("DELETED all message metadata from " + storageQueueName);
+            }
+            return messageCount;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int clearDLCQueue(String dlcQueueName) throws AndesException {
+        synchronized (writeLock) {
+            ConcurrentSkipListMap<Long, MessageIndexEntry> dlcQueue = dlcIndex.get(dlcQueueName);
+            int messageCount = (null == dlcQueue) ? 0 : dlcQueue.size();
+
+            LogRecordBuffer records = new LogRecordBuffer(128);
+            records.beginRecord(FileStoreConstants.RECORD_CLEAR_DLC_QUEUE);
+            records.putString(dlcQueueName);
+            records.endRecord();
+            appendRecords(records);
+
+            if (log.isDebugEnabled()) {
+                log.debug("DELETED all message metadata for dlc queue " + dlcQueueName);
+            }
+            return messageCount;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongArrayList getMessageIDsAddressedToQueue(String storageQueueName, Long startMessageID)
+            throws AndesException {
+        LongArrayList messageIds = new LongArrayList();
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+        if (null != queue) {
+            for (Long messageId : queue.tailMap(startMessageID, true).keySet()) {
+                messageIds.add(messageId);
+            }
+        }
+        return messageIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addQueue(String storageQueueName) throws AndesException {
+        getQueue(queueIndex, storageQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getMessageCountForAllQueues(List<String> queueNames) throws AndesException {
+        Map<String, Integer> queueMessageCountForName = new HashMap<>();
+        for (String queueName : queueNames) {
+            ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(queueName);
+            if (null != queue && !DLCQueueUtils.isDeadLetterQueue(queueName)) {
+                queueMessageCountForName.put(queueName, queue.size());
+            }
+        }
+        return queueMessageCountForName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueue(String storageQueueName) throws AndesException {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+        return (null == queue) ? 0 : queue.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInDLC(String storageQueueName, String dlcQueueName) throws AndesException {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> dlcQueue = dlcIndex.get(dlcQueueName);
+        long messageCount = 0;
+        if (null != dlcQueue) {
+            for (MessageIndexEntry entry : dlcQueue.values()) {
+                if (storageQueueName.equals(entry.storageQueueName)) {
+                    messageCount++;
+                }
+            }
+        }
+        return messageCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForDLCQueue(String dlcQueueName) throws AndesException {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> dlcQueue = dlcIndex.get(dlcQueueName);
+        return (null == dlcQueue) ? 0 : dlcQueue.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
+        // Message count is taken from the index itself. No need to implement this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeQueue(String storageQueueName) throws AndesException {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+        if (null != queue && queue.isEmpty()) {
+            queueIndex.remove(storageQueueName, queue);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeLocalQueueData(String storageQueueName) {
+        // No queue data is cached apart from the index
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementMessageCountForQueue(String storageQueueName, long incrementBy) throws AndesException {
+        // Message count is taken from the index itself. No need to implement this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrementMessageCountForQueue(String storageQueueName, long decrementBy) throws AndesException {
+        // Message count is taken from the index itself. No need to implement this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> drainMessageCountChanges() {
+        // Message count is taken from the index of each node. Nothing to publish
+        return Collections.emptyMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyMessageCountChanges(Map<String, Long> messageCountChanges) {
+        // Message count is taken from the index itself. No need to implement this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cacheMessageContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+        LongObjectHashMap<AndesMessageMetadata> metadataMap = new LongObjectHashMap<>(metadataList.size());
+        LongArrayList messageIDList = new LongArrayList(metadataList.size());
+        for (AndesMessageMetadata metadata : metadataList) {
+            if (metadata.getMessageContentLength() > 0 && !messageCache.isInCache(metadata.getMessageID())) {
+                metadataMap.put(metadata.getMessageID(), metadata);
+                messageIDList.add(metadata.getMessageID());
+            }
+        }
+
+        for (int i = 0; i < messageIDList.size(); i++) {
+            long messageId = messageIDList.get(i);
+            MessageIndexEntry entry = messages.get(messageId);
+            if (null != entry) {
+                List<AndesMessagePart> parts = readContent(entry);
+                if (!parts.isEmpty()) {
+                    AndesMessage message = new AndesMessage(metadataMap.get(messageId));
+                    message.setChunkList(parts);
+                    messageCache.addToCache(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeRetainedMessages(Map<String, AndesMessage> retainMap) throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(retainMap.size() * 1024);
+        synchronized (writeLock) {
+            for (AndesMessage message : retainMap.values()) {
+                AndesMessageMetadata metadata = message.getMetadata();
+                String destination = metadata.getDestination();
+
+                // Retained message with an empty payload removes the retained message of the topic
+                boolean emptyPayload = message.getContentChunkList().isEmpty()
+                        || message.getContentChunkList().get(0).getDataLength() == 0;
+
+                if (emptyPayload) {
+                    if (retainedMessages.containsKey(destination)) {
+                        records.beginRecord(FileStoreConstants.RECORD_RETAIN_DELETE);
+                        records.putString(destination);
+                        records.endRecord();
+                    }
+                } else {
+                    records.beginRecord(FileStoreConstants.RECORD_RETAIN);
+                    records.putString(destination);
+                    records.putLong(metadata.getMessageID());
+                    records.putBytes(metadata.getMetadata());
+                    encodeContent(records, message.getContentChunkList());
+                    records.endRecord();
+                }
+            }
+            appendRecords(records);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllRetainedTopics() throws AndesException {
+        return new ArrayList<>(retainedMessages.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, AndesMessagePart> getRetainedContentParts(long messageID) throws AndesException {
+        Map<Integer, AndesMessagePart> contentParts = new HashMap<>();
+        MessageIndexEntry entry = retainedMessagesById.get(messageID);
+        if (null != entry) {
+            for (AndesMessagePart part : readContent(entry)) {
+                contentParts.put(part.getOffset(), part);
+            }
+        }
+        return contentParts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeliverableAndesMetadata getRetainedMetadata(String destination) throws AndesException {
+        MessageIndexEntry entry = retainedMessages.get(destination);
+        if (null == entry) {
+            return null;
+        }
+        byte[] metadata = readMetadata(entry);
+        return (null == metadata) ? null : new DeliverableAndesMetadata(null, entry.messageId, metadata, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isContentSharingEnabled() {
+        // Content is written with each message
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (null != compactionExecutor) {
+            compactionExecutor.shutdownNow();
+        }
+        synchronized (writeLock) {
+            try {
+                if (null != activeSegment && activeSegment.isOpen()) {
+                    activeSegment.force();
+                }
+            } catch (IOException e) {
+                log.error("Error occurred while flushing message store segment " + activeSegment, e);
+            }
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} Store is operational as long as the active segment is writable.
+     */
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        LogSegment segment = activeSegment;
+        return !closed && null != segment && segment.isOpen() && dataDirectory.canWrite();
+    }
+
+    /**
+     * Get the index of a queue creating it if absent
+     *
+     * @param index     queue or DLC index
+     * @param queueName name of the queue
+     * @return index of the queue
+     */
+    private static ConcurrentSkipListMap<Long, MessageIndexEntry> getQueue(
+            ConcurrentHashMap<String, ConcurrentSkipListMap<Long, MessageIndexEntry>> index, String queueName) {
+        ConcurrentSkipListMap<Long, MessageIndexEntry> queue = index.get(queueName);
+        if (null == queue) {
+            queue = new ConcurrentSkipListMap<>();
+            ConcurrentSkipListMap<Long, MessageIndexEntry> existing = index.putIfAbsent(queueName, queue);
+            if (null != existing) {
+                queue = existing;
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Applies records to the index and keeps track of segment references. Used when recovering segments and after
+     * appending records. Always called holding the write lock.
+     */
+    private class RecordApplier implements LogSegment.RecordVisitor {
+
+        @Override
+        public void visit(LogSegment segment, byte type, ByteBuffer payload, long payloadPosition)
+                throws AndesException {
+            switch (type) {
+                case FileStoreConstants.RECORD_MESSAGE:
+                    applyMessage(segment, payload, payloadPosition);
+                    break;
+                case FileStoreConstants.RECORD_DELETE:
+                    removeMessage(segment, messages.get(payload.getLong()));
+                    break;
+                case FileStoreConstants.RECORD_UPDATE:
+                    applyUpdate(segment, payload, payloadPosition);
+                    break;
+                case FileStoreConstants.RECORD_MOVE_TO_DLC:
+                    applyMoveToDLC(segment, payload, payloadPosition);
+                    break;
+                case FileStoreConstants.RECORD_CLEAR_QUEUE:
+                    applyClearQueue(segment, LogRecordBuffer.getString(payload));
+                    break;
+                case FileStoreConstants.RECORD_CLEAR_DLC_QUEUE:
+                    applyClearDLCQueue(segment, LogRecordBuffer.getString(payload));
+                    break;
+                case FileStoreConstants.RECORD_MESSAGE_PART:
+                    applyMessagePart(segment, payload, payloadPosition);
+                    break;
+                case FileStoreConstants.RECORD_RETAIN:
+                    applyRetain(segment, payload, payloadPosition);
+                    break;
+                case FileStoreConstants.RECORD_RETAIN_DELETE:
+                    applyRetainDelete(segment, LogRecordBuffer.getString(payload));
+                    break;
+                case FileStoreConstants.RECORD_EXPIRY:
+                    applyExpiry(segment, payload, payloadPosition);
+                    break;
+                default:
+                    log.warn("Ignoring unknown record type " + type + " in segment " + segment);
+            }
+        }
+
+        private void applyMessage(LogSegment segment, ByteBuffer payload, long payloadPosition) {
+            long messageId = payload.getLong();
+            String storageQueueName = LogRecordBuffer.getString(payload);
+            long expirationTime = payload.getLong();
+            int metadataLength = payload.getInt();
+            MessageIndexEntry.Location metadata =
+                    new MessageIndexEntry.Location(segment.getId(), payloadPosition + payload.position(),
+                            metadataLength);
+            payload.position(payload.position() + metadataLength);
+            MessageIndexEntry.Location content =
+                    new MessageIndexEntry.Location(segment.getId(), payloadPosition + payload.position(),
+                            payload.remaining());
+
+            MessageIndexEntry existing = messages.get(messageId);
+            if (null != existing) {
+                // Message is written again with the same id. Latest record wins
+                removeMessage(segment, existing);
+            }
+
+            MessageIndexEntry entry = new MessageIndexEntry(messageId);
+            entry.storageQueueName = storageQueueName;
+            entry.expirationTime = expirationTime;
+            entry.metadata = metadata;
+            entry.content = content;
+            segment.addReference();
+            segment.addReference();
+
+            messages.put(messageId, entry);
+            index(entry);
+        }
+
+        private void applyUpdate(LogSegment segment, ByteBuffer payload, long payloadPosition) {
+            MessageIndexEntry entry = messages.get(payload.getLong());
+            String storageQueueName = LogRecordBuffer.getString(payload);
+            int metadataLength = payload.getInt();
+            if (null == entry) {
+                return;
+            }
+
+            unIndex(entry);
+            release(entry.metadata);
+            entry.metadata = new MessageIndexEntry.Location(segment.getId(), payloadPosition + payload.position(),
+                    metadataLength);
+            segment.addReference();
+            entry.storageQueueName = storageQueueName;
+            index(entry);
+        }
+
+        private void applyMoveToDLC(LogSegment segment, ByteBuffer payload, long payloadPosition) {
+            MessageIndexEntry entry = messages.get(payload.getLong());
+            String dlcQueueName = LogRecordBuffer.getString(payload);
+            boolean expireInDLC = payload.get() != 0;
+            if (null == entry) {
+                return;
+            }
+
+            unIndex(entry);
+            if (null != entry.dlcRecord) {
+                release(entry.dlcRecord);
+            }
+            entry.dlcRecord = new MessageIndexEntry.Location(segment.getId(), payloadPosition, payload.limit());
+            segment.addReference();
+            entry.dlcQueueName = dlcQueueName;
+            entry.expireInDLC = expireInDLC;
+            index(entry);
+        }
+
+        private void applyExpiry(LogSegment segment, ByteBuffer payload, long payloadPosition) {
+            MessageIndexEntry entry = messages.get(payload.getLong());
+            long expirationTime = payload.getLong();
+            if (null == entry) {
+                return;
+            }
+
+            unIndex(entry);
+            if (null != entry.expiryRecord) {
+                release(entry.expiryRecord);
+            }
+            // Record is referred so that its segment is kept while the message is live
+            entry.expiryRecord = new MessageIndexEntry.Location(segment.getId(), payloadPosition, payload.limit());
+            segment.addReference();
+            entry.expirationTime = expirationTime;
+            index(entry);
+        }
+
+        private void applyClearQueue(LogSegment segment, String storageQueueName) {
+            List<MessageIndexEntry> entriesToRemove = new ArrayList<>();
+            ConcurrentSkipListMap<Long, MessageIndexEntry> queue = queueIndex.get(storageQueueName);
+            if (null != queue) {
+                entriesToRemove.addAll(queue.values());
+            }
+            // Messages of the queue moved to DLC are removed as well
+            for (ConcurrentSkipListMap<Long, MessageIndexEntry> dlcQueue : dlcIndex.values()) {
+                for (MessageIndexEntry entry : dlcQueue.values()) {
+                    if (storageQueueName.equals(entry.storageQueueName)) {
+                        entriesToRemove.add(entry);
+                    }
+                }
+            }
+            for (MessageIndexEntry entry : entriesToRemove) {
+                removeMessage(segment, entry);
+            }
+        }
+
+        private void applyClearDLCQueue(LogSegment segment, String dlcQueueName) {
+            ConcurrentSkipListMap<Long, MessageIndexEntry> dlcQueue = dlcIndex.get(dlcQueueName);
+            if (null != dlcQueue) {
+                for (MessageIndexEntry entry : new ArrayList<>(dlcQueue.values())) {
+                    removeMessage(segment, entry);
+                }
+            }
+        }
+
+        private void applyMessagePart(LogSegment segment, ByteBuffer payload, long payloadPosition) {
+            MessageIndexEntry entry = messages.get(payload.getLong());
+            if (null == entry) {
+                // Content of unknown messages is not kept
+                return;
+            }
+            entry.addSeparatePart(new MessageIndexEntry.Location(segment.getId(), payloadPosition, payload.limit()));
+            segment.addReference();
+        }
+
+        private void applyRetain(LogSegment segment, ByteBuffer payload, long payloadPosition) {
+            String destination = LogRecordBuffer.getString(payload);
+            long messageId = payload.getLong();
+            int metadataLength = payload.getInt();
+            MessageIndexEntry entry = new MessageIndexEntry(messageId);
+            entry.storageQueueName = destination;
+            entry.metadata = new MessageIndexEntry.Location(segment.getId(), payloadPosition + payload.position(),
+                    metadataLength);
+            payload.position(payload.position() + metadataLength);
+            entry.content = new MessageIndexEntry.Location(segment.getId(), payloadPosition + payload.position(),
+                    payload.remaining());
+            segment.addReference();
+            segment.addReference();
+
+            // A newer retained message replaces the older one on recovery as well, hence no tombstone dependency
+            MessageIndexEntry replaced = retainedMessages.put(destination, entry);
+            if (null != replaced) {
+                retainedMessagesById.remove(replaced.messageId);
+                for (MessageIndexEntry.Location location : replaced.getLocations()) {
+                    release(location);
+                }
+            }
+            retainedMessagesById.put(messageId, entry);
+        }
+
+        private void applyRetainDelete(LogSegment segment, String destination) {
+            MessageIndexEntry removed = retainedMessages.remove(destination);
+            if (null != removed) {
+                retainedMessagesById.remove(removed.messageId);
+                for (MessageIndexEntry.Location location : removed.getLocations()) {
+                    segment.addDependency(location.segmentId);
+                    release(location);
+                }
+            }
+        }
+
+        /**
+         * Remove a message by a tombstone written to the given segment
+         *
+         * @param segment segment of the tombstone
+         * @param entry   message to remove. Ignored if null
+         */
+        private void removeMessage(LogSegment segment, MessageIndexEntry entry) {
+            if (null == entry) {
+                return;
+            }
+            messages.remove(entry.messageId, entry);
+            unIndex(entry);
+            for (MessageIndexEntry.Location location : entry.getLocations()) {
+                segment.addDependency(location.segmentId);
+                release(location);
+            }
+        }
+
+        private void index(MessageIndexEntry entry) {
+            if (entry.isInDLC()) {
+                getQueue(dlcIndex, entry.dlcQueueName).put(entry.messageId, entry);
+            } else {
+                getQueue(queueIndex, entry.storageQueueName).put(entry.messageId, entry);
+            }
+            if (entry.expirationTime > 0) {
+                expiringMessages.put(entry.messageId, entry);
+            }
+        }
+
+        private void unIndex(MessageIndexEntry entry) {
+            ConcurrentNavigableMap<Long, MessageIndexEntry> queue = entry.isInDLC()
+                    ? dlcIndex.get(entry.dlcQueueName) : queueIndex.get(entry.storageQueueName);
+            if (null != queue) {
+                queue.remove(entry.messageId, entry);
+            }
+            expiringMessages.remove(entry.messageId, entry);
+        }
+
+        private void release(MessageIndexEntry.Location location) {
+            LogSegment segment = segments.get(location.segmentId);
+            if (null != segment) {
+                segment.releaseReference();
+            }
+        }
+    }
+}
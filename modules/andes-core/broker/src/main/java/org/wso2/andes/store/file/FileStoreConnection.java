@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.carbon.utils.ServerConstants;
+
+import java.io.File;
+
+/**
+ * Durable store connection of the file based message store. The connection is the data directory segment files
+ * are written to.
+ */
+public class FileStoreConnection extends DurableStoreConnection {
+
+    private File dataDirectory;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(ConfigurationProperties connectionProperties) throws AndesException {
+        super.initialize(connectionProperties);
+
+        String configuredDirectory = connectionProperties.getProperty(FileStoreConstants.PROP_DATA_DIRECTORY);
+        if (null != configuredDirectory && !configuredDirectory.isEmpty()) {
+            dataDirectory = new File(configuredDirectory);
+        } else {
+            dataDirectory = new File(System.getProperty(ServerConstants.CARBON_HOME, "."),
+                    FileStoreConstants.DEFAULT_DATA_DIRECTORY);
+        }
+
+        if (!dataDirectory.isDirectory() && !dataDirectory.mkdirs()) {
+            throw new AndesException("Cannot create message store data directory "
+                    + dataDirectory.getAbsolutePath());
+        }
+        if (!dataDirectory.canWrite()) {
+            throw new AndesException("Message store data directory " + dataDirectory.getAbsolutePath()
+                    + " is not writable");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        // Segment files are closed by the message store
+    }
+
+    /**
+     * Get the data directory
+     *
+     * @return data directory
+     */
+    @Override
+    public File getConnection() {
+        return dataDirectory;
+    }
+}
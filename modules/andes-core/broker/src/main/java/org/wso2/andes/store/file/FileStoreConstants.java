@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+/**
+ * Contains property names, defaults and record types used by the file based message store
+ */
+public class FileStoreConstants {
+
+    /**
+     * Configuration name of the directory segment files are written to.
+     * <p>
+     * configuration is configured in broker.xml,
+     * <ul>
+     * <li>persistence/messageStore/</li>
+     * </ul>
+     * </p>
+     */
+    protected static final String PROP_DATA_DIRECTORY = "dataDirectory";
+
+    /**
+     * Configuration name of the size in bytes after which a new segment file is started
+     */
+    protected static final String PROP_SEGMENT_SIZE = "segmentSize";
+
+    /**
+     * Configuration name used to enable forcing written records to the disk before returning from a write
+     */
+    protected static final String PROP_SYNC_ON_WRITE = "syncOnWrite";
+
+    /**
+     * Configuration name of the interval in seconds in between runs of the segment compaction task
+     */
+    protected static final String PROP_COMPACTION_INTERVAL = "compactionInterval";
+
+    /**
+     * Data directory relative to the carbon home used if not configured
+     */
+    protected static final String DEFAULT_DATA_DIRECTORY = "repository/data/andes-message-store";
+
+    protected static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    protected static final boolean DEFAULT_SYNC_ON_WRITE = true;
+
+    protected static final int DEFAULT_COMPACTION_INTERVAL = 30;
+
+    /**
+     * File name extension of segment files
+     */
+    protected static final String SEGMENT_FILE_EXTENSION = ".log";
+
+    // Record types written to the segments
+    /**
+     * Metadata and content of a message stored to a queue
+     */
+    protected static final byte RECORD_MESSAGE = 1;
+
+    /**
+     * Tombstone of a deleted message
+     */
+    protected static final byte RECORD_DELETE = 2;
+
+    /**
+     * Metadata and queue of a message after an update
+     */
+    protected static final byte RECORD_UPDATE = 3;
+
+    /**
+     * Dead letter channel a message is moved to
+     */
+    protected static final byte RECORD_MOVE_TO_DLC = 4;
+
+    /**
+     * Removal of all messages of a queue
+     */
+    protected static final byte RECORD_CLEAR_QUEUE = 5;
+
+    /**
+     * Removal of all messages of a dead letter channel queue
+     */
+    protected static final byte RECORD_CLEAR_DLC_QUEUE = 6;
+
+    /**
+     * A content chunk stored separately from the message
+     */
+    protected static final byte RECORD_MESSAGE_PART = 7;
+
+    /**
+     * Retained message of a topic
+     */
+    protected static final byte RECORD_RETAIN = 8;
+
+    /**
+     * Removal of the retained message of a topic
+     */
+    protected static final byte RECORD_RETAIN_DELETE = 9;
+
+    // Record types written to the message journal
+    /**
+     * Message accepted by the journal. Written along with all its copies and content
+     */
+    protected static final byte RECORD_JOURNALED_MESSAGE = 10;
+
+    /**
+     * Position up to which journaled messages are written to the message store
+     */
+    protected static final byte RECORD_CHECKPOINT = 11;
+
+    /**
+     * Expiration time of a message set after it is stored
+     */
+    protected static final byte RECORD_EXPIRY = 12;
+
+    /**
+     * Prevent instantiation
+     */
+    private FileStoreConstants() {
+    }
+}
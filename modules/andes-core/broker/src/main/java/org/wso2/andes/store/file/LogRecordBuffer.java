@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes a batch of records to be appended to a {@link LogSegment} with a single write.
+ * <p>
+ * Each record is framed as [int length][byte type][payload][int crc]. Length covers the type and the payload and
+ * crc is calculated over the type and the payload. A record is started with {@link #beginRecord(byte)} and
+ * completed with {@link #endRecord()}.
+ */
+class LogRecordBuffer {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Number of bytes written in front of the payload of a record (length and type)
+     */
+    static final int RECORD_HEADER_SIZE = 5;
+
+    /**
+     * Number of bytes written after the payload of a record (crc)
+     */
+    static final int RECORD_TRAILER_SIZE = 4;
+
+    private ByteBuffer buffer;
+
+    /**
+     * Position of the record being written. -1 if no record is in progress
+     */
+    private int recordStart = -1;
+
+    private final CRC32 crc = new CRC32();
+
+    LogRecordBuffer(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Start writing a record
+     *
+     * @param type record type
+     * @return position of the record within the buffer
+     */
+    int beginRecord(byte type) {
+        if (recordStart != -1) {
+            throw new IllegalStateException("Record at " + recordStart + " is not completed");
+        }
+        ensureCapacity(RECORD_HEADER_SIZE);
+        recordStart = buffer.position();
+        buffer.putInt(0);
+        buffer.put(type);
+        return recordStart;
+    }
+
+    /**
+     * Complete the record being written by filling the length and the crc
+     */
+    void endRecord() {
+        int length = buffer.position() - recordStart - 4;
+        buffer.putInt(recordStart, length);
+
+        crc.reset();
+        crc.update(buffer.array(), recordStart + 4, length);
+        ensureCapacity(RECORD_TRAILER_SIZE);
+        buffer.putInt((int) crc.getValue());
+        recordStart = -1;
+    }
+
+    void putLong(long value) {
+        ensureCapacity(8);
+        buffer.putLong(value);
+    }
+
+    void putInt(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    void putBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Write a string as [short length][UTF-8 bytes]. Null is written as an empty string
+     *
+     * @param value string to write
+     */
+    void putString(String value) {
+        byte[] bytes = (null == value) ? new byte[0] : value.getBytes(UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String of length " + bytes.length + " is too long to be written");
+        }
+        ensureCapacity(2 + bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Write a byte array as [int length][bytes]
+     *
+     * @param bytes bytes to write
+     * @return position of the bytes (after the length) within the buffer
+     */
+    int putBytes(byte[] bytes) {
+        ensureCapacity(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        int position = buffer.position();
+        buffer.put(bytes);
+        return position;
+    }
+
+    /**
+     * Current write position of the buffer
+     *
+     * @return position
+     */
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Check if no records are written
+     *
+     * @return true if empty
+     */
+    boolean isEmpty() {
+        return buffer.position() == 0;
+    }
+
+    /**
+     * Get written records ready to be written to a channel. Buffer should not be modified afterwards
+     *
+     * @return buffer containing all completed records
+     */
+    ByteBuffer flip() {
+        if (recordStart != -1) {
+            throw new IllegalStateException("Record at " + recordStart + " is not completed");
+        }
+        ByteBuffer records = buffer.duplicate();
+        records.flip();
+        return records;
+    }
+
+    private void ensureCapacity(int required) {
+        if (buffer.remaining() < required) {
+            int newCapacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+            ByteBuffer expanded = ByteBuffer.allocate(newCapacity);
+            buffer.flip();
+            expanded.put(buffer);
+            buffer = expanded;
+        }
+    }
+
+    /**
+     * Read a string written with {@link #putString(String)}
+     *
+     * @param source buffer positioned at the string
+     * @return string read. Empty string is returned as null
+     */
+    static String getString(ByteBuffer source) {
+        int length = source.getShort();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
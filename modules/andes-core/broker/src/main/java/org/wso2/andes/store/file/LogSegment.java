@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * An append only segment file of the file based message store. Records are only appended to the active segment.
+ * Once a segment is full it is sealed and memory mapped for reading. A sealed segment is deleted as a whole when
+ * none of its records are referred by live messages any more.
+ * <p>
+ * Appends and reference bookkeeping are not thread safe and should be done by the single writer of the store.
+ * Reads are thread safe.
+ */
+class LogSegment {
+
+    private static final Log log = LogFactory.getLog(LogSegment.class);
+
+    /**
+     * Upper bound of a record length. A larger length can only be read from a corrupted record
+     */
+    private static final int MAX_RECORD_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final long id;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    /**
+     * Number of bytes written to the segment
+     */
+    private volatile long size;
+
+    /**
+     * Read only mapping of a sealed segment
+     */
+    private volatile MappedByteBuffer mappedBuffer;
+
+    /**
+     * Number of references from live messages to records of this segment
+     */
+    private int references;
+
+    /**
+     * Older segments this segment has tombstones for. Segment should out live those segments, otherwise deleted
+     * messages would be restored on recovery
+     */
+    private final Set<Long> dependencies = new HashSet<>();
+
+    /**
+     * Visitor called for each valid record when recovering a segment
+     */
+    interface RecordVisitor {
+
+        /**
+         * Visit a record
+         *
+         * @param segment         segment the record belongs to
+         * @param type            record type
+         * @param payload         payload of the record positioned at the start of the payload
+         * @param payloadPosition position of the payload within the segment
+         * @throws AndesException if the record cannot be applied
+         */
+        void visit(LogSegment segment, byte type, ByteBuffer payload, long payloadPosition) throws AndesException;
+    }
+
+    private LogSegment(long id, File file) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        this.size = channel.size();
+    }
+
+    /**
+     * Create a new empty segment in the given directory
+     *
+     * @param directory directory of the segment files
+     * @param id        id of the segment. Ids are ascending in the order segments are created
+     * @return created segment
+     * @throws IOException on a file system error
+     */
+    static LogSegment create(File directory, long id) throws IOException {
+        File file = new File(directory, fileName(id));
+        if (file.exists()) {
+            throw new IOException("Segment file " + file.getAbsolutePath() + " already exists");
+        }
+        return new LogSegment(id, file);
+    }
+
+    /**
+     * Open an existing segment file
+     *
+     * @param file segment file
+     * @return opened segment
+     * @throws IOException on a file system error
+     */
+    static LogSegment open(File file) throws IOException {
+        return new LogSegment(parseId(file.getName()), file);
+    }
+
+    /**
+     * Get the file name of the segment with given id
+     *
+     * @param id segment id
+     * @return file name
+     */
+    static String fileName(long id) {
+        return String.format("%020d", id) + FileStoreConstants.SEGMENT_FILE_EXTENSION;
+    }
+
+    /**
+     * Get segment id from the segment file name
+     *
+     * @param fileName name of the segment file
+     * @return segment id
+     */
+    static long parseId(String fileName) {
+        return Long.parseLong(fileName.substring(0, fileName.length()
+                - FileStoreConstants.SEGMENT_FILE_EXTENSION.length()));
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    boolean isSealed() {
+        return null != mappedBuffer;
+    }
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Append records to the end of the segment
+     *
+     * @param records buffer of records to write
+     * @return position of the first record within the segment
+     * @throws IOException on a file system error
+     */
+    long append(ByteBuffer records) throws IOException {
+        if (isSealed()) {
+            throw new IOException("Cannot append to sealed segment " + file.getName());
+        }
+        long position = size;
+        long writePosition = position;
+        while (records.hasRemaining()) {
+            writePosition += channel.write(records, writePosition);
+        }
+        size = writePosition;
+        return position;
+    }
+
+    /**
+     * Force written records to the disk
+     *
+     * @throws IOException on a file system error
+     */
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Seal the segment. No records can be appended afterwards and reads are served from a memory mapping
+     *
+     * @throws IOException on a file system error
+     */
+    void seal() throws IOException {
+        channel.force(false);
+        mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    /**
+     * Read bytes written to the segment
+     *
+     * @param position position to read from
+     * @param length   number of bytes to read
+     * @return read bytes
+     * @throws IOException on a file system error or if the range was not written
+     */
+    byte[] read(long position, int length) throws IOException {
+        if (position + length > size) {
+            throw new IOException("Range " + position + " + " + length + " is beyond the end of segment "
+                    + file.getName());
+        }
+        byte[] bytes = new byte[length];
+        MappedByteBuffer mapping = mappedBuffer;
+        if (null != mapping) {
+            ByteBuffer view = mapping.duplicate();
+            view.position((int) position);
+            view.get(bytes);
+        } else {
+            ByteBuffer destination = ByteBuffer.wrap(bytes);
+            long readPosition = position;
+            while (destination.hasRemaining()) {
+                int read = channel.read(destination, readPosition);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of segment " + file.getName());
+                }
+                readPosition += read;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Read all valid records of the segment in order. Reading stops at the first incomplete or corrupted record.
+     *
+     * @param visitor visitor called for each record
+     * @return position after the last valid record
+     * @throws IOException    on a file system error
+     * @throws AndesException if the visitor fails
+     */
+    long recover(RecordVisitor visitor) throws IOException, AndesException {
+        if (size == 0) {
+            return 0;
+        }
+        MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        CRC32 crc = new CRC32();
+        long validEnd = 0;
+
+        while (mapping.remaining() >= LogRecordBuffer.RECORD_HEADER_SIZE + LogRecordBuffer.RECORD_TRAILER_SIZE) {
+            int recordStart = mapping.position();
+            int length = mapping.getInt();
+
+            if (length < 1 || length > MAX_RECORD_LENGTH
+                    || mapping.remaining() < length + LogRecordBuffer.RECORD_TRAILER_SIZE) {
+                log.warn("Incomplete record found at " + recordStart + " in segment " + file.getName());
+                break;
+            }
+
+            ByteBuffer record = mapping.slice();
+            record.limit(length);
+            crc.reset();
+            for (int i = 0; i < length; i++) {
+                crc.update(record.get(i));
+            }
+
+            mapping.position(recordStart + 4 + length);
+            int storedCrc = mapping.getInt();
+            if (storedCrc != (int) crc.getValue()) {
+                log.warn("Corrupted record found at " + recordStart + " in segment " + file.getName());
+                break;
+            }
+
+            byte type = record.get();
+            visitor.visit(this, type, record.slice(), recordStart + LogRecordBuffer.RECORD_HEADER_SIZE);
+            validEnd = mapping.position();
+        }
+
+        return validEnd;
+    }
+
+    /**
+     * Visit records of a buffer appended to this segment with {@link #append(ByteBuffer)}. Records are not
+     * verified since they are read from memory.
+     *
+     * @param records       buffer of complete records positioned at the first record
+     * @param basePosition  position of the first record within the segment
+     * @param visitor       visitor called for each record
+     * @throws AndesException if the visitor fails
+     */
+    void visitAppended(ByteBuffer records, long basePosition, RecordVisitor visitor) throws AndesException {
+        ByteBuffer view = records.duplicate();
+        int start = view.position();
+        while (view.hasRemaining()) {
+            int recordStart = view.position();
+            int length = view.getInt();
+            ByteBuffer record = view.slice();
+            record.limit(length);
+            byte type = record.get();
+            visitor.visit(this, type, record.slice(),
+                    basePosition + (recordStart - start) + LogRecordBuffer.RECORD_HEADER_SIZE);
+            view.position(recordStart + 4 + length + LogRecordBuffer.RECORD_TRAILER_SIZE);
+        }
+    }
+
+    /**
+     * Discard the bytes written after the given position
+     *
+     * @param newSize new size of the segment
+     * @throws IOException on a file system error
+     */
+    void truncate(long newSize) throws IOException {
+        channel.truncate(newSize);
+        size = newSize;
+    }
+
+    /**
+     * Record a reference from a live message to a record of this segment
+     */
+    void addReference() {
+        references++;
+    }
+
+    /**
+     * Release a reference added with {@link #addReference()}
+     */
+    void releaseReference() {
+        references--;
+    }
+
+    int getReferences() {
+        return references;
+    }
+
+    /**
+     * Record that this segment has tombstones for records of the given segment
+     *
+     * @param segmentId id of the older segment
+     */
+    void addDependency(long segmentId) {
+        if (segmentId != id) {
+            dependencies.add(segmentId);
+        }
+    }
+
+    Set<Long> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Close the underlying file
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error while closing segment " + file.getName(), e);
+        }
+        mappedBuffer = null;
+    }
+
+    /**
+     * Close and delete the underlying file
+     *
+     * @return true if the file is deleted
+     */
+    boolean delete() {
+        close();
+        return file.delete();
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In memory index entry of a message stored in the file based message store. Entry holds the current state of
+ * the message and the locations of its records within the segments. Message bytes are not kept in memory.
+ * <p>
+ * Entries are modified only by the single writer of the store.
+ */
+class MessageIndexEntry {
+
+    /**
+     * Location of a byte range within a segment
+     */
+    static class Location {
+
+        final long segmentId;
+
+        final long position;
+
+        final int length;
+
+        Location(long segmentId, long position, int length) {
+            this.segmentId = segmentId;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    final long messageId;
+
+    /**
+     * Storage queue of the message
+     */
+    volatile String storageQueueName;
+
+    /**
+     * Dead letter channel queue the message is in. Null if the message is not in DLC
+     */
+    volatile String dlcQueueName;
+
+    /**
+     * True if the message should be considered for expiry while in DLC
+     */
+    volatile boolean expireInDLC;
+
+    /**
+     * Expiration time of the message. 0 if not defined
+     */
+    volatile long expirationTime;
+
+    /**
+     * Location of the metadata bytes
+     */
+    volatile Location metadata;
+
+    /**
+     * Location of the encoded content chunk list written along with the message
+     */
+    volatile Location content;
+
+    /**
+     * Location of the record moving the message to DLC
+     */
+    Location dlcRecord;
+
+    /**
+     * Location of the record setting the expiration time after the message is stored
+     */
+    Location expiryRecord;
+
+    /**
+     * Locations of content chunks written separately from the message
+     */
+    volatile List<Location> separateParts;
+
+    MessageIndexEntry(long messageId) {
+        this.messageId = messageId;
+    }
+
+    /**
+     * Check if the message is in a dead letter channel
+     *
+     * @return true if in DLC
+     */
+    boolean isInDLC() {
+        return null != dlcQueueName;
+    }
+
+    /**
+     * Add location of a content chunk written separately from the message
+     *
+     * @param location location of the chunk record
+     */
+    void addSeparatePart(Location location) {
+        List<Location> parts = new ArrayList<>();
+        if (null != separateParts) {
+            parts.addAll(separateParts);
+        }
+        parts.add(location);
+        separateParts = parts;
+    }
+
+    /**
+     * Get all record locations of this entry. Each location holds a reference to its segment.
+     *
+     * @return list of locations
+     */
+    List<Location> getLocations() {
+        List<Location> locations = new ArrayList<>(4);
+        if (null != metadata) {
+            locations.add(metadata);
+        }
+        if (null != content) {
+            locations.add(content);
+        }
+        if (null != dlcRecord) {
+            locations.add(dlcRecord);
+        }
+        if (null != expiryRecord) {
+            locations.add(expiryRecord);
+        }
+        if (null != separateParts) {
+            locations.addAll(separateParts);
+        }
+        return locations;
+    }
+}
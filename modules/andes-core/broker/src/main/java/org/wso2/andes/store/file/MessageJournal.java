@@ -0,0 +1,753 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.slot.SlotMessageCounter;
+import org.wso2.andes.store.AndesBatchUpdateException;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local write ahead journal in front of the message store. Received messages are appended to the journal and
+ * forced to the disk, after which the publisher can be acknowledged. A background task writes journaled messages
+ * to the message store in large batches and only then informs the slot message counter about them, so messages
+ * are delivered only after they are in the message store.
+ * <p>
+ * Concurrent appends are forced to the disk with a single sync (group commit). After each batch written to the
+ * message store a checkpoint record is written and segments before the checkpoint are deleted. Messages after the
+ * last checkpoint are written to the message store again when the journal is recovered at startup.
+ */
+public class MessageJournal {
+
+    private static final Log log = LogFactory.getLog(MessageJournal.class);
+
+    /**
+     * Interval in milliseconds in between attempts to write to the message store after a failure
+     */
+    private static final long STORE_RETRY_INTERVAL = 1000;
+
+    /**
+     * Maximum time in seconds to wait for journaled messages to be written to the message store on close
+     */
+    private static final long CLOSE_TIMEOUT = 30;
+
+    /**
+     * Content part count written when the content of a message is journaled with its content owner
+     */
+    private static final int CONTENT_WITH_OWNER = -1;
+
+    private final File directory;
+
+    private final long segmentSize;
+
+    private final int flushBatchSize;
+
+    private final int maxPendingMessages;
+
+    private final MessageStore messageStore;
+
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Segment records are appended to. Guarded by the append lock
+     */
+    private LogSegment activeSegment;
+
+    /**
+     * Appends to the journal and additions to pending entries are done holding this lock. Therefore pending
+     * entries are in the order they are written to the journal.
+     */
+    private final Object appendLock = new Object();
+
+    /**
+     * Held while forcing the active segment to the disk
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * Number of bytes appended to the journal since start. Guarded by the append lock
+     */
+    private long appendedBytes;
+
+    /**
+     * Number of bytes appended to the journal known to be on the disk. Guarded by the sync lock
+     */
+    private long syncedBytes;
+
+    /**
+     * Journaled messages not yet written to the message store. Guarded by itself
+     */
+    private final LinkedList<JournalEntry> pendingEntries = new LinkedList<>();
+
+    /**
+     * Number of messages in pending entries including entries being written to the message store. Guarded by the
+     * pending entries list
+     */
+    private int pendingMessageCount;
+
+    /**
+     * Entries taken from pending entries that are being written to the message store. Guarded by the pending entries
+     * list
+     */
+    private List<JournalEntry> flushingEntries = Collections.emptyList();
+
+    private ExecutorService flushExecutor;
+
+    private volatile boolean running;
+
+    /**
+     * Messages of a single append and the position of the journal after them
+     */
+    private static class JournalEntry {
+
+        private final List<AndesMessage> messages;
+
+        private final long segmentId;
+
+        private final long endPosition;
+
+        private JournalEntry(List<AndesMessage> messages, long segmentId, long endPosition) {
+            this.messages = messages;
+            this.segmentId = segmentId;
+            this.endPosition = endPosition;
+        }
+    }
+
+    /**
+     * Create a journal writing to the given directory
+     *
+     * @param directory          directory of the journal segments
+     * @param segmentSize        size in bytes after which a new segment is started
+     * @param flushBatchSize     number of messages written to the message store at once
+     * @param maxPendingMessages number of journaled messages not written to the message store after which appends
+     *                           are blocked
+     * @param messageStore       message store journaled messages are written to
+     */
+    public MessageJournal(File directory, long segmentSize, int flushBatchSize, int maxPendingMessages,
+            MessageStore messageStore) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushBatchSize = flushBatchSize;
+        this.maxPendingMessages = maxPendingMessages;
+        this.messageStore = messageStore;
+    }
+
+    /**
+     * Read the journal segments and queue messages journaled after the last checkpoint to be written to the message
+     * store again. Messages already in the message store are skipped.
+     *
+     * @throws AndesException on a file system or message store error
+     */
+    public void recover() throws AndesException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new AndesException("Cannot create message journal directory " + directory.getAbsolutePath());
+        }
+
+        File[] segmentFiles = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(FileStoreConstants.SEGMENT_FILE_EXTENSION);
+            }
+        });
+
+        JournalReader reader = new JournalReader();
+        try {
+            if (null != segmentFiles) {
+                Arrays.sort(segmentFiles);
+                for (File segmentFile : segmentFiles) {
+                    LogSegment segment = LogSegment.open(segmentFile);
+                    segments.put(segment.getId(), segment);
+                }
+            }
+
+            for (LogSegment segment : segments.values()) {
+                long validEnd = segment.recover(reader);
+                if (validEnd < segment.getSize() && segment == segments.lastEntry().getValue()) {
+                    log.warn("Discarding " + (segment.getSize() - validEnd) + " bytes of incomplete records at the "
+                            + "end of message journal segment " + segment);
+                    segment.truncate(validEnd);
+                }
+            }
+
+            Map.Entry<Long, LogSegment> lastEntry = segments.lastEntry();
+            for (LogSegment segment : segments.values()) {
+                if (segment != lastEntry.getValue()) {
+                    segment.seal();
+                }
+            }
+
+            if (null == lastEntry) {
+                activeSegment = createSegment(0);
+            } else {
+                activeSegment = lastEntry.getValue();
+            }
+        } catch (IOException e) {
+            throw new AndesException("Error occurred while recovering message journal from "
+                    + directory.getAbsolutePath(), e);
+        }
+
+        List<AndesMessage> recoveredMessages = reader.getMessagesAfterCheckpoint();
+        List<AndesMessage> messagesToReplay = new ArrayList<>(recoveredMessages.size());
+        for (AndesMessage message : recoveredMessages) {
+            // Message may have been written to the message store just before the checkpoint was lost
+            if (null == messageStore.getMetadata(message.getMetadata().getMessageID())) {
+                messagesToReplay.add(message);
+            }
+        }
+
+        for (int start = 0; start < messagesToReplay.size(); start += flushBatchSize) {
+            List<AndesMessage> batch = new ArrayList<>(messagesToReplay.subList(start,
+                    Math.min(start + flushBatchSize, messagesToReplay.size())));
+            synchronized (pendingEntries) {
+                pendingEntries.add(new JournalEntry(batch, activeSegment.getId(), activeSegment.getSize()));
+                pendingMessageCount += batch.size();
+            }
+        }
+
+        deleteSegmentsBefore(reader.checkpointSegmentId);
+
+        log.info("Message journal recovered from " + directory.getAbsolutePath() + ". "
+                + messagesToReplay.size() + " messages will be written to the message store.");
+    }
+
+    /**
+     * Start writing journaled messages to the message store. Should be called after the slot message counter is
+     * initialized.
+     */
+    public void start() {
+        running = true;
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("MessageJournalFlushTask-%d").build();
+        flushExecutor = Executors.newSingleThreadExecutor(namedThreadFactory);
+        flushExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                flushToMessageStore();
+            }
+        });
+    }
+
+    /**
+     * Append messages to the journal. Method returns once the messages are forced to the disk. Blocks while the
+     * number of messages not written to the message store is above the limit.
+     *
+     * @param messages messages to append
+     * @throws AndesException on a file system error
+     */
+    public void append(List<AndesMessage> messages) throws AndesException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        LogRecordBuffer records = new LogRecordBuffer(messages.size() * 1024);
+        for (AndesMessage message : messages) {
+            encodeMessage(records, message);
+        }
+        ByteBuffer buffer = records.flip();
+
+        waitForCapacity();
+
+        long endOfAppend;
+        synchronized (appendLock) {
+            try {
+                if (activeSegment.getSize() > 0 && activeSegment.getSize() + buffer.remaining() > segmentSize) {
+                    // Sealing forces the segment, hence syncing the active segment is sufficient afterwards
+                    activeSegment.seal();
+                    activeSegment = createSegment(activeSegment.getId() + 1);
+                }
+                appendedBytes += buffer.remaining();
+                activeSegment.append(buffer);
+            } catch (IOException e) {
+                throw new AndesException("Error occurred while writing to message journal segment "
+                        + activeSegment, e);
+            }
+            endOfAppend = appendedBytes;
+
+            synchronized (pendingEntries) {
+                pendingEntries.add(new JournalEntry(new ArrayList<>(messages), activeSegment.getId(),
+                        activeSegment.getSize()));
+                pendingMessageCount += messages.size();
+                pendingEntries.notifyAll();
+            }
+        }
+
+        sync(endOfAppend);
+    }
+
+    /**
+     * Force the active segment to the disk unless another append already did so after the given position
+     *
+     * @param position number of appended bytes to be on the disk
+     * @throws AndesException on a file system error
+     */
+    private void sync(long position) throws AndesException {
+        synchronized (syncLock) {
+            if (syncedBytes >= position) {
+                return;
+            }
+            long syncPosition;
+            LogSegment segmentToSync;
+            synchronized (appendLock) {
+                syncPosition = appendedBytes;
+                segmentToSync = activeSegment;
+            }
+            try {
+                segmentToSync.force();
+            } catch (IOException e) {
+                throw new AndesException("Error occurred while syncing message journal segment " + segmentToSync, e);
+            }
+            syncedBytes = syncPosition;
+        }
+    }
+
+    /**
+     * Block while the number of messages not written to the message store is above the limit
+     *
+     * @throws AndesException if interrupted while waiting
+     */
+    private void waitForCapacity() throws AndesException {
+        synchronized (pendingEntries) {
+            while (running && pendingMessageCount >= maxPendingMessages) {
+                try {
+                    pendingEntries.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AndesException("Interrupted while waiting for message journal capacity", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write journaled messages to the message store until the journal is closed and all pending messages are
+     * written.
+     */
+    private void flushToMessageStore() {
+        while (true) {
+            List<JournalEntry> entries = takePendingEntries();
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            List<AndesMessage> messages = new ArrayList<>();
+            for (JournalEntry entry : entries) {
+                messages.addAll(entry.messages);
+            }
+
+            if (!storeMessages(messages)) {
+                // Journal is closed while message store is unavailable. Messages are written at the next startup
+                return;
+            }
+
+            JournalEntry lastEntry = entries.get(entries.size() - 1);
+            try {
+                writeCheckpoint(lastEntry);
+            } catch (AndesException e) {
+                log.error("Error occurred while writing message journal checkpoint", e);
+            }
+
+            // Messages can be delivered only after they are written to the message store
+            onMessagesStored(messages);
+
+            synchronized (pendingEntries) {
+                flushingEntries = Collections.emptyList();
+                pendingMessageCount -= messages.size();
+                pendingEntries.notifyAll();
+            }
+            deleteSegmentsBefore(lastEntry.segmentId);
+        }
+    }
+
+    /**
+     * Take pending entries to be written to the message store as one batch. Waits until entries are available.
+     *
+     * @return pending entries. Empty if the journal is closed and no entries are pending
+     */
+    private List<JournalEntry> takePendingEntries() {
+        List<JournalEntry> entries = new ArrayList<>();
+        synchronized (pendingEntries) {
+            while (pendingEntries.isEmpty() && running) {
+                try {
+                    pendingEntries.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return entries;
+                }
+            }
+
+            int messageCount = 0;
+            // Entries are not split so that copies of a message sharing content are written together
+            while (!pendingEntries.isEmpty() && messageCount < flushBatchSize) {
+                JournalEntry entry = pendingEntries.removeFirst();
+                entries.add(entry);
+                messageCount += entry.messages.size();
+            }
+            flushingEntries = entries;
+        }
+        return entries;
+    }
+
+    /**
+     * Get the lowest id of the journaled messages not yet written to the message store. Slots are not updated for
+     * those messages yet, hence the safe zone of this node should not go beyond this id.
+     *
+     * @return lowest message id. {@link Long#MAX_VALUE} if all journaled messages are in the message store
+     */
+    public long getLowestPendingMessageId() {
+        long lowestMessageId = Long.MAX_VALUE;
+        synchronized (pendingEntries) {
+            lowestMessageId = Math.min(lowestMessageId, getLowestMessageId(flushingEntries));
+            lowestMessageId = Math.min(lowestMessageId, getLowestMessageId(pendingEntries));
+        }
+        return lowestMessageId;
+    }
+
+    /**
+     * Get the lowest message id of the given entries. Ids are not ordered across entries since messages are
+     * journaled by several message writers.
+     *
+     * @param entries journal entries
+     * @return lowest message id. {@link Long#MAX_VALUE} if there are no messages
+     */
+    private static long getLowestMessageId(List<JournalEntry> entries) {
+        long lowestMessageId = Long.MAX_VALUE;
+        for (JournalEntry entry : entries) {
+            for (AndesMessage message : entry.messages) {
+                lowestMessageId = Math.min(lowestMessageId, message.getMetadata().getMessageID());
+            }
+        }
+        return lowestMessageId;
+    }
+
+    /**
+     * Inform the slot message counter about messages written to the message store
+     *
+     * @param messages messages written to the message store
+     */
+    protected void onMessagesStored(List<AndesMessage> messages) {
+        SlotMessageCounter.getInstance().recordMetadataCountInSlot(messages);
+    }
+
+    /**
+     * Write messages to the message store retrying while the store is not available. If only a part of the batch
+     * could be written, messages are written one at a time skipping the ones already in the message store. Messages
+     * remain in the journal until all of them are written.
+     *
+     * @param messages messages to write
+     * @return false if the journal is closed before messages could be written
+     */
+    private boolean storeMessages(List<AndesMessage> messages) {
+        boolean storeIndividually = false;
+        while (true) {
+            try {
+                if (storeIndividually) {
+                    storeMessagesIndividually(messages);
+                } else {
+                    messageStore.storeMessages(messages);
+                }
+                return true;
+            } catch (AndesBatchUpdateException e) {
+                log.warn("Error occurred while writing a batch of journaled messages to the message store. Messages "
+                        + "will be written individually. Message count: " + messages.size(), e);
+                storeIndividually = true;
+            } catch (AndesException e) {
+                log.warn("Error occurred while writing journaled messages to the message store. Operation will be "
+                        + "reattempted. Message count: " + messages.size(), e);
+            }
+
+            if (!running) {
+                return false;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(STORE_RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Write messages to the message store one at a time. Messages already in the message store are skipped.
+     *
+     * @param messages messages to write
+     * @throws AndesException if a message could not be written
+     */
+    private void storeMessagesIndividually(List<AndesMessage> messages) throws AndesException {
+        for (AndesMessage message : messages) {
+            if (null == messageStore.getMetadata(message.getMetadata().getMessageID())) {
+                messageStore.storeMessages(Collections.singletonList(message));
+            }
+        }
+    }
+
+    /**
+     * Write a checkpoint indicating messages up to the given entry are in the message store. Checkpoint is forced
+     * to the disk before the messages are made deliverable, otherwise a delivered and deleted message might be
+     * written to the message store again on recovery.
+     *
+     * @param entry last entry written to the message store
+     * @throws AndesException on a file system error
+     */
+    private void writeCheckpoint(JournalEntry entry) throws AndesException {
+        LogRecordBuffer records = new LogRecordBuffer(32);
+        records.beginRecord(FileStoreConstants.RECORD_CHECKPOINT);
+        records.putLong(entry.segmentId);
+        records.putLong(entry.endPosition);
+        records.endRecord();
+        ByteBuffer buffer = records.flip();
+
+        long endOfAppend;
+        synchronized (appendLock) {
+            try {
+                appendedBytes += buffer.remaining();
+                activeSegment.append(buffer);
+            } catch (IOException e) {
+                throw new AndesException("Error occurred while writing to message journal segment "
+                        + activeSegment, e);
+            }
+            endOfAppend = appendedBytes;
+        }
+        sync(endOfAppend);
+    }
+
+    /**
+     * Delete sealed segments older than the given segment. Messages of those segments are in the message store
+     *
+     * @param segmentId id of the segment of the last checkpoint
+     */
+    private void deleteSegmentsBefore(long segmentId) {
+        for (LogSegment segment : segments.headMap(segmentId).values()) {
+            if (segment.isSealed()) {
+                segments.remove(segment.getId());
+                if (!segment.delete()) {
+                    log.warn("Could not delete message journal segment " + segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a new segment and register it
+     *
+     * @param segmentId id of the segment
+     * @return created segment
+     * @throws IOException on a file system error
+     */
+    private LogSegment createSegment(long segmentId) throws IOException {
+        LogSegment segment = LogSegment.create(directory, segmentId);
+        segments.put(segmentId, segment);
+        return segment;
+    }
+
+    /**
+     * Encode a journaled message. Content of a message sharing content with another message of the same append is
+     * written only with the content owner.
+     *
+     * @param records buffer to write to
+     * @param message message to encode
+     */
+    private void encodeMessage(LogRecordBuffer records, AndesMessage message) {
+        AndesMessageMetadata metadata = message.getMetadata();
+        records.beginRecord(FileStoreConstants.RECORD_JOURNALED_MESSAGE);
+        records.putLong(metadata.getMessageID());
+        records.putString(metadata.getStorageQueueName());
+        records.putBytes(metadata.getMetadata());
+        if (message.isContentShared() && !message.isContentOwner()) {
+            records.putLong(message.getContentId());
+            records.putInt(CONTENT_WITH_OWNER);
+        } else {
+            List<AndesMessagePart> parts = message.getContentChunkList();
+            records.putLong(metadata.getMessageID());
+            records.putInt(parts.size());
+            for (AndesMessagePart part : parts) {
+                records.putInt(part.getOffset());
+                records.putBytes(part.getData());
+            }
+        }
+        records.endRecord();
+    }
+
+    /**
+     * Stop writing to the message store after writing the pending messages, waiting at most
+     * {@link #CLOSE_TIMEOUT} seconds. Messages not written are written to the message store at the next startup.
+     */
+    public void close() {
+        running = false;
+        synchronized (pendingEntries) {
+            pendingEntries.notifyAll();
+        }
+
+        if (null != flushExecutor) {
+            flushExecutor.shutdown();
+            try {
+                if (!flushExecutor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                    log.warn("Journaled messages were not written to the message store within " + CLOSE_TIMEOUT
+                            + " seconds. Remaining messages will be written at the next startup.");
+                    flushExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (appendLock) {
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * A message read from the journal along with its location
+     */
+    private static class JournaledMessage {
+
+        private final long segmentId;
+
+        private final long position;
+
+        private final long contentId;
+
+        private final AndesMessage message;
+
+        private JournaledMessage(long segmentId, long position, long contentId, AndesMessage message) {
+            this.segmentId = segmentId;
+            this.position = position;
+            this.contentId = contentId;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Reads journaled messages written after the last checkpoint
+     */
+    private static class JournalReader implements LogSegment.RecordVisitor {
+
+        /**
+         * Messages read after the last checkpoint in journal order
+         */
+        private final LinkedList<JournaledMessage> messages = new LinkedList<>();
+
+        private long checkpointSegmentId;
+
+        private long checkpointPosition;
+
+        @Override
+        public void visit(LogSegment segment, byte type, ByteBuffer payload, long payloadPosition) {
+            if (FileStoreConstants.RECORD_CHECKPOINT == type) {
+                checkpointSegmentId = payload.getLong();
+                checkpointPosition = payload.getLong();
+                while (!messages.isEmpty() && isBeforeCheckpoint(messages.getFirst())) {
+                    messages.removeFirst();
+                }
+            } else if (FileStoreConstants.RECORD_JOURNALED_MESSAGE == type) {
+                messages.add(decodeMessage(segment.getId(), payloadPosition, payload));
+            }
+        }
+
+        private boolean isBeforeCheckpoint(JournaledMessage message) {
+            return message.segmentId < checkpointSegmentId
+                    || (message.segmentId == checkpointSegmentId && message.position < checkpointPosition);
+        }
+
+        private JournaledMessage decodeMessage(long segmentId, long payloadPosition, ByteBuffer payload) {
+            long messageId = payload.getLong();
+            String storageQueueName = LogRecordBuffer.getString(payload);
+            byte[] metadataBytes = new byte[payload.getInt()];
+            payload.get(metadataBytes);
+            long contentId = payload.getLong();
+            int partCount = payload.getInt();
+
+            AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, true);
+            metadata.setStorageQueueName(storageQueueName);
+            AndesMessage message = new AndesMessage(metadata);
+            for (int i = 0; i < partCount; i++) {
+                int offset = payload.getInt();
+                byte[] data = new byte[payload.getInt()];
+                payload.get(data);
+                message.addMessagePart(createMessagePart(messageId, offset, data));
+            }
+            return new JournaledMessage(segmentId, payloadPosition, contentId, message);
+        }
+
+        /**
+         * Get messages journaled after the last checkpoint. Messages journaled without content get a copy of the
+         * content of their content owner.
+         *
+         * @return journaled messages
+         */
+        private List<AndesMessage> getMessagesAfterCheckpoint() {
+            Map<Long, AndesMessage> messagesById = new HashMap<>();
+            for (JournaledMessage journaledMessage : messages) {
+                messagesById.put(journaledMessage.message.getMetadata().getMessageID(), journaledMessage.message);
+            }
+
+            List<AndesMessage> result = new ArrayList<>(messages.size());
+            for (JournaledMessage journaledMessage : messages) {
+                AndesMessage message = journaledMessage.message;
+                long messageId = message.getMetadata().getMessageID();
+                if (journaledMessage.contentId != messageId) {
+                    AndesMessage contentOwner = messagesById.get(journaledMessage.contentId);
+                    if (null == contentOwner) {
+                        log.warn("Content of journaled message " + messageId + " is not found. Message is dropped.");
+                        continue;
+                    }
+                    for (AndesMessagePart part : contentOwner.getContentChunkList()) {
+                        message.addMessagePart(createMessagePart(messageId, part.getOffset(), part.getData()));
+                    }
+                }
+                result.add(message);
+            }
+            return result;
+        }
+
+        private AndesMessagePart createMessagePart(long messageId, int offset, byte[] data) {
+            AndesMessagePart messagePart = new AndesMessagePart();
+            messagePart.setMessageID(messageId);
+            messagePart.setOffSet(offset);
+            messagePart.setData(data);
+            messagePart.setDataLength(data.length);
+            return messagePart;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects rows of a table and inserts them in bulk. Depending on the {@link BulkInsertDialect} rows are inserted
+ * with a JDBC batch of the single row insert statement, or with insert statements having a VALUES list of many
+ * rows built from the single row statement.
+ * <p>
+ * A multi row statement is closed when it reaches the maximum number of rows or the maximum number of bytes of
+ * binary values, so that large message content does not exceed the packet size limits of the database.
+ * <p>
+ * Not thread safe. Used for one batch of messages by a single thread.
+ */
+class BulkInsert {
+
+    /**
+     * Maximum number of bytes of binary values in a multi row insert statement
+     */
+    static final int MAX_BYTES_PER_STATEMENT = 1024 * 1024;
+
+    /**
+     * Single row insert statement
+     */
+    private final String insertStatement;
+
+    /**
+     * Insert statement up to and including the VALUES keyword
+     */
+    private final String insertPrefix;
+
+    /**
+     * Value list of a single row including the parentheses
+     */
+    private final String rowValues;
+
+    private final int parametersPerRow;
+
+    private final int rowsPerStatement;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * Create a bulk insert of a single row insert statement of the form INSERT INTO ... VALUES (...)
+     *
+     * @param insertStatement            single row insert statement
+     * @param dialect                    dialect of the database
+     * @param configuredRowsPerStatement maximum number of rows in a multi row insert statement
+     */
+    BulkInsert(String insertStatement, BulkInsertDialect dialect, int configuredRowsPerStatement) {
+        this.insertStatement = insertStatement;
+        int valuesIndex = insertStatement.toUpperCase().lastIndexOf("VALUES") + "VALUES".length();
+        this.insertPrefix = insertStatement.substring(0, valuesIndex) + " ";
+        this.rowValues = insertStatement.substring(valuesIndex).trim();
+        this.parametersPerRow = rowValues.length() - rowValues.replace("?", "").length();
+        this.rowsPerStatement = dialect.getRowsPerStatement(parametersPerRow, configuredRowsPerStatement);
+    }
+
+    /**
+     * Add a row to insert. Values are given in the order of the parameters of the single row statement and can be
+     * Integer, Long, String or byte[].
+     *
+     * @param values parameter values of the row
+     */
+    void addRow(Object... values) {
+        rows.add(values);
+    }
+
+    /**
+     * @return true if no rows are added
+     */
+    boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * Insert all the added rows. Caller is responsible for committing the transaction.
+     *
+     * @param connection connection to the database
+     * @throws BatchUpdateException if inserting some of the rows failed
+     * @throws SQLException         on a database error
+     */
+    void execute(Connection connection) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (1 == rowsPerStatement) {
+            executeBatch(connection);
+        } else {
+            executeMultiRowStatements(connection);
+        }
+    }
+
+    private void executeBatch(Connection connection) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(insertStatement);
+        try {
+            for (Object[] row : rows) {
+                setParameters(preparedStatement, 1, row);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        } finally {
+            preparedStatement.close();
+        }
+    }
+
+    private void executeMultiRowStatements(Connection connection) throws SQLException {
+        // Statements are reused for groups with the same number of rows
+        Map<Integer, PreparedStatement> statementsForRowCount = new HashMap<>();
+        try {
+            int groupStart = 0;
+            while (groupStart < rows.size()) {
+                int groupEnd = groupStart;
+                long groupBytes = 0;
+                while (groupEnd < rows.size() && groupEnd - groupStart < rowsPerStatement) {
+                    long rowBytes = getBinarySize(rows.get(groupEnd));
+                    if (groupEnd > groupStart && groupBytes + rowBytes > MAX_BYTES_PER_STATEMENT) {
+                        break;
+                    }
+                    groupBytes = groupBytes + rowBytes;
+                    groupEnd++;
+                }
+
+                int rowCount = groupEnd - groupStart;
+                PreparedStatement preparedStatement = statementsForRowCount.get(rowCount);
+                if (null == preparedStatement) {
+                    preparedStatement = connection.prepareStatement(createMultiRowStatement(rowCount));
+                    statementsForRowCount.put(rowCount, preparedStatement);
+                }
+                for (int i = 0; i < rowCount; i++) {
+                    setParameters(preparedStatement, i * parametersPerRow + 1, rows.get(groupStart + i));
+                }
+                try {
+                    preparedStatement.executeUpdate();
+                } catch (SQLException e) {
+                    // Reported as a batch failure so that callers fall back to inserting rows individually
+                    throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), new int[0], e);
+                }
+                groupStart = groupEnd;
+            }
+        } finally {
+            for (PreparedStatement preparedStatement : statementsForRowCount.values()) {
+                preparedStatement.close();
+            }
+        }
+    }
+
+    /**
+     * Create an insert statement with a VALUES list of the given number of rows
+     *
+     * @param rowCount number of rows
+     * @return insert statement
+     */
+    String createMultiRowStatement(int rowCount) {
+        StringBuilder statement = new StringBuilder(insertPrefix.length() + (rowValues.length() + 1) * rowCount);
+        statement.append(insertPrefix);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                statement.append(',');
+            }
+            statement.append(rowValues);
+        }
+        return statement.toString();
+    }
+
+    private static long getBinarySize(Object[] row) {
+        long size = 0;
+        for (Object value : row) {
+            if (value instanceof byte[]) {
+                size = size + ((byte[]) value).length;
+            }
+        }
+        return size;
+    }
+
+    private static void setParameters(PreparedStatement preparedStatement, int firstIndex, Object[] row)
+            throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            int index = firstIndex + i;
+            if (value instanceof Long) {
+                preparedStatement.setLong(index, (Long) value);
+            } else if (value instanceof Integer) {
+                preparedStatement.setInt(index, (Integer) value);
+            } else if (value instanceof byte[]) {
+                preparedStatement.setBytes(index, (byte[]) value);
+            } else {
+                preparedStatement.setString(index, (String) value);
+            }
+        }
+    }
+}
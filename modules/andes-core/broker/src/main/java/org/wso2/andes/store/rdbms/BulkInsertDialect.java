@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+/**
+ * Database specific way of inserting a batch of rows. Databases supporting multi row VALUES lists get one insert
+ * statement per group of rows, which saves a round trip and the statement overhead per row. Others use a JDBC batch
+ * of single row inserts, which their drivers already send as a bulk operation (e.g. array binds of the Oracle
+ * driver), as do the MySQL and PostgreSQL drivers when batch rewriting is enabled in the JDBC URL.
+ */
+public enum BulkInsertDialect {
+
+    /**
+     * JDBC batch of single row insert statements
+     */
+    JDBC_BATCH(false, Integer.MAX_VALUE),
+
+    /**
+     * Multi row VALUES list with no practical limit on the number of parameters of a statement
+     */
+    MULTI_ROW_VALUES(true, Integer.MAX_VALUE),
+
+    /**
+     * Multi row VALUES list on Microsoft SQL Server, which allows at most 2100 parameters in a statement
+     */
+    MSSQL_MULTI_ROW_VALUES(true, 2000);
+
+    /**
+     * True if rows are inserted with multi row VALUES lists
+     */
+    private final boolean multiRowValues;
+
+    /**
+     * Maximum number of parameters of a statement
+     */
+    private final int maxParameterCount;
+
+    BulkInsertDialect(boolean multiRowValues, int maxParameterCount) {
+        this.multiRowValues = multiRowValues;
+        this.maxParameterCount = maxParameterCount;
+    }
+
+    /**
+     * Find the dialect to use for a database
+     *
+     * @param jdbcUrl JDBC URL of the database
+     * @return dialect to use. {@link #JDBC_BATCH} if the database is not known to support multi row inserts or the
+     * driver already rewrites batches
+     */
+    public static BulkInsertDialect fromJdbcUrl(String jdbcUrl) {
+        if (null == jdbcUrl) {
+            return JDBC_BATCH;
+        }
+        String url = jdbcUrl.toLowerCase();
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return url.contains("rewritebatchedstatements=true") ? JDBC_BATCH : MULTI_ROW_VALUES;
+        } else if (url.startsWith("jdbc:postgresql:")) {
+            return url.contains("rewritebatchedinserts=true") ? JDBC_BATCH : MULTI_ROW_VALUES;
+        } else if (url.startsWith("jdbc:h2:") || url.startsWith("jdbc:derby:")) {
+            return MULTI_ROW_VALUES;
+        } else if (url.startsWith("jdbc:sqlserver:") || url.startsWith("jdbc:jtds:sqlserver:")) {
+            return MSSQL_MULTI_ROW_VALUES;
+        }
+        return JDBC_BATCH;
+    }
+
+    /**
+     * Number of rows inserted by one statement
+     *
+     * @param parametersPerRow        number of parameters of a row
+     * @param configuredRowsPerStatement maximum number of rows per statement configured
+     * @return number of rows per statement. 1 if rows are inserted with a JDBC batch
+     */
+    int getRowsPerStatement(int parametersPerRow, int configuredRowsPerStatement) {
+        if (!multiRowValues || configuredRowsPerStatement <= 1) {
+            return 1;
+        }
+        return Math.max(1, Math.min(configuredRowsPerStatement, maxParameterCount / parametersPerRow));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Database specific way of removing the rows of a retired queue partition from the metadata table in bounded
+ * batches. A queue partition is the set of metadata rows having the same queue id. When a queue is purged, its
+ * partition is retired by giving the queue a new id, and the rows of the retired partition are removed in the
+ * background a batch at a time so that the table is never locked for long.
+ * <p>
+ * Databases supporting a row limit on a delete statement remove a batch with a single statement. Others first
+ * find the message id bounding the batch and remove the rows up to that id. Either way only rows up to the purge
+ * point of the partition are removed, so that messages written by nodes not yet aware of the purge are kept.
+ */
+enum QueuePartitionDialect {
+
+    MYSQL("MySQL",
+            "DELETE FROM " + RDBMSConstants.METADATA_TABLE
+            + " WHERE %1$s=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + "<=?"
+            + " LIMIT %2$d"),
+
+    POSTGRESQL("PostgreSQL",
+            "DELETE FROM " + RDBMSConstants.METADATA_TABLE
+            + " WHERE %1$s=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + "<=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + " IN ("
+                + "SELECT " + RDBMSConstants.MESSAGE_ID
+                + " FROM " + RDBMSConstants.METADATA_TABLE
+                + " WHERE %1$s=?"
+                + " AND " + RDBMSConstants.MESSAGE_ID + "<=?"
+                + " LIMIT %2$d)"),
+
+    ORACLE("Oracle",
+            "DELETE FROM " + RDBMSConstants.METADATA_TABLE
+            + " WHERE %1$s=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + "<=?"
+            + " AND ROWNUM <= %2$d"),
+
+    MSSQL("Microsoft SQL Server",
+            "DELETE TOP (%2$d) FROM " + RDBMSConstants.METADATA_TABLE
+            + " WHERE %1$s=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + "<=?"),
+
+    H2("H2", null),
+
+    DERBY("Apache Derby", null);
+
+    /**
+     * Selects message ids of a partition up to a message id in ascending order to find the upper bound of a batch
+     */
+    private static final String PS_SELECT_PARTITION_MESSAGE_IDS =
+            "SELECT " + RDBMSConstants.MESSAGE_ID
+            + " FROM " + RDBMSConstants.METADATA_TABLE
+            + " WHERE %1$s=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + "<=?"
+            + " ORDER BY " + RDBMSConstants.MESSAGE_ID;
+
+    /**
+     * Deletes rows of a partition up to a message id
+     */
+    private static final String PS_DELETE_PARTITION_UP_TO_MESSAGE_ID =
+            "DELETE FROM " + RDBMSConstants.METADATA_TABLE
+            + " WHERE %1$s=?"
+            + " AND " + RDBMSConstants.MESSAGE_ID + "<=?";
+
+    /**
+     * Database product name as reported by the JDBC driver
+     */
+    private final String databaseProductName;
+
+    /**
+     * Delete statement with a row limit. Null if the database does not support limiting a delete statement
+     */
+    private final String limitedDeleteStatement;
+
+    QueuePartitionDialect(String databaseProductName, String limitedDeleteStatement) {
+        this.databaseProductName = databaseProductName;
+        this.limitedDeleteStatement = limitedDeleteStatement;
+    }
+
+    /**
+     * Find the dialect of a database
+     *
+     * @param databaseProductName database product name as reported by the JDBC driver
+     * @return dialect of the database. Null if partitioned queue purge is not supported for the database
+     */
+    static QueuePartitionDialect fromDatabaseProductName(String databaseProductName) {
+        for (QueuePartitionDialect dialect : values()) {
+            if (dialect.databaseProductName.equalsIgnoreCase(databaseProductName)) {
+                return dialect;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Delete a batch of rows of a partition up to a message id. Rows with a larger message id are never deleted,
+     * even if they are written while the batch is deleted. Caller is responsible for committing the transaction.
+     *
+     * @param connection   connection to the database
+     * @param queueColumn  column holding the partition id. Either queue id or dead letter channel queue id column
+     * @param partitionId  id of the retired partition
+     * @param maxMessageId largest message id deleted. Purge point of the retired partition
+     * @param batchSize    maximum number of rows deleted
+     * @return number of rows deleted. Less than the batch size if the partition has no more rows up to the given
+     * message id
+     * @throws SQLException on a database error
+     */
+    int deleteBatch(Connection connection, String queueColumn, int partitionId, long maxMessageId, int batchSize)
+            throws SQLException {
+        if (null != limitedDeleteStatement) {
+            String deleteStatement = String.format(limitedDeleteStatement, queueColumn, batchSize);
+            PreparedStatement preparedStatement = connection.prepareStatement(deleteStatement);
+            try {
+                // Parameters of the statement are pairs of the partition id and the largest message id
+                int parameterCount = deleteStatement.length() - deleteStatement.replace("?", "").length();
+                for (int i = 1; i < parameterCount; i = i + 2) {
+                    preparedStatement.setInt(i, partitionId);
+                    preparedStatement.setLong(i + 1, maxMessageId);
+                }
+                return preparedStatement.executeUpdate();
+            } finally {
+                preparedStatement.close();
+            }
+        }
+
+        long upperBoundMessageId = -1;
+        PreparedStatement selectStatement = connection.prepareStatement(
+                String.format(PS_SELECT_PARTITION_MESSAGE_IDS, queueColumn));
+        try {
+            selectStatement.setInt(1, partitionId);
+            selectStatement.setLong(2, maxMessageId);
+            selectStatement.setMaxRows(batchSize);
+            ResultSet resultSet = selectStatement.executeQuery();
+            while (resultSet.next()) {
+                upperBoundMessageId = resultSet.getLong(RDBMSConstants.MESSAGE_ID);
+            }
+            resultSet.close();
+        } finally {
+            selectStatement.close();
+        }
+        if (-1 == upperBoundMessageId) {
+            return 0;
+        }
+
+        PreparedStatement deleteStatement = connection.prepareStatement(
+                String.format(PS_DELETE_PARTITION_UP_TO_MESSAGE_ID, queueColumn));
+        try {
+            deleteStatement.setInt(1, partitionId);
+            deleteStatement.setLong(2, upperBoundMessageId);
+            return deleteStatement.executeUpdate();
+        } finally {
+            deleteStatement.close();
+        }
+    }
+}
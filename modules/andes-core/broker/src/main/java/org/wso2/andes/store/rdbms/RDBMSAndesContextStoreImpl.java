@@ -26,7 +26,9 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.DurableStoreConnection;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.router.MessageRouterFactory;
+import org.wso2.andes.kernel.slot.LongRangeSet;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotCheckpoint;
 import org.wso2.andes.kernel.slot.SlotState;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
@@ -1707,11 +1709,11 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
     /**
      * {@inheritDoc}
      */
-    public TreeSet<Long> getMessageIds(String queueName) throws AndesException {
+    public LongRangeSet getMessageIds(String queueName) throws AndesException {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
-        TreeSet<Long> messageIdSet = new TreeSet<>();
+        LongRangeSet messageIdSet = new LongRangeSet();
 
         try {
             connection = getConnection();
@@ -1938,6 +1940,94 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addSlotCheckpoints(String storageQueueName, List<SlotCheckpoint> checkpoints)
+            throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_SLOT_CHECKPOINT);
+            for (SlotCheckpoint checkpoint : checkpoints) {
+                preparedStatement.setString(1, storageQueueName);
+                preparedStatement.setLong(2, checkpoint.getStartMessageId());
+                preparedStatement.setLong(3, checkpoint.getEndMessageId());
+                preparedStatement.setInt(4, checkpoint.getMessageCount());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            String errMsg = RDBMSConstants.TASK_ADD_SLOT_CHECKPOINTS + " storageQueueName: " + storageQueueName;
+            rollback(connection, RDBMSConstants.TASK_ADD_SLOT_CHECKPOINTS);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while " + errMsg, e);
+        } finally {
+            close(preparedStatement, RDBMSConstants.TASK_ADD_SLOT_CHECKPOINTS);
+            close(connection, RDBMSConstants.TASK_ADD_SLOT_CHECKPOINTS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SlotCheckpoint> getSlotCheckpoints(String storageQueueName) throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        List<SlotCheckpoint> checkpoints = new ArrayList<>();
+
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_SLOT_CHECKPOINTS);
+            preparedStatement.setString(1, storageQueueName);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                checkpoints.add(new SlotCheckpoint(resultSet.getLong(RDBMSConstants.START_MESSAGE_ID),
+                        resultSet.getLong(RDBMSConstants.END_MESSAGE_ID),
+                        resultSet.getInt(RDBMSConstants.MESSAGE_COUNT)));
+            }
+            return checkpoints;
+        } catch (SQLException e) {
+            String errMsg = RDBMSConstants.TASK_GET_SLOT_CHECKPOINTS + " storageQueueName: " + storageQueueName;
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while " + errMsg, e);
+        } finally {
+            close(resultSet, RDBMSConstants.TASK_GET_SLOT_CHECKPOINTS);
+            close(preparedStatement, RDBMSConstants.TASK_GET_SLOT_CHECKPOINTS);
+            close(connection, RDBMSConstants.TASK_GET_SLOT_CHECKPOINTS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteSlotCheckpoints(String storageQueueName, long messageIdLimit) throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_SLOT_CHECKPOINTS);
+            preparedStatement.setString(1, storageQueueName);
+            preparedStatement.setLong(2, messageIdLimit);
+            preparedStatement.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            String errMsg = RDBMSConstants.TASK_DELETE_SLOT_CHECKPOINTS + " storageQueueName: " + storageQueueName;
+            rollback(connection, RDBMSConstants.TASK_DELETE_SLOT_CHECKPOINTS);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while " + errMsg, e);
+        } finally {
+            close(preparedStatement, RDBMSConstants.TASK_DELETE_SLOT_CHECKPOINTS);
+            close(connection, RDBMSConstants.TASK_DELETE_SLOT_CHECKPOINTS);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
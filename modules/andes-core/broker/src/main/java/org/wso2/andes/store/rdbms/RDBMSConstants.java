@@ -80,6 +80,84 @@ public class RDBMSConstants {
 
     protected static final String TRANSACTION_ROLLBACK_ERROR_SQL_STATE_CLASSES = "transactionRollbackSQLStateClasses";
 
+    /**
+     * Configuration name used to enable storing the content of a message routed to multiple storage queues only
+     * once. Copies of the message refer the content through {@link #CONTENT_REFERENCE_TABLE}.
+     * <p>
+     * configuration is configured in broker.xml,
+     * <ul>
+     * <li>persistence/messageStore/</li>
+     * </ul>
+     * </p>
+     */
+    protected static final String PROP_SHARE_CONTENT_AMONG_QUEUES = "shareContentAmongQueues";
+
+    /**
+     * Configuration name used to specify the interval in seconds in between runs of the task removing shared
+     * content no longer referred by any message.
+     */
+    protected static final String PROP_SHARED_CONTENT_CLEANUP_INTERVAL = "sharedContentCleanupInterval";
+
+    /**
+     * Configuration name used to enable storing the metadata of a message routed to multiple storage queues only
+     * once, along with the shared content. Each copy keeps only a metadata row without metadata bytes. Effective
+     * only if {@link #PROP_SHARE_CONTENT_AMONG_QUEUES} is enabled.
+     */
+    protected static final String PROP_SHARE_METADATA_AMONG_QUEUES = "shareMetadataAmongQueues";
+
+    /**
+     * Configuration name used to enable keeping message counts of queues in memory instead of counting the rows of
+     * the metadata table on each request.
+     */
+    protected static final String PROP_IN_MEMORY_MESSAGE_COUNTER = "inMemoryMessageCounter";
+
+    /**
+     * Configuration name used to specify the interval in seconds in between reconciliations of the in memory
+     * message counts with the metadata table.
+     */
+    protected static final String PROP_MESSAGE_COUNT_RECONCILE_INTERVAL = "messageCountReconcileInterval";
+
+    /**
+     * Configuration name used to specify the number of rows fetched from the database at a time when reading
+     * message metadata. Some drivers need additional connection settings to honour the fetch size, e.g.
+     * useCursorFetch=true for MySQL.
+     */
+    protected static final String PROP_METADATA_READ_FETCH_SIZE = "metadataReadFetchSize";
+
+    /**
+     * Configuration name used to enable purging a queue by retiring its partition of the metadata table instead of
+     * deleting its rows. The queue gets a new queue id and rows of the retired id are removed in the background in
+     * bounded batches. Effective only for databases having a {@link QueuePartitionDialect}.
+     */
+    protected static final String PROP_PARTITIONED_QUEUE_PURGE = "partitionedQueuePurge";
+
+    /**
+     * Configuration name used to specify the interval in seconds in between runs of the task removing rows of
+     * retired queue partitions.
+     */
+    protected static final String PROP_RETIRED_PARTITION_CLEANUP_INTERVAL = "retiredPartitionCleanupInterval";
+
+    /**
+     * Configuration name used to specify the maximum number of rows removed from a retired queue partition in one
+     * transaction.
+     */
+    protected static final String PROP_RETIRED_PARTITION_CLEANUP_BATCH_SIZE = "retiredPartitionCleanupBatchSize";
+
+    /**
+     * Configuration name used to specify the maximum number of rows inserted by one multi row insert statement when
+     * storing a batch of messages. Used only for databases supporting multi row VALUES lists. A value of 1 or less
+     * inserts the rows with a JDBC batch of single row statements.
+     */
+    protected static final String PROP_ROWS_PER_INSERT_STATEMENT = "rowsPerInsertStatement";
+
+    /**
+     * Prefix of the queue mapping name of a retired queue partition. Followed by the queue id of the partition, the
+     * purge point and the name of the queue, separated by {@link #RETIRED_PARTITION_SEPARATOR}
+     */
+    protected static final String RETIRED_PARTITION_PREFIX = "$retired:";
+
+    protected static final String RETIRED_PARTITION_SEPARATOR = ":";
+
     // Message Store tables
     protected static final String CONTENT_TABLE = "MB_CONTENT";
     protected static final String METADATA_TABLE = "MB_METADATA";
@@ -89,6 +167,24 @@ public class RDBMSConstants {
     protected static final String RETAINED_METADATA_TABLE = "MB_RETAINED_METADATA";
     protected static final String RETAINED_CONTENT_TABLE = "MB_RETAINED_CONTENT";
 
+    /**
+     * Content shared among the copies of a message routed to multiple storage queues. Content is stored once under
+     * the CONTENT_ID. Table has no referential integrity with metadata, unreferenced content is removed periodically.
+     */
+    protected static final String SHARED_CONTENT_TABLE = "MB_SHARED_CONTENT";
+
+    /**
+     * Maps message IDs to shared CONTENT_IDs. Rows are removed on metadata deletion through referential integrity
+     * with the metadata table.
+     */
+    protected static final String CONTENT_REFERENCE_TABLE = "MB_CONTENT_REFERENCE";
+
+    /**
+     * Metadata shared among the copies of a message routed to multiple storage queues (i.e. durable topic
+     * subscriptions). Stored once under the CONTENT_ID and removed periodically once unreferenced.
+     */
+    protected static final String SHARED_METADATA_TABLE = "MB_SHARED_METADATA";
+
 
     // Message Store table columns
     protected static final String MESSAGE_ID = "MESSAGE_ID";
@@ -102,6 +198,10 @@ public class RDBMSConstants {
     protected static final String DESTINATION_QUEUE = "MESSAGE_DESTINATION";
     protected static final String TOPIC_NAME = "TOPIC_NAME";
     protected static final String TOPIC_ID = "TOPIC_ID";
+    protected static final String CONTENT_ID = "CONTENT_ID";
+
+    // Alias for the shared metadata column when selected along with the metadata of the copy
+    protected static final String SHARED_METADATA = "SHARED_METADATA";
 
     // Andes Context Store tables
     protected static final String DURABLE_SUB_TABLE = "MB_DURABLE_SUBSCRIPTION";
@@ -114,6 +214,12 @@ public class RDBMSConstants {
     protected static final String SLOT_TABLE = "MB_SLOT";
     protected static final String SLOT_MESSAGE_ID_TABLE = "MB_SLOT_MESSAGE_ID";
     protected static final String QUEUE_TO_LAST_ASSIGNED_ID = "MB_QUEUE_TO_LAST_ASSIGNED_ID";
+
+    /**
+     * Table keeping slot boundaries of storage queues across cluster restarts. Columns are STORAGE_QUEUE_NAME,
+     * START_MESSAGE_ID, END_MESSAGE_ID and MESSAGE_COUNT with the primary key (STORAGE_QUEUE_NAME, END_MESSAGE_ID).
+     */
+    protected static final String SLOT_CHECKPOINT_TABLE = "MB_SLOT_CHECKPOINT";
     // Coordination related tables
     protected static final String CLUSTER_COORDINATOR_HEARTBEAT_TABLE = "MB_COORDINATOR_HEARTBEAT";
     protected static final String CLUSTER_NODE_HEARTBEAT_TABLE = "MB_NODE_HEARTBEAT";
@@ -186,6 +292,58 @@ public class RDBMSConstants {
             + " WHERE " + MESSAGE_ID + "=?"
             + " AND " + MSG_OFFSET + "=?";
 
+    /**
+     * Partially created prepared statement to retrieve content of multiple messages using IN operator.
+     * This will be completed on the fly when the request comes
+     */
+    protected static final String PS_SELECT_CONTENT_PART =
+            "SELECT " + MESSAGE_CONTENT + ", " + MESSAGE_ID + ", " + MSG_OFFSET
+            + " FROM " + CONTENT_TABLE
+            + " WHERE " + MESSAGE_ID + " IN (";
+
+    protected static final String PS_INSERT_SHARED_MESSAGE_PART =
+            "INSERT INTO " + SHARED_CONTENT_TABLE + "("
+            + CONTENT_ID + ","
+            + MSG_OFFSET + ","
+            + MESSAGE_CONTENT + ") VALUES (?, ?, ?)";
+
+    protected static final String PS_INSERT_CONTENT_REFERENCE =
+            "INSERT INTO " + CONTENT_REFERENCE_TABLE + "("
+            + MESSAGE_ID + ","
+            + CONTENT_ID + ") VALUES (?, ?)";
+
+    protected static final String PS_RETRIEVE_SHARED_MESSAGE_PART =
+            "SELECT C." + MESSAGE_CONTENT
+            + " FROM " + CONTENT_REFERENCE_TABLE + " R, " + SHARED_CONTENT_TABLE + " C"
+            + " WHERE R." + CONTENT_ID + "=C." + CONTENT_ID
+            + " AND R." + MESSAGE_ID + "=?"
+            + " AND C." + MSG_OFFSET + "=?";
+
+    /**
+     * Partially created prepared statement to retrieve shared content of multiple messages using IN operator.
+     * This will be completed on the fly when the request comes
+     */
+    protected static final String PS_SELECT_SHARED_CONTENT_PART =
+            "SELECT C." + MESSAGE_CONTENT + ", R." + MESSAGE_ID + ", C." + MSG_OFFSET
+            + " FROM " + CONTENT_REFERENCE_TABLE + " R, " + SHARED_CONTENT_TABLE + " C"
+            + " WHERE R." + CONTENT_ID + "=C." + CONTENT_ID
+            + " AND R." + MESSAGE_ID + " IN (";
+
+    protected static final String PS_INSERT_SHARED_METADATA =
+            "INSERT INTO " + SHARED_METADATA_TABLE + "("
+            + CONTENT_ID + ","
+            + METADATA + ") VALUES (?, ?)";
+
+    protected static final String PS_DELETE_UNREFERENCED_SHARED_METADATA =
+            "DELETE FROM " + SHARED_METADATA_TABLE
+            + " WHERE NOT EXISTS (SELECT 1 FROM " + CONTENT_REFERENCE_TABLE + " R"
+            + " WHERE R." + CONTENT_ID + "=" + SHARED_METADATA_TABLE + "." + CONTENT_ID + ")";
+
+    protected static final String PS_DELETE_UNREFERENCED_SHARED_CONTENT =
+            "DELETE FROM " + SHARED_CONTENT_TABLE
+            + " WHERE NOT EXISTS (SELECT 1 FROM " + CONTENT_REFERENCE_TABLE + " R"
+            + " WHERE R." + CONTENT_ID + "=" + SHARED_CONTENT_TABLE + "." + CONTENT_ID + ")";
+
     /**
      * We need to select rows that have the DLC_QUEUE_ID = -1 indicating that the message is not moved
      * into the dead letter channel
@@ -215,6 +373,41 @@ public class RDBMSConstants {
                         "DELETE FROM " + QUEUES_TABLE
                         + " WHERE " + QUEUE_NAME + "=?";
 
+    protected static final String PS_RENAME_QUEUE =
+            "UPDATE " + QUEUES_TABLE
+            + " SET " + QUEUE_NAME + "=?"
+            + " WHERE " + QUEUE_ID + "=?";
+
+    protected static final String PS_SELECT_RETIRED_QUEUE_IDS =
+            "SELECT " + QUEUE_ID + "," + QUEUE_NAME
+            + " FROM " + QUEUES_TABLE
+            + " WHERE " + QUEUE_NAME + " LIKE ?";
+
+    protected static final String PS_SELECT_MAX_MESSAGE_ID_OF_PARTITION =
+            "SELECT MAX(" + MESSAGE_ID + ")"
+            + " FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " OR " + DLC_QUEUE_ID + "=?";
+
+    /**
+     * Moves messages written to a retired queue partition after its purge point to the new partition of the queue
+     */
+    protected static final String PS_MOVE_MESSAGES_AFTER_PURGE_POINT =
+            "UPDATE " + METADATA_TABLE
+            + " SET " + QUEUE_ID + "=?"
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + MESSAGE_ID + ">?";
+
+    protected static final String PS_MOVE_DLC_MESSAGES_AFTER_PURGE_POINT =
+            "UPDATE " + METADATA_TABLE
+            + " SET " + DLC_QUEUE_ID + "=?"
+            + " WHERE " + DLC_QUEUE_ID + "=?"
+            + " AND " + MESSAGE_ID + ">?";
+
+    protected static final String PS_DELETE_QUEUE_BY_ID =
+            "DELETE FROM " + QUEUES_TABLE
+            + " WHERE " + QUEUE_ID + "=?";
+
     protected static final String PS_ALIAS_FOR_COUNT = "count";
 
     protected static final String PS_SELECT_QUEUE_MESSAGE_COUNT =
@@ -313,6 +506,47 @@ public class RDBMSConstants {
             + " AND " + DLC_QUEUE_ID + "=?"
             + " ORDER BY " + MESSAGE_ID;
 
+    /**
+     * Select clause resolving the metadata of message copies which refer shared metadata. Metadata of the copy
+     * takes precedence when present since it is rewritten on moving the message to DLC.
+     */
+    private static final String SELECT_METADATA_WITH_SHARED_METADATA =
+            "SELECT M." + MESSAGE_ID + ", M." + METADATA + ", S." + METADATA + " AS " + SHARED_METADATA
+            + " FROM " + METADATA_TABLE + " M"
+            + " LEFT OUTER JOIN " + CONTENT_REFERENCE_TABLE + " R ON M." + MESSAGE_ID + "=R." + MESSAGE_ID
+            + " LEFT OUTER JOIN " + SHARED_METADATA_TABLE + " S ON R." + CONTENT_ID + "=S." + CONTENT_ID;
+
+    protected static final String PS_SELECT_SHARED_METADATA =
+            SELECT_METADATA_WITH_SHARED_METADATA
+            + " WHERE M." + MESSAGE_ID + "=?";
+
+    protected static final String PS_SELECT_SHARED_METADATA_RANGE_FROM_QUEUE =
+            SELECT_METADATA_WITH_SHARED_METADATA
+            + " WHERE M." + QUEUE_ID + "=?"
+            + " AND M." + DLC_QUEUE_ID + "=-1"
+            + " AND M." + MESSAGE_ID + " BETWEEN ? AND ?"
+            + " ORDER BY M." + MESSAGE_ID;
+
+    protected static final String PS_SELECT_SHARED_METADATA_FROM_QUEUE =
+            SELECT_METADATA_WITH_SHARED_METADATA
+            + " WHERE M." + MESSAGE_ID + ">?"
+            + " AND M." + QUEUE_ID + "=?"
+            + " AND M." + DLC_QUEUE_ID + "=-1"
+            + " ORDER BY M." + MESSAGE_ID;
+
+    protected static final String PS_SELECT_SHARED_METADATA_IN_DLC_FOR_QUEUE =
+            SELECT_METADATA_WITH_SHARED_METADATA
+            + " WHERE M." + MESSAGE_ID + ">?"
+            + " AND M." + QUEUE_ID + "=?"
+            + " AND M." + DLC_QUEUE_ID + "=?"
+            + " ORDER BY M." + MESSAGE_ID;
+
+    protected static final String PS_SELECT_SHARED_METADATA_IN_DLC =
+            SELECT_METADATA_WITH_SHARED_METADATA
+            + " WHERE M." + MESSAGE_ID + ">?"
+            + " AND M." + DLC_QUEUE_ID + "=?"
+            + " ORDER BY M." + MESSAGE_ID;
+
     protected static final String PS_SELECT_MESSAGE_IDS_FROM_METADATA_FOR_QUEUE =
             "SELECT " + MESSAGE_ID
             + " FROM " + METADATA_TABLE
@@ -333,6 +567,28 @@ public class RDBMSConstants {
             "DELETE  FROM " + METADATA_TABLE
             + " WHERE " + MESSAGE_ID + "=?";
 
+    /**
+     * Prepared statement to find the queue of a message which is not in the dead letter channel. Used to update the
+     * message count of the queue when a message is deleted by its id alone
+     */
+    protected static final String PS_SELECT_QUEUE_NAME_OF_MESSAGE =
+            "SELECT " + QUEUES_TABLE + "." + QUEUE_NAME
+            + " FROM " + METADATA_TABLE + " JOIN " + QUEUES_TABLE
+            + " ON " + METADATA_TABLE + "." + QUEUE_ID + "=" + QUEUES_TABLE + "." + QUEUE_ID
+            + " WHERE " + METADATA_TABLE + "." + MESSAGE_ID + "=?"
+            + " AND " + METADATA_TABLE + "." + DLC_QUEUE_ID + "=-1";
+
+    protected static final String PS_SELECT_MESSAGE_IDS_IN_RANGE =
+            "SELECT " + MESSAGE_ID
+            + " FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?";
+
+    protected static final String PS_DELETE_METADATA_IN_RANGE =
+            "DELETE  FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?";
+
     protected static final String PS_CLEAR_QUEUE_FROM_METADATA =
             "DELETE  FROM " + METADATA_TABLE
             + " WHERE " + QUEUE_ID + "=?";
@@ -348,6 +604,11 @@ public class RDBMSConstants {
             + " AND " + MESSAGE_ID + ">=?"
             + " AND " + DESTINATION_QUEUE + "=?";
 
+    protected static final String PS_SELECT_MESSAGE_EXPIRATION_TIMES =
+            "SELECT " + MESSAGE_ID + "," + EXPIRATION_TIME + "," + DESTINATION_QUEUE
+            + " FROM " + EXPIRATION_TABLE
+            + " WHERE " + DLC_QUEUE_ID + "=-1";
+
     protected static final String PS_SELECT_EXPIRED_MESSAGES_FROM_DLC =
             "SELECT " + MESSAGE_ID + " FROM " + EXPIRATION_TABLE
             + " WHERE " + EXPIRATION_TIME + "<?"
@@ -577,6 +838,34 @@ public class RDBMSConstants {
     protected static final String PS_CLEAR_NODE_TO_LAST_PUBLISHED_ID =
             "DELETE FROM " + NODE_TO_LAST_PUBLISHED_ID;
 
+    /**
+     * Prepared statement to add a slot checkpoint of a storage queue
+     */
+    protected static final String PS_INSERT_SLOT_CHECKPOINT =
+            "INSERT INTO " + SLOT_CHECKPOINT_TABLE + " ("
+            + STORAGE_QUEUE_NAME + ","
+            + START_MESSAGE_ID + ","
+            + END_MESSAGE_ID + ","
+            + MESSAGE_COUNT + ")"
+            + " VALUES (?,?,?,?)";
+
+    /**
+     * Prepared statement to select slot checkpoints of a storage queue
+     */
+    protected static final String PS_SELECT_SLOT_CHECKPOINTS =
+            "SELECT " + START_MESSAGE_ID + "," + END_MESSAGE_ID + "," + MESSAGE_COUNT
+            + " FROM " + SLOT_CHECKPOINT_TABLE
+            + " WHERE " + STORAGE_QUEUE_NAME + "=?"
+            + " ORDER BY " + END_MESSAGE_ID;
+
+    /**
+     * Prepared statement to delete slot checkpoints of a storage queue ending before a message id
+     */
+    protected static final String PS_DELETE_SLOT_CHECKPOINTS =
+            "DELETE FROM " + SLOT_CHECKPOINT_TABLE
+            + " WHERE " + STORAGE_QUEUE_NAME + "=?"
+            + " AND " + END_MESSAGE_ID + "<?";
+
     /**
      * Prepared statement to create a new slot in database
      */
@@ -1049,6 +1338,8 @@ public class RDBMSConstants {
     protected static final String TASK_STORING_MESSAGE_PARTS = "storing message parts.";
     protected static final String TASK_DELETING_MESSAGE_PARTS = "deleting message parts.";
     protected static final String TASK_RETRIEVING_MESSAGE_PARTS = "retrieving message parts.";
+    protected static final String TASK_DELETING_UNREFERENCED_SHARED_CONTENT = "deleting unreferenced shared " +
+            "content.";
     protected static final String TASK_RETRIEVING_CONTENT_FOR_MESSAGES = "retrieving content for multiple messages";
     protected static final String TASK_ADDING_METADATA_LIST = "adding metadata list.";
     protected static final String TASK_ADDING_METADATA = "adding metadata.";
@@ -1079,8 +1370,12 @@ public class RDBMSConstants {
                                                                                 + "queue. ";
     protected static final String TASK_DELETING_FROM_EXPIRY_TABLE = "deleting from expiry table.";
     protected static final String TASK_DELETING_METADATA_FROM_QUEUE = "deleting metadata from queue. ";
+    protected static final String TASK_DELETING_METADATA_IN_RANGE = "deleting metadata in message id range of queue. ";
     protected static final String TASK_DELETING_MESSAGE_FROM_DLC = "deleting message from dlc. ";
     protected static final String TASK_CLEARING_DLC_QUEUE = "clearing dlc queue. " ;
+    protected static final String TASK_RETIRING_QUEUE_PARTITION = "retiring partition of queue. ";
+    protected static final String TASK_REMOVING_RETIRED_PARTITIONS = "removing retired queue partitions";
+    protected static final String TASK_RESOLVING_BULK_INSERT_DIALECT = "resolving bulk insert dialect";
     protected static final String TASK_RESETTING_MESSAGE_COUNTER = "Resetting message counter for queue";
     protected static final String TASK_RETRIEVING_EXPIRED_MESSAGES = "retrieving expired messages.";
     protected static final String TASK_RETRIEVING_QUEUE_ID = "retrieving queue id for queue. ";
@@ -1150,6 +1445,9 @@ public class RDBMSConstants {
     protected static final String TASK_GET_ALL_QUEUES = "getting all queues";
     protected static final String TASK_GET_ALL_QUEUES_IN_SUBMITTED_SLOTS = "getting all queues in submitted slots";
     protected static final String TASK_CLEAR_SLOT_TABLES = "clearing slot tables";
+    protected static final String TASK_ADD_SLOT_CHECKPOINTS = "adding slot checkpoints";
+    protected static final String TASK_GET_SLOT_CHECKPOINTS = "getting slot checkpoints";
+    protected static final String TASK_DELETE_SLOT_CHECKPOINTS = "deleting slot checkpoints";
     protected static final String TASK_ADD_COORDINATOR_ROW = "adding coordinator row";
     protected static final String TASK_GET_COORDINATOR_INFORMATION = "reading coordinator information";
     protected static final String TASK_CHECK_COORDINATOR_VALIDITY = "checking coordinator validity";
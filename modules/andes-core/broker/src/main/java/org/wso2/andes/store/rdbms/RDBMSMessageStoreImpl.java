@@ -22,10 +22,15 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.api.block.predicate.primitive.LongPredicate;
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
 import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextStore;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
@@ -34,10 +39,14 @@ import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DurableStoreConnection;
 import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataConsumer;
+import org.wso2.andes.kernel.MetadataListCollector;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.server.queue.DLCQueueUtils;
 import org.wso2.andes.store.AndesDataIntegrityViolationException;
+import org.wso2.andes.store.InMemoryMessageCounter;
 import org.wso2.andes.store.cache.AndesMessageCache;
 import org.wso2.andes.store.cache.MessageCacheFactory;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -51,18 +60,27 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
-import static org.wso2.andes.store.rdbms.RDBMSConstants.CONTENT_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_CONTENT;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_ID;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MSG_OFFSET;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_EXPIRY_DATA;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_MESSAGE_PART;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_CONTENT_REFERENCE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_METADATA;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_SHARED_MESSAGE_PART;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_SELECT_CONTENT_PART;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.TASK_RETRIEVING_CONTENT_FOR_MESSAGES;
 
 /**
@@ -89,21 +107,112 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private AndesMessageCache messageCache;
 
-    /**
-     * Partially created prepared statement to retrieve content of multiple messages using IN operator
-     * this will be completed on the fly when the request comes
-     */
-    private static final String PS_SELECT_CONTENT_PART =
-            "SELECT " + MESSAGE_CONTENT + ", " + MESSAGE_ID + ", " + MSG_OFFSET +
-                    " FROM " + CONTENT_TABLE +
-                    " WHERE " + MESSAGE_ID + " IN (";
-
     /**
      * The cache which holds the queue mappings(queue name to queue id) in memory
      * In the absence of a queried queue name in the cache, the queue id is loaded from the database
      */
     private LoadingCache<String, Integer> queueMappings;
 
+    /**
+     * Default interval in seconds in between runs of the shared content cleanup task
+     */
+    private static final int DEFAULT_SHARED_CONTENT_CLEANUP_INTERVAL = 60;
+
+    /**
+     * True if the content of a message routed to multiple storage queues is stored only once
+     */
+    private boolean contentSharingEnabled;
+
+    /**
+     * True if the metadata of a message routed to multiple storage queues is stored only once along with the shared
+     * content
+     */
+    private boolean metadataSharingEnabled;
+
+    /**
+     * Metadata bytes of a message copy referring shared metadata
+     */
+    private static final byte[] SHARED_METADATA_MARKER = new byte[0];
+
+    /**
+     * Executor running the task removing shared content no longer referred by any message. Null if content
+     * sharing is disabled
+     */
+    private ScheduledExecutorService sharedContentCleanupExecutor;
+
+    /**
+     * Default interval in seconds in between reconciliations of the in memory message counts
+     */
+    private static final int DEFAULT_MESSAGE_COUNT_RECONCILE_INTERVAL = 300;
+
+    /**
+     * Message counts of queues kept in memory. Null if message counts are read from the database
+     */
+    private InMemoryMessageCounter messageCounter;
+
+    /**
+     * Executor running the task reconciling the in memory message counts with the database. Null if message counts
+     * are read from the database
+     */
+    private ScheduledExecutorService messageCountReconcileExecutor;
+
+    /**
+     * Default number of metadata rows fetched from the database at a time when reading message metadata
+     */
+    private static final int DEFAULT_METADATA_READ_FETCH_SIZE = 500;
+
+    /**
+     * Number of metadata rows fetched from the database at a time when reading message metadata
+     */
+    private int metadataReadFetchSize;
+
+    /**
+     * Default maximum number of rows inserted by one multi row insert statement when storing a batch of messages
+     */
+    private static final int DEFAULT_ROWS_PER_INSERT_STATEMENT = 100;
+
+    /**
+     * Maximum number of rows inserted by one multi row insert statement when storing a batch of messages
+     */
+    private int rowsPerInsertStatement;
+
+    /**
+     * Dialect used to insert rows when storing a batch of messages
+     */
+    private BulkInsertDialect bulkInsertDialect;
+
+    /**
+     * Context store holding the queues of the broker. Used to find queues without messages when reconciling
+     * message counts
+     */
+    private AndesContextStore contextStore;
+
+    /**
+     * Default interval in seconds in between runs of the task removing rows of retired queue partitions
+     */
+    private static final int DEFAULT_RETIRED_PARTITION_CLEANUP_INTERVAL = 60;
+
+    /**
+     * Default maximum number of rows removed from a retired queue partition in one transaction
+     */
+    private static final int DEFAULT_RETIRED_PARTITION_CLEANUP_BATCH_SIZE = 1000;
+
+    /**
+     * Dialect used to remove rows of retired queue partitions. Null if queues are purged by deleting their rows
+     */
+    private QueuePartitionDialect queuePartitionDialect;
+
+    /**
+     * Maximum number of rows removed from a retired queue partition in one transaction
+     */
+    private int retiredPartitionCleanupBatchSize;
+
+    /**
+     * Executor running the task removing rows of retired queue partitions. Null if queues are purged by deleting
+     * their rows
+     */
+    private ScheduledExecutorService retiredPartitionCleanupExecutor;
+
     /**
      * {@inheritDoc}
      */
@@ -111,14 +220,40 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     public DurableStoreConnection initializeMessageStore(AndesContextStore contextStore,
             ConfigurationProperties connectionProperties) throws AndesException {
 
+        this.contextStore = contextStore;
         this.rdbmsConnection = new RDBMSConnection();
         // read data source name from config and use
         this.rdbmsConnection.initialize(connectionProperties);
         this.rdbmsStoreUtils = new RDBMSStoreUtils(connectionProperties);
 
-        this.messageCache = (new MessageCacheFactory()).create();
+        // Cache is created by the kernel when it starts, so that the delivery path can pin messages in it
+        this.messageCache = AndesContext.getInstance().getMessageCache();
+        if (null == messageCache) {
+            this.messageCache = (new MessageCacheFactory()).create();
+        }
         initializeQueueMappingCache();
 
+        contentSharingEnabled = Boolean.parseBoolean(
+                connectionProperties.getProperty(RDBMSConstants.PROP_SHARE_CONTENT_AMONG_QUEUES));
+        metadataSharingEnabled = contentSharingEnabled && Boolean.parseBoolean(
+                connectionProperties.getProperty(RDBMSConstants.PROP_SHARE_METADATA_AMONG_QUEUES));
+        if (contentSharingEnabled) {
+            scheduleSharedContentCleanup(connectionProperties);
+        }
+        if (Boolean.parseBoolean(connectionProperties.getProperty(RDBMSConstants.PROP_IN_MEMORY_MESSAGE_COUNTER))) {
+            messageCounter = new InMemoryMessageCounter();
+            scheduleMessageCountReconciliation(connectionProperties);
+        }
+        String configuredFetchSize = connectionProperties.getProperty(RDBMSConstants.PROP_METADATA_READ_FETCH_SIZE);
+        metadataReadFetchSize = DEFAULT_METADATA_READ_FETCH_SIZE;
+        if (null != configuredFetchSize && !configuredFetchSize.isEmpty()) {
+            metadataReadFetchSize = Integer.parseInt(configuredFetchSize);
+        }
+        initializeBulkInsert(connectionProperties);
+        if (Boolean.parseBoolean(connectionProperties.getProperty(RDBMSConstants.PROP_PARTITIONED_QUEUE_PURGE))) {
+            enablePartitionedQueuePurge(connectionProperties);
+        }
+
         log.info("Message Store initialised");
         return rdbmsConnection;
     }
@@ -160,6 +295,417 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                 });
     }
 
+    /**
+     * Schedule the task removing shared content no longer referred by any message. Shared content is removed when
+     * the metadata of all the messages referring it are deleted.
+     *
+     * @param connectionProperties message store configuration properties
+     */
+    private void scheduleSharedContentCleanup(ConfigurationProperties connectionProperties) {
+        String configuredInterval =
+                connectionProperties.getProperty(RDBMSConstants.PROP_SHARED_CONTENT_CLEANUP_INTERVAL);
+        int cleanupInterval = DEFAULT_SHARED_CONTENT_CLEANUP_INTERVAL;
+        if (null != configuredInterval && !configuredInterval.isEmpty()) {
+            cleanupInterval = Integer.parseInt(configuredInterval);
+        }
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("SharedContentCleanupTask-%d").build();
+        sharedContentCleanupExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        sharedContentCleanupExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    deleteUnreferencedSharedContent();
+                } catch (Throwable e) {
+                    // Task should keep running even if a run fails
+                    log.error("Error occurred while removing unreferenced shared content", e);
+                }
+            }
+        }, cleanupInterval, cleanupInterval, TimeUnit.SECONDS);
+
+        log.info("Content of messages routed to multiple queues will be shared. Unreferenced content is removed "
+                + "every " + cleanupInterval + " seconds");
+    }
+
+    /**
+     * Schedule the task correcting the in memory message counts against the metadata table. In memory counts miss
+     * the changes of operations which do not know the queue of the affected messages, and counts of other nodes
+     * are updated only when changes are published.
+     *
+     * @param connectionProperties message store configuration properties
+     */
+    private void scheduleMessageCountReconciliation(ConfigurationProperties connectionProperties) {
+        String configuredInterval =
+                connectionProperties.getProperty(RDBMSConstants.PROP_MESSAGE_COUNT_RECONCILE_INTERVAL);
+        int reconcileInterval = DEFAULT_MESSAGE_COUNT_RECONCILE_INTERVAL;
+        if (null != configuredInterval && !configuredInterval.isEmpty()) {
+            reconcileInterval = Integer.parseInt(configuredInterval);
+        }
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("MessageCountReconcileTask-%d").build();
+        messageCountReconcileExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        messageCountReconcileExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reconcileMessageCounts();
+                } catch (Throwable e) {
+                    // Task should keep running even if a run fails
+                    log.error("Error occurred while reconciling message counts", e);
+                }
+            }
+        }, reconcileInterval, reconcileInterval, TimeUnit.SECONDS);
+
+        log.info("Message counts of queues are kept in memory. Counts are reconciled with the database every "
+                + reconcileInterval + " seconds");
+    }
+
+    /**
+     * Resolve the dialect used to insert rows in bulk from the JDBC URL of the database and read the number of rows
+     * inserted by one statement.
+     *
+     * @param connectionProperties message store configuration properties
+     * @throws AndesException on an error reading the connection metadata
+     */
+    private void initializeBulkInsert(ConfigurationProperties connectionProperties) throws AndesException {
+        String configuredRows = connectionProperties.getProperty(RDBMSConstants.PROP_ROWS_PER_INSERT_STATEMENT);
+        rowsPerInsertStatement = DEFAULT_ROWS_PER_INSERT_STATEMENT;
+        if (null != configuredRows && !configuredRows.isEmpty()) {
+            rowsPerInsertStatement = Integer.parseInt(configuredRows);
+        }
+
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            bulkInsertDialect = rdbmsStoreUtils.getBulkInsertDialect(connection);
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("Error while resolving the bulk insert dialect", e);
+        } finally {
+            close(connection, RDBMSConstants.TASK_RESOLVING_BULK_INSERT_DIALECT);
+        }
+    }
+
+    /**
+     * Purge queues by retiring their partition of the metadata table if the database has a
+     * {@link QueuePartitionDialect}, and schedule the task removing rows of retired partitions.
+     *
+     * @param connectionProperties message store configuration properties
+     * @throws AndesException on an error reading the database product name
+     */
+    private void enablePartitionedQueuePurge(ConfigurationProperties connectionProperties) throws AndesException {
+        Connection connection = null;
+        String databaseProductName;
+        try {
+            connection = getConnection();
+            databaseProductName = connection.getMetaData().getDatabaseProductName();
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("Error while reading the database product name", e);
+        } finally {
+            close(connection, RDBMSConstants.TASK_REMOVING_RETIRED_PARTITIONS);
+        }
+
+        queuePartitionDialect = QueuePartitionDialect.fromDatabaseProductName(databaseProductName);
+        if (null == queuePartitionDialect) {
+            log.warn("Partitioned queue purge is not supported for " + databaseProductName
+                    + ". Queues will be purged by deleting their messages");
+            return;
+        }
+
+        String configuredInterval =
+                connectionProperties.getProperty(RDBMSConstants.PROP_RETIRED_PARTITION_CLEANUP_INTERVAL);
+        int cleanupInterval = DEFAULT_RETIRED_PARTITION_CLEANUP_INTERVAL;
+        if (null != configuredInterval && !configuredInterval.isEmpty()) {
+            cleanupInterval = Integer.parseInt(configuredInterval);
+        }
+        String configuredBatchSize =
+                connectionProperties.getProperty(RDBMSConstants.PROP_RETIRED_PARTITION_CLEANUP_BATCH_SIZE);
+        retiredPartitionCleanupBatchSize = DEFAULT_RETIRED_PARTITION_CLEANUP_BATCH_SIZE;
+        if (null != configuredBatchSize && !configuredBatchSize.isEmpty()) {
+            retiredPartitionCleanupBatchSize = Integer.parseInt(configuredBatchSize);
+        }
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("RetiredPartitionCleanupTask-%d").build();
+        retiredPartitionCleanupExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        retiredPartitionCleanupExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                // Only one node of the cluster removes retired partitions
+                if (AndesContext.getInstance().isClusteringEnabled()
+                        && !AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+                    return;
+                }
+                try {
+                    removeRetiredQueuePartitions();
+                } catch (Throwable e) {
+                    // Task should keep running even if a run fails
+                    log.error("Error occurred while removing retired queue partitions", e);
+                }
+            }
+        }, cleanupInterval, cleanupInterval, TimeUnit.SECONDS);
+
+        log.info("Queues will be purged by retiring their partition of the metadata table. Retired partitions are "
+                + "removed every " + cleanupInterval + " seconds in batches of " + retiredPartitionCleanupBatchSize
+                + " messages");
+    }
+
+    /**
+     * Retire the partition of the metadata table holding the messages of a queue. The queue mapping of the
+     * partition is renamed so that the queue gets a new queue id on next access. Messages of the retired partition
+     * up to the purge point, the largest message id in the partition at the time of retiring, are no longer visible
+     * to the queue and are removed by {@link #removeRetiredQueuePartitions()}.
+     * <p>
+     * Other nodes keep writing to the retired partition until the queue purge notification invalidates their queue
+     * mapping. Messages written after the purge point are moved to the new partition of the queue instead of being
+     * removed.
+     *
+     * @param storageQueueName name of the queue. Can be a dead letter channel queue
+     * @throws AndesException on a database error
+     */
+    private void retireQueuePartition(String storageQueueName) throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        try {
+            int queueID = getCachedQueueID(storageQueueName);
+
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_MAX_MESSAGE_ID_OF_PARTITION);
+            preparedStatement.setInt(1, queueID);
+            preparedStatement.setInt(2, queueID);
+            resultSet = preparedStatement.executeQuery();
+            // Zero if the partition is empty
+            long purgePoint = resultSet.next() ? resultSet.getLong(1) : 0;
+            resultSet.close();
+            preparedStatement.close();
+
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_RENAME_QUEUE);
+            preparedStatement.setString(1, RDBMSConstants.RETIRED_PARTITION_PREFIX + queueID
+                    + RDBMSConstants.RETIRED_PARTITION_SEPARATOR + purgePoint
+                    + RDBMSConstants.RETIRED_PARTITION_SEPARATOR + storageQueueName);
+            preparedStatement.setInt(2, queueID);
+            preparedStatement.executeUpdate();
+            connection.commit();
+
+            // A new queue id is created for the queue on next access
+            queueMappings.invalidate(storageQueueName);
+            if (log.isDebugEnabled()) {
+                log.debug("Retired partition of queue " + storageQueueName + " with queue ID " + queueID
+                        + " up to message ID " + purgePoint);
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_RETIRING_QUEUE_PARTITION + storageQueueName);
+            throw rdbmsStoreUtils.convertSQLException(
+                    "error occurred while retiring partition of queue :" + storageQueueName, e);
+        } finally {
+            contextWrite.stop();
+            close(connection, preparedStatement, resultSet,
+                    RDBMSConstants.TASK_RETIRING_QUEUE_PARTITION + storageQueueName);
+        }
+    }
+
+    /**
+     * Remove the messages and the queue mappings of retired queue partitions. Messages up to the purge point of a
+     * partition are removed in batches, committing each batch, so that the metadata table is not locked for long.
+     * Messages written after the purge point are then moved to the current partition of the queue in the same
+     * transaction removing the queue mapping of the retired partition.
+     *
+     * @return number of removed messages
+     * @throws AndesException on a database error
+     */
+    int removeRetiredQueuePartitions() throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        int removedMessageCount = 0;
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_RETIRED_QUEUE_IDS);
+            preparedStatement.setString(1, RDBMSConstants.RETIRED_PARTITION_PREFIX + "%");
+            resultSet = preparedStatement.executeQuery();
+            Map<Integer, String> retiredQueueIDs = new HashMap<>();
+            while (resultSet.next()) {
+                retiredQueueIDs.put(resultSet.getInt(RDBMSConstants.QUEUE_ID),
+                        resultSet.getString(RDBMSConstants.QUEUE_NAME));
+            }
+            resultSet.close();
+            preparedStatement.close();
+
+            for (Map.Entry<Integer, String> retiredQueue : retiredQueueIDs.entrySet()) {
+                int queueID = retiredQueue.getKey();
+                String[] partitionInfo = retiredQueue.getValue()
+                        .substring(RDBMSConstants.RETIRED_PARTITION_PREFIX.length())
+                        .split(RDBMSConstants.RETIRED_PARTITION_SEPARATOR, 3);
+                long purgePoint = Long.parseLong(partitionInfo[1]);
+                String storageQueueName = partitionInfo[2];
+
+                // Partition of a dead letter channel queue is referred by the dead letter channel queue id column
+                for (String queueColumn : new String[] { RDBMSConstants.QUEUE_ID, RDBMSConstants.DLC_QUEUE_ID }) {
+                    int removedBatchSize;
+                    do {
+                        removedBatchSize = queuePartitionDialect.deleteBatch(connection, queueColumn, queueID,
+                                purgePoint, retiredPartitionCleanupBatchSize);
+                        connection.commit();
+                        removedMessageCount = removedMessageCount + removedBatchSize;
+                    } while (removedBatchSize >= retiredPartitionCleanupBatchSize);
+                }
+
+                int movedMessageCount = moveMessagesAfterPurgePoint(connection, queueID, purgePoint,
+                        storageQueueName);
+                preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_QUEUE_BY_ID);
+                preparedStatement.setInt(1, queueID);
+                preparedStatement.executeUpdate();
+                connection.commit();
+                preparedStatement.close();
+
+                recordMessageCountChange(storageQueueName, movedMessageCount);
+            }
+
+            if (log.isDebugEnabled() && !retiredQueueIDs.isEmpty()) {
+                log.debug("Removed " + removedMessageCount + " messages of " + retiredQueueIDs.size()
+                        + " retired queue partitions");
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_REMOVING_RETIRED_PARTITIONS);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while removing retired queue partitions", e);
+        } finally {
+            close(connection, preparedStatement, resultSet, RDBMSConstants.TASK_REMOVING_RETIRED_PARTITIONS);
+        }
+        return removedMessageCount;
+    }
+
+    /**
+     * Move messages written to a retired queue partition after its purge point to the current partition of the
+     * queue, so that messages written by nodes not yet aware of the purge are not removed with the partition
+     *
+     * @param connection       connection to use. Caller is responsible for committing the transaction
+     * @param retiredQueueID   queue id of the retired partition
+     * @param purgePoint       largest message id of the partition when it was retired
+     * @param storageQueueName name of the queue the partition belonged to
+     * @return number of moved messages of the queue, not counting dead letter channel messages
+     * @throws SQLException   on a database error
+     * @throws AndesException on an error creating the queue id of the current partition
+     */
+    private int moveMessagesAfterPurgePoint(Connection connection, int retiredQueueID, long purgePoint,
+                                            String storageQueueName) throws SQLException, AndesException {
+        int queueID = getCachedQueueID(storageQueueName);
+
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_MOVE_MESSAGES_AFTER_PURGE_POINT);
+            preparedStatement.setInt(1, queueID);
+            preparedStatement.setInt(2, retiredQueueID);
+            preparedStatement.setLong(3, purgePoint);
+            int movedMessageCount = preparedStatement.executeUpdate();
+            preparedStatement.close();
+
+            // Partition of a dead letter channel queue is referred by the dead letter channel queue id column
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_MOVE_DLC_MESSAGES_AFTER_PURGE_POINT);
+            preparedStatement.setInt(1, queueID);
+            preparedStatement.setInt(2, retiredQueueID);
+            preparedStatement.setLong(3, purgePoint);
+            int movedDLCMessageCount = preparedStatement.executeUpdate();
+
+            if (movedMessageCount + movedDLCMessageCount > 0) {
+                log.info((movedMessageCount + movedDLCMessageCount) + " messages written to queue "
+                        + storageQueueName + " after it was purged are kept");
+            }
+            return movedMessageCount;
+        } finally {
+            close(preparedStatement, RDBMSConstants.TASK_REMOVING_RETIRED_PARTITIONS);
+        }
+    }
+
+    /**
+     * Replace the in memory message counts with the counts in the metadata table
+     *
+     * @throws AndesException on a database error
+     */
+    void reconcileMessageCounts() throws AndesException {
+        Map<String, Long> storedCounts = getStoredMessageCountForAllQueues();
+        // Changes recorded up to now are committed before the counts are read and are part of the stored counts
+        messageCounter.startReconciliation();
+        // Queues without a queue mapping are not counted by the store, but they are still known queues
+        Set<String> knownQueueNames = new HashSet<>(storedCounts.keySet());
+        for (StorageQueue queue : contextStore.getAllQueuesStored()) {
+            if (!DLCQueueUtils.isDeadLetterQueue(queue.getName())) {
+                knownQueueNames.add(queue.getName());
+            }
+        }
+        messageCounter.completeReconciliation(storedCounts, knownQueueNames);
+    }
+
+    /**
+     * Record a change of the message count of a queue in the in memory counter if message counts are kept in
+     * memory
+     *
+     * @param storageQueueName name of the queue
+     * @param delta            number of messages added, negative if messages are removed
+     */
+    private void recordMessageCountChange(String storageQueueName, long delta) {
+        if (null != messageCounter) {
+            messageCounter.recordLocalChange(storageQueueName, delta);
+        }
+    }
+
+    /**
+     * Get the number of rows changed by a batch update
+     *
+     * @param updateCounts update counts returned by the batch execution
+     * @return number of changed rows. A statement executed without a known update count is counted as one row
+     */
+    private static int getUpdatedRowCount(int[] updateCounts) {
+        int updatedRowCount = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount > 0) {
+                updatedRowCount = updatedRowCount + updateCount;
+            } else if (PreparedStatement.SUCCESS_NO_INFO == updateCount) {
+                updatedRowCount++;
+            }
+        }
+        return updatedRowCount;
+    }
+
+    /**
+     * Remove shared content and shared metadata no longer referred by any message. References are removed along
+     * with the message metadata.
+     *
+     * @return number of removed content chunks
+     * @throws AndesException on a database error
+     */
+    int deleteUnreferencedSharedContent() throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        int deletedChunkCount = 0;
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_UNREFERENCED_SHARED_CONTENT);
+            deletedChunkCount = preparedStatement.executeUpdate();
+            if (metadataSharingEnabled) {
+                preparedStatement.close();
+                preparedStatement = connection.prepareStatement(
+                        RDBMSConstants.PS_DELETE_UNREFERENCED_SHARED_METADATA);
+                preparedStatement.executeUpdate();
+            }
+            connection.commit();
+
+            if (log.isDebugEnabled()) {
+                log.debug("Removed " + deletedChunkCount + " unreferenced shared content chunks");
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_DELETING_UNREFERENCED_SHARED_CONTENT);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while removing unreferenced shared content", e);
+        } finally {
+            contextWrite.stop();
+            close(connection, preparedStatement, RDBMSConstants.TASK_DELETING_UNREFERENCED_SHARED_CONTENT);
+        }
+        return deletedChunkCount;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -253,6 +799,17 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
             if (results.next()) {
                 messagePart = createMessagePart(results, messageId, offsetValue);
+            } else if (contentSharingEnabled) {
+                results.close();
+                preparedStatement.close();
+                preparedStatement = connection.prepareStatement(RDBMSConstants.PS_RETRIEVE_SHARED_MESSAGE_PART);
+                preparedStatement.setLong(1, messageId);
+                preparedStatement.setInt(2, offsetValue);
+                results = preparedStatement.executeQuery();
+
+                if (results.next()) {
+                    messagePart = createMessagePart(results, messageId, offsetValue);
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils.convertSQLException("Error occurred while retrieving message content from DB" +
@@ -270,7 +827,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     @Override
     public LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList) throws AndesException {
 
-        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messageIDList.size());
+        final LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messageIDList.size());
         Context messageContentRetrievalContext = MetricManager.timer(MetricsConstants.GET_CONTENT_BATCH, Level.INFO)
                 .start();
         try {
@@ -284,6 +841,18 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                 fillContentFromStorage(messageIDList, contentList);
             }
 
+            if (contentSharingEnabled) {
+                LongArrayList sharedContentIDList = messageIDList.select(new LongPredicate() {
+                    @Override
+                    public boolean accept(long messageID) {
+                        return !contentList.containsKey(messageID);
+                    }
+                });
+                if (!sharedContentIDList.isEmpty()) {
+                    fillSharedContentFromStorage(sharedContentIDList, contentList);
+                }
+            }
+
         } finally {
             messageContentRetrievalContext.stop();
         }
@@ -301,6 +870,37 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private void fillContentFromStorage(LongArrayList messageIDList,
             LongObjectHashMap<List<AndesMessagePart>> contentList) throws AndesException {
+        fillContentFromStorage(
+                rdbmsStoreUtils.getSelectContentPreparedStmt(PS_SELECT_CONTENT_PART, messageIDList.size()),
+                messageIDList, contentList);
+    }
+
+    /**
+     * Utility method to retrieve shared content given the list of messages Ids. Content is retrieved through the
+     * content references of the messages.
+     *
+     * @param messageIDList message ids
+     * @param contentList   this list will be filled with content retrieved from database
+     * @throws AndesException an error
+     */
+    private void fillSharedContentFromStorage(LongArrayList messageIDList,
+            LongObjectHashMap<List<AndesMessagePart>> contentList) throws AndesException {
+        fillContentFromStorage(
+                rdbmsStoreUtils.getSelectContentPreparedStmt(RDBMSConstants.PS_SELECT_SHARED_CONTENT_PART,
+                        messageIDList.size()),
+                messageIDList, contentList);
+    }
+
+    /**
+     * Retrieve content using the given select statement and the list of message Ids.
+     *
+     * @param selectStatement select statement with a place holder for each message id
+     * @param messageIDList   message ids
+     * @param contentList     this list will be filled with content retrieved from database
+     * @throws AndesException an error
+     */
+    private void fillContentFromStorage(String selectStatement, LongArrayList messageIDList,
+            LongObjectHashMap<List<AndesMessagePart>> contentList) throws AndesException {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
@@ -308,7 +908,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(getSelectContentPreparedStmt(messageIDList.size()));
+            preparedStatement = connection.prepareStatement(selectStatement);
             for (int mesageIDCounter = 0; mesageIDCounter < messageIDList.size(); mesageIDCounter++) {
                 preparedStatement.setLong(mesageIDCounter + 1, messageIDList.get(mesageIDCounter));
             }
@@ -335,33 +935,31 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * Read metadata bytes of a message. If the message refers shared metadata, shared metadata is returned unless
+     * the message has its own metadata
+     *
+     * @param results result set positioned at the message
+     * @return metadata bytes
+     * @throws SQLException
+     */
+    private byte[] getMetadataBytes(ResultSet results) throws SQLException {
+        byte[] metadata = results.getBytes(RDBMSConstants.METADATA);
+        if (metadataSharingEnabled && (null == metadata || metadata.length == 0)) {
+            metadata = results.getBytes(RDBMSConstants.SHARED_METADATA);
+        }
+        return metadata;
+    }
+
     private AndesMessagePart createMessagePart(ResultSet results, long messageId, int offsetValue) throws SQLException {
         byte[] b = results.getBytes(MESSAGE_CONTENT);
         AndesMessagePart messagePart = new AndesMessagePart();
         messagePart.setMessageID(messageId);
         messagePart.setData(b);
         messagePart.setDataLength(b.length);
-        messagePart.setOffSet(offsetValue);
-
-        return messagePart;
-    }
-
-    /**
-     * Create a prepared statement with given number of ? values set to IN operator
-     *
-     * @param messageCount number of messages that content need to be retrieved from.
-     *                     CONDITION: messageCount > 0
-     * @return Prepared Statement
-     */
-    private String getSelectContentPreparedStmt(int messageCount) {
-
-        StringBuilder stmtBuilder = new StringBuilder(PS_SELECT_CONTENT_PART);
-        for (int i = 0; i < messageCount - 1; i++) {
-            stmtBuilder.append("?,");
-        }
+        messagePart.setOffSet(offsetValue);
 
-        stmtBuilder.append("?)");
-        return stmtBuilder.toString();
+        return messagePart;
     }
 
     /**
@@ -370,36 +968,63 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     @Override
     public void storeMessages(List<AndesMessage> messageList) throws AndesException {
         Connection connection = null;
-        PreparedStatement storeMetadataPS = null;
-        PreparedStatement storeContentPS = null;
-        PreparedStatement storeExpiryMetadataPS = null;
+        BulkInsert metadataInsert = new BulkInsert(PS_INSERT_METADATA, bulkInsertDialect, rowsPerInsertStatement);
+        BulkInsert contentInsert = new BulkInsert(PS_INSERT_MESSAGE_PART, bulkInsertDialect, rowsPerInsertStatement);
+        BulkInsert expiryInsert = new BulkInsert(PS_INSERT_EXPIRY_DATA, bulkInsertDialect, rowsPerInsertStatement);
+        PreparedStatement storeSharedContentPS = null;
+        PreparedStatement storeContentReferencePS = null;
+        PreparedStatement storeSharedMetadataPS = null;
         boolean messageWithExpirationDetected = false;
+        boolean messageWithSharedContentDetected = false;
 
         try {
 
             connection = getConnection();
-            storeMetadataPS = connection.prepareStatement(PS_INSERT_METADATA);
-            storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
-            storeExpiryMetadataPS = connection.prepareStatement(PS_INSERT_EXPIRY_DATA);
+            if (contentSharingEnabled) {
+                storeSharedContentPS = connection.prepareStatement(PS_INSERT_SHARED_MESSAGE_PART);
+                storeContentReferencePS = connection.prepareStatement(PS_INSERT_CONTENT_REFERENCE);
+            }
+            if (metadataSharingEnabled) {
+                storeSharedMetadataPS = connection.prepareStatement(RDBMSConstants.PS_INSERT_SHARED_METADATA);
+            }
 
             for (AndesMessage message : messageList) {
 
-                addMetadataToBatch(storeMetadataPS, message.getMetadata(), message.getMetadata().getStorageQueueName());
+                if (metadataSharingEnabled && message.isContentShared()) {
+                    addSharedMetadataToBatch(metadataInsert, storeSharedMetadataPS, message);
+                } else {
+                    addMetadataToBatch(metadataInsert, message.getMetadata(),
+                            message.getMetadata().getStorageQueueName());
+                }
                 //if message has expiration time store it into expiration table
                 if (message.getMetadata().isExpirationDefined()) {
                     messageWithExpirationDetected = true;
-                    addExpiryTableEntryToBatch(storeExpiryMetadataPS, message.getMetadata());
+                    addExpiryTableEntryToBatch(expiryInsert, message.getMetadata());
                 }
 
-                for (AndesMessagePart messagePart : message.getContentChunkList()) {
-                    addContentToBatch(storeContentPS, messagePart);
+                if (contentSharingEnabled && message.isContentShared()) {
+                    messageWithSharedContentDetected = true;
+                    addSharedContentToBatch(storeSharedContentPS, storeContentReferencePS, message);
+                } else {
+                    for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                        contentInsert.addRow(messagePart.getMessageID(), messagePart.getOffset(),
+                                messagePart.getData());
+                    }
                 }
             }
 
-            storeMetadataPS.executeBatch();
-            storeContentPS.executeBatch();
+            metadataInsert.execute(connection);
+            contentInsert.execute(connection);
+            if (messageWithSharedContentDetected) {
+                // Shared content has no referential integrity with metadata. Hence order is not important
+                storeSharedContentPS.executeBatch();
+                storeContentReferencePS.executeBatch();
+                if (metadataSharingEnabled) {
+                    storeSharedMetadataPS.executeBatch();
+                }
+            }
             if (messageWithExpirationDetected) {
-                storeExpiryMetadataPS.executeBatch();
+                expiryInsert.execute(connection);
             }
             connection.commit();
 
@@ -407,6 +1032,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             // Messages are added afterwards since we need to add messages to the cache only if they are added to the
             // database.
             addToCache(messageList);
+            for (AndesMessage message : messageList) {
+                recordMessageCountChange(message.getMetadata().getStorageQueueName(), 1);
+            }
         } catch (BatchUpdateException bue) {
             log.warn("Error occurred while inserting message list. Messages will be stored individually.", bue);
             rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
@@ -421,15 +1049,41 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
             throw rdbmsStoreUtils.convertSQLException("Error occurred while inserting messages to queue ", e);
         } finally {
-            close(storeExpiryMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
-            close(storeMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
-            close(storeContentPS, RDBMSConstants.TASK_ADDING_MESSAGES);
+            close(storeSharedMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
+            close(storeContentReferencePS, RDBMSConstants.TASK_ADDING_MESSAGES);
+            close(storeSharedContentPS, RDBMSConstants.TASK_ADDING_MESSAGES);
             close(connection, RDBMSConstants.TASK_ADDING_MESSAGES);
         }
     }
 
     /**
-     * Store a given Andes message to the database and the cache
+     * Adds a reference to the shared content of the message to the batch. Content is added only for the message
+     * owning the shared content.
+     *
+     * @param sharedContentPS      prepared statement for storing shared content
+     * @param contentReferencePS   prepared statement for storing content references
+     * @param message              message with shared content
+     * @throws SQLException
+     */
+    private void addSharedContentToBatch(PreparedStatement sharedContentPS, PreparedStatement contentReferencePS,
+                                         AndesMessage message) throws SQLException {
+        long contentId = message.getContentId();
+        if (message.isContentOwner()) {
+            for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                sharedContentPS.setLong(1, contentId);
+                sharedContentPS.setInt(2, messagePart.getOffset());
+                sharedContentPS.setBytes(3, messagePart.getData());
+                sharedContentPS.addBatch();
+            }
+        }
+        contentReferencePS.setLong(1, message.getMetadata().getMessageID());
+        contentReferencePS.setLong(2, contentId);
+        contentReferencePS.addBatch();
+    }
+
+    /**
+     * Store a given Andes message to the database and the cache. Content is always stored for the given message
+     * alone since the message owning shared content may fail to be stored.
      *
      * @param message
      * @throws AndesException
@@ -464,6 +1118,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             }
             connection.commit();
             addToCache(message);
+            recordMessageCountChange(metadata.getStorageQueueName(), 1);
         } catch (AndesException e) {
             rollback(connection, RDBMSConstants.TASK_ADDING_MESSAGE);
             throw e;
@@ -502,10 +1157,12 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             preparedStatement.setInt(1, getCachedQueueID(targetQueueName));
             preparedStatement.setLong(2, messageId);
             preparedStatement.setInt(3, getCachedQueueID(currentQueueName));
-            preparedStatement.execute();
+            int movedCount = preparedStatement.executeUpdate();
             preparedStatement.close();
 
             connection.commit();
+            recordMessageCountChange(currentQueueName, -movedCount);
+            recordMessageCountChange(targetQueueName, movedCount);
         } catch (SQLException e) {
             rollback(connection, RDBMSConstants.TASK_UPDATING_META_DATA_QUEUE + targetQueueName);
             throw rdbmsStoreUtils.convertSQLException(
@@ -695,6 +1352,10 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             //remove messages from cache
             removeFromCache(messageIDsToRemoveFromCache);
             connection.commit();
+            // Messages in DLC are not counted under the queue
+            for (AndesMessageMetadata message : messages) {
+                recordMessageCountChange(message.getStorageQueueName(), -1);
+            }
         } catch (SQLException e) {
             rollback(connection, RDBMSConstants.TASK_MOVING_METADATA_TO_DLC);
             throw rdbmsStoreUtils
@@ -738,6 +1399,12 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             preparedStatement.close();
 
             connection.commit();
+            for (AndesMessageMetadata metadata : metadataList) {
+                if (!currentQueueName.equals(metadata.getStorageQueueName())) {
+                    recordMessageCountChange(currentQueueName, -1);
+                    recordMessageCountChange(metadata.getStorageQueueName(), 1);
+                }
+            }
         } catch (BatchUpdateException bue) {
             rdbmsStoreUtils
                     .raiseBatchUpdateException(metadataList, connection, bue, RDBMSConstants.TASK_UPDATING_META_DATA);
@@ -755,26 +1422,59 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     /**
      * Adds a single metadata to a batch insert of metadata.
      *
-     * @param preparedStatement prepared statement to add messages to metadata table
-     * @param metadata          AndesMessageMetadata
-     * @param queueName         queue to be assigned
-     * @throws SQLException
+     * @param metadataInsert bulk insert of rows to metadata table
+     * @param metadata       AndesMessageMetadata
+     * @param queueName      queue to be assigned
+     * @throws AndesException
      */
-    private void addMetadataToBatch(PreparedStatement preparedStatement, AndesMessageMetadata metadata,
+    private void addMetadataToBatch(BulkInsert metadataInsert, AndesMessageMetadata metadata,
             final String queueName) throws AndesException {
+        addMetadataToBatch(metadataInsert, metadata, queueName, metadata.getMetadata());
+    }
+
+    /**
+     * Adds a copy of a message with shared content to the metadata batch without metadata bytes. Metadata bytes
+     * are added to the shared metadata batch only for the message owning the shared content.
+     *
+     * @param metadataInsert   bulk insert of rows to metadata table
+     * @param sharedMetadataPS prepared statement to add messages to shared metadata table
+     * @param message          message with shared content
+     * @throws AndesException
+     */
+    private void addSharedMetadataToBatch(BulkInsert metadataInsert, PreparedStatement sharedMetadataPS,
+            AndesMessage message) throws AndesException {
+        AndesMessageMetadata metadata = message.getMetadata();
+        addMetadataToBatch(metadataInsert, metadata, metadata.getStorageQueueName(), SHARED_METADATA_MARKER);
+
+        if (message.isContentOwner()) {
+            try {
+                sharedMetadataPS.setLong(1, message.getContentId());
+                sharedMetadataPS.setBytes(2, metadata.getMetadata());
+                sharedMetadataPS.addBatch();
+            } catch (SQLException e) {
+                throw rdbmsStoreUtils.convertSQLException("error occurred while adding shared metadata with "
+                        + "messaged id: " + metadata.getMessageID() + " to batch", e);
+            }
+        }
+    }
+
+    /**
+     * Adds message metadata to a batch with given metadata bytes
+     *
+     * @param metadataInsert bulk insert of rows to metadata table
+     * @param metadata       AndesMessageMetadata
+     * @param queueName      queue to be assigned
+     * @param metadataBytes  metadata bytes to store
+     * @throws AndesException
+     */
+    private void addMetadataToBatch(BulkInsert metadataInsert, AndesMessageMetadata metadata,
+            final String queueName, byte[] metadataBytes) throws AndesException {
 
         Context metaAdditionToBatchContext = MetricManager.timer(MetricsConstants.ADD_META_DATA_TO_BATCH, Level.INFO)
                 .start();
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
         try {
-            preparedStatement.setLong(1, metadata.getMessageID());
-            preparedStatement.setInt(2, getCachedQueueID(queueName));
-            preparedStatement.setBytes(3, metadata.getMetadata());
-            preparedStatement.addBatch();
-        } catch (SQLException e) {
-            throw rdbmsStoreUtils.convertSQLException(
-                    "error occurred while adding metadata with messaged id: " + metadata.getMessageID() + " to batch",
-                    e);
+            metadataInsert.addRow(metadata.getMessageID(), getCachedQueueID(queueName), metadataBytes);
         } finally {
             metaAdditionToBatchContext.stop();
             contextWrite.stop();
@@ -782,18 +1482,13 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     }
 
     /**
-     * Does a batch update on the given prepared statement to add entries to expiry table.
+     * Adds an entry of the expiry table to the given bulk insert.
      *
-     * @param preparedStatement PreparedStatement. Object is not closed within the method
-     * @param metadata          AndesMessageMetadata
-     * @throws SQLException
+     * @param expiryInsert bulk insert of rows to expiry table
+     * @param metadata     AndesMessageMetadata
      */
-    private void addExpiryTableEntryToBatch(PreparedStatement preparedStatement, AndesMessageMetadata metadata)
-            throws SQLException {
-        preparedStatement.setLong(1, metadata.getMessageID());
-        preparedStatement.setLong(2, metadata.getExpirationTime());
-        preparedStatement.setString(3, metadata.getStorageQueueName());
-        preparedStatement.addBatch();
+    private void addExpiryTableEntryToBatch(BulkInsert expiryInsert, AndesMessageMetadata metadata) {
+        expiryInsert.addRow(metadata.getMessageID(), metadata.getExpirationTime(), metadata.getStorageQueueName());
     }
 
     /**
@@ -818,11 +1513,12 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA);
+            preparedStatement = connection.prepareStatement(metadataSharingEnabled
+                    ? RDBMSConstants.PS_SELECT_SHARED_METADATA : RDBMSConstants.PS_SELECT_METADATA);
             preparedStatement.setLong(1, messageId);
             results = preparedStatement.executeQuery();
             if (results.next()) {
-                byte[] b = results.getBytes(RDBMSConstants.METADATA);
+                byte[] b = getMetadataBytes(results);
                 md = new AndesMessageMetadata(messageId, b, true);
             }
         } catch (SQLException e) {
@@ -842,8 +1538,22 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     @Override
     public List<DeliverableAndesMetadata> getMetadataList(Slot slot, final String storageQueueName, long firstMsgId,
             long lastMsgID) throws AndesException {
+        MetadataListCollector<DeliverableAndesMetadata> collector = new MetadataListCollector<>();
+        streamMetadataList(slot, storageQueueName, firstMsgId, lastMsgID, collector);
+
+        if (log.isDebugEnabled()) {
+            log.debug("request: metadata range (" + firstMsgId + " , " + lastMsgID + ") in destination queue "
+                    + storageQueueName + ", response: metadata count " + collector.getMetadataList().size());
+        }
+        return collector.getMetadataList();
+    }
 
-        List<DeliverableAndesMetadata> metadataList = new ArrayList<>();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamMetadataList(Slot slot, String storageQueueName, long firstMsgId, long lastMsgID,
+            MetadataConsumer<DeliverableAndesMetadata> consumer) throws AndesException {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
@@ -853,7 +1563,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE);
+            preparedStatement = rdbmsStoreUtils.prepareMetadataReadStatement(connection,
+                    metadataSharingEnabled ? RDBMSConstants.PS_SELECT_SHARED_METADATA_RANGE_FROM_QUEUE
+                            : RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE, 0, metadataReadFetchSize);
             preparedStatement.setInt(1, getCachedQueueID(storageQueueName));
             preparedStatement.setLong(2, firstMsgId);
             preparedStatement.setLong(3, lastMsgID);
@@ -861,16 +1573,14 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             resultSet = preparedStatement.executeQuery();
             while (resultSet.next()) {
                 DeliverableAndesMetadata md = new DeliverableAndesMetadata(slot,
-                        resultSet.getLong(RDBMSConstants.MESSAGE_ID), resultSet.getBytes(RDBMSConstants.METADATA),
+                        resultSet.getLong(RDBMSConstants.MESSAGE_ID), getMetadataBytes(resultSet),
                         true);
                 md.setStorageQueueName(storageQueueName);
-                metadataList.add(md);
                 //Tracing message
                 MessageTracer.trace(md, MessageTracer.METADATA_READ_FROM_DB + " slot = " + slot.getId());
-            }
-            if (log.isDebugEnabled()) {
-                log.debug("request: metadata range (" + firstMsgId + " , " + lastMsgID + ") in destination queue "
-                        + storageQueueName + ", response: metadata count " + metadataList.size());
+                if (!consumer.consume(md)) {
+                    break;
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils.convertSQLException(
@@ -882,7 +1592,6 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             close(connection, preparedStatement, resultSet,
                     RDBMSConstants.TASK_RETRIEVING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
         }
-        return metadataList;
     }
 
     /**
@@ -976,8 +1685,21 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     @Override
     public List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(final String storageQueueName, long firstMsgId,
             int count) throws AndesException {
+        MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>(count);
+        streamNextNMessageMetadataFromQueue(storageQueueName, firstMsgId, count, collector);
+        return collector.getMetadataList();
+    }
 
-        List<AndesMessageMetadata> mdList = new ArrayList<>(count);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        // A statement without a row limit would read the whole queue
+        if (count <= 0) {
+            return;
+        }
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet results = null;
@@ -988,23 +1710,20 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE);
+            preparedStatement = rdbmsStoreUtils.prepareMetadataReadStatement(connection,
+                    metadataSharingEnabled ? RDBMSConstants.PS_SELECT_SHARED_METADATA_FROM_QUEUE
+                            : RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE, count, metadataReadFetchSize);
             preparedStatement.setLong(1, firstMsgId - 1);
             preparedStatement.setInt(2, getCachedQueueID(storageQueueName));
 
             results = preparedStatement.executeQuery();
-            int resultCount = 0;
             while (results.next()) {
-
-                if (resultCount == count) {
-                    break;
-                }
-
                 AndesMessageMetadata md = new AndesMessageMetadata(results.getLong(RDBMSConstants.MESSAGE_ID),
-                        results.getBytes(RDBMSConstants.METADATA), true);
+                        getMetadataBytes(results), true);
                 md.setStorageQueueName(storageQueueName);
-                mdList.add(md);
-                resultCount++;
+                if (!consumer.consume(md)) {
+                    break;
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils
@@ -1014,7 +1733,6 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             contextRead.stop();
             close(connection, preparedStatement, results, RDBMSConstants.TASK_RETRIEVING_NEXT_N_METADATA_FROM_QUEUE);
         }
-        return mdList;
     }
 
     /**
@@ -1035,7 +1753,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_IN_DLC_FOR_QUEUE);
+            preparedStatement = connection.prepareStatement(metadataSharingEnabled
+                    ? RDBMSConstants.PS_SELECT_SHARED_METADATA_IN_DLC_FOR_QUEUE
+                    : RDBMSConstants.PS_SELECT_METADATA_IN_DLC_FOR_QUEUE);
             preparedStatement.setLong(1, firstMsgId - 1);
             preparedStatement.setInt(2, getCachedQueueID(storageQueueName));
             preparedStatement.setInt(3, getCachedQueueID(dlcQueueName));
@@ -1048,7 +1768,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                 }
 
                 AndesMessageMetadata md = new AndesMessageMetadata(results.getLong(RDBMSConstants.MESSAGE_ID),
-                        results.getBytes(RDBMSConstants.METADATA), true);
+                        getMetadataBytes(results), true);
                 md.setStorageQueueName(storageQueueName);
                 mdList.add(md);
                 resultCount++;
@@ -1071,7 +1791,21 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     @Override
     public List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count)
             throws AndesException {
-        List<AndesMessageMetadata> mdList = new ArrayList<>(count);
+        MetadataListCollector<AndesMessageMetadata> collector = new MetadataListCollector<>(count);
+        streamNextNMessageMetadataFromDLC(dlcQueueName, firstMsgId, count, collector);
+        return collector.getMetadataList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+        // A statement without a row limit would read the whole dead letter channel
+        if (count <= 0) {
+            return;
+        }
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet results = null;
@@ -1082,22 +1816,19 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_IN_DLC);
+            preparedStatement = rdbmsStoreUtils.prepareMetadataReadStatement(connection,
+                    metadataSharingEnabled ? RDBMSConstants.PS_SELECT_SHARED_METADATA_IN_DLC
+                            : RDBMSConstants.PS_SELECT_METADATA_IN_DLC, count, metadataReadFetchSize);
             preparedStatement.setLong(1, firstMsgId - 1);
             preparedStatement.setInt(2, getCachedQueueID(dlcQueueName));
             results = preparedStatement.executeQuery();
-            int resultCount = 0;
             while (results.next()) {
-
-                if (resultCount == count) {
-                    break;
-                }
-
                 AndesMessageMetadata md = new AndesMessageMetadata(results.getLong(RDBMSConstants.MESSAGE_ID),
-                        results.getBytes(RDBMSConstants.METADATA), true);
+                        getMetadataBytes(results), true);
                 md.setStorageQueueName(dlcQueueName);
-                mdList.add(md);
-                resultCount++;
+                if (!consumer.consume(md)) {
+                    break;
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils
@@ -1107,7 +1838,6 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             contextRead.stop();
             close(connection, preparedStatement, results, RDBMSConstants.TASK_RETRIEVING_NEXT_N_METADATA_FROM_DLC);
         }
-        return mdList;
     }
 
     /**
@@ -1134,8 +1864,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                 preparedStatement.setLong(2, messageID.getMessageID());
                 preparedStatement.addBatch();
             }
-            preparedStatement.executeBatch();
+            int deletedCount = getUpdatedRowCount(preparedStatement.executeBatch());
             connection.commit();
+            recordMessageCountChange(storageQueueName, -deletedCount);
 
             if (log.isDebugEnabled()) {
                 log.debug("Metadata removed. " + messagesToRemove.size() +
@@ -1181,8 +1912,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             }
 
             removeFromCache(messageIDsToRemoveFromCache);
-            metadataRemovalPreparedStatement.executeBatch();
+            int deletedCount = getUpdatedRowCount(metadataRemovalPreparedStatement.executeBatch());
             connection.commit();
+            recordMessageCountChange(storageQueueName, -deletedCount);
 
             if (log.isDebugEnabled()) {
                 log.debug("Metadata and content removed: " + messagesToRemove.size() + " for destination queue:"
@@ -1210,6 +1942,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             throws AndesException {
         Connection connection = null;
         PreparedStatement metadataRemovalPreparedStatement = null;
+        PreparedStatement queueSelectionPreparedStatement = null;
 
         Context messageDeletionContext = MetricManager
                 .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
@@ -1231,9 +1964,32 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                 metadataRemovalPreparedStatement.addBatch();
             }
 
+            // Queues of the messages are read in the deleting transaction so that the counts match the deleted rows
+            Map<String, Long> removedMessageCounts = new HashMap<>();
+            if (null != messageCounter) {
+                queueSelectionPreparedStatement =
+                        connection.prepareStatement(RDBMSConstants.PS_SELECT_QUEUE_NAME_OF_MESSAGE);
+                for (long messageID : messagesToRemove) {
+                    queueSelectionPreparedStatement.setLong(1, messageID);
+                    ResultSet resultSet = queueSelectionPreparedStatement.executeQuery();
+                    try {
+                        while (resultSet.next()) {
+                            String storageQueueName = resultSet.getString(RDBMSConstants.QUEUE_NAME);
+                            Long removedCount = removedMessageCounts.get(storageQueueName);
+                            removedMessageCounts.put(storageQueueName, null == removedCount ? 1 : removedCount + 1);
+                        }
+                    } finally {
+                        resultSet.close();
+                    }
+                }
+            }
+
             removeFromCache(messageIDsToRemoveFromCache);
             metadataRemovalPreparedStatement.executeBatch();
             connection.commit();
+            for (Map.Entry<String, Long> removedMessageCount : removedMessageCounts.entrySet()) {
+                recordMessageCountChange(removedMessageCount.getKey(), -removedMessageCount.getValue());
+            }
 
             if (log.isDebugEnabled()) {
                 log.debug("Metadata and content removed: " + messagesToRemove.size());
@@ -1245,10 +2001,96 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         } finally {
             messageDeletionContext.stop();
             contextWrite.stop();
+            close(queueSelectionPreparedStatement, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
             close(connection, metadataRemovalPreparedStatement, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteMessagesInRange(final String storageQueueName, long firstMsgId, long lastMsgId,
+                                         LongArrayList messageIDs) throws AndesException {
+        Connection connection = null;
+        PreparedStatement selectPreparedStatement = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        boolean deleted = false;
+        int deletedCount = 0;
+
+        Context messageDeletionContext = MetricManager
+                .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
+        Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+
+        try {
+            connection = getConnection();
+            int queueID = getCachedQueueID(storageQueueName);
+
+            // The range should hold exactly the given messages. Comparing counts alone would delete a message not
+            // yet acknowledged when one of the given messages is already gone from the range
+            selectPreparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_MESSAGE_IDS_IN_RANGE);
+            selectPreparedStatement.setInt(1, queueID);
+            selectPreparedStatement.setLong(2, firstMsgId);
+            selectPreparedStatement.setLong(3, lastMsgId);
+            resultSet = selectPreparedStatement.executeQuery();
+            LongHashSet expectedMessageIDs = LongHashSet.newSet(messageIDs);
+            int messageCountInRange = 0;
+            boolean onlyGivenMessagesInRange = true;
+            while (onlyGivenMessagesInRange && resultSet.next()) {
+                messageCountInRange++;
+                onlyGivenMessagesInRange = expectedMessageIDs.contains(resultSet.getLong(MESSAGE_ID));
+            }
+
+            if (!onlyGivenMessagesInRange || messageCountInRange != expectedMessageIDs.size()) {
+                // Range contains messages other than the given ones. Those should not be deleted
+                connection.rollback();
+                if (log.isDebugEnabled()) {
+                    log.debug("Range delete of " + storageQueueName + " [" + firstMsgId + ", " + lastMsgId
+                            + "] skipped. Range does not hold exactly the " + expectedMessageIDs.size()
+                            + " given messages");
+                }
+                return false;
+            }
+
+            //Since referential integrity is imposed on the two tables: message content and metadata,
+            //deleting message metadata will cause message content to be automatically deleted
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_IN_RANGE);
+            preparedStatement.setInt(1, queueID);
+            preparedStatement.setLong(2, firstMsgId);
+            preparedStatement.setLong(3, lastMsgId);
+            deletedCount = preparedStatement.executeUpdate();
+
+            // Counts differ if a message is written to the range after the check
+            if (deletedCount == expectedMessageIDs.size()) {
+                removeFromCache(messageIDs);
+                connection.commit();
+                recordMessageCountChange(storageQueueName, -deletedCount);
+                deleted = true;
+            } else {
+                // Range contains messages other than the given ones. Those should not be deleted
+                connection.rollback();
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Range delete of " + storageQueueName + " [" + firstMsgId + ", " + lastMsgId + "] "
+                        + (deleted ? "removed " : "rolled back. Found ") + deletedCount + " messages, expected "
+                        + messageIDs.size());
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_DELETING_METADATA_IN_RANGE + storageQueueName);
+            throw rdbmsStoreUtils.convertSQLException("error occurred while deleting message metadata in range "
+                    + "for queue ", e);
+        } finally {
+            messageDeletionContext.stop();
+            contextWrite.stop();
+            close(resultSet, RDBMSConstants.TASK_DELETING_METADATA_IN_RANGE + storageQueueName);
+            close(selectPreparedStatement, RDBMSConstants.TASK_DELETING_METADATA_IN_RANGE + storageQueueName);
+            close(connection, preparedStatement, RDBMSConstants.TASK_DELETING_METADATA_IN_RANGE + storageQueueName);
+        }
+        return deleted;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1326,6 +2168,43 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, LongLongHashMap> getMessageExpirationTimes() throws AndesException {
+
+        Connection connection = null;
+        Map<String, LongLongHashMap> expirationTimes = new HashMap<>();
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
+
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_MESSAGE_EXPIRATION_TIMES);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                String storageQueueName = resultSet.getString(RDBMSConstants.DESTINATION_QUEUE);
+                LongLongHashMap expirationTimesOfQueue = expirationTimes.get(storageQueueName);
+                if (null == expirationTimesOfQueue) {
+                    expirationTimesOfQueue = new LongLongHashMap();
+                    expirationTimes.put(storageQueueName, expirationTimesOfQueue);
+                }
+                expirationTimesOfQueue.put(resultSet.getLong(RDBMSConstants.MESSAGE_ID),
+                        resultSet.getLong(RDBMSConstants.EXPIRATION_TIME));
+            }
+            return expirationTimes;
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("error occurred while retrieving message expiration times.", e);
+        } finally {
+            contextRead.stop();
+            close(connection, preparedStatement, resultSet, RDBMSConstants.TASK_RETRIEVING_EXPIRED_MESSAGES);
+        }
+    }
+
     @Override
     public List<Long> getExpiredMessagesFromDLC() throws AndesException {
 
@@ -1359,8 +2238,24 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      * {@inheritDoc}
      */
     @Override
-    public void close() {
+    public boolean isContentSharingEnabled() {
+        return contentSharingEnabled;
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (null != sharedContentCleanupExecutor) {
+            sharedContentCleanupExecutor.shutdownNow();
+        }
+        if (null != messageCountReconcileExecutor) {
+            messageCountReconcileExecutor.shutdownNow();
+        }
+        if (null != retiredPartitionCleanupExecutor) {
+            retiredPartitionCleanupExecutor.shutdownNow();
+        }
     }
 
     /**
@@ -1597,6 +2492,15 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public int deleteAllMessageMetadata(String storageQueueName) throws AndesException {
+        if (null != queuePartitionDialect) {
+            int messageCount = (int) getMessageCountForQueue(storageQueueName);
+            retireQueuePartition(storageQueueName);
+            if (null != messageCounter) {
+                messageCounter.reset(storageQueueName);
+            }
+            return messageCount;
+        }
+
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
@@ -1609,6 +2513,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             preparedStatement.setInt(1, queueID);
             deletedMessagecount = preparedStatement.executeUpdate();
             connection.commit();
+            if (null != messageCounter) {
+                messageCounter.reset(storageQueueName);
+            }
             if (log.isDebugEnabled()) {
                 log.debug("DELETED all message metadata from " + storageQueueName +
                         " with queue ID " + queueID);
@@ -1629,6 +2536,12 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public int clearDLCQueue(String dlcQueueName) throws AndesException {
+        if (null != queuePartitionDialect) {
+            int messageCount = (int) getMessageCountForDLCQueue(dlcQueueName);
+            retireQueuePartition(dlcQueueName);
+            return messageCount;
+        }
+
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
@@ -1719,10 +2632,55 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public Map<String, Integer> getMessageCountForAllQueues(List<String> queueNames) throws AndesException {
+        Map<String, Integer> queueMessageCountForName = new HashMap<>();
+        if (null != messageCounter) {
+            for (String queueName : queueNames) {
+                long messageCount = messageCounter.getCount(queueName);
+                if (InMemoryMessageCounter.UNKNOWN_COUNT == messageCount) {
+                    break;
+                }
+                queueMessageCountForName.put(queueName, (int) messageCount);
+            }
+            if (queueMessageCountForName.size() == queueNames.size()) {
+                return queueMessageCountForName;
+            }
+            queueMessageCountForName.clear();
+        }
+
+        // Queues without a queue mapping have no messages in the store
+        for (String queueName : queueNames) {
+            queueMessageCountForName.put(queueName, 0);
+        }
+        Map<String, Long> storedMessageCounts = getStoredMessageCountForAllQueues();
+        for (Map.Entry<String, Long> entry : storedMessageCounts.entrySet()) {
+            if (queueMessageCountForName.containsKey(entry.getKey())) {
+                queueMessageCountForName.put(entry.getKey(), entry.getValue().intValue());
+            }
+            if (null != messageCounter) {
+                messageCounter.initializeCount(entry.getKey(), entry.getValue());
+            }
+        }
+        if (null != messageCounter) {
+            for (String queueName : queueNames) {
+                if (!storedMessageCounts.containsKey(queueName)) {
+                    messageCounter.initializeCount(queueName, 0);
+                }
+            }
+        }
+        return queueMessageCountForName;
+    }
+
+    /**
+     * Count the messages of all queues in the metadata table. Messages in the dead letter channel are not counted.
+     *
+     * @return map of queue names and the message count for each queue
+     * @throws AndesException on a database error
+     */
+    private Map<String, Long> getStoredMessageCountForAllQueues() throws AndesException {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet results = null;
-        Map<String, Integer> queueMessageCountForName = new HashMap<>();
+        Map<String, Long> queueMessageCountForName = new HashMap<>();
         Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
         try {
             connection = getConnection();
@@ -1736,8 +2694,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             // db for that queue. Hence we add the value 0 for those queue
             while (results.next()) {
                 String queueName = results.getString(RDBMSConstants.QUEUE_NAME);
-                if (!(DLCQueueUtils.isDeadLetterQueue(queueName)) && queueNames.contains(queueName)) {
-                    queueMessageCountForName.put(queueName, results.getInt(RDBMSConstants.PS_ALIAS_FOR_COUNT));
+                if (!(DLCQueueUtils.isDeadLetterQueue(queueName))
+                        && !queueName.startsWith(RDBMSConstants.RETIRED_PARTITION_PREFIX)) {
+                    queueMessageCountForName.put(queueName, results.getLong(RDBMSConstants.PS_ALIAS_FOR_COUNT));
                 }
             }
 
@@ -1755,6 +2714,13 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public long getMessageCountForQueue(String storageQueueName) throws AndesException {
+        if (null != messageCounter) {
+            long messageCount = messageCounter.getCount(storageQueueName);
+            if (InMemoryMessageCounter.UNKNOWN_COUNT != messageCount) {
+                return messageCount;
+            }
+        }
+
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet results = null;
@@ -1780,6 +2746,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                     RDBMSConstants.TASK_RETRIEVING_QUEUE_MSG_COUNT + storageQueueName);
         }
 
+        if (null != messageCounter) {
+            messageCounter.initializeCount(storageQueueName, messageCount);
+        }
         return messageCount;
     }
 
@@ -1849,7 +2818,10 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
-        // Message count is taken from DB itself. No need to implement this
+        // Message count is taken from DB itself unless counts are kept in memory
+        if (null != messageCounter) {
+            messageCounter.reset(storageQueueName);
+        }
     }
 
     /**
@@ -1869,6 +2841,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             preparedStatement.setString(1, storageQueueName);
             preparedStatement.execute();
             connection.commit();
+            if (null != messageCounter) {
+                messageCounter.remove(storageQueueName);
+            }
         } catch (SQLException e) {
             rollback(connection, RDBMSConstants.TASK_DELETE_QUEUE_MAPPING);
             throw rdbmsStoreUtils.convertSQLException(
@@ -1896,7 +2871,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public void incrementMessageCountForQueue(String destinationQueueName, long incrementBy) throws AndesException {
-        // Message count is taken from DB itself. No need to implement this
+        // Changes done by the store are counted by the store itself. This is used for changes the store can not
+        // attribute to a queue
+        recordMessageCountChange(destinationQueueName, incrementBy);
     }
 
     /**
@@ -1904,7 +2881,72 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public void decrementMessageCountForQueue(String destinationQueueName, long decrementBy) throws AndesException {
-        // Message count is taken from DB itself. No need to implement this
+        // Changes done by the store are counted by the store itself. This is used for changes the store can not
+        // attribute to a queue
+        recordMessageCountChange(destinationQueueName, -decrementBy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> drainMessageCountChanges() {
+        if (null == messageCounter) {
+            return Collections.emptyMap();
+        }
+        return messageCounter.drainLocalChanges();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyMessageCountChanges(Map<String, Long> messageCountChanges) {
+        if (null != messageCounter) {
+            for (Map.Entry<String, Long> entry : messageCountChanges.entrySet()) {
+                messageCounter.applyRemoteChange(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cacheMessageContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+        LongObjectHashMap<AndesMessageMetadata> metadataMap = new LongObjectHashMap<>(metadataList.size());
+        LongArrayList messageIDList = new LongArrayList(metadataList.size());
+        for (AndesMessageMetadata metadata : metadataList) {
+            if (metadata.getMessageContentLength() > 0 && !messageCache.isInCache(metadata.getMessageID())) {
+                metadataMap.put(metadata.getMessageID(), metadata);
+                messageIDList.add(metadata.getMessageID());
+            }
+        }
+        if (messageIDList.isEmpty()) {
+            return;
+        }
+
+        final LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messageIDList.size());
+        fillContentFromStorage(messageIDList, contentList);
+        if (contentSharingEnabled && contentList.size() < messageIDList.size()) {
+            LongArrayList sharedContentIDList = messageIDList.select(new LongPredicate() {
+                @Override
+                public boolean accept(long messageID) {
+                    return !contentList.containsKey(messageID);
+                }
+            });
+            fillSharedContentFromStorage(sharedContentIDList, contentList);
+        }
+
+        for (int i = 0; i < messageIDList.size(); i++) {
+            long messageID = messageIDList.get(i);
+            List<AndesMessagePart> parts = contentList.get(messageID);
+            if (null != parts) {
+                AndesMessage message = new AndesMessage(metadataMap.get(messageID));
+                message.setChunkList(parts);
+                addToCache(message);
+            }
+        }
     }
 
     /**
@@ -132,6 +132,66 @@ public class RDBMSStoreUtils {
 
     }
 
+    /**
+     * Find the dialect used to insert rows in bulk from the JDBC URL of the connection
+     *
+     * @param connection connection to the database
+     * @return bulk insert dialect of the database
+     * @throws SQLException on an error reading the connection metadata
+     */
+    public BulkInsertDialect getBulkInsertDialect(Connection connection) throws SQLException {
+        String jdbcUrl = connection.getMetaData().getURL();
+        BulkInsertDialect dialect = BulkInsertDialect.fromJdbcUrl(jdbcUrl);
+        if (log.isDebugEnabled()) {
+            log.debug("Using bulk insert dialect " + dialect + " for " + jdbcUrl);
+        }
+        return dialect;
+    }
+
+    /**
+     * Prepare a statement reading metadata rows. Rows are read through a forward only, read only cursor fetching
+     * at most the given number of rows from the database at a time, so that large ranges are not held by the
+     * driver in memory at once.
+     *
+     * @param connection connection to the database
+     * @param sql        select statement
+     * @param maxRows    maximum number of rows to read. 0 if all the rows are read
+     * @param fetchSize  maximum number of rows fetched from the database at a time
+     * @return prepared statement
+     * @throws SQLException on a database error
+     */
+    public PreparedStatement prepareMetadataReadStatement(Connection connection, String sql, int maxRows,
+            int fetchSize) throws SQLException {
+        PreparedStatement preparedStatement =
+                connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (maxRows > 0) {
+            preparedStatement.setMaxRows(maxRows);
+            preparedStatement.setFetchSize(Math.min(maxRows, fetchSize));
+        } else {
+            preparedStatement.setFetchSize(fetchSize);
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Create a prepared statement with given number of ? values set to IN operator
+     *
+     * @param statementPrefix partially created select statement ending with the IN operator
+     * @param messageCount number of messages that content need to be retrieved from.
+     *                     CONDITION: messageCount > 0
+     * @return Prepared Statement
+     */
+    public String getSelectContentPreparedStmt(String statementPrefix, int messageCount) {
+
+        StringBuilder stmtBuilder = new StringBuilder(statementPrefix);
+        for (int i = 0; i < messageCount - 1; i++) {
+            stmtBuilder.append("?,");
+        }
+
+        stmtBuilder.append("?)");
+        return stmtBuilder.toString();
+    }
+
     private AndesException convertBySQLException(String message, SQLException sqlException) {
         AndesException convertedException = null;
 
@@ -21,8 +21,7 @@ package org.wso2.andes.thrift;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
@@ -31,21 +30,30 @@ import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.slot.ConnectionException;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotBatchException;
 import org.wso2.andes.server.cluster.ClusterAgent;
 import org.wso2.andes.thrift.exception.ThriftClientException;
 import org.wso2.andes.thrift.slot.gen.SlotInfo;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * A wrapper client for the native thrift client. All the public methods in this class are
- * synchronized in order to avoid out of sequence response exception from thrift server. Only one
- * method should be triggered at a time in order to get the responses from the server in order.
+ * A wrapper client for the native thrift client. A native client gets the responses from the server in order only
+ * if one method is triggered at a time. Therefore each call borrows a client from a pool of connections to the
+ * slot coordinator and returns it once the response is read. Calls from different threads run concurrently over
+ * separate connections, up to the configured pool size.
+ * <p>
+ * Calls on a queue are sent to the slot coordinator of the queue given by the cluster agent. This is the
+ * coordinator unless slot coordination is spread across the cluster, in which case a pool is kept for each node.
  */
 
 public class MBThriftClient {
@@ -54,11 +62,7 @@ public class MBThriftClient {
      * A state variable to indicate whether the reconnecting  to the thrift server is started or
      * not
      */
-    private static boolean reconnectingStarted = false;
-
-    private static TTransport transport;
-
-    private static SlotManagementService.Client client = null;
+    private static final AtomicBoolean reconnectingStarted = new AtomicBoolean(false);
 
     private static final Log log = LogFactory.getLog(MBThriftClient.class);
 
@@ -66,6 +70,18 @@ public class MBThriftClient {
 
     private static AtomicBoolean isConnected = new AtomicBoolean(false);
 
+    /**
+     * Connections to the slot coordinators, up to the configured pool size for each
+     */
+    private static final ThriftClientPool clientPool = new ThriftClientPool(
+            AndesConfigurationManager.<Integer>readValue(AndesConfiguration.COORDINATION_THRIFT_CLIENT_POOL_SIZE),
+            new ThriftClientPool.TransportFactory() {
+                @Override
+                public TTransport open(InetSocketAddress address) throws TTransportException {
+                    return openTransport(address);
+                }
+            });
+
     /**
      * getSlot method. Returns Slot Object, when the
      * queue name is given
@@ -75,22 +91,15 @@ public class MBThriftClient {
      * @return slot object
      * @throws ConnectionException
      */
-    public static synchronized Slot getSlot(String queueName, String nodeId) throws ConnectionException {
-        SlotInfo slotInfo;
+    public static Slot getSlot(final String queueName, final String nodeId) throws ConnectionException {
         try {
-            client = getServiceClient();
-            slotInfo = client.getSlotInfo(queueName, nodeId);
+            SlotInfo slotInfo = execute(queueName, new ClientCall<SlotInfo>() {
+                @Override
+                public SlotInfo call(SlotManagementService.Client client) throws TException {
+                    return client.getSlotInfo(queueName, nodeId);
+                }
+            });
             return convertSlotInforToSlot(slotInfo);
-        } catch (TException e) {
-            try {
-                //retry once
-                reConnectToServer();
-                slotInfo = client.getSlotInfo(queueName, nodeId);
-                return convertSlotInforToSlot(slotInfo);
-            } catch (TException e1) {
-                handleCoordinatorChanges();
-                throw new ConnectionException("Coordinator has changed", e);
-            }
         } catch (ThriftClientException e) {
             handleCoordinatorChanges();
             throw new ConnectionException("Error occurred in thrift client " + e.getMessage(), e);
@@ -133,21 +142,16 @@ public class MBThriftClient {
      * @param localSafeZone Minimum message ID of the node that is deemed safe.
      * @throws TException in case of an connection error
      */
-    public static synchronized void updateMessageId(String queueName, String nodeId,
-                                                    long startMessageId, long endMessageId, long localSafeZone) throws ConnectionException {
+    public static void updateMessageId(final String queueName, final String nodeId, final long startMessageId,
+                                       final long endMessageId, final long localSafeZone) throws ConnectionException {
         try {
-            client = getServiceClient();
-            client.updateMessageId(queueName, nodeId, startMessageId, endMessageId, localSafeZone);
-        } catch (TException e) {
-            try {
-                //retry once
-                reConnectToServer();
-                client.updateMessageId(queueName, nodeId, startMessageId, endMessageId, localSafeZone);
-            } catch (TException e1) {
-                handleCoordinatorChanges();
-                throw new ConnectionException("Coordinator has changed", e);
-            }
-
+            execute(queueName, new ClientCall<Void>() {
+                @Override
+                public Void call(SlotManagementService.Client client) throws TException {
+                    client.updateMessageId(queueName, nodeId, startMessageId, endMessageId, localSafeZone);
+                    return null;
+                }
+            });
         } catch (ThriftClientException e) {
             log.error("Error occurred while receiving coordinator details from map", e);
             handleCoordinatorChanges();
@@ -162,28 +166,23 @@ public class MBThriftClient {
      * @param slot      to be deleted
      * @throws TException
      */
-    public static synchronized boolean deleteSlot(String queueName, Slot slot,
-                                               String nodeId) throws ConnectionException {
-        SlotInfo slotInfo = new SlotInfo(slot.getStartMessageId(), slot.getEndMessageId(),
+    public static boolean deleteSlot(final String queueName, Slot slot,
+                                     final String nodeId) throws ConnectionException {
+        final SlotInfo slotInfo = new SlotInfo(slot.getStartMessageId(), slot.getEndMessageId(),
                 slot.getStorageQueueName(),nodeId,slot.isAnOverlappingSlot());
         boolean deleteSuccess = false;
         try {
-            client = getServiceClient();
-            deleteSuccess = client.deleteSlot(queueName, slotInfo, nodeId);
-        } catch (TException e) {
-            try {
-                //retry to connect once
-                reConnectToServer();
-                deleteSuccess = client.deleteSlot(queueName, slotInfo, nodeId);
-            } catch (TException e1) {
-                handleCoordinatorChanges();
-                throw new ConnectionException("Coordinator has changed", e);
-            }
+            deleteSuccess = execute(queueName, new ClientCall<Boolean>() {
+                @Override
+                public Boolean call(SlotManagementService.Client client) throws TException {
+                    return client.deleteSlot(queueName, slotInfo, nodeId);
+                }
+            });
         } catch (ThriftClientException e) {
             log.error("Error occurred while receiving coordinator details from map", e);
             handleCoordinatorChanges();
         }
-        
+
         return deleteSuccess;
     }
 
@@ -194,20 +193,16 @@ public class MBThriftClient {
      * @param queueName name of the queue
      * @throws TException
      */
-    public static synchronized void reAssignSlotWhenNoSubscribers(String nodeId,
-                                                                  String queueName) throws ConnectionException {
+    public static void reAssignSlotWhenNoSubscribers(final String nodeId,
+                                                     final String queueName) throws ConnectionException {
         try {
-            client = getServiceClient();
-            client.reAssignSlotWhenNoSubscribers(nodeId, queueName);
-        } catch (TException e) {
-            try {
-                //retry to do the operation once
-                reConnectToServer();
-                client.reAssignSlotWhenNoSubscribers(nodeId, queueName);
-            } catch (TException e1) {
-                handleCoordinatorChanges();
-                throw new ConnectionException("Coordinator has changed", e);
-            }
+            execute(queueName, new ClientCall<Void>() {
+                @Override
+                public Void call(SlotManagementService.Client client) throws TException {
+                    client.reAssignSlotWhenNoSubscribers(nodeId, queueName);
+                    return null;
+                }
+            });
         } catch (ThriftClientException e) {
             log.error("Error occurred while receiving coordinator details from map", e);
             handleCoordinatorChanges();
@@ -220,20 +215,16 @@ public class MBThriftClient {
      * @param queueName name of destination queue
      * @throws ConnectionException
      */
-    public static synchronized void clearAllActiveSlotRelationsToQueue(String queueName) throws ConnectionException {
+    public static void clearAllActiveSlotRelationsToQueue(final String queueName) throws ConnectionException {
 
         try {
-            client = getServiceClient();
-            client.clearAllActiveSlotRelationsToQueue(queueName);
-        } catch (TException e) {
-            try {
-                //retry to do the operation once
-                reConnectToServer();
-                client.clearAllActiveSlotRelationsToQueue(queueName);
-            } catch (TException e1) {
-                handleCoordinatorChanges();
-                throw new ConnectionException("Coordinator has changed", e);
-            }
+            execute(queueName, new ClientCall<Void>() {
+                @Override
+                public Void call(SlotManagementService.Client client) throws TException {
+                    client.clearAllActiveSlotRelationsToQueue(queueName);
+                    return null;
+                }
+            });
         } catch (ThriftClientException e) {
             log.error("Could not initialize the Thrift client." + e.getMessage(), e);
             handleCoordinatorChanges();
@@ -241,36 +232,186 @@ public class MBThriftClient {
     }
 
     /**
-     * Returns an instance of Slot Management service client which is used to communicate to the
-     * thrift server. If it does not succeed in connecting to the server, it throws a  TTransportException
+     * Submit message id updates of many queues and request slots for many queues in a single call to the
+     * coordinator. Message id updates are applied before slots are assigned. If slot coordination is spread across
+     * the cluster, one call is made to each slot coordinator the queues belong to. A failed call does not stop the
+     * calls to the other slot coordinators.
      *
-     * @return a SlotManagementService client
+     * @param nodeId           of this node
+     * @param messageIdUpdates locally chosen slot ranges. Each slot has the storage queue name, start and end
+     *                         message ids
+     * @param slotRequests     names of the queues to get slots for
+     * @param localSafeZone    minimum message ID of the node that is deemed safe
+     * @return a slot for each requested queue in the requested order. The end message id is 0 if the coordinator
+     * has no slot for the queue
+     * @throws SlotBatchException  if the calls to some of the slot coordinators failed. Holds the message id updates
+     *                             of those calls and the slots assigned by the other calls
+     * @throws ConnectionException in case of an connection error
      */
-    private static SlotManagementService.Client getServiceClient() throws TTransportException, ThriftClientException {
-
-        if (client == null) {
-            ClusterAgent clusterAgent =  AndesContext.getInstance().getClusterAgent();
-            InetSocketAddress thriftAddressOfCoordinator = clusterAgent.getThriftAddressOfCoordinator();
+    public static List<Slot> processSlotBatch(final String nodeId, List<Slot> messageIdUpdates,
+                                              List<String> slotRequests,
+                                              final long localSafeZone) throws ConnectionException {
+        Collection<SlotBatch> batches = SlotBatch.groupBySlotCoordinator(nodeId, messageIdUpdates, slotRequests,
+                AndesContext.getInstance().getClusterAgent());
+
+        List<Slot> slots = new ArrayList<>(Collections.<Slot>nCopies(slotRequests.size(), null));
+        List<Slot> failedMessageIdUpdates = new ArrayList<>();
+        Exception lastFailure = null;
+        for (final SlotBatch batch : batches) {
+            try {
+                List<SlotInfo> assignedSlots = execute(batch.queueName, new ClientCall<List<SlotInfo>>() {
+                    @Override
+                    public List<SlotInfo> call(SlotManagementService.Client client) throws TException {
+                        return client.processSlotBatch(nodeId, batch.messageIdUpdates, batch.slotRequests,
+                                localSafeZone);
+                    }
+                });
 
-            if (null == thriftAddressOfCoordinator) {
-                throw new ThriftClientException("Thrift coordinator details are not updated in the map yet");
+                for (int i = 0; i < assignedSlots.size(); i++) {
+                    slots.set(batch.requestPositions.get(i), convertSlotInforToSlot(assignedSlots.get(i)));
+                }
+            } catch (ThriftClientException e) {
+                handleCoordinatorChanges();
+                failedMessageIdUpdates.addAll(batch.updatedSlots);
+                lastFailure = e;
+            } catch (ConnectionException e) {
+                failedMessageIdUpdates.addAll(batch.updatedSlots);
+                lastFailure = e;
             }
+        }
 
-            int soTimeout = AndesConfigurationManager.readValue(AndesConfiguration.COORDINATION_THRIFT_SO_TIMEOUT);
+        if (null != lastFailure) {
+            throw new SlotBatchException("Error occurred in thrift client " + lastFailure.getMessage(), lastFailure,
+                    failedMessageIdUpdates, slots);
+        }
+        return slots;
+    }
+
+    /**
+     * Run a call on a client borrowed from the pool of the slot coordinator of a queue. If the call fails, the
+     * connection is closed and the call is retried once on a new connection opened after the reconnect timeout.
+     *
+     * @param queueName  storage queue name the call is about. Null if the call is about the whole cluster, in which
+     *                   case it is sent to the coordinator
+     * @param clientCall call to run
+     * @param <T>        type of the response
+     * @return response of the call
+     * @throws ConnectionException   if the retry fails as well
+     * @throws ThriftClientException if thrift server details of the coordinator are not available
+     */
+    private static <T> T execute(String queueName, ClientCall<T> clientCall)
+            throws ConnectionException, ThriftClientException {
+        InetSocketAddress thriftAddressOfCoordinator = getThriftAddress(queueName);
+        if (null == thriftAddressOfCoordinator) {
+            throw new ThriftClientException("Thrift coordinator details are not updated in the map yet");
+        }
 
-            transport = new TSocket(thriftAddressOfCoordinator.getHostName(), thriftAddressOfCoordinator.getPort(),
-                    soTimeout);
+        try {
+            return call(getServiceClient(thriftAddressOfCoordinator), clientCall);
+        } catch (TException e) {
             try {
-                transport.open();
-                TProtocol protocol = new TBinaryProtocol(transport);
-                return new SlotManagementService.Client(protocol);
-            } catch (TTransportException e) {
-                log.error("Could not initialize the Thrift client", e);
-                throw new TTransportException("Could not initialize the Thrift client", e);
+                //retry once. The new connection may be to another node if the slot coordinator has changed
+                return call(reConnectToServer(queueName), clientCall);
+            } catch (TException e1) {
+                handleCoordinatorChanges();
+                throw new ConnectionException("Coordinator has changed", e);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting for a thrift client", e);
         }
+    }
 
-        return client;
+    /**
+     * Run a call on a borrowed client and return the client to the pool. The connection is closed instead if the
+     * call fails in any way, since the response of the call may still be unread.
+     *
+     * @param pooledClient borrowed client
+     * @param clientCall   call to run
+     * @param <T>          type of the response
+     * @return response of the call
+     * @throws TException if the call fails
+     */
+    private static <T> T call(ThriftClientPool.PooledClient pooledClient, ClientCall<T> clientCall)
+            throws TException {
+        boolean succeeded = false;
+        try {
+            T response = clientCall.call(pooledClient.getClient());
+            succeeded = true;
+            return response;
+        } finally {
+            if (succeeded) {
+                clientPool.returnClient(pooledClient);
+            } else {
+                clientPool.closeClient(pooledClient);
+            }
+        }
+    }
+
+    /**
+     * Returns an idle instance of Slot Management service client which is used to communicate to the
+     * thrift server, or connects a new one. If it does not succeed in connecting to the server, it throws a
+     * TTransportException
+     *
+     * @param thriftAddressOfCoordinator thrift server address of the slot coordinator
+     * @return a SlotManagementService client
+     * @throws InterruptedException if interrupted while waiting for a client
+     */
+    private static ThriftClientPool.PooledClient getServiceClient(InetSocketAddress thriftAddressOfCoordinator)
+            throws TTransportException, InterruptedException {
+        try {
+            return clientPool.borrowClient(thriftAddressOfCoordinator);
+        } catch (TTransportException e) {
+            log.error("Could not initialize the Thrift client", e);
+            throw new TTransportException("Could not initialize the Thrift client", e);
+        }
+    }
+
+    /**
+     * Get the thrift server address of the slot coordinator of a queue
+     *
+     * @param queueName storage queue name. Null to get the coordinator
+     * @return thrift server address, null if it is not known yet
+     */
+    private static InetSocketAddress getThriftAddress(String queueName) {
+        ClusterAgent clusterAgent = AndesContext.getInstance().getClusterAgent();
+        if (null == queueName) {
+            return clusterAgent.getThriftAddressOfCoordinator();
+        }
+        return clusterAgent.getThriftAddressOfSlotCoordinator(queueName);
+    }
+
+    /**
+     * Open a new connection to the thrift server of the coordinator
+     *
+     * @param thriftAddressOfCoordinator thrift server address of the coordinator
+     * @return the opened transport
+     * @throws TTransportException when connecting to thrift server is unsuccessful
+     */
+    private static TTransport openTransport(InetSocketAddress thriftAddressOfCoordinator)
+            throws TTransportException {
+        int soTimeout = AndesConfigurationManager.readValue(AndesConfiguration.COORDINATION_THRIFT_SO_TIMEOUT);
+
+        TTransport transport = new TSocket(thriftAddressOfCoordinator.getHostName(),
+                thriftAddressOfCoordinator.getPort(), soTimeout);
+        Boolean nonBlockingServerEnabled = AndesConfigurationManager.readValue(
+                AndesConfiguration.COORDINATION_THRIFT_NON_BLOCKING_SERVER_ENABLED);
+        if (nonBlockingServerEnabled) {
+            // Non-blocking server reads framed requests
+            transport = new TFramedTransport(transport);
+        }
+        transport.open();
+        return transport;
+    }
+
+    /**
+     * Close the idle clients of a node which left the cluster and forget its pool. Clients in use are closed when
+     * they are returned.
+     *
+     * @param thriftAddress thrift server address of the node
+     */
+    public static void removeClients(InetSocketAddress thriftAddress) {
+        clientPool.removeClients(thriftAddress);
     }
 
     /**
@@ -279,9 +420,9 @@ public class MBThriftClient {
     private static void handleCoordinatorChanges() {
 
         notifyDisconnection();
-        resetServiceClient();
-        if (!isReconnectingStarted()) {
-            setReconnectingFlag(true);
+        clientPool.resetClients();
+        // Only the caller switching the flag starts a reconnecting thread
+        if (reconnectingStarted.compareAndSet(false, true)) {
             startServerReconnectingThread();
         }
     }
@@ -297,48 +438,39 @@ public class MBThriftClient {
         }
     }
 
-    /**
-     * Set mbThriftClient to null
-     */
-    private static void resetServiceClient() {
-        client = null;
-        transport.close();
-    }
-
     /**
      * Try to reconnect to server by taking latest values in the hazelcalst thrift server details
      * map
      *
+     * @param queueName storage queue name to reconnect to the slot coordinator of. Null to reconnect to the
+     *                  coordinator
+     * @return client over the new connection, holding a permit of the thrift server it is connected to
      * @throws TTransportException when connecting to thrift server is unsuccessful
      */
-    private static void reConnectToServer() throws TTransportException {
+    private static ThriftClientPool.PooledClient reConnectToServer(String queueName) throws TTransportException {
         Long reconnectTimeout = (Long) AndesConfigurationManager.readValue
                 (AndesConfiguration.COORDINATOR_THRIFT_RECONNECT_TIMEOUT) * 1000;
         try {
             //Reconnect timeout set because Hazelcast coordinator may still not elected in failover scenario
             Thread.sleep(reconnectTimeout);
 
-            ClusterAgent clusterAgent =  AndesContext.getInstance().getClusterAgent();
-            InetSocketAddress thriftAddressOfCoordinator = clusterAgent.getThriftAddressOfCoordinator();
+            InetSocketAddress thriftAddressOfCoordinator = getThriftAddress(queueName);
 
             if (null == thriftAddressOfCoordinator) {
                 throw new TTransportException("Thrift coordinator details are not updated in the map yet");
             }
 
-            int soTimeout = AndesConfigurationManager.readValue(AndesConfiguration.COORDINATION_THRIFT_SO_TIMEOUT);
-
-            transport = new TSocket(thriftAddressOfCoordinator.getHostName(), thriftAddressOfCoordinator.getPort(),
-                    soTimeout);
             log.info("Reconnecting to Slot Coordinator " + thriftAddressOfCoordinator.toString());
 
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            client = new SlotManagementService.Client(protocol);
+            ThriftClientPool.PooledClient pooledClient = clientPool.connectClient(thriftAddressOfCoordinator);
             notifyConnection();
+            return pooledClient;
         } catch (TTransportException e) {
             log.error("Could not connect to the Thrift Server" , e);
             throw new TTransportException("Could not connect to the Thrift Server", e);
-        } catch (InterruptedException ignore) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TTransportException("Interrupted while reconnecting to the Thrift Server", e);
         }
     }
 
@@ -364,12 +496,12 @@ public class MBThriftClient {
                 // This thread will try to connect to thrift server while reconnectingStarted flag is true
                 // After successfully connecting to the server this flag will be set to true.
                 // While loop is therefore intentional.
-                while (reconnectingStarted) {
+                while (reconnectingStarted.get()) {
 
                     try {
-                        reConnectToServer();
+                        clientPool.returnClient(reConnectToServer(null));
                         // If re connect to server is successful, following code segment will be executed
-                        reconnectingStarted = false;
+                        reconnectingStarted.set(false);
                     } catch (Throwable e) {
                         log.error("Error occurred while reconnecting to slot coordinator", e);
 
@@ -391,7 +523,7 @@ public class MBThriftClient {
      * @return whether the reconnecting to thrift server is happening or not
      */
     public static boolean isReconnectingStarted() {
-        return reconnectingStarted;
+        return reconnectingStarted.get();
     }
 
     /**
@@ -401,7 +533,7 @@ public class MBThriftClient {
      *                          started
      */
     public static void setReconnectingFlag(boolean reconnectingFlag) {
-        reconnectingStarted = reconnectingFlag;
+        reconnectingStarted.set(reconnectingFlag);
     }
 
     /**
@@ -411,21 +543,17 @@ public class MBThriftClient {
      * @return global safeZone
      * @throws ConnectionException when MB thrift server is down
      */
-    public static synchronized long updateSlotDeletionSafeZone(long safeZoneMessageID, String nodeID) throws ConnectionException {
+    public static long updateSlotDeletionSafeZone(final long safeZoneMessageID,
+                                                  final String nodeID) throws ConnectionException {
         long globalSafeZone = 0;
         try {
-            client = getServiceClient();
-            globalSafeZone = client.updateCurrentMessageIdForSafeZone(safeZoneMessageID, nodeID);
-        } catch (TException e) {
-            try {
-                //retry once
-                reConnectToServer();
-                globalSafeZone = client.updateCurrentMessageIdForSafeZone(safeZoneMessageID, nodeID);
-                return globalSafeZone;
-            } catch (TException e1) {
-                handleCoordinatorChanges();
-                throw new ConnectionException("Coordinator has changed", e);
-            }
+            // Safe zone is calculated by the coordinator for the whole cluster
+            globalSafeZone = execute(null, new ClientCall<Long>() {
+                @Override
+                public Long call(SlotManagementService.Client client) throws TException {
+                    return client.updateCurrentMessageIdForSafeZone(safeZoneMessageID, nodeID);
+                }
+            });
         } catch (ThriftClientException e) {
             log.error("Error occurred while receiving coordinator details from map", e);
             handleCoordinatorChanges();
@@ -433,4 +561,14 @@ public class MBThriftClient {
 
         return globalSafeZone;
     }
+
+    /**
+     * A call to the thrift server run by {@link #execute(String, ClientCall)}
+     *
+     * @param <T> type of the response
+     */
+    private interface ClientCall<T> {
+
+        T call(SlotManagementService.Client client) throws TException;
+    }
 }
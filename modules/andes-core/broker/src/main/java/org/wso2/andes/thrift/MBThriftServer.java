@@ -18,18 +18,25 @@
 
 package org.wso2.andes.thrift;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TTransportException;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This class is take cares of starting and stopping the thrift server which is used to do slot
@@ -72,12 +79,19 @@ public class MBThriftServer {
             throw new AndesException("Invalid thrift server host 0.0.0.0");
         }
         try {
-            TServerSocket socket = new TServerSocket(new InetSocketAddress(hostName, port));
             SlotManagementService.Processor<SlotManagementServiceImpl> processor =
                     new SlotManagementService.Processor<SlotManagementServiceImpl>(slotManagementServerHandler);
             TProtocolFactory protocolFactory = new TBinaryProtocol.Factory();
-            server = new TThreadPoolServer(new TThreadPoolServer.Args(socket).
-                    processor(processor).inputProtocolFactory(protocolFactory));
+            Boolean nonBlockingServerEnabled = AndesConfigurationManager.readValue(
+                    AndesConfiguration.COORDINATION_THRIFT_NON_BLOCKING_SERVER_ENABLED);
+
+            if (nonBlockingServerEnabled) {
+                server = createNonBlockingServer(new InetSocketAddress(hostName, port), processor, protocolFactory);
+            } else {
+                TServerSocket socket = new TServerSocket(new InetSocketAddress(hostName, port));
+                server = new TThreadPoolServer(new TThreadPoolServer.Args(socket).
+                        processor(processor).inputProtocolFactory(protocolFactory));
+            }
 
             log.info("Starting the Message Broker Thrift server on host '" + hostName + "' on port '" + port
                     + "'...");
@@ -88,6 +102,37 @@ public class MBThriftServer {
         }
     }
 
+    /**
+     * Create a non-blocking server where selector threads read framed requests from all the connections and a
+     * fixed pool of worker threads processes them
+     *
+     * @param address         address to bind to
+     * @param processor       processor of the slot management service
+     * @param protocolFactory protocol of the requests
+     * @return the server
+     * @throws TTransportException if the server socket cannot be bound
+     */
+    private TServer createNonBlockingServer(InetSocketAddress address,
+                                            SlotManagementService.Processor<SlotManagementServiceImpl> processor,
+                                            TProtocolFactory protocolFactory) throws TTransportException {
+        int selectorThreads = AndesConfigurationManager.readValue(
+                AndesConfiguration.COORDINATION_THRIFT_NON_BLOCKING_SERVER_SELECTOR_THREADS);
+        int workerThreads = AndesConfigurationManager.readValue(
+                AndesConfiguration.COORDINATION_THRIFT_NON_BLOCKING_SERVER_WORKER_THREADS);
+        ThreadFactory workerThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("ThriftServerWorker-%d").build();
+
+        TNonblockingServerSocket socket = new TNonblockingServerSocket(address);
+        TThreadedSelectorServer.Args args = new TThreadedSelectorServer.Args(socket)
+                .selectorThreads(selectorThreads)
+                .executorService(Executors.newFixedThreadPool(workerThreads, workerThreadFactory));
+        args.processor(processor).protocolFactory(protocolFactory);
+
+        log.info("Using non-blocking thrift server with " + selectorThreads + " selector threads and "
+                + workerThreads + " worker threads");
+        return new TThreadedSelectorServer(args);
+    }
+
     /**
      * Stop the server
      */
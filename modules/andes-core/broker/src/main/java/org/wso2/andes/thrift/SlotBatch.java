@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.thrift;
+
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.cluster.ClusterAgent;
+import org.wso2.andes.thrift.slot.gen.SlotInfo;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message id updates and slot requests of a node sent to one slot coordinator in a single call
+ */
+class SlotBatch {
+
+    /**
+     * A queue of the batch. Used to find the slot coordinator of the batch again on retry
+     */
+    final String queueName;
+
+    /**
+     * Message id updates of the batch as given by the caller
+     */
+    final List<Slot> updatedSlots = new ArrayList<>();
+
+    final List<SlotInfo> messageIdUpdates = new ArrayList<>();
+
+    final List<String> slotRequests = new ArrayList<>();
+
+    /**
+     * Position of each slot request of the batch in the requests of the caller
+     */
+    final List<Integer> requestPositions = new ArrayList<>();
+
+    private SlotBatch(String queueName) {
+        this.queueName = queueName;
+    }
+
+    /**
+     * Split message id updates and slot requests into one batch for each slot coordinator of the queues
+     *
+     * @param nodeId           id of the node sending the batches
+     * @param messageIdUpdates locally chosen slot ranges. Each slot has the storage queue name
+     * @param slotRequests     names of the queues to get slots for
+     * @param clusterAgent     cluster agent giving the slot coordinator of each queue
+     * @return batches in the order of the first queue of each slot coordinator. Queues with an unknown slot
+     * coordinator are put in one batch
+     */
+    static Collection<SlotBatch> groupBySlotCoordinator(String nodeId, List<Slot> messageIdUpdates,
+                                                        List<String> slotRequests, ClusterAgent clusterAgent) {
+        Map<InetSocketAddress, SlotBatch> batches = new LinkedHashMap<>();
+        for (Slot slot : messageIdUpdates) {
+            SlotBatch batch = getBatch(batches, clusterAgent, slot.getStorageQueueName());
+            batch.updatedSlots.add(slot);
+            batch.messageIdUpdates.add(new SlotInfo(slot.getStartMessageId(), slot.getEndMessageId(),
+                    slot.getStorageQueueName(), nodeId, slot.isAnOverlappingSlot()));
+        }
+        for (int i = 0; i < slotRequests.size(); i++) {
+            SlotBatch batch = getBatch(batches, clusterAgent, slotRequests.get(i));
+            batch.slotRequests.add(slotRequests.get(i));
+            batch.requestPositions.add(i);
+        }
+        return batches.values();
+    }
+
+    /**
+     * Get the batch of the slot coordinator of a queue, creating it if the queue is the first of its coordinator
+     *
+     * @param batches      batches keyed by the thrift server address of the slot coordinator
+     * @param clusterAgent cluster agent giving the slot coordinator of the queue
+     * @param queueName    storage queue name
+     * @return batch of the slot coordinator of the queue
+     */
+    private static SlotBatch getBatch(Map<InetSocketAddress, SlotBatch> batches, ClusterAgent clusterAgent,
+                                      String queueName) {
+        InetSocketAddress address = clusterAgent.getThriftAddressOfSlotCoordinator(queueName);
+        SlotBatch batch = batches.get(address);
+        if (null == batch) {
+            batch = new SlotBatch(queueName);
+            batches.put(address, batch);
+        }
+        return batch;
+    }
+}
@@ -23,13 +23,20 @@ import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
+import org.wso2.andes.server.cluster.ClusterAgent;
 import org.wso2.andes.thrift.slot.gen.SlotInfo;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This is the implementation of SlotManagementService interface. This class contains operations
  * does on slots through slot manager.When thrift client calls the services on
  * SlotManagementService interface, methods in this class will be triggered.
+ * <p>
+ * Requests on a queue are served only if this node is the slot coordinator of the queue. A client which sent the
+ * request before learning about a membership change gets an error and retries on the new slot coordinator.
  */
 
 public class SlotManagementServiceImpl implements SlotManagementService.Iface {
@@ -38,7 +45,7 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
 
     @Override
     public SlotInfo getSlotInfo(String queueName, String nodeId) throws TException {
-        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+        if (AndesContext.getInstance().getClusterAgent().isSlotCoordinatorOf(queueName)) {
             SlotInfo slotInfo = new SlotInfo();
             try {
                 Slot slot = slotManager.getSlot(queueName, nodeId);
@@ -57,7 +64,7 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
 
     @Override
     public void updateMessageId(String queueName, String nodeId, long startMessageId, long endMessageId, long localSafeZone) throws TException {
-        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+        if (AndesContext.getInstance().getClusterAgent().isSlotCoordinatorOf(queueName)) {
             try {
                 slotManager.updateMessageID(queueName, nodeId, startMessageId, endMessageId, localSafeZone);
             } catch (AndesException e) {
@@ -70,7 +77,7 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
 
     @Override
     public boolean deleteSlot(String queueName, SlotInfo slotInfo, String nodeId) throws TException {
-        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+        if (AndesContext.getInstance().getClusterAgent().isSlotCoordinatorOf(queueName)) {
             Slot slot = new Slot();
             boolean result = false;
             slot.setStartMessageId(slotInfo.getStartMessageId());
@@ -89,7 +96,7 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
 
     @Override
     public void reAssignSlotWhenNoSubscribers(String nodeId, String queueName) throws TException {
-        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+        if (AndesContext.getInstance().getClusterAgent().isSlotCoordinatorOf(queueName)) {
             try {
                 slotManager.reAssignSlotWhenNoSubscribers(nodeId, queueName);
             } catch (AndesException e) {
@@ -114,7 +121,7 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
 
     @Override
     public void clearAllActiveSlotRelationsToQueue(String queueName) throws TException {
-        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+        if (AndesContext.getInstance().getClusterAgent().isSlotCoordinatorOf(queueName)) {
             try {
                 slotManager.clearAllActiveSlotRelationsToQueue(queueName);
             } catch (AndesException e) {
@@ -125,4 +132,63 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
         }
     }
 
+    @Override
+    public List<SlotInfo> processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests,
+                                           long localSafeZone) throws TException {
+        if (isSlotCoordinatorOfAll(messageIdUpdates, slotRequests)) {
+            if (null != messageIdUpdates && !messageIdUpdates.isEmpty()) {
+                List<Slot> slots = new ArrayList<>(messageIdUpdates.size());
+                for (SlotInfo update : messageIdUpdates) {
+                    Slot slot = new Slot();
+                    slot.setStartMessageId(update.getStartMessageId());
+                    slot.setEndMessageId(update.getEndMessageId());
+                    slot.setStorageQueueName(update.getQueueName());
+                    slots.add(slot);
+                }
+                try {
+                    slotManager.updateMessageIDs(nodeId, slots, localSafeZone);
+                } catch (AndesException e) {
+                    throw new TException("Failed to update message ids of " + slots.size() + " slots for nodeId: "
+                            + nodeId, e);
+                }
+            }
+
+            List<SlotInfo> slots = new ArrayList<>();
+            if (null != slotRequests) {
+                for (String queueName : slotRequests) {
+                    slots.add(getSlotInfo(queueName, nodeId));
+                }
+            }
+            return slots;
+        } else {
+            throw new TException("This node is not the slot coordinator of all queues of the batch right now");
+        }
+    }
+
+    /**
+     * Check if this node is the slot coordinator of all queues of a batch request
+     *
+     * @param messageIdUpdates message id updates of the batch
+     * @param slotRequests     names of the queues slots are requested for
+     * @return true if this node coordinates slots of all queues, else false
+     */
+    private boolean isSlotCoordinatorOfAll(List<SlotInfo> messageIdUpdates, List<String> slotRequests) {
+        ClusterAgent clusterAgent = AndesContext.getInstance().getClusterAgent();
+        if (null != messageIdUpdates) {
+            for (SlotInfo update : messageIdUpdates) {
+                if (!clusterAgent.isSlotCoordinatorOf(update.getQueueName())) {
+                    return false;
+                }
+            }
+        }
+        if (null != slotRequests) {
+            for (String queueName : slotRequests) {
+                if (!clusterAgent.isSlotCoordinatorOf(queueName)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
 }
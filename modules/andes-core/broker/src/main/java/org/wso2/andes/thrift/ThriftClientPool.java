@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.thrift;
+
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.wso2.andes.thrift.slot.gen.SlotManagementService;
+
+import java.net.InetSocketAddress;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of connections to the thrift servers of slot coordinators, used by {@link MBThriftClient}. The number of
+ * clients borrowed from a thrift server at a time is limited to the pool size. A borrowed client holds a permit of
+ * the server it is connected to until it is returned or closed.
+ */
+class ThriftClientPool {
+
+    /**
+     * Maximum number of connections to each thrift server
+     */
+    private final int poolSize;
+
+    /**
+     * Opens connections to thrift servers
+     */
+    private final TransportFactory transportFactory;
+
+    /**
+     * Limits the number of clients borrowed from each thrift server to the pool size, keyed by the thrift server
+     * address
+     */
+    private final ConcurrentMap<InetSocketAddress, Semaphore> clientPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Connections to each thrift server not used by any call at the moment, keyed by the thrift server address
+     */
+    private final ConcurrentMap<InetSocketAddress, Queue<PooledClient>> idleClients = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented when the clients are reset. Connections opened before that are closed instead of being returned
+     * to the pool.
+     */
+    private final AtomicInteger clientGeneration = new AtomicInteger(0);
+
+    /**
+     * @param poolSize         maximum number of connections to each thrift server
+     * @param transportFactory opens connections to thrift servers
+     */
+    ThriftClientPool(int poolSize, TransportFactory transportFactory) {
+        this.poolSize = poolSize;
+        this.transportFactory = transportFactory;
+    }
+
+    /**
+     * Borrow an idle client of a thrift server, or connect a new one. Waits while the pool size number of clients
+     * of the server are borrowed.
+     *
+     * @param address thrift server address
+     * @return client holding a permit of the server
+     * @throws TTransportException  when connecting to the thrift server is unsuccessful
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    PooledClient borrowClient(InetSocketAddress address) throws TTransportException, InterruptedException {
+        Semaphore permits = acquirePermit(address);
+        Queue<PooledClient> idleClientsOfServer = idleClients.get(address);
+        PooledClient pooledClient = (null == idleClientsOfServer) ? null : idleClientsOfServer.poll();
+        if (null != pooledClient) {
+            pooledClient.permits = permits;
+            return pooledClient;
+        }
+        return connect(address, permits);
+    }
+
+    /**
+     * Connect a new client to a thrift server without reusing idle clients. Waits while the pool size number of
+     * clients of the server are borrowed.
+     *
+     * @param address thrift server address
+     * @return client holding a permit of the server
+     * @throws TTransportException  when connecting to the thrift server is unsuccessful
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    PooledClient connectClient(InetSocketAddress address) throws TTransportException, InterruptedException {
+        return connect(address, acquirePermit(address));
+    }
+
+    /**
+     * Return a client to the pool after a successful call. Connections opened before the clients were reset,
+     * connections to servers removed from the pool and connections exceeding the pool size are closed.
+     *
+     * @param pooledClient client to return
+     */
+    void returnClient(PooledClient pooledClient) {
+        Semaphore permits = pooledClient.permits;
+        pooledClient.permits = null;
+        try {
+            if (clientPermits.get(pooledClient.address) != permits) {
+                // Server was removed by removeClients while the client was borrowed
+                pooledClient.transport.close();
+                return;
+            }
+            Queue<PooledClient> idleClientsOfServer = idleClients.get(pooledClient.address);
+            if (null == idleClientsOfServer) {
+                Queue<PooledClient> newIdleClients = new ConcurrentLinkedQueue<>();
+                idleClientsOfServer = idleClients.putIfAbsent(pooledClient.address, newIdleClients);
+                if (null == idleClientsOfServer) {
+                    idleClientsOfServer = newIdleClients;
+                }
+            }
+            if (pooledClient.generation == clientGeneration.get() && idleClientsOfServer.size() < poolSize) {
+                idleClientsOfServer.add(pooledClient);
+                // Clients may be reset while this one is added
+                if (pooledClient.generation != clientGeneration.get() && idleClientsOfServer.remove(pooledClient)) {
+                    pooledClient.transport.close();
+                }
+            } else {
+                pooledClient.transport.close();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close the connection of a borrowed client without returning it to the pool
+     *
+     * @param pooledClient client to close. Ignored if null
+     */
+    void closeClient(PooledClient pooledClient) {
+        if (null != pooledClient) {
+            Semaphore permits = pooledClient.permits;
+            pooledClient.permits = null;
+            pooledClient.transport.close();
+            permits.release();
+        }
+    }
+
+    /**
+     * Close all idle clients. Clients borrowed at the moment are closed when they are returned.
+     */
+    void resetClients() {
+        clientGeneration.incrementAndGet();
+        for (Queue<PooledClient> idleClientsOfServer : idleClients.values()) {
+            closeAll(idleClientsOfServer);
+        }
+    }
+
+    /**
+     * Close the idle clients of a thrift server and forget its pool. Clients borrowed at the moment are closed
+     * when they are returned.
+     *
+     * @param address thrift server address
+     */
+    void removeClients(InetSocketAddress address) {
+        clientPermits.remove(address);
+        Queue<PooledClient> idleClientsOfServer = idleClients.remove(address);
+        if (null != idleClientsOfServer) {
+            closeAll(idleClientsOfServer);
+        }
+    }
+
+    /**
+     * Number of idle clients of a thrift server
+     *
+     * @param address thrift server address
+     * @return number of idle clients
+     */
+    int getIdleClientCount(InetSocketAddress address) {
+        Queue<PooledClient> idleClientsOfServer = idleClients.get(address);
+        return (null == idleClientsOfServer) ? 0 : idleClientsOfServer.size();
+    }
+
+    private Semaphore acquirePermit(InetSocketAddress address) throws InterruptedException {
+        Semaphore permits = clientPermits.get(address);
+        if (null == permits) {
+            Semaphore newPermits = new Semaphore(poolSize);
+            permits = clientPermits.putIfAbsent(address, newPermits);
+            if (null == permits) {
+                permits = newPermits;
+            }
+        }
+        permits.acquire();
+        return permits;
+    }
+
+    private PooledClient connect(InetSocketAddress address, Semaphore permits) throws TTransportException {
+        int generation = clientGeneration.get();
+        try {
+            TTransport transport = transportFactory.open(address);
+            PooledClient pooledClient = new PooledClient(address, transport,
+                    new SlotManagementService.Client(new TBinaryProtocol(transport)), generation);
+            pooledClient.permits = permits;
+            return pooledClient;
+        } catch (TTransportException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void closeAll(Queue<PooledClient> pooledClients) {
+        PooledClient pooledClient = pooledClients.poll();
+        while (null != pooledClient) {
+            pooledClient.transport.close();
+            pooledClient = pooledClients.poll();
+        }
+    }
+
+    /**
+     * Opens connections to thrift servers
+     */
+    interface TransportFactory {
+
+        /**
+         * Open a connection to a thrift server
+         *
+         * @param address thrift server address
+         * @return opened transport
+         * @throws TTransportException when connecting to the thrift server is unsuccessful
+         */
+        TTransport open(InetSocketAddress address) throws TTransportException;
+    }
+
+    /**
+     * Client over a connection to a thrift server along with the connection
+     */
+    static class PooledClient {
+
+        /**
+         * Thrift server address the connection is opened to
+         */
+        private final InetSocketAddress address;
+
+        private final TTransport transport;
+
+        private final SlotManagementService.Client client;
+
+        /**
+         * Client generation when the connection was opened
+         */
+        private final int generation;
+
+        /**
+         * Permits of the thrift server held while the client is borrowed, null while the client is idle
+         */
+        private Semaphore permits;
+
+        private PooledClient(InetSocketAddress address, TTransport transport, SlotManagementService.Client client,
+                             int generation) {
+            this.address = address;
+            this.transport = transport;
+            this.client = client;
+            this.generation = generation;
+        }
+
+        /**
+         * @return thrift server address the connection is opened to
+         */
+        InetSocketAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * @return client over the connection
+         */
+        SlotManagementService.Client getClient() {
+            return client;
+        }
+    }
+}
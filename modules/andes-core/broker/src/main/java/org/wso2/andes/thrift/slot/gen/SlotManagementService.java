@@ -43,6 +43,23 @@ public class SlotManagementService {
      */
     public void clearAllActiveSlotRelationsToQueue(String queueName) throws org.apache.thrift.TException;
 
+    /**
+     * Submit message ID updates of many queues and request slots for many queues in one call. Message ID updates
+     * are applied in the given order before slots are assigned.
+     * 
+     * @param nodeId node submitting the batch
+     * @param messageIdUpdates slot ranges chosen by the node. Each has the queue name, start and end message IDs
+     * @param slotRequests names of the queues to assign slots for
+     * @param localSafeZone minimum message ID of the node that is deemed safe
+     * @return a slot for each requested queue in the requested order. An empty slot if none is available
+     * 
+     * @param nodeId
+     * @param messageIdUpdates
+     * @param slotRequests
+     * @param localSafeZone
+     */
+    public List<SlotInfo> processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests, long localSafeZone) throws org.apache.thrift.TException;
+
   }
 
   public interface AsyncIface {
@@ -59,6 +76,8 @@ public class SlotManagementService {
 
     public void clearAllActiveSlotRelationsToQueue(String queueName, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.clearAllActiveSlotRelationsToQueue_call> resultHandler) throws org.apache.thrift.TException;
 
+    public void processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.processSlotBatch_call> resultHandler) throws org.apache.thrift.TException;
+
   }
 
   public static class Client extends org.apache.thrift.TServiceClient implements Iface {
@@ -219,6 +238,32 @@ public class SlotManagementService {
       return;
     }
 
+    public List<SlotInfo> processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests, long localSafeZone) throws org.apache.thrift.TException
+    {
+      send_processSlotBatch(nodeId, messageIdUpdates, slotRequests, localSafeZone);
+      return recv_processSlotBatch();
+    }
+
+    public void send_processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests, long localSafeZone) throws org.apache.thrift.TException
+    {
+      processSlotBatch_args args = new processSlotBatch_args();
+      args.setNodeId(nodeId);
+      args.setMessageIdUpdates(messageIdUpdates);
+      args.setSlotRequests(slotRequests);
+      args.setLocalSafeZone(localSafeZone);
+      sendBase("processSlotBatch", args);
+    }
+
+    public List<SlotInfo> recv_processSlotBatch() throws org.apache.thrift.TException
+    {
+      processSlotBatch_result result = new processSlotBatch_result();
+      receiveBase(result, "processSlotBatch");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "processSlotBatch failed: unknown result");
+    }
+
   }
   public static class AsyncClient extends org.apache.thrift.async.TAsyncClient implements AsyncIface {
     public static class Factory implements org.apache.thrift.async.TAsyncClientFactory<AsyncClient> {
@@ -456,6 +501,47 @@ public class SlotManagementService {
       }
     }
 
+    public void processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<processSlotBatch_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      processSlotBatch_call method_call = new processSlotBatch_call(nodeId, messageIdUpdates, slotRequests, localSafeZone, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class processSlotBatch_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private String nodeId;
+      private List<SlotInfo> messageIdUpdates;
+      private List<String> slotRequests;
+      private long localSafeZone;
+      public processSlotBatch_call(String nodeId, List<SlotInfo> messageIdUpdates, List<String> slotRequests, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<processSlotBatch_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.nodeId = nodeId;
+        this.messageIdUpdates = messageIdUpdates;
+        this.slotRequests = slotRequests;
+        this.localSafeZone = localSafeZone;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("processSlotBatch", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        processSlotBatch_args args = new processSlotBatch_args();
+        args.setNodeId(nodeId);
+        args.setMessageIdUpdates(messageIdUpdates);
+        args.setSlotRequests(slotRequests);
+        args.setLocalSafeZone(localSafeZone);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public List<SlotInfo> getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_processSlotBatch();
+      }
+    }
+
   }
 
   public static class Processor<I extends Iface> extends org.apache.thrift.TBaseProcessor implements org.apache.thrift.TProcessor {
@@ -475,6 +561,7 @@ public class SlotManagementService {
       processMap.put("reAssignSlotWhenNoSubscribers", new reAssignSlotWhenNoSubscribers());
       processMap.put("updateCurrentMessageIdForSafeZone", new updateCurrentMessageIdForSafeZone());
       processMap.put("clearAllActiveSlotRelationsToQueue", new clearAllActiveSlotRelationsToQueue());
+      processMap.put("processSlotBatch", new processSlotBatch());
       return processMap;
     }
 
@@ -607,6 +694,27 @@ public class SlotManagementService {
       }
     }
 
+    private static class processSlotBatch<I extends Iface> extends org.apache.thrift.ProcessFunction<I, processSlotBatch_args> {
+      public processSlotBatch() {
+        super("processSlotBatch");
+      }
+
+      public processSlotBatch_args getEmptyArgsInstance() {
+        return new processSlotBatch_args();
+      }
+
+        @Override
+        protected boolean isOneway() {
+            return false;
+        }
+
+      public processSlotBatch_result getResult(I iface, processSlotBatch_args args) throws org.apache.thrift.TException {
+        processSlotBatch_result result = new processSlotBatch_result();
+        result.success = iface.processSlotBatch(args.nodeId, args.messageIdUpdates, args.slotRequests, args.localSafeZone);
+        return result;
+      }
+    }
+
   }
 
   public static class getSlotInfo_args implements org.apache.thrift.TBase<getSlotInfo_args, getSlotInfo_args._Fields>, java.io.Serializable, Cloneable   {
@@ -4675,4 +4783,977 @@ public class SlotManagementService {
 
   }
 
+  public static class processSlotBatch_args implements org.apache.thrift.TBase<processSlotBatch_args, processSlotBatch_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("processSlotBatch_args");
+
+    private static final org.apache.thrift.protocol.TField NODE_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("nodeId", org.apache.thrift.protocol.TType.STRING, (short)1);
+    private static final org.apache.thrift.protocol.TField MESSAGE_ID_UPDATES_FIELD_DESC = new org.apache.thrift.protocol.TField("messageIdUpdates", org.apache.thrift.protocol.TType.LIST, (short)2);
+    private static final org.apache.thrift.protocol.TField SLOT_REQUESTS_FIELD_DESC = new org.apache.thrift.protocol.TField("slotRequests", org.apache.thrift.protocol.TType.LIST, (short)3);
+    private static final org.apache.thrift.protocol.TField LOCAL_SAFE_ZONE_FIELD_DESC = new org.apache.thrift.protocol.TField("localSafeZone", org.apache.thrift.protocol.TType.I64, (short)4);
+
+    public String nodeId; // required
+    public List<SlotInfo> messageIdUpdates; // required
+    public List<String> slotRequests; // required
+    public long localSafeZone; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      NODE_ID((short)1, "nodeId"),
+      MESSAGE_ID_UPDATES((short)2, "messageIdUpdates"),
+      SLOT_REQUESTS((short)3, "slotRequests"),
+      LOCAL_SAFE_ZONE((short)4, "localSafeZone");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // NODE_ID
+            return NODE_ID;
+          case 2: // MESSAGE_ID_UPDATES
+            return MESSAGE_ID_UPDATES;
+          case 3: // SLOT_REQUESTS
+            return SLOT_REQUESTS;
+          case 4: // LOCAL_SAFE_ZONE
+            return LOCAL_SAFE_ZONE;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __LOCALSAFEZONE_ISSET_ID = 0;
+    private BitSet __isset_bit_vector = new BitSet(1);
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.NODE_ID, new org.apache.thrift.meta_data.FieldMetaData("nodeId", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.MESSAGE_ID_UPDATES, new org.apache.thrift.meta_data.FieldMetaData("messageIdUpdates", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, SlotInfo.class))));
+      tmpMap.put(_Fields.SLOT_REQUESTS, new org.apache.thrift.meta_data.FieldMetaData("slotRequests", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      tmpMap.put(_Fields.LOCAL_SAFE_ZONE, new org.apache.thrift.meta_data.FieldMetaData("localSafeZone", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(processSlotBatch_args.class, metaDataMap);
+    }
+
+    public processSlotBatch_args() {
+    }
+
+    public processSlotBatch_args(
+      String nodeId,
+      List<SlotInfo> messageIdUpdates,
+      List<String> slotRequests,
+      long localSafeZone)
+    {
+      this();
+      this.nodeId = nodeId;
+      this.messageIdUpdates = messageIdUpdates;
+      this.slotRequests = slotRequests;
+      this.localSafeZone = localSafeZone;
+      setLocalSafeZoneIsSet(true);
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public processSlotBatch_args(processSlotBatch_args other) {
+      __isset_bit_vector.clear();
+      __isset_bit_vector.or(other.__isset_bit_vector);
+      if (other.isSetNodeId()) {
+        this.nodeId = other.nodeId;
+      }
+      if (other.isSetMessageIdUpdates()) {
+        List<SlotInfo> __this__messageIdUpdates = new ArrayList<SlotInfo>();
+        for (SlotInfo other_element : other.messageIdUpdates) {
+          __this__messageIdUpdates.add(new SlotInfo(other_element));
+        }
+        this.messageIdUpdates = __this__messageIdUpdates;
+      }
+      if (other.isSetSlotRequests()) {
+        List<String> __this__slotRequests = new ArrayList<String>();
+        for (String other_element : other.slotRequests) {
+          __this__slotRequests.add(other_element);
+        }
+        this.slotRequests = __this__slotRequests;
+      }
+      this.localSafeZone = other.localSafeZone;
+    }
+
+    public processSlotBatch_args deepCopy() {
+      return new processSlotBatch_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.nodeId = null;
+      this.messageIdUpdates = null;
+      this.slotRequests = null;
+      setLocalSafeZoneIsSet(false);
+      this.localSafeZone = 0;
+    }
+
+    public String getNodeId() {
+      return this.nodeId;
+    }
+
+    public processSlotBatch_args setNodeId(String nodeId) {
+      this.nodeId = nodeId;
+      return this;
+    }
+
+    public void unsetNodeId() {
+      this.nodeId = null;
+    }
+
+    /** Returns true if field nodeId is set (has been assigned a value) and false otherwise */
+    public boolean isSetNodeId() {
+      return this.nodeId != null;
+    }
+
+    public void setNodeIdIsSet(boolean value) {
+      if (!value) {
+        this.nodeId = null;
+      }
+    }
+
+    public int getMessageIdUpdatesSize() {
+      return (this.messageIdUpdates == null) ? 0 : this.messageIdUpdates.size();
+    }
+
+    public java.util.Iterator<SlotInfo> getMessageIdUpdatesIterator() {
+      return (this.messageIdUpdates == null) ? null : this.messageIdUpdates.iterator();
+    }
+
+    public void addToMessageIdUpdates(SlotInfo elem) {
+      if (this.messageIdUpdates == null) {
+        this.messageIdUpdates = new ArrayList<SlotInfo>();
+      }
+      this.messageIdUpdates.add(elem);
+    }
+
+    public List<SlotInfo> getMessageIdUpdates() {
+      return this.messageIdUpdates;
+    }
+
+    public processSlotBatch_args setMessageIdUpdates(List<SlotInfo> messageIdUpdates) {
+      this.messageIdUpdates = messageIdUpdates;
+      return this;
+    }
+
+    public void unsetMessageIdUpdates() {
+      this.messageIdUpdates = null;
+    }
+
+    /** Returns true if field messageIdUpdates is set (has been assigned a value) and false otherwise */
+    public boolean isSetMessageIdUpdates() {
+      return this.messageIdUpdates != null;
+    }
+
+    public void setMessageIdUpdatesIsSet(boolean value) {
+      if (!value) {
+        this.messageIdUpdates = null;
+      }
+    }
+
+    public int getSlotRequestsSize() {
+      return (this.slotRequests == null) ? 0 : this.slotRequests.size();
+    }
+
+    public java.util.Iterator<String> getSlotRequestsIterator() {
+      return (this.slotRequests == null) ? null : this.slotRequests.iterator();
+    }
+
+    public void addToSlotRequests(String elem) {
+      if (this.slotRequests == null) {
+        this.slotRequests = new ArrayList<String>();
+      }
+      this.slotRequests.add(elem);
+    }
+
+    public List<String> getSlotRequests() {
+      return this.slotRequests;
+    }
+
+    public processSlotBatch_args setSlotRequests(List<String> slotRequests) {
+      this.slotRequests = slotRequests;
+      return this;
+    }
+
+    public void unsetSlotRequests() {
+      this.slotRequests = null;
+    }
+
+    /** Returns true if field slotRequests is set (has been assigned a value) and false otherwise */
+    public boolean isSetSlotRequests() {
+      return this.slotRequests != null;
+    }
+
+    public void setSlotRequestsIsSet(boolean value) {
+      if (!value) {
+        this.slotRequests = null;
+      }
+    }
+
+    public long getLocalSafeZone() {
+      return this.localSafeZone;
+    }
+
+    public processSlotBatch_args setLocalSafeZone(long localSafeZone) {
+      this.localSafeZone = localSafeZone;
+      setLocalSafeZoneIsSet(true);
+      return this;
+    }
+
+    public void unsetLocalSafeZone() {
+      __isset_bit_vector.clear(__LOCALSAFEZONE_ISSET_ID);
+    }
+
+    /** Returns true if field localSafeZone is set (has been assigned a value) and false otherwise */
+    public boolean isSetLocalSafeZone() {
+      return __isset_bit_vector.get(__LOCALSAFEZONE_ISSET_ID);
+    }
+
+    public void setLocalSafeZoneIsSet(boolean value) {
+      __isset_bit_vector.set(__LOCALSAFEZONE_ISSET_ID, value);
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case NODE_ID:
+        if (value == null) {
+          unsetNodeId();
+        } else {
+          setNodeId((String)value);
+        }
+        break;
+
+      case MESSAGE_ID_UPDATES:
+        if (value == null) {
+          unsetMessageIdUpdates();
+        } else {
+          setMessageIdUpdates((List<SlotInfo>)value);
+        }
+        break;
+
+      case SLOT_REQUESTS:
+        if (value == null) {
+          unsetSlotRequests();
+        } else {
+          setSlotRequests((List<String>)value);
+        }
+        break;
+
+      case LOCAL_SAFE_ZONE:
+        if (value == null) {
+          unsetLocalSafeZone();
+        } else {
+          setLocalSafeZone((Long)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case NODE_ID:
+        return getNodeId();
+
+      case MESSAGE_ID_UPDATES:
+        return getMessageIdUpdates();
+
+      case SLOT_REQUESTS:
+        return getSlotRequests();
+
+      case LOCAL_SAFE_ZONE:
+        return Long.valueOf(getLocalSafeZone());
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case NODE_ID:
+        return isSetNodeId();
+      case MESSAGE_ID_UPDATES:
+        return isSetMessageIdUpdates();
+      case SLOT_REQUESTS:
+        return isSetSlotRequests();
+      case LOCAL_SAFE_ZONE:
+        return isSetLocalSafeZone();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof processSlotBatch_args)
+        return this.equals((processSlotBatch_args)that);
+      return false;
+    }
+
+    public boolean equals(processSlotBatch_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_nodeId = true && this.isSetNodeId();
+      boolean that_present_nodeId = true && that.isSetNodeId();
+      if (this_present_nodeId || that_present_nodeId) {
+        if (!(this_present_nodeId && that_present_nodeId))
+          return false;
+        if (!this.nodeId.equals(that.nodeId))
+          return false;
+      }
+
+      boolean this_present_messageIdUpdates = true && this.isSetMessageIdUpdates();
+      boolean that_present_messageIdUpdates = true && that.isSetMessageIdUpdates();
+      if (this_present_messageIdUpdates || that_present_messageIdUpdates) {
+        if (!(this_present_messageIdUpdates && that_present_messageIdUpdates))
+          return false;
+        if (!this.messageIdUpdates.equals(that.messageIdUpdates))
+          return false;
+      }
+
+      boolean this_present_slotRequests = true && this.isSetSlotRequests();
+      boolean that_present_slotRequests = true && that.isSetSlotRequests();
+      if (this_present_slotRequests || that_present_slotRequests) {
+        if (!(this_present_slotRequests && that_present_slotRequests))
+          return false;
+        if (!this.slotRequests.equals(that.slotRequests))
+          return false;
+      }
+
+      boolean this_present_localSafeZone = true;
+      boolean that_present_localSafeZone = true;
+      if (this_present_localSafeZone || that_present_localSafeZone) {
+        if (!(this_present_localSafeZone && that_present_localSafeZone))
+          return false;
+        if (this.localSafeZone != that.localSafeZone)
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(processSlotBatch_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      processSlotBatch_args typedOther = (processSlotBatch_args)other;
+
+      lastComparison = Boolean.valueOf(isSetNodeId()).compareTo(typedOther.isSetNodeId());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetNodeId()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.nodeId, typedOther.nodeId);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetMessageIdUpdates()).compareTo(typedOther.isSetMessageIdUpdates());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetMessageIdUpdates()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.messageIdUpdates, typedOther.messageIdUpdates);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetSlotRequests()).compareTo(typedOther.isSetSlotRequests());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSlotRequests()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.slotRequests, typedOther.slotRequests);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetLocalSafeZone()).compareTo(typedOther.isSetLocalSafeZone());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetLocalSafeZone()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.localSafeZone, typedOther.localSafeZone);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // NODE_ID
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.nodeId = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // MESSAGE_ID_UPDATES
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list0 = iprot.readListBegin();
+                this.messageIdUpdates = new ArrayList<SlotInfo>(_list0.size);
+                for (int _i1 = 0; _i1 < _list0.size; ++_i1)
+                {
+                  SlotInfo _elem2; // required
+                  _elem2 = new SlotInfo();
+                  _elem2.read(iprot);
+                  this.messageIdUpdates.add(_elem2);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3: // SLOT_REQUESTS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list3 = iprot.readListBegin();
+                this.slotRequests = new ArrayList<String>(_list3.size);
+                for (int _i4 = 0; _i4 < _list3.size; ++_i4)
+                {
+                  String _elem5; // required
+                  _elem5 = iprot.readString();
+                  this.slotRequests.add(_elem5);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 4: // LOCAL_SAFE_ZONE
+            if (field.type == org.apache.thrift.protocol.TType.I64) {
+              this.localSafeZone = iprot.readI64();
+              setLocalSafeZoneIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.nodeId != null) {
+        oprot.writeFieldBegin(NODE_ID_FIELD_DESC);
+        oprot.writeString(this.nodeId);
+        oprot.writeFieldEnd();
+      }
+      if (this.messageIdUpdates != null) {
+        oprot.writeFieldBegin(MESSAGE_ID_UPDATES_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.messageIdUpdates.size()));
+          for (SlotInfo _iter6 : this.messageIdUpdates)
+          {
+            _iter6.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      if (this.slotRequests != null) {
+        oprot.writeFieldBegin(SLOT_REQUESTS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, this.slotRequests.size()));
+          for (String _iter7 : this.slotRequests)
+          {
+            oprot.writeString(_iter7);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldBegin(LOCAL_SAFE_ZONE_FIELD_DESC);
+      oprot.writeI64(this.localSafeZone);
+      oprot.writeFieldEnd();
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("processSlotBatch_args(");
+      boolean first = true;
+
+      sb.append("nodeId:");
+      if (this.nodeId == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.nodeId);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("messageIdUpdates:");
+      if (this.messageIdUpdates == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.messageIdUpdates);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("slotRequests:");
+      if (this.slotRequests == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.slotRequests);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("localSafeZone:");
+      sb.append(this.localSafeZone);
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bit_vector = new BitSet(1);
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class processSlotBatch_result implements org.apache.thrift.TBase<processSlotBatch_result, processSlotBatch_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("processSlotBatch_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.LIST, (short)0);
+
+    public List<SlotInfo> success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, SlotInfo.class))));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(processSlotBatch_result.class, metaDataMap);
+    }
+
+    public processSlotBatch_result() {
+    }
+
+    public processSlotBatch_result(
+      List<SlotInfo> success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public processSlotBatch_result(processSlotBatch_result other) {
+      if (other.isSetSuccess()) {
+        List<SlotInfo> __this__success = new ArrayList<SlotInfo>();
+        for (SlotInfo other_element : other.success) {
+          __this__success.add(new SlotInfo(other_element));
+        }
+        this.success = __this__success;
+      }
+    }
+
+    public processSlotBatch_result deepCopy() {
+      return new processSlotBatch_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public int getSuccessSize() {
+      return (this.success == null) ? 0 : this.success.size();
+    }
+
+    public java.util.Iterator<SlotInfo> getSuccessIterator() {
+      return (this.success == null) ? null : this.success.iterator();
+    }
+
+    public void addToSuccess(SlotInfo elem) {
+      if (this.success == null) {
+        this.success = new ArrayList<SlotInfo>();
+      }
+      this.success.add(elem);
+    }
+
+    public List<SlotInfo> getSuccess() {
+      return this.success;
+    }
+
+    public processSlotBatch_result setSuccess(List<SlotInfo> success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((List<SlotInfo>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof processSlotBatch_result)
+        return this.equals((processSlotBatch_result)that);
+      return false;
+    }
+
+    public boolean equals(processSlotBatch_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(processSlotBatch_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      processSlotBatch_result typedOther = (processSlotBatch_result)other;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(typedOther.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, typedOther.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 0: // SUCCESS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list8 = iprot.readListBegin();
+                this.success = new ArrayList<SlotInfo>(_list8.size);
+                for (int _i9 = 0; _i9 < _list8.size; ++_i9)
+                {
+                  SlotInfo _elem10; // required
+                  _elem10 = new SlotInfo();
+                  _elem10.read(iprot);
+                  this.success.add(_elem10);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      if (this.isSetSuccess()) {
+        oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.success.size()));
+          for (SlotInfo _iter11 : this.success)
+          {
+            _iter11.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("processSlotBatch_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
 }
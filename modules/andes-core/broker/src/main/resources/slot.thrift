@@ -50,6 +50,18 @@ service SlotManagementService {
      *
      * @param queueName name of destination queue
      */
-    void clearAllActiveSlotRelationsToQueue(1: string queueName)
+    void clearAllActiveSlotRelationsToQueue(1: string queueName),
+
+    /**
+     * Submit message ID updates of many queues and request slots for many queues in one call. Message ID updates
+     * are applied in the given order before slots are assigned.
+     *
+     * @param nodeId node submitting the batch
+     * @param messageIdUpdates slot ranges chosen by the node. Each has the queue name, start and end message IDs
+     * @param slotRequests names of the queues to assign slots for
+     * @param localSafeZone minimum message ID of the node that is deemed safe
+     * @return a slot for each requested queue in the requested order. An empty slot if none is available
+     */
+    list<SlotInfo> processSlotBatch(1: string nodeId, 2: list<SlotInfo> messageIdUpdates, 3: list<string> slotRequests, 4: i64 localSafeZone)
 
 }
\ No newline at end of file
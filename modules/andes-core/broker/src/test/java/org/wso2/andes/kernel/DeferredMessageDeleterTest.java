@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.store.SkeletonAndesMessageStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DeferredMessageDeleter}
+ */
+public class DeferredMessageDeleterTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    /**
+     * Long enough for the background compaction not to run during a test
+     */
+    private static final int COMPACTION_INTERVAL = 60 * 60 * 1000;
+
+    private TestMessageStore messageStore;
+
+    private DeferredMessageDeleter deleter;
+
+    @Before
+    public void setUp() {
+        messageStore = new TestMessageStore();
+        deleter = new DeferredMessageDeleter(messageStore, COMPACTION_INTERVAL, COMPACTION_INTERVAL);
+    }
+
+    @After
+    public void tearDown() {
+        deleter.close();
+    }
+
+    /**
+     * Acknowledged messages should be filtered out when a slot is read again and removed with a range delete once
+     * the slot is compacted
+     */
+    @Test
+    public void testCompactSlotWithRangeDelete() throws AndesException {
+        Slot slot = createSlot(1, 10);
+        deleter.recordDeletion(createMessages(slot, 1, 5, 10));
+
+        List<DeliverableAndesMetadata> readMessages = createMessages(slot, 1, 2, 5, 10);
+        deleter.removeDeletedMessages(slot, readMessages);
+        assertEquals(1, readMessages.size());
+        assertEquals(2, readMessages.get(0).getMessageID());
+
+        deleter.compactSlot(slot);
+        assertEquals(LongHashSet.newSetWith(1, 5, 10), messageStore.rangeDeletedMessageIDs);
+        assertTrue(messageStore.deletedMessageIDs.isEmpty());
+
+        // Tombstones are removed with the messages
+        readMessages = createMessages(slot, 1, 5);
+        deleter.removeDeletedMessages(slot, readMessages);
+        assertEquals(2, readMessages.size());
+    }
+
+    /**
+     * Acknowledged messages should be deleted by their ids if the range of the slot holds other messages
+     */
+    @Test
+    public void testCompactSlotWithOtherMessagesInRange() throws AndesException {
+        messageStore.rangeDeleteAllowed = false;
+        Slot slot = createSlot(1, 10);
+        deleter.recordDeletion(createMessages(slot, 3, 4));
+
+        deleter.compactSlot(slot);
+        assertTrue(messageStore.rangeDeletedMessageIDs.isEmpty());
+        assertEquals(Arrays.asList(3L, 4L), messageStore.deletedMessageIDs);
+        assertEquals(2, messageStore.decrementedCount);
+    }
+
+    /**
+     * Tombstones should be kept to filter messages and retry the deletion when the store fails
+     */
+    @Test
+    public void testCompactSlotRetriedOnStoreFailure() throws AndesException {
+        Slot slot = createSlot(1, 10);
+        deleter.recordDeletion(createMessages(slot, 7));
+
+        messageStore.failDeletes = true;
+        deleter.compactSlot(slot);
+        List<DeliverableAndesMetadata> readMessages = createMessages(slot, 7);
+        deleter.removeDeletedMessages(slot, readMessages);
+        assertTrue(readMessages.isEmpty());
+
+        messageStore.failDeletes = false;
+        deleter.compactSlot(slot);
+        assertEquals(LongHashSet.newSetWith(7), messageStore.rangeDeletedMessageIDs);
+    }
+
+    /**
+     * Flushing a queue should remove acknowledged messages of all its slots by their ids only
+     */
+    @Test
+    public void testFlushQueue() throws AndesException {
+        Slot slot = createSlot(1, 10);
+        Slot otherSlot = createSlot(11, 20);
+        Slot slotOfOtherQueue = new Slot(1, 10, "otherQueue");
+        slotOfOtherQueue.setStorageQueueName("otherQueue");
+        deleter.recordDeletion(createMessages(slot, 2));
+        deleter.recordDeletion(createMessages(otherSlot, 12));
+        deleter.recordDeletion(createMessages(slotOfOtherQueue, 3));
+
+        deleter.flushQueue(QUEUE_NAME);
+        List<Long> deletedMessageIDs = new ArrayList<>(messageStore.deletedMessageIDs);
+        assertEquals(2, deletedMessageIDs.size());
+        assertTrue(deletedMessageIDs.containsAll(Arrays.asList(2L, 12L)));
+        assertEquals(2, messageStore.decrementedCount);
+
+        List<DeliverableAndesMetadata> readMessages = createMessages(slotOfOtherQueue, 3);
+        deleter.removeDeletedMessages(slotOfOtherQueue, readMessages);
+        assertTrue(readMessages.isEmpty());
+    }
+
+    private static Slot createSlot(long start, long end) {
+        Slot slot = new Slot(start, end, QUEUE_NAME);
+        slot.setStorageQueueName(QUEUE_NAME);
+        return slot;
+    }
+
+    private static List<DeliverableAndesMetadata> createMessages(Slot slot, long... messageIDs) {
+        List<DeliverableAndesMetadata> messages = new ArrayList<>(messageIDs.length);
+        for (long messageID : messageIDs) {
+            messages.add(new DeliverableAndesMetadata(slot, messageID, null, false));
+        }
+        return messages;
+    }
+
+    /**
+     * Message store recording deletions
+     */
+    private static class TestMessageStore extends SkeletonAndesMessageStore {
+
+        private final LongHashSet rangeDeletedMessageIDs = new LongHashSet();
+
+        private final List<Long> deletedMessageIDs = new ArrayList<>();
+
+        private long decrementedCount;
+
+        private boolean rangeDeleteAllowed = true;
+
+        private boolean failDeletes;
+
+        @Override
+        public boolean deleteMessagesInRange(String storageQueueName, long firstMsgId, long lastMsgId,
+                                             LongArrayList messageIDs) throws AndesException {
+            if (failDeletes) {
+                throw new AndesException("Store not available");
+            }
+            if (!rangeDeleteAllowed) {
+                return false;
+            }
+            rangeDeletedMessageIDs.addAll(messageIDs);
+            return true;
+        }
+
+        @Override
+        public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
+            if (failDeletes) {
+                throw new AndesException("Store not available");
+            }
+            deletedMessageIDs.addAll(messagesToRemove);
+        }
+
+        @Override
+        public void decrementMessageCountForQueue(String storageQueueName, long decrementBy) {
+            decrementedCount = decrementedCount + decrementBy;
+        }
+    }
+}
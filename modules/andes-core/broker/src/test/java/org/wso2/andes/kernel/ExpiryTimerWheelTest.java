@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link ExpiryTimerWheel}
+ */
+public class ExpiryTimerWheelTest {
+
+    private static final String QUEUE = "queue1";
+
+    /**
+     * Messages should be returned once their expiration time is reached and not before
+     */
+    @Test
+    public void testExpiryInLowestLevel() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(10, 8, 3, 0);
+        wheel.schedule(1, QUEUE, 25);
+        wheel.schedule(2, QUEUE, 50);
+
+        assertTrue(wheel.advance(20).isEmpty());
+        Map<String, LongArrayList> expired = wheel.advance(30);
+        assertEquals(LongArrayList.newListWith(1), expired.get(QUEUE));
+        assertEquals(1, wheel.size());
+
+        assertTrue(wheel.advance(49).isEmpty());
+        assertEquals(LongArrayList.newListWith(2), wheel.advance(50).get(QUEUE));
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Messages in upper levels and in the overflow list should be moved down and expire on time
+     */
+    @Test
+    public void testExpiryThroughUpperLevels() {
+        // Levels span 4, 16 and 64 ticks
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(1, 4, 3, 0);
+        long[] expirationTimes = { 3, 7, 17, 40, 63, 64, 100, 250 };
+        for (int i = 0; i < expirationTimes.length; i++) {
+            wheel.schedule(i, QUEUE, expirationTimes[i]);
+        }
+
+        for (long time = 1; time <= 300; time++) {
+            Map<String, LongArrayList> expired = wheel.advance(time);
+            for (int i = 0; i < expirationTimes.length; i++) {
+                boolean expiresNow = expirationTimes[i] == time;
+                LongArrayList messageIds = expired.get(QUEUE);
+                assertEquals("message " + i + " at " + time, expiresNow,
+                        null != messageIds && messageIds.contains(i));
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Already expired messages should be returned on the next advance, grouped by queue
+     */
+    @Test
+    public void testAlreadyExpiredAndGrouping() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(10, 8, 2, 1000);
+        wheel.schedule(1, QUEUE, 500);
+        wheel.schedule(2, "queue2", 1000);
+        wheel.schedule(3, QUEUE, 990);
+
+        Map<String, LongArrayList> expired = wheel.advance(1000);
+        assertEquals(LongArrayList.newListWith(1, 3), expired.get(QUEUE));
+        assertEquals(LongArrayList.newListWith(2), expired.get("queue2"));
+    }
+
+    /**
+     * Advancing over a long idle period should not lose messages scheduled afterwards
+     */
+    @Test
+    public void testAdvanceAfterIdle() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(10, 8, 2, 0);
+        assertTrue(wheel.advance(1000000).isEmpty());
+        wheel.schedule(1, QUEUE, 1000100);
+        assertTrue(wheel.advance(1000090).isEmpty());
+        assertEquals(LongArrayList.newListWith(1), wheel.advance(1000100).get(QUEUE));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link AdaptiveBatchSizeController}
+ */
+public class AdaptiveBatchSizeControllerTest {
+
+    private static final long TARGET_LATENCY = 10;
+
+    /**
+     * Batch size should grow up to the maximum while events are waiting and latency is below the target
+     */
+    @Test
+    public void testGrowWhenBacklogged() {
+        AdaptiveBatchSizeController controller = new AdaptiveBatchSizeController(10, 1, 100, TARGET_LATENCY);
+        for (int i = 0; i < 50; i++) {
+            controller.batchHandled(TimeUnit.MILLISECONDS.toNanos(1), true);
+        }
+        assertEquals(100, controller.getBatchSize());
+    }
+
+    /**
+     * Batch size should not change when no events are waiting and latency is below the target
+     */
+    @Test
+    public void testKeepWhenNotBacklogged() {
+        AdaptiveBatchSizeController controller = new AdaptiveBatchSizeController(10, 1, 100, TARGET_LATENCY);
+        for (int i = 0; i < 50; i++) {
+            controller.batchHandled(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+        assertEquals(10, controller.getBatchSize());
+    }
+
+    /**
+     * Batch size should shrink when latency is above the target, but not below the minimum
+     */
+    @Test
+    public void testShrinkWhenSlow() {
+        AdaptiveBatchSizeController controller = new AdaptiveBatchSizeController(80, 5, 100, TARGET_LATENCY);
+        controller.batchHandled(TimeUnit.MILLISECONDS.toNanos(50), true);
+        assertEquals(60, controller.getBatchSize());
+
+        for (int i = 0; i < 100; i++) {
+            controller.batchHandled(TimeUnit.MILLISECONDS.toNanos(50), true);
+        }
+        assertEquals(5, controller.getBatchSize());
+    }
+
+    /**
+     * Batch size should settle where the latency is around the target when latency is proportional to batch size
+     */
+    @Test
+    public void testConvergeToTargetLatency() {
+        AdaptiveBatchSizeController controller = new AdaptiveBatchSizeController(10, 1, 1000, TARGET_LATENCY);
+        // 0.1 ms per event, hence the target latency is reached at a batch size of 100
+        long nanosPerEvent = TimeUnit.MICROSECONDS.toNanos(100);
+        for (int i = 0; i < 200; i++) {
+            controller.batchHandled(controller.getBatchSize() * nanosPerEvent, true);
+        }
+        int batchSize = controller.getBatchSize();
+        assertTrue("Batch size " + batchSize + " is not around 100", batchSize >= 50 && batchSize <= 130);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.FlowControlListener;
+import org.wso2.andes.kernel.FlowControlManager;
+import org.wso2.andes.kernel.registry.MessageRouterRegistry;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.ClusterResourceHolder;
+import org.wso2.andes.server.cluster.ClusterManager;
+import org.wso2.andes.store.SkeletonAndesMessageStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MessageRoutingHandler} and the message IDs assigned afterwards by the
+ * {@link MessagePreProcessor}
+ */
+public class MessageRoutingHandlerTest {
+
+    private static final String ROUTER_NAME = "amq.topic";
+
+    private static final int GROUP_COUNT = 3;
+
+    private static final int CHUNK_COUNT = 2;
+
+    private CountingMessageRouter messageRouter;
+
+    private FlowControlManager flowControlManager;
+
+    @Before
+    public void setUp() throws AndesException {
+        messageRouter = new CountingMessageRouter();
+        MessageRouterRegistry messageRouterRegistry = new MessageRouterRegistry();
+        messageRouterRegistry.registerMessageRouter(ROUTER_NAME, messageRouter);
+        AndesContext.getInstance().setMessageRouterRegistry(messageRouterRegistry);
+        AndesContext.getInstance().setMessageStore(new SkeletonAndesMessageStore());
+        ClusterResourceHolder.getInstance().setClusterManager(new ClusterManager());
+        flowControlManager = new FlowControlManager();
+    }
+
+    @After
+    public void tearDown() {
+        flowControlManager.getScheduledExecutor().shutdownNow();
+    }
+
+    /**
+     * Messages of each channel should be routed by exactly one of the parallel routing handlers, chosen by the
+     * channel ID
+     */
+    @Test
+    public void testEachChannelRoutedByOneHandler() throws Exception {
+        messageRouter.matchingQueues.add(new StorageQueue("queue", true, false, null, false));
+        List<MessageRoutingHandler> routingHandlers = new ArrayList<>();
+        for (int turn = 0; turn < GROUP_COUNT; turn++) {
+            routingHandlers.add(new MessageRoutingHandler(turn, GROUP_COUNT));
+        }
+
+        for (int i = 0; i < GROUP_COUNT * 2; i++) {
+            AndesChannel channel = createChannel();
+            InboundEventContainer event = createMessageEvent(channel);
+            int routedCount = messageRouter.routedCount;
+
+            for (int turn = 0; turn < GROUP_COUNT; turn++) {
+                routingHandlers.get(turn).onEvent(event, i, true);
+                boolean routed = messageRouter.routedCount > routedCount;
+                assertEquals("Channel " + channel.getId() + " routed by handler " + turn,
+                        MessageRoutingHandler.getTurn(channel.getId(), GROUP_COUNT) == turn, routed);
+                routedCount = messageRouter.routedCount;
+            }
+            assertEquals("queue", event.getMessageList().get(0).getMetadata().getStorageQueueName());
+        }
+    }
+
+    /**
+     * Turn should stay within the handler group for any channel ID
+     */
+    @Test
+    public void testTurnWithinGroup() {
+        for (long channelId : Arrays.asList(Long.MIN_VALUE, -7L, -1L, 0L, 1L, 7L, Long.MAX_VALUE)) {
+            long turn = MessageRoutingHandler.getTurn(channelId, GROUP_COUNT);
+            assertTrue("Turn of channel " + channelId, turn >= 0 && turn < GROUP_COUNT);
+        }
+    }
+
+    /**
+     * A turn outside the handler group should be rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTurn() {
+        new MessageRoutingHandler(GROUP_COUNT, GROUP_COUNT);
+    }
+
+    /**
+     * The original message should go to the first matching queue and a clone without a message ID to each other
+     * queue
+     */
+    @Test
+    public void testMessageClonedForEachMatchingQueue() {
+        addMatchingQueues("queue1", "queue2", "queue3");
+        InboundEventContainer event = createMessageEvent(createChannel());
+        AndesMessage message = event.popMessage();
+
+        MessageRoutingHandler.routeMessage(event, message);
+
+        List<AndesMessage> routedMessages = event.getMessageList();
+        assertEquals(3, routedMessages.size());
+        assertSame(message, routedMessages.get(0));
+        assertEquals("queue1", message.getMetadata().getStorageQueueName());
+        assertNull(message.getClonedFrom());
+        for (int i = 1; i < routedMessages.size(); i++) {
+            AndesMessage clone = routedMessages.get(i);
+            assertEquals("queue" + (i + 1), clone.getMetadata().getStorageQueueName());
+            assertSame(message, clone.getClonedFrom());
+            assertEquals(MessageRoutingHandler.UNASSIGNED_MESSAGE_ID, clone.getMetadata().getMessageID());
+            assertEquals(CHUNK_COUNT, clone.getContentChunkList().size());
+            for (AndesMessagePart messagePart : clone.getContentChunkList()) {
+                assertEquals(MessageRoutingHandler.UNASSIGNED_MESSAGE_ID, messagePart.getMessageID());
+            }
+        }
+    }
+
+    /**
+     * Message IDs should increase in ring buffer order even when the routing handlers of later events finish
+     * first, and clones should get IDs after the original message
+     */
+    @Test
+    public void testMessageIdsAssignedInRingOrder() throws Exception {
+        addMatchingQueues("queue1", "queue2");
+        List<InboundEventContainer> events = new ArrayList<>();
+        for (int i = 0; i < GROUP_COUNT; i++) {
+            events.add(createMessageEvent(createChannel()));
+        }
+
+        // Routing handlers run in parallel, hence may route later events first
+        for (int sequence = events.size() - 1; sequence >= 0; sequence--) {
+            InboundEventContainer event = events.get(sequence);
+            long turn = MessageRoutingHandler.getTurn(event.getChannel().getId(), GROUP_COUNT);
+            new MessageRoutingHandler(turn, GROUP_COUNT).onEvent(event, sequence, true);
+        }
+
+        MessagePreProcessor messagePreProcessor = new MessagePreProcessor(true);
+        for (int sequence = 0; sequence < events.size(); sequence++) {
+            messagePreProcessor.onEvent(events.get(sequence), sequence, true);
+        }
+
+        long lastMessageId = MessageRoutingHandler.UNASSIGNED_MESSAGE_ID;
+        for (InboundEventContainer event : events) {
+            assertTrue(event.preProcessed);
+            assertEquals(2, event.getMessageList().size());
+            for (AndesMessage message : event.getMessageList()) {
+                long messageId = message.getMetadata().getMessageID();
+                assertTrue("Message ID " + messageId + " after " + lastMessageId, messageId > lastMessageId);
+                for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                    assertEquals(messageId, messagePart.getMessageID());
+                }
+                lastMessageId = messageId;
+            }
+        }
+    }
+
+    private void addMatchingQueues(String... queueNames) {
+        for (String queueName : queueNames) {
+            messageRouter.matchingQueues.add(new StorageQueue(queueName, true, false, null, false));
+        }
+    }
+
+    private AndesChannel createChannel() {
+        return new AndesChannel(flowControlManager, new FlowControlListener() {
+            @Override
+            public void block() {
+            }
+
+            @Override
+            public void unblock() {
+            }
+
+            @Override
+            public void disconnect() {
+            }
+        }, false, false);
+    }
+
+    /**
+     * Create a message event published through a channel, carrying a message of {@link #CHUNK_COUNT} chunks
+     */
+    private InboundEventContainer createMessageEvent(AndesChannel channel) {
+        AndesMessageMetadata metadata = new AndesMessageMetadata();
+        metadata.setMessageRouterName(ROUTER_NAME);
+        metadata.setDestination("sports.cricket");
+        AndesMessage message = new AndesMessage(metadata);
+        for (int offset = 0; offset < CHUNK_COUNT; offset++) {
+            AndesMessagePart messagePart = new AndesMessagePart();
+            messagePart.setOffSet(offset);
+            messagePart.setData(new byte[]{(byte) offset});
+            messagePart.setDataLength(1);
+            message.addMessagePart(messagePart);
+        }
+
+        InboundEventContainer event = new InboundEventContainer();
+        event.setEventType(InboundEventContainer.Type.MESSAGE_EVENT);
+        event.setChannel(channel);
+        event.addMessage(message);
+        return event;
+    }
+
+    /**
+     * Message router matching every message with the same queues, counting the messages routed
+     */
+    private static class CountingMessageRouter extends AndesMessageRouter {
+
+        private final Set<StorageQueue> matchingQueues = new LinkedHashSet<>();
+
+        private int routedCount;
+
+        private CountingMessageRouter() {
+            super(ROUTER_NAME, "topic", false);
+        }
+
+        @Override
+        public Set<StorageQueue> getMatchingStorageQueues(AndesMessage incomingMessage) {
+            routedCount++;
+            return matchingQueues;
+        }
+
+        @Override
+        public void onBindingQueue(StorageQueue queue) {
+        }
+
+        @Override
+        public void onUnbindingQueue(StorageQueue queue) {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link TopicRoutingMatcher}
+ */
+public class TopicRoutingMatcherTest {
+
+    private static final int MATCHING_THREAD_COUNT = 4;
+
+    private static final int ADDED_QUEUE_COUNT = 200;
+
+    /**
+     * Maximum number of constituents added to the routing keys matched in parallel
+     */
+    private static final int MAX_ROUTING_KEY_DEPTH = 16;
+
+    /**
+     * Router the storage queues are bound to. Only records the binding keys
+     */
+    private AndesMessageRouter messageRouter;
+
+    private TopicRoutingMatcher topicRoutingMatcher;
+
+    private StorageQueue cricketQueue;
+
+    private StorageQueue sportsChildrenQueue;
+
+    private StorageQueue sportsDescendantsQueue;
+
+    @Before
+    public void setUp() throws AndesException {
+        messageRouter = new AndesMessageRouter("amq.topic", "topic", false) {
+            @Override
+            public Set<StorageQueue> getMatchingStorageQueues(AndesMessage incomingMessage) {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public void onBindingQueue(StorageQueue queue) {
+            }
+
+            @Override
+            public void onUnbindingQueue(StorageQueue queue) {
+            }
+        };
+        topicRoutingMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        cricketQueue = addStorageQueue("cricketQueue", "sports.cricket");
+        sportsChildrenQueue = addStorageQueue("sportsChildrenQueue", "sports.*");
+        sportsDescendantsQueue = addStorageQueue("sportsDescendantsQueue", "sports.#");
+    }
+
+    /**
+     * Routing keys should be matched with the binding keys of the storage queues
+     */
+    @Test
+    public void testMatchingStorageQueues() {
+        assertMatches("sports.cricket", cricketQueue, sportsChildrenQueue, sportsDescendantsQueue);
+        assertMatches("sports.rugby", sportsChildrenQueue, sportsDescendantsQueue);
+        assertMatches("sports.cricket.scores", sportsDescendantsQueue);
+        assertMatches("news.cricket");
+    }
+
+    /**
+     * Routing keys should be matched in parallel, as done by parallel message routing handlers, while storage
+     * queues are added. Routing keys longer than any binding key add constituent tables while being matched.
+     */
+    @Test
+    public void testConcurrentMatchingWhileQueuesAdded() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(MATCHING_THREAD_COUNT);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicBoolean queuesAdded = new AtomicBoolean(false);
+        final Set<StorageQueue> cricketMatches =
+                new HashSet<>(Arrays.asList(cricketQueue, sportsChildrenQueue, sportsDescendantsQueue));
+        final Set<StorageQueue> descendantMatches = Collections.singleton(sportsDescendantsQueue);
+
+        try {
+            Future<?>[] matchers = new Future<?>[MATCHING_THREAD_COUNT];
+            for (int i = 0; i < MATCHING_THREAD_COUNT; i++) {
+                matchers[i] = executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        startLatch.await();
+                        StringBuilder routingKey = new StringBuilder("sports.cricket");
+                        for (int depth = 0; !queuesAdded.get(); depth++) {
+                            assertEquals(cricketMatches,
+                                    topicRoutingMatcher.getMatchingStorageQueues("sports.cricket"));
+                            if (depth < MAX_ROUTING_KEY_DEPTH) {
+                                routingKey.append(".scores");
+                            }
+                            assertEquals(descendantMatches,
+                                    topicRoutingMatcher.getMatchingStorageQueues(routingKey.toString()));
+                        }
+                        return null;
+                    }
+                });
+            }
+
+            startLatch.countDown();
+            for (int i = 0; i < ADDED_QUEUE_COUNT; i++) {
+                addStorageQueue("newsQueue" + i, "news" + i + ".#");
+            }
+            queuesAdded.set(true);
+
+            for (Future<?> matcher : matchers) {
+                matcher.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertMatches("sports.cricket", cricketQueue, sportsChildrenQueue, sportsDescendantsQueue);
+        List<StorageQueue> storageQueues = topicRoutingMatcher.getAllStorageQueues();
+        assertEquals(ADDED_QUEUE_COUNT + 3, storageQueues.size());
+        for (int i = 0; i < ADDED_QUEUE_COUNT; i++) {
+            assertEquals(Collections.singleton(storageQueues.get(i + 3)),
+                    topicRoutingMatcher.getMatchingStorageQueues("news" + i + ".local.headlines"));
+        }
+    }
+
+    private StorageQueue addStorageQueue(String queueName, String bindingKey) throws AndesException {
+        StorageQueue storageQueue = new StorageQueue(queueName, false, false, null, false);
+        storageQueue.bindQueueToMessageRouter(bindingKey, messageRouter);
+        topicRoutingMatcher.addStorageQueue(storageQueue);
+        return storageQueue;
+    }
+
+    private void assertMatches(String routingKey, StorageQueue... expectedQueues) {
+        assertEquals("Storage queues matching " + routingKey, new HashSet<>(Arrays.asList(expectedQueues)),
+                topicRoutingMatcher.getMatchingStorageQueues(routingKey));
+    }
+}
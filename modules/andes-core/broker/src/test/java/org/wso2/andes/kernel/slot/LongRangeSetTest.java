@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link LongRangeSet}
+ */
+public class LongRangeSetTest {
+
+    /**
+     * Adjacent and overlapping values should be merged into one range
+     */
+    @Test
+    public void testRangesAreMerged() {
+        LongRangeSet rangeSet = new LongRangeSet();
+        rangeSet.add(10);
+        rangeSet.add(12);
+        assertEquals(2, rangeSet.getRangeCount());
+
+        rangeSet.add(11);
+        assertEquals(1, rangeSet.getRangeCount());
+        assertEquals(3, rangeSet.size());
+
+        assertTrue(rangeSet.addRange(5, 20));
+        assertFalse(rangeSet.addRange(6, 19));
+        assertEquals(1, rangeSet.getRangeCount());
+        assertEquals(16, rangeSet.size());
+        assertEquals(5, rangeSet.getRangeStart(0));
+        assertEquals(20, rangeSet.getRangeEnd(0));
+        assertEquals("[5-20]", rangeSet.toString());
+    }
+
+    /**
+     * Removing a value from the middle of a range should split the range
+     */
+    @Test
+    public void testRemoveSplitsRange() {
+        LongRangeSet rangeSet = new LongRangeSet();
+        rangeSet.addRange(1, 10);
+
+        assertTrue(rangeSet.remove(5));
+        assertFalse(rangeSet.remove(5));
+        assertFalse(rangeSet.contains(5));
+        assertEquals("[1-4, 6-10]", rangeSet.toString());
+        assertEquals(9, rangeSet.size());
+        assertEquals(6, rangeSet.get(4));
+    }
+
+    /**
+     * Polling should return values in ascending order, the way slot end message IDs are consumed
+     */
+    @Test
+    public void testPollFirst() {
+        LongRangeSet rangeSet = new LongRangeSet();
+        rangeSet.add(300);
+        rangeSet.add(100);
+        rangeSet.add(200);
+
+        assertEquals(100, rangeSet.first());
+        assertEquals(300, rangeSet.last());
+        assertEquals(100, rangeSet.pollFirst());
+        assertEquals(200, rangeSet.pollFirst());
+        assertEquals(300, rangeSet.pollFirst());
+        assertTrue(rangeSet.isEmpty());
+    }
+
+    /**
+     * Random adds, removes and polls should give the same values as a tree set
+     */
+    @Test
+    public void testMatchesTreeSet() {
+        Random random = new Random(42);
+        LongRangeSet rangeSet = new LongRangeSet();
+        TreeSet<Long> treeSet = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            long value = random.nextInt(2000);
+            int operation = random.nextInt(4);
+            if (operation == 0) {
+                assertEquals(treeSet.remove(value), rangeSet.remove(value));
+            } else if (operation == 1 && !treeSet.isEmpty()) {
+                assertEquals(treeSet.pollFirst().longValue(), rangeSet.pollFirst());
+            } else {
+                assertEquals(treeSet.add(value), rangeSet.add(value));
+            }
+            assertEquals(treeSet.size(), rangeSet.size());
+        }
+        long index = 0;
+        for (long value : treeSet) {
+            assertEquals(value, rangeSet.get(index));
+            index++;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesConstants;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.store.SkeletonAndesContextStore;
+import org.wso2.andes.store.SkeletonAndesMessageStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SlotCheckpointTask}
+ */
+public class SlotCheckpointTaskTest {
+
+    private static final String QUEUE_NAME = "checkpointQueue";
+
+    private static final int SLOT_SIZE = 3;
+
+    private TestMessageStore messageStore;
+
+    private TestContextStore contextStore;
+
+    private SlotCheckpointTask checkpointTask;
+
+    @Before
+    public void setUp() {
+        messageStore = new TestMessageStore();
+        contextStore = new TestContextStore();
+        contextStore.queues.add(new StorageQueue(QUEUE_NAME, true, false, null, false));
+        checkpointTask = new SlotCheckpointTask(messageStore, contextStore, SLOT_SIZE);
+    }
+
+    /**
+     * Full slot windows should be checkpointed while the partial window at the tail is left for the next run
+     */
+    @Test
+    public void testFullWindowsCheckpointed() {
+        messageStore.addMessages(QUEUE_NAME, 1, 2, 3, 5, 6, 7, 9);
+        checkpointTask.run();
+        assertCheckpoints(QUEUE_NAME, "1-3", "5-7");
+
+        messageStore.addMessages(QUEUE_NAME, 10, 11);
+        checkpointTask.run();
+        assertCheckpoints(QUEUE_NAME, "1-3", "5-7", "9-11");
+    }
+
+    /**
+     * Checkpoints ending before the first message of the queue should be deleted
+     */
+    @Test
+    public void testObsoleteCheckpointsDeleted() {
+        messageStore.addMessages(QUEUE_NAME, 1, 2, 3, 4, 5, 6);
+        checkpointTask.run();
+        assertCheckpoints(QUEUE_NAME, "1-3", "4-6");
+
+        messageStore.removeMessages(QUEUE_NAME, 1, 2, 3, 4);
+        checkpointTask.run();
+        assertCheckpoints(QUEUE_NAME, "4-6");
+    }
+
+    /**
+     * All checkpoints of an empty queue should be deleted
+     */
+    @Test
+    public void testCheckpointsOfEmptyQueueDeleted() {
+        messageStore.addMessages(QUEUE_NAME, 1, 2, 3);
+        checkpointTask.run();
+        assertCheckpoints(QUEUE_NAME, "1-3");
+
+        messageStore.removeMessages(QUEUE_NAME, 1, 2, 3);
+        checkpointTask.run();
+        assertCheckpoints(QUEUE_NAME);
+    }
+
+    /**
+     * Dead letter channel should not be checkpointed
+     */
+    @Test
+    public void testDeadLetterChannelSkipped() {
+        String dlcName = AndesConstants.DEAD_LETTER_QUEUE_SUFFIX;
+        contextStore.queues.add(new StorageQueue(dlcName, true, false, null, false));
+        messageStore.addMessages(dlcName, 1, 2, 3);
+        checkpointTask.run();
+        assertTrue(contextStore.checkpoints.get(dlcName).isEmpty());
+    }
+
+    private void assertCheckpoints(String queueName, String... ranges) {
+        List<String> storedRanges = new ArrayList<>();
+        for (SlotCheckpoint checkpoint : contextStore.checkpoints.get(queueName)) {
+            storedRanges.add(checkpoint.getStartMessageId() + "-" + checkpoint.getEndMessageId());
+        }
+        assertEquals(Arrays.asList(ranges), storedRanges);
+    }
+
+    /**
+     * Message store holding message ids of queues in memory
+     */
+    static class TestMessageStore extends SkeletonAndesMessageStore {
+
+        private final Map<String, TreeSet<Long>> messageIds = new HashMap<>();
+
+        void addMessages(String queueName, long... messageIdsToAdd) {
+            for (long messageId : messageIdsToAdd) {
+                getMessageIds(queueName).add(messageId);
+            }
+        }
+
+        void removeMessages(String queueName, long... messageIdsToRemove) {
+            for (long messageId : messageIdsToRemove) {
+                getMessageIds(queueName).remove(messageId);
+            }
+        }
+
+        @Override
+        public LongArrayList getNextNMessageIdsFromQueue(String storageQueueName, long firstMsgId, int count) {
+            LongArrayList messageIdList = new LongArrayList();
+            Iterator<Long> iterator = getMessageIds(storageQueueName).tailSet(firstMsgId).iterator();
+            while (iterator.hasNext() && messageIdList.size() < count) {
+                messageIdList.add(iterator.next());
+            }
+            return messageIdList;
+        }
+
+        @Override
+        public long getMessageCountForQueue(String storageQueueName) {
+            return getMessageIds(storageQueueName).size();
+        }
+
+        private TreeSet<Long> getMessageIds(String queueName) {
+            TreeSet<Long> queueMessageIds = messageIds.get(queueName);
+            if (null == queueMessageIds) {
+                queueMessageIds = new TreeSet<>();
+                messageIds.put(queueName, queueMessageIds);
+            }
+            return queueMessageIds;
+        }
+    }
+
+    /**
+     * Context store holding storage queues and slot checkpoints in memory
+     */
+    static class TestContextStore extends SkeletonAndesContextStore {
+
+        private final List<StorageQueue> queues = new ArrayList<>();
+
+        private final Map<String, List<SlotCheckpoint>> checkpoints = new HashMap<>();
+
+        @Override
+        public List<StorageQueue> getAllQueuesStored() {
+            return queues;
+        }
+
+        @Override
+        public void addSlotCheckpoints(String storageQueueName, List<SlotCheckpoint> checkpointsToAdd) {
+            getSlotCheckpoints(storageQueueName).addAll(checkpointsToAdd);
+        }
+
+        @Override
+        public List<SlotCheckpoint> getSlotCheckpoints(String storageQueueName) {
+            List<SlotCheckpoint> queueCheckpoints = checkpoints.get(storageQueueName);
+            if (null == queueCheckpoints) {
+                queueCheckpoints = new ArrayList<>();
+                checkpoints.put(storageQueueName, queueCheckpoints);
+            }
+            return queueCheckpoints;
+        }
+
+        @Override
+        public void deleteSlotCheckpoints(String storageQueueName, long messageIdLimit) {
+            Iterator<SlotCheckpoint> iterator = getSlotCheckpoints(storageQueueName).iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getEndMessageId() < messageIdLimit) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
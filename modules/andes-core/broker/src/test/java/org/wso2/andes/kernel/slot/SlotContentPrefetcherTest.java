@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.MessageStatus;
+import org.wso2.andes.store.SkeletonAndesMessageStore;
+import org.wso2.andes.store.cache.DisabledMessageCacheImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SlotContentPrefetcher}
+ */
+public class SlotContentPrefetcherTest {
+
+    private static final String QUEUE_NAME = "prefetchQueue";
+
+    private RecordingMessageStore messageStore;
+
+    private RecordingMessageCache messageCache;
+
+    @Before
+    public void setUp() {
+        messageStore = new RecordingMessageStore();
+        messageCache = new RecordingMessageCache();
+        SlotContentPrefetcher.getInstance().init(messageStore, messageCache, 1);
+    }
+
+    @After
+    public void tearDown() {
+        SlotContentPrefetcher.getInstance().stop();
+    }
+
+    /**
+     * Content of messages which are already acknowledged or deleted should not be read
+     */
+    @Test
+    public void testCompletedMessagesNotPrefetched() throws Exception {
+        Slot slot = createSlot();
+        DeliverableAndesMetadata pendingMessage = new DeliverableAndesMetadata(slot, 1, null, false);
+        DeliverableAndesMetadata acknowledgedMessage = new DeliverableAndesMetadata(slot, 2, null, false);
+        acknowledge(acknowledgedMessage);
+        DeliverableAndesMetadata deletedMessage = new DeliverableAndesMetadata(slot, 3, null, false);
+        deletedMessage.addMessageStatus(MessageStatus.BUFFERED);
+        deletedMessage.addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
+        deletedMessage.addMessageStatus(MessageStatus.EXPIRED);
+
+        SlotContentPrefetcher.getInstance().prefetch(slot,
+                Arrays.asList(pendingMessage, acknowledgedMessage, deletedMessage));
+
+        assertTrue(messageCache.pinned.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1L), messageStore.cachedMessageIDs);
+        assertEquals(LongArrayList.newListWith(1), messageCache.pinnedMessageIDs);
+    }
+
+    /**
+     * Content of messages already scheduled to be sent is read by the delivery path, hence should not be read
+     */
+    @Test
+    public void testScheduledMessagesNotPrefetched() throws Exception {
+        Slot slot = createSlot();
+        DeliverableAndesMetadata bufferedMessage = new DeliverableAndesMetadata(slot, 1, null, false);
+        bufferedMessage.addMessageStatus(MessageStatus.BUFFERED);
+        DeliverableAndesMetadata scheduledMessage = new DeliverableAndesMetadata(slot, 2, null, false);
+        scheduledMessage.addMessageStatus(MessageStatus.BUFFERED);
+        scheduledMessage.addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
+
+        SlotContentPrefetcher.getInstance().prefetch(slot, Arrays.asList(bufferedMessage, scheduledMessage));
+
+        assertTrue(messageCache.pinned.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1L), messageStore.cachedMessageIDs);
+        assertEquals(LongArrayList.newListWith(1), messageCache.pinnedMessageIDs);
+    }
+
+    /**
+     * Messages acknowledged while their content is read should be removed from the cache again
+     */
+    @Test
+    public void testMessagesAcknowledgedWhilePrefetching() throws Exception {
+        Slot slot = createSlot();
+        DeliverableAndesMetadata pendingMessage = new DeliverableAndesMetadata(slot, 1, null, false);
+        DeliverableAndesMetadata acknowledgedMessage = new DeliverableAndesMetadata(slot, 2, null, false);
+        messageStore.acknowledgeOnCaching = acknowledgedMessage;
+
+        SlotContentPrefetcher.getInstance().prefetch(slot, Arrays.asList(pendingMessage, acknowledgedMessage));
+
+        assertTrue(messageCache.removed.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1L, 2L), messageStore.cachedMessageIDs);
+        assertEquals(LongArrayList.newListWith(2), messageCache.removedMessageIDs);
+        assertEquals(0, messageCache.unpinnedMessageIDs.size());
+    }
+
+    /**
+     * Messages scheduled to be sent while their content is read may have been read for delivery before they are
+     * pinned, hence should be unpinned again
+     */
+    @Test
+    public void testMessagesScheduledWhilePrefetching() throws Exception {
+        Slot slot = createSlot();
+        DeliverableAndesMetadata pendingMessage = new DeliverableAndesMetadata(slot, 1, null, false);
+        DeliverableAndesMetadata scheduledMessage = new DeliverableAndesMetadata(slot, 2, null, false);
+        messageStore.scheduleOnCaching = scheduledMessage;
+
+        SlotContentPrefetcher.getInstance().prefetch(slot, Arrays.asList(pendingMessage, scheduledMessage));
+
+        assertTrue(messageCache.unpinned.await(10, TimeUnit.SECONDS));
+        assertEquals(LongArrayList.newListWith(1, 2), messageCache.pinnedMessageIDs);
+        assertEquals(LongArrayList.newListWith(2), messageCache.unpinnedMessageIDs);
+        assertEquals(0, messageCache.removedMessageIDs.size());
+    }
+
+    private static Slot createSlot() {
+        Slot slot = new Slot(1, 10, QUEUE_NAME);
+        slot.setStorageQueueName(QUEUE_NAME);
+        return slot;
+    }
+
+    private static void acknowledge(DeliverableAndesMetadata message) {
+        message.addMessageStatus(MessageStatus.BUFFERED);
+        message.addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
+        message.addMessageStatus(MessageStatus.ACKED_BY_ALL);
+    }
+
+    /**
+     * Message store recording the messages whose content is read by the prefetcher
+     */
+    private static class RecordingMessageStore extends SkeletonAndesMessageStore {
+
+        private final List<Long> cachedMessageIDs = new ArrayList<>();
+
+        /**
+         * Message acknowledged by all while its content is being read
+         */
+        private volatile DeliverableAndesMetadata acknowledgeOnCaching;
+
+        /**
+         * Message scheduled to be sent while its content is being read
+         */
+        private volatile DeliverableAndesMetadata scheduleOnCaching;
+
+        @Override
+        public void cacheMessageContent(List<? extends AndesMessageMetadata> metadataList) {
+            for (AndesMessageMetadata metadata : metadataList) {
+                cachedMessageIDs.add(metadata.getMessageID());
+            }
+            if (null != acknowledgeOnCaching) {
+                acknowledge(acknowledgeOnCaching);
+            }
+            if (null != scheduleOnCaching) {
+                scheduleOnCaching.addMessageStatus(MessageStatus.BUFFERED);
+                scheduleOnCaching.addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
+            }
+        }
+    }
+
+    /**
+     * Message cache recording the pins and removals of the prefetcher
+     */
+    private static class RecordingMessageCache extends DisabledMessageCacheImpl {
+
+        private final LongArrayList pinnedMessageIDs = new LongArrayList();
+
+        private final LongArrayList unpinnedMessageIDs = new LongArrayList();
+
+        private final LongArrayList removedMessageIDs = new LongArrayList();
+
+        private final CountDownLatch pinned = new CountDownLatch(1);
+
+        private final CountDownLatch unpinned = new CountDownLatch(1);
+
+        private final CountDownLatch removed = new CountDownLatch(1);
+
+        @Override
+        public void pinMessages(String storageQueueName, LongArrayList messageIDs) {
+            pinnedMessageIDs.addAll(messageIDs);
+            pinned.countDown();
+        }
+
+        @Override
+        public void unpinMessages(LongArrayList messageIDs) {
+            unpinnedMessageIDs.addAll(messageIDs);
+            unpinned.countDown();
+        }
+
+        @Override
+        public void removeFromCache(LongArrayList messagesToRemove) {
+            removedMessageIDs.addAll(messagesToRemove);
+            removed.countDown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SlotCoordinatorRing}
+ */
+public class SlotCoordinatorRingTest {
+
+    private static final int QUEUE_COUNT = 10000;
+
+    /**
+     * An empty ring should not have an owner for any queue
+     */
+    @Test
+    public void testEmptyRing() {
+        SlotCoordinatorRing ring = new SlotCoordinatorRing(Collections.<String>emptyList(),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+        assertTrue(ring.isEmpty());
+        assertNull(ring.getOwner("queue"));
+    }
+
+    /**
+     * Owner of a queue should not depend on the order the members are listed in
+     */
+    @Test
+    public void testOwnerIndependentOfMemberOrder() {
+        SlotCoordinatorRing ring = new SlotCoordinatorRing(Arrays.asList("NODE:a", "NODE:b", "NODE:c"),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+        SlotCoordinatorRing reorderedRing = new SlotCoordinatorRing(Arrays.asList("NODE:c", null, "NODE:a", "NODE:b"),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+
+        assertEquals(ring.getNodeIds(), reorderedRing.getNodeIds());
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            String queueName = "queue" + i;
+            assertEquals(ring.getOwner(queueName), reorderedRing.getOwner(queueName));
+        }
+    }
+
+    /**
+     * Queues should be spread across all members
+     */
+    @Test
+    public void testQueuesAreSpread() {
+        SlotCoordinatorRing ring = new SlotCoordinatorRing(Arrays.asList("NODE:a", "NODE:b", "NODE:c", "NODE:d"),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+        Map<String, Integer> queueCounts = new HashMap<>();
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            String owner = ring.getOwner("queue" + i);
+            Integer count = queueCounts.get(owner);
+            queueCounts.put(owner, (null == count) ? 1 : count + 1);
+        }
+
+        assertEquals(4, queueCounts.size());
+        int average = QUEUE_COUNT / 4;
+        for (Map.Entry<String, Integer> entry : queueCounts.entrySet()) {
+            assertTrue("Node " + entry.getKey() + " owns " + entry.getValue() + " queues",
+                    Math.abs(entry.getValue() - average) < average / 4);
+        }
+    }
+
+    /**
+     * Only queues taken by a joining member should change their owner
+     */
+    @Test
+    public void testOnlyQueuesOfNewMemberMove() {
+        SlotCoordinatorRing ring = new SlotCoordinatorRing(Arrays.asList("NODE:a", "NODE:b", "NODE:c"),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+        SlotCoordinatorRing grownRing = new SlotCoordinatorRing(Arrays.asList("NODE:a", "NODE:b", "NODE:c",
+                "NODE:d"), SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+
+        int movedQueues = 0;
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            String queueName = "queue" + i;
+            String owner = ring.getOwner(queueName);
+            String newOwner = grownRing.getOwner(queueName);
+            if (!owner.equals(newOwner)) {
+                assertEquals("NODE:d", newOwner);
+                movedQueues++;
+            }
+        }
+        assertTrue("Moved queues: " + movedQueues, movedQueues > 0 && movedQueues < QUEUE_COUNT / 3);
+    }
+
+    /**
+     * Queues of a leaving member should be handed over to the remaining members while the others keep their owner
+     */
+    @Test
+    public void testOnlyQueuesOfLeavingMemberMove() {
+        SlotCoordinatorRing ring = new SlotCoordinatorRing(Arrays.asList("NODE:a", "NODE:b", "NODE:c"),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+        SlotCoordinatorRing shrunkRing = new SlotCoordinatorRing(Arrays.asList("NODE:a", "NODE:c"),
+                SlotCoordinatorRing.DEFAULT_VIRTUAL_NODE_COUNT);
+
+        int handedOverQueues = 0;
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            String queueName = "queue" + i;
+            String owner = ring.getOwner(queueName);
+            String newOwner = shrunkRing.getOwner(queueName);
+            if ("NODE:b".equals(owner)) {
+                assertTrue("NODE:a".equals(newOwner) || "NODE:c".equals(newOwner));
+                handedOverQueues++;
+            } else {
+                assertEquals(owner, newOwner);
+            }
+        }
+        assertTrue("Handed over queues: " + handedOverQueues, handedOverQueues > 0);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for recovering slots with {@link SlotCreator}
+ */
+public class SlotCreatorTest {
+
+    private static final String QUEUE_NAME = "recoveryQueue";
+
+    private static final int SLOT_SIZE = 3;
+
+    private SlotCheckpointTaskTest.TestMessageStore messageStore;
+
+    private SlotCheckpointTaskTest.TestContextStore contextStore;
+
+    @Before
+    public void setUp() {
+        messageStore = new SlotCheckpointTaskTest.TestMessageStore();
+        contextStore = new SlotCheckpointTaskTest.TestContextStore();
+    }
+
+    /**
+     * Slots should be recovered back to back from the checkpoints, covering messages written in between the
+     * checkpointed windows, and messages after the last checkpoint should be read from the message store
+     */
+    @Test
+    public void testRecoverFromCheckpoints() {
+        messageStore.addMessages(QUEUE_NAME, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        contextStore.addSlotCheckpoints(QUEUE_NAME, Arrays.asList(new SlotCheckpoint(1, 3, SLOT_SIZE),
+                new SlotCheckpoint(5, 7, SLOT_SIZE)));
+
+        RecordingSlotCreator slotCreator = new RecordingSlotCreator(true);
+        slotCreator.run();
+        assertEquals(Arrays.asList("1-3", "4-7", "8-10"), slotCreator.submittedSlots);
+    }
+
+    /**
+     * Checkpoints ending before the first message of the queue should not be recovered
+     */
+    @Test
+    public void testObsoleteCheckpointsSkipped() {
+        messageStore.addMessages(QUEUE_NAME, 5, 6, 7, 8);
+        contextStore.addSlotCheckpoints(QUEUE_NAME, Arrays.asList(new SlotCheckpoint(1, 3, SLOT_SIZE),
+                new SlotCheckpoint(4, 6, SLOT_SIZE)));
+
+        RecordingSlotCreator slotCreator = new RecordingSlotCreator(true);
+        slotCreator.run();
+        assertEquals(Arrays.asList("4-6", "7-8"), slotCreator.submittedSlots);
+    }
+
+    /**
+     * All messages should be read from the message store when checkpoints are disabled
+     */
+    @Test
+    public void testRecoverWithoutCheckpoints() {
+        messageStore.addMessages(QUEUE_NAME, 1, 2, 3, 4, 5, 6, 7);
+        contextStore.addSlotCheckpoints(QUEUE_NAME, Arrays.asList(new SlotCheckpoint(1, 6, 6)));
+
+        RecordingSlotCreator slotCreator = new RecordingSlotCreator(false);
+        slotCreator.run();
+        assertEquals(Arrays.asList("1-3", "4-6", "7-7"), slotCreator.submittedSlots);
+    }
+
+    /**
+     * Slot creator recording submitted slots instead of submitting them to the slot manager
+     */
+    private class RecordingSlotCreator extends SlotCreator {
+
+        private final List<String> submittedSlots = new ArrayList<>();
+
+        RecordingSlotCreator(boolean checkpointsEnabled) {
+            super(messageStore, contextStore, QUEUE_NAME, SLOT_SIZE, checkpointsEnabled);
+        }
+
+        @Override
+        void submitSlot(long firstMessageID, long lastMessageID) {
+            submittedSlots.add(firstMessageID + "-" + lastMessageID);
+        }
+    }
+}
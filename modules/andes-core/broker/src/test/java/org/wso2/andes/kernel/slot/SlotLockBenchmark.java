@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares locking on interned queue and node name strings with locking through {@link SlotLockRegistry} when
+ * many nodes request slots of many queues from the coordinator. Each operation takes a queue lock and then a node
+ * lock, the same way a slot is assigned by {@link SlotManagerClusterMode}.
+ * <p>
+ * Run with {@link #main(String[])} using the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class SlotLockBenchmark {
+
+    /**
+     * Number of storage queues slots are requested for
+     */
+    @Param({"10", "1000", "100000"})
+    private int queueCount;
+
+    /**
+     * Number of nodes requesting slots
+     */
+    @Param({"3", "20"})
+    private int nodeCount;
+
+    private String[] queueNames;
+
+    private String[] nodeIds;
+
+    /**
+     * Per queue state updated while holding the queue lock
+     */
+    private long[] lastAssignedIds;
+
+    private SlotLockRegistry queueLocks;
+
+    private SlotLockRegistry nodeLocks;
+
+    @Setup
+    public void setUp() {
+        queueNames = new String[queueCount];
+        lastAssignedIds = new long[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queueNames[i] = "carbon:queue" + i;
+        }
+        nodeIds = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeIds[i] = "node" + i;
+        }
+        queueLocks = new SlotLockRegistry();
+        nodeLocks = new SlotLockRegistry();
+    }
+
+    @Benchmark
+    public long internedStringLocks() {
+        int queue = ThreadLocalRandom.current().nextInt(queueCount);
+        String queueName = queueNames[queue];
+        String nodeId = nodeIds[ThreadLocalRandom.current().nextInt(nodeCount)];
+        String queueLockKey = queueName + SlotManagerClusterMode.class;
+        synchronized (queueLockKey.intern()) {
+            String nodeLockKey = nodeId + SlotManagerClusterMode.class;
+            synchronized (nodeLockKey.intern()) {
+                return ++lastAssignedIds[queue];
+            }
+        }
+    }
+
+    @Benchmark
+    public long lockRegistry() {
+        int queue = ThreadLocalRandom.current().nextInt(queueCount);
+        String queueName = queueNames[queue];
+        String nodeId = nodeIds[ThreadLocalRandom.current().nextInt(nodeCount)];
+        synchronized (queueLocks.getLock(queueName)) {
+            synchronized (nodeLocks.getLock(nodeId)) {
+                return ++lastAssignedIds[queue];
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SlotLockBenchmark.class.getSimpleName()).build()).run();
+    }
+}
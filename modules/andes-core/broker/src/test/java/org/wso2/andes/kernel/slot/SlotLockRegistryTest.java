@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SlotLockRegistry}
+ */
+public class SlotLockRegistryTest {
+
+    /**
+     * Equal names built separately should get the same lock
+     */
+    @Test
+    public void testSameLockForEqualNames() {
+        SlotLockRegistry lockRegistry = new SlotLockRegistry();
+        String queueName = new StringBuilder("queue").append(1).toString();
+        assertSame(lockRegistry.getLock("queue1"), lockRegistry.getLock(queueName));
+    }
+
+    /**
+     * Lock of a name should not change while other names are looked up, as the registry never drops its locks
+     */
+    @Test
+    public void testLockStable() {
+        SlotLockRegistry lockRegistry = new SlotLockRegistry();
+        Object lock = lockRegistry.getLock("queue1");
+        for (int i = 0; i < 10000; i++) {
+            lockRegistry.getLock("queue" + i);
+        }
+        assertSame(lock, lockRegistry.getLock("queue1"));
+    }
+
+    /**
+     * Stripe count should be rounded up to a power of two and names should be spread over all stripes
+     */
+    @Test
+    public void testNamesSpreadOverStripes() {
+        SlotLockRegistry lockRegistry = new SlotLockRegistry(12);
+        Map<Object, Integer> lockUsage = new IdentityHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            Object lock = lockRegistry.getLock("queue" + i);
+            Integer count = lockUsage.get(lock);
+            lockUsage.put(lock, null == count ? 1 : count + 1);
+        }
+        assertEquals(16, lockUsage.size());
+        for (Integer count : lockUsage.values()) {
+            assertTrue("Uneven spread of names: " + lockUsage.values(), count > 20);
+        }
+    }
+
+    /**
+     * Registry should not be created without stripes
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStripeCount() {
+        new SlotLockRegistry(0);
+    }
+}
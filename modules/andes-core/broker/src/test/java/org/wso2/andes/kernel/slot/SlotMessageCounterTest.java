@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SlotMessageCounter}
+ * Tests putting back slots which could not be submitted to the coordinator
+ */
+public class SlotMessageCounterTest {
+
+    private static final String QUEUE_NAME = "counterQueue";
+
+    private static final String OTHER_QUEUE_NAME = "otherCounterQueue";
+
+    private static final int SLOT_WINDOW_SIZE = 1000;
+
+    /**
+     * Long enough for the timer task not to run during a test. Slots are submitted by the tests
+     */
+    private static final int SLOT_SUBMIT_TIMEOUT = 60 * 60 * 1000;
+
+    private RecordingSlotCoordinator slotCoordinator;
+
+    private SlotMessageCounter slotMessageCounter;
+
+    @Before
+    public void setUp() {
+        slotCoordinator = new RecordingSlotCoordinator();
+        // Slots time out right away so that each submit sends all the counted slots
+        slotMessageCounter = new SlotMessageCounter(slotCoordinator, SLOT_WINDOW_SIZE, 0, SLOT_SUBMIT_TIMEOUT);
+    }
+
+    @After
+    public void tearDown() {
+        slotMessageCounter.stop();
+    }
+
+    /**
+     * All the slots should be submitted again when the coordinator can not be reached
+     */
+    @Test
+    public void testSlotsReturnedOnConnectionFailure() {
+        record(QUEUE_NAME, 1, 2);
+        record(OTHER_QUEUE_NAME, 3);
+
+        slotCoordinator.failure = new ConnectionException("Coordinator not reachable");
+        slotMessageCounter.submitReadySlots();
+        assertTrue(slotCoordinator.submittedSlots.isEmpty());
+
+        slotCoordinator.failure = null;
+        slotMessageCounter.submitReadySlots();
+        assertEquals(2, slotCoordinator.submittedSlots.size());
+        assertTrue(slotCoordinator.submittedSlots.containsAll(Arrays.asList(
+                QUEUE_NAME + ":1-2:2", OTHER_QUEUE_NAME + ":3-3:1")));
+    }
+
+    /**
+     * Only the slots sent to the failed coordinators should be submitted again
+     */
+    @Test
+    public void testFailedSlotsOfBatchReturned() {
+        record(QUEUE_NAME, 1, 2);
+        record(OTHER_QUEUE_NAME, 3);
+
+        slotCoordinator.failOnlyQueue = OTHER_QUEUE_NAME;
+        slotMessageCounter.submitReadySlots();
+        assertEquals(Collections.singletonList(QUEUE_NAME + ":1-2:2"), slotCoordinator.submittedSlots);
+
+        slotCoordinator.failOnlyQueue = null;
+        slotCoordinator.submittedSlots.clear();
+        slotMessageCounter.submitReadySlots();
+        assertEquals(Collections.singletonList(OTHER_QUEUE_NAME + ":3-3:1"), slotCoordinator.submittedSlots);
+    }
+
+    /**
+     * A failed slot should be merged into the slot of messages counted after it was taken for submission
+     */
+    @Test
+    public void testFailedSlotMergedIntoNewerSlot() {
+        record(QUEUE_NAME, 1, 2);
+        slotCoordinator.failBeforeReturn = new Runnable() {
+            @Override
+            public void run() {
+                record(QUEUE_NAME, 5);
+            }
+        };
+        slotCoordinator.failure = new ConnectionException("Coordinator not reachable");
+        slotMessageCounter.submitReadySlots();
+
+        slotCoordinator.failBeforeReturn = null;
+        slotCoordinator.failure = null;
+        slotMessageCounter.submitReadySlots();
+        assertEquals(Collections.singletonList(QUEUE_NAME + ":1-5:3"), slotCoordinator.submittedSlots);
+    }
+
+    private void record(String storageQueueName, long... messageIDs) {
+        List<AndesMessage> messages = new ArrayList<>(messageIDs.length);
+        for (long messageID : messageIDs) {
+            AndesMessageMetadata metadata = new AndesMessageMetadata();
+            metadata.setMessageID(messageID);
+            metadata.setStorageQueueName(storageQueueName);
+            messages.add(new AndesMessage(metadata));
+        }
+        slotMessageCounter.recordMetadataCountInSlot(messages);
+    }
+
+    /**
+     * Coordinator recording submitted slots as "queue:start-end:count" entries
+     */
+    private static class RecordingSlotCoordinator implements SlotCoordinator {
+
+        private final List<String> submittedSlots = new ArrayList<>();
+
+        /**
+         * Failure of the whole submit
+         */
+        private ConnectionException failure;
+
+        /**
+         * Queue whose slots fail to be submitted while the others are recorded
+         */
+        private String failOnlyQueue;
+
+        /**
+         * Run before a failure is reported, as messages counted while the coordinator is called
+         */
+        private Runnable failBeforeReturn;
+
+        @Override
+        public Slot getSlot(String queueName) {
+            return null;
+        }
+
+        @Override
+        public void updateMessageId(String queueName, long startMessageId, long endMessageId, long localSafeZone) {
+        }
+
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+            if (null != failBeforeReturn) {
+                failBeforeReturn.run();
+            }
+            if (null != failure) {
+                throw failure;
+            }
+            List<Slot> failedSlots = new ArrayList<>();
+            for (Slot slot : slots) {
+                if (slot.getStorageQueueName().equals(failOnlyQueue)) {
+                    failedSlots.add(slot);
+                } else {
+                    submittedSlots.add(slot.getStorageQueueName() + ":" + slot.getStartMessageId() + "-"
+                            + slot.getEndMessageId() + ":" + slot.getMessageCount());
+                }
+            }
+            if (!failedSlots.isEmpty()) {
+                throw new SlotBatchException("Coordinator of " + failOnlyQueue + " not reachable", null,
+                        failedSlots, Collections.<Slot>emptyList());
+            }
+        }
+
+        @Override
+        public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) {
+        }
+
+        @Override
+        public boolean deleteSlot(String queueName, Slot slot) {
+            return true;
+        }
+
+        @Override
+        public void reAssignSlotWhenNoSubscribers(String queueName) {
+        }
+
+        @Override
+        public void clearAllActiveSlotRelationsToQueue(String queueName) {
+        }
+    }
+}
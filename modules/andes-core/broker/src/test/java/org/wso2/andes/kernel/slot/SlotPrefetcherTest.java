@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link SlotPrefetcher}
+ */
+public class SlotPrefetcherTest {
+
+    private static final String QUEUE_NAME = "prefetchQueue";
+
+    private ExecutorService executor;
+
+    private CountingSlotCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        coordinator = new CountingSlotCoordinator();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Slot following the delivered one should be requested ahead and returned on the next call
+     */
+    @Test
+    public void testPrefetchedSlotIsReturned() throws Exception {
+        SlotPrefetcher slotPrefetcher = new SlotPrefetcher(QUEUE_NAME, executor, 1);
+        slotPrefetcher.open();
+
+        Slot firstSlot = slotPrefetcher.getSlot(coordinator);
+        assertEquals(1, firstSlot.getEndMessageId());
+        assertEquals(QUEUE_NAME, firstSlot.getDestinationOfMessagesInSlot());
+        awaitExecutor();
+        assertEquals(2, coordinator.requestCount.get());
+
+        Slot secondSlot = slotPrefetcher.getSlot(coordinator);
+        assertEquals(2, secondSlot.getEndMessageId());
+        awaitExecutor();
+        // Only the slot after the second one is requested
+        assertEquals(3, coordinator.requestCount.get());
+    }
+
+    /**
+     * Closing should drop prefetched slots and skip requests submitted before closing
+     */
+    @Test
+    public void testCloseDropsPrefetchedSlots() throws Exception {
+        SlotPrefetcher slotPrefetcher = new SlotPrefetcher(QUEUE_NAME, executor, 2);
+        slotPrefetcher.open();
+        slotPrefetcher.getSlot(coordinator);
+        awaitExecutor();
+        assertEquals(3, coordinator.requestCount.get());
+
+        slotPrefetcher.close();
+        slotPrefetcher.open();
+
+        Slot slot = slotPrefetcher.getSlot(coordinator);
+        assertEquals(4, slot.getEndMessageId());
+    }
+
+    /**
+     * Nothing should be requested ahead when prefetching is disabled
+     */
+    @Test
+    public void testPrefetchDisabled() throws Exception {
+        SlotPrefetcher slotPrefetcher = new SlotPrefetcher(QUEUE_NAME, executor, 0);
+        slotPrefetcher.open();
+        slotPrefetcher.getSlot(coordinator);
+        awaitExecutor();
+        assertEquals(1, coordinator.requestCount.get());
+    }
+
+    /**
+     * Wait until the tasks submitted so far are run
+     */
+    private void awaitExecutor() throws Exception {
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Coordinator returning slots of consecutive message ids and counting the requests
+     */
+    private static class CountingSlotCoordinator implements SlotCoordinator {
+
+        private final AtomicLong requestCount = new AtomicLong(0);
+
+        @Override
+        public Slot getSlot(String queueName) {
+            long id = requestCount.incrementAndGet();
+            return new Slot(id, id, queueName);
+        }
+
+        @Override
+        public void updateMessageId(String queueName, long startMessageId, long endMessageId, long localSafeZone) {
+        }
+
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) {
+        }
+
+        @Override
+        public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) {
+        }
+
+        @Override
+        public boolean deleteSlot(String queueName, Slot slot) {
+            return true;
+        }
+
+        @Override
+        public void reAssignSlotWhenNoSubscribers(String queueName) {
+        }
+
+        @Override
+        public void clearAllActiveSlotRelationsToQueue(String queueName) {
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.subscription;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.ProtocolMessage;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link OutBoundMessageTracker}
+ */
+public class OutBoundMessageTrackerTest {
+
+    private static final UUID CHANNEL_ID = UUID.randomUUID();
+
+    private OutBoundMessageTracker messageTracker;
+
+    private ErrorRecordingAppender appender;
+
+    @Before
+    public void setUp() {
+        messageTracker = new OutBoundMessageTracker(100);
+        appender = new ErrorRecordingAppender();
+        Logger.getLogger(OutBoundMessageTracker.class).addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getLogger(OutBoundMessageTracker.class).removeAppender(appender);
+    }
+
+    /**
+     * Tracked messages of a multiple acknowledgement should be returned in order without errors
+     */
+    @Test
+    public void testGetTrackedMessages() {
+        Slot slot = new Slot(1, 10, "queue");
+        DeliverableAndesMetadata firstMessage = track(slot, 1);
+        DeliverableAndesMetadata secondMessage = track(slot, 2);
+
+        List<DeliverableAndesMetadata> messages = messageTracker.getMessagesByMessageIDs(Arrays.asList(2L, 1L));
+
+        assertEquals(2, messages.size());
+        assertSame(secondMessage, messages.get(0));
+        assertSame(firstMessage, messages.get(1));
+        assertTrue(appender.errors.isEmpty());
+    }
+
+    /**
+     * Messages not tracked should be skipped and reported as an error, like a single acknowledgement of an
+     * untracked message
+     */
+    @Test
+    public void testUntrackedMessagesReported() {
+        Slot slot = new Slot(1, 10, "queue");
+        DeliverableAndesMetadata trackedMessage = track(slot, 1);
+
+        List<DeliverableAndesMetadata> messages =
+                messageTracker.getMessagesByMessageIDs(Arrays.asList(1L, 3L, 4L));
+
+        assertEquals(Collections.singletonList(trackedMessage), messages);
+        assertEquals(1, appender.errors.size());
+        assertTrue(appender.errors.get(0), appender.errors.get(0).contains("[3, 4]"));
+
+        messageTracker.getMessageByMessageID(5);
+        assertEquals(2, appender.errors.size());
+    }
+
+    private DeliverableAndesMetadata track(Slot slot, long messageID) {
+        DeliverableAndesMetadata message = new DeliverableAndesMetadata(slot, messageID, null, false);
+        messageTracker.addMessageToSendingTracker(new ProtocolMessage(message, CHANNEL_ID));
+        return message;
+    }
+
+    /**
+     * Appender recording messages of error logs
+     */
+    private static class ErrorRecordingAppender extends AppenderSkeleton {
+
+        private final List<String> errors = new ArrayList<>();
+
+        @Override
+        protected void append(LoggingEvent event) {
+            if (Level.ERROR.equals(event.getLevel())) {
+                errors.add(event.getRenderedMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.nio.serialization.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.SerializationService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.AssignSlotProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.HashmapStringTreeSetWrapper;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the binary serializers of slot bookkeeping values stored in Hazelcast
+ */
+public class SlotWrapperSerializerTest {
+
+    private static final String QUEUE_NAME = "carbon:testQueue";
+
+    private SerializationService serializationService;
+
+    @Before
+    public void setUp() {
+        SerializationConfig serializationConfig = new SerializationConfig();
+        serializationConfig.addSerializerConfig(new SerializerConfig()
+                .setImplementation(new TreeSetLongWrapperSerializer()).setTypeClass(TreeSetLongWrapper.class));
+        serializationConfig.addSerializerConfig(new SerializerConfig()
+                .setImplementation(new TreeSetSlotWrapperSerializer()).setTypeClass(TreeSetSlotWrapper.class));
+        serializationConfig.addSerializerConfig(new SerializerConfig()
+                .setImplementation(new HashMapStringTreeSetWrapperSerializer())
+                .setTypeClass(HashmapStringTreeSetWrapper.class));
+        serializationService = new DefaultSerializationServiceBuilder().setConfig(serializationConfig).build();
+    }
+
+    @After
+    public void tearDown() {
+        serializationService.destroy();
+    }
+
+    /**
+     * Message IDs should be read back as written, including ranges and large gaps between IDs
+     */
+    @Test
+    public void testMessageIdSetRoundTrip() {
+        TreeSetLongWrapper wrapper = new TreeSetLongWrapper();
+        for (long messageId : Arrays.asList(0L, 1L, 200L, 1234567890123L, Long.MAX_VALUE)) {
+            wrapper.getMessageIdSet().add(messageId);
+        }
+        wrapper.getMessageIdSet().addRange(5000L, 6000L);
+
+        TreeSetLongWrapper readWrapper = serializationService.toObject(serializationService.toData(wrapper));
+
+        assertEquals(wrapper.getMessageIdSet(), readWrapper.getMessageIdSet());
+    }
+
+    /**
+     * Slot ranges, counts, queue names and states should be read back as written
+     */
+    @Test
+    public void testSlotSetRoundTrip() {
+        TreeSetSlotWrapper wrapper = new TreeSetSlotWrapper();
+        wrapper.getSlotTreeSet().add(createSlot(QUEUE_NAME, 1000L, 1999L));
+        Slot inactiveSlot = createSlot(QUEUE_NAME, 2000L, 2999L);
+        inactiveSlot.setSlotInactive();
+        wrapper.getSlotTreeSet().add(inactiveSlot);
+        wrapper.getSlotTreeSet().add(createSlot("carbon:otherQueue", 3000L, 3500L));
+
+        TreeSetSlotWrapper readWrapper = serializationService.toObject(serializationService.toData(wrapper));
+
+        assertSlotsEqual(wrapper.getSlotTreeSet(), readWrapper.getSlotTreeSet());
+    }
+
+    /**
+     * Slots of each queue in a node's slot map should be read back as written
+     */
+    @Test
+    public void testQueueSlotMapRoundTrip() {
+        HashmapStringTreeSetWrapper wrapper = new HashmapStringTreeSetWrapper();
+        TreeSet<Slot> slots = new TreeSet<>();
+        slots.add(createSlot(QUEUE_NAME, 10L, 20L));
+        wrapper.getStringListHashMap().put(QUEUE_NAME, slots);
+        wrapper.getStringListHashMap().put("carbon:emptyQueue", new TreeSet<Slot>());
+
+        HashmapStringTreeSetWrapper readWrapper = serializationService.toObject(serializationService.toData(wrapper));
+
+        HashMap<String, TreeSet<Slot>> readMap = readWrapper.getStringListHashMap();
+        assertEquals(2, readMap.size());
+        assertTrue(readMap.get("carbon:emptyQueue").isEmpty());
+        assertSlotsEqual(slots, readMap.get(QUEUE_NAME));
+    }
+
+    /**
+     * An entry processor should carry the slot it applies and update the entry in place
+     */
+    @Test
+    public void testAssignSlotProcessor() {
+        Slot slot = createSlot(QUEUE_NAME, 10L, 20L);
+        AssignSlotProcessor processor = serializationService.toObject(
+                serializationService.toData(new AssignSlotProcessor(QUEUE_NAME, slot)));
+
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry =
+                new AbstractMap.SimpleEntry<String, HashmapStringTreeSetWrapper>("node1", null);
+        processor.process(entry);
+        processor.getBackupProcessor().processBackup(entry);
+
+        TreeSet<Slot> assignedSlots = entry.getValue().getStringListHashMap().get(QUEUE_NAME);
+        assertEquals(1, assignedSlots.size());
+        assertEquals(slot.encodeSlotStates(), assignedSlots.first().encodeSlotStates());
+    }
+
+    private Slot createSlot(String queueName, long start, long end) {
+        Slot slot = new Slot();
+        slot.setStorageQueueName(queueName);
+        slot.setStartMessageId(start);
+        slot.setEndMessageId(end);
+        slot.setMessageCount(end - start + 1);
+        slot.addState(SlotState.ASSIGNED);
+        return slot;
+    }
+
+    private void assertSlotsEqual(TreeSet<Slot> expected, TreeSet<Slot> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (Slot expectedSlot : expected) {
+            Slot actualSlot = actual.ceiling(expectedSlot);
+            assertEquals(expectedSlot, actualSlot);
+            assertEquals(expectedSlot.getMessageCount(), actualSlot.getMessageCount());
+            assertEquals(expectedSlot.encodeSlotStates(), actualSlot.encodeSlotStates());
+            assertEquals(expectedSlot.isSlotActive(), actualSlot.isSlotActive());
+        }
+    }
+}
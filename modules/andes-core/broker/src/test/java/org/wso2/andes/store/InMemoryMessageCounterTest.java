@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link InMemoryMessageCounter}
+ */
+public class InMemoryMessageCounterTest {
+
+    private static final String QUEUE = "queue1";
+
+    /**
+     * Count should be unknown until it is initialised and changes should apply on the initialised count
+     */
+    @Test
+    public void testInitializeAndChange() {
+        InMemoryMessageCounter counter = new InMemoryMessageCounter();
+        assertEquals(InMemoryMessageCounter.UNKNOWN_COUNT, counter.getCount(QUEUE));
+
+        counter.initializeCount(QUEUE, 10);
+        counter.recordLocalChange(QUEUE, 5);
+        counter.applyRemoteChange(QUEUE, -3);
+        assertEquals(12, counter.getCount(QUEUE));
+
+        // Already known count should not be replaced
+        counter.initializeCount(QUEUE, 100);
+        assertEquals(12, counter.getCount(QUEUE));
+    }
+
+    /**
+     * Only local changes should be drained, and only once
+     */
+    @Test
+    public void testDrainLocalChanges() {
+        InMemoryMessageCounter counter = new InMemoryMessageCounter();
+        counter.initializeCount(QUEUE, 0);
+        counter.recordLocalChange(QUEUE, 7);
+        counter.recordLocalChange(QUEUE, -2);
+        counter.applyRemoteChange(QUEUE, 4);
+        counter.recordLocalChange("queue2", 1);
+
+        Map<String, Long> changes = counter.drainLocalChanges();
+        assertEquals(2, changes.size());
+        assertEquals(Long.valueOf(5), changes.get(QUEUE));
+        assertEquals(Long.valueOf(1), changes.get("queue2"));
+        assertTrue(counter.drainLocalChanges().isEmpty());
+    }
+
+    /**
+     * Reconciliation should replace the count with the stored count plus changes applied after the store was read,
+     * and remove counters of queues that are no longer known
+     */
+    @Test
+    public void testReconciliation() {
+        InMemoryMessageCounter counter = new InMemoryMessageCounter();
+        counter.initializeCount(QUEUE, 50);
+        counter.initializeCount("deletedQueue", 3);
+
+        counter.startReconciliation();
+        counter.recordLocalChange(QUEUE, 2);
+        Map<String, Long> storedCounts = new HashMap<>();
+        storedCounts.put(QUEUE, 40L);
+        counter.completeReconciliation(storedCounts, Collections.singleton(QUEUE));
+
+        assertEquals(42, counter.getCount(QUEUE));
+        assertEquals(InMemoryMessageCounter.UNKNOWN_COUNT, counter.getCount("deletedQueue"));
+    }
+
+    /**
+     * Changes applied before the store was read are part of the stored count and should not be added again
+     */
+    @Test
+    public void testChangesBeforeStoreReadDropped() {
+        InMemoryMessageCounter counter = new InMemoryMessageCounter();
+        counter.initializeCount(QUEUE, 50);
+        counter.recordLocalChange(QUEUE, -10);
+        counter.applyRemoteChange(QUEUE, 3);
+
+        Map<String, Long> storedCounts = new HashMap<>();
+        storedCounts.put(QUEUE, 43L);
+        counter.startReconciliation();
+        counter.recordLocalChange(QUEUE, -1);
+        counter.completeReconciliation(storedCounts, Collections.singleton(QUEUE));
+
+        assertEquals(42, counter.getCount(QUEUE));
+    }
+
+    /**
+     * Known queues not counted by the store should be kept with the changes applied after the store was read
+     */
+    @Test
+    public void testReconciliationOfEmptyQueue() {
+        InMemoryMessageCounter counter = new InMemoryMessageCounter();
+        counter.initializeCount("emptyQueue", 5);
+
+        counter.startReconciliation();
+        counter.recordLocalChange("emptyQueue", 1);
+        counter.completeReconciliation(Collections.<String, Long>emptyMap(),
+                new HashSet<>(Arrays.asList(QUEUE, "emptyQueue")));
+
+        assertEquals(1, counter.getCount("emptyQueue"));
+    }
+
+    /**
+     * Reset should set a count to zero
+     */
+    @Test
+    public void testReset() {
+        InMemoryMessageCounter counter = new InMemoryMessageCounter();
+        counter.initializeCount(QUEUE, 50);
+        counter.reset(QUEUE);
+        assertEquals(0, counter.getCount(QUEUE));
+    }
+}
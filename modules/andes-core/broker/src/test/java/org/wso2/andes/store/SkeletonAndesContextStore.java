@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store;
+
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesBinding;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.slot.LongRangeSet;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotCheckpoint;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.cluster.NodeHeartBeatData;
+import org.wso2.andes.server.cluster.coordination.ClusterNotification;
+import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEvent;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A context store that does nothing. Designed to be extended by tests that need only a few of the context store
+ * operations.
+ */
+public class SkeletonAndesContextStore implements AndesContextStore {
+
+    @Override
+    public DurableStoreConnection init(ConfigurationProperties connectionProperties) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public Map<String, List<String>> getAllStoredDurableSubscriptions() throws AndesException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public Map<String, String> getAllDurableSubscriptionsByID() throws AndesException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public boolean isSubscriptionExist(String subscriptionId) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public void storeDurableSubscription(AndesSubscription subscription) throws AndesException {
+    }
+
+    @Override
+    public int updateDurableSubscription(AndesSubscription subscription) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public void updateOrInsertDurableSubscription(AndesSubscription subscription) throws AndesException {
+    }
+
+    @Override
+    public void updateDurableSubscriptions(Map<String, String> subscriptions) throws AndesException {
+    }
+
+    @Override
+    public void removeDurableSubscription(AndesSubscription subscription) throws AndesException {
+    }
+
+    @Override
+    public void storeNodeDetails(String nodeID, String data) throws AndesException {
+    }
+
+    @Override
+    public Map<String, String> getAllStoredNodeData() throws AndesException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public void removeNodeData(String nodeID) throws AndesException {
+    }
+
+    @Override
+    public void addMessageCounterForQueue(String destinationQueueName) throws AndesException {
+    }
+
+    @Override
+    public long getMessageCountForQueue(String destinationQueueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
+    }
+
+    @Override
+    public void removeMessageCounterForQueue(String destinationQueueName) throws AndesException {
+    }
+
+    @Override
+    public void incrementMessageCountForQueue(String destinationQueueName, long incrementBy) throws AndesException {
+    }
+
+    @Override
+    public void decrementMessageCountForQueue(String destinationQueueName, long decrementBy) throws AndesException {
+    }
+
+    @Override
+    public void storeExchangeInformation(String exchangeName, String exchangeInfo) throws AndesException {
+    }
+
+    @Override
+    public List<AndesMessageRouter> getAllMessageRoutersStored() throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void deleteExchangeInformation(String exchangeName) throws AndesException {
+    }
+
+    @Override
+    public void storeQueueInformation(String queueName, String queueInfo) throws AndesException {
+    }
+
+    @Override
+    public List<StorageQueue> getAllQueuesStored() throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void deleteQueueInformation(String queueName) throws AndesException {
+    }
+
+    @Override
+    public void storeBindingInformation(String exchange, String boundQueueName, String bindingInfo)
+            throws AndesException {
+    }
+
+    @Override
+    public List<AndesBinding> getBindingsStoredForExchange(String exchangeName) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void deleteBindingInformation(String exchangeName, String boundQueueName) throws AndesException {
+    }
+
+    @Override
+    public void createSlot(long startMessageId, long endMessageId, String storageQueueName, String assignedNodeId)
+            throws AndesException {
+    }
+
+    @Override
+    public boolean deleteSlot(long startMessageId, long endMessageId) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public void deleteSlotsByQueueName(String queueName) throws AndesException {
+    }
+
+    @Override
+    public void deleteMessageIdsByQueueName(String queueName) throws AndesException {
+    }
+
+    @Override
+    public void deleteSlotAssignment(long startMessageId, long endMessageId) throws AndesException {
+    }
+
+    @Override
+    public void deleteSlotAssignmentByQueueName(String nodeId, String queueName) throws AndesException {
+    }
+
+    @Override
+    public void createSlotAssignment(String nodeId, String queueName, long startMsgId, long endMsgId)
+            throws AndesException {
+    }
+
+    @Override
+    public Slot selectUnAssignedSlot(String queueName) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public long getQueueToLastAssignedId(String queueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public void setQueueToLastAssignedId(String queueName, long messageId) throws AndesException {
+    }
+
+    @Override
+    public long getLocalSafeZoneOfNode(String nodeId) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public void setLocalSafeZoneOfNode(String nodeId, long messageId) throws AndesException {
+    }
+
+    @Override
+    public void removePublisherNodeId(String nodeId) throws AndesException {
+    }
+
+    @Override
+    public TreeSet<String> getMessagePublishedNodes() throws AndesException {
+        return new TreeSet<>();
+    }
+
+    @Override
+    public void setSlotState(long startMessageId, long endMessageId, SlotState slotState) throws AndesException {
+    }
+
+    @Override
+    public Slot getOverlappedSlot(String nodeId, String queueName) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public void addMessageId(String queueName, long messageId) throws AndesException {
+    }
+
+    @Override
+    public LongRangeSet getMessageIds(String queueName) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public void deleteMessageId(long messageId) throws AndesException {
+    }
+
+    @Override
+    public TreeSet<Slot> getAssignedSlotsByNodeId(String nodeId) throws AndesException {
+        return new TreeSet<>();
+    }
+
+    @Override
+    public TreeSet<Slot> getAllSlotsByQueueName(String queueName) throws AndesException {
+        return new TreeSet<>();
+    }
+
+    @Override
+    public Set<String> getAllQueues() throws AndesException {
+        return new HashSet<>();
+    }
+
+    @Override
+    public Set<String> getAllQueuesInSubmittedSlots() throws AndesException {
+        return new HashSet<>();
+    }
+
+    @Override
+    public void clearSlotStorage() throws AndesException {
+    }
+
+    @Override
+    public void addSlotCheckpoints(String storageQueueName, List<SlotCheckpoint> checkpoints) throws AndesException {
+    }
+
+    @Override
+    public List<SlotCheckpoint> getSlotCheckpoints(String storageQueueName) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void deleteSlotCheckpoints(String storageQueueName, long messageIdLimit) throws AndesException {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean createCoordinatorEntry(String nodeId, InetSocketAddress thriftAddress) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public boolean checkIsCoordinator(String nodeId) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public boolean updateCoordinatorHeartbeat(String nodeId) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public boolean checkIfCoordinatorValid(int age) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public InetSocketAddress getCoordinatorThriftAddress() throws AndesException {
+        return null;
+    }
+
+    @Override
+    public void removeCoordinator() throws AndesException {
+    }
+
+    @Override
+    public boolean updateNodeHeartbeat(String nodeId) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public void createNodeHeartbeatEntry(String nodeId, InetSocketAddress nodeAddress) throws AndesException {
+    }
+
+    @Override
+    public List<NodeHeartBeatData> getAllHeartBeatData() throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void removeNodeHeartbeat(String nodeId) throws AndesException {
+    }
+
+    @Override
+    public void markNodeAsNotNew(String nodeId) throws AndesException {
+    }
+
+    @Override
+    public String getCoordinatorNodeId() throws AndesException {
+        return null;
+    }
+
+    @Override
+    public void clearHeartBeatData() throws AndesException {
+    }
+
+    @Override
+    public void storeMembershipEvent(List<String> clusterNodes, int membershipEventType, String changedMember)
+            throws AndesException {
+    }
+
+    @Override
+    public List<MembershipEvent> readMemberShipEvents(String nodeID) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void clearMembershipEvents() throws AndesException {
+    }
+
+    @Override
+    public void clearMembershipEvents(String nodeID) throws AndesException {
+    }
+
+    @Override
+    public void storeClusterNotification(List<String> clusterNodes, String originatedNode, String artifactType,
+            String clusterNotificationType, String notification, String description) throws AndesException {
+    }
+
+    @Override
+    public List<ClusterNotification> readClusterNotifications(String nodeID) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void clearClusterNotifications() throws AndesException {
+    }
+
+    @Override
+    public void clearClusterNotifications(String nodeID) throws AndesException {
+    }
+
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        return true;
+    }
+}
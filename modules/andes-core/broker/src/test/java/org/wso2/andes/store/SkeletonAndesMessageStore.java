@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongLongHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataConsumer;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message store that does nothing. Designed to be extended by tests that need only a few of the message store
+ * operations.
+ */
+public class SkeletonAndesMessageStore implements MessageStore {
+
+    @Override
+    public DurableStoreConnection initializeMessageStore(AndesContextStore contextStore,
+            ConfigurationProperties connectionProperties) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public void storeMessagePart(List<AndesMessagePart> partList) throws AndesException {
+    }
+
+    @Override
+    public AndesMessagePart getContent(long messageId, int offsetValue) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList) throws AndesException {
+        return new LongObjectHashMap<>();
+    }
+
+    @Override
+    public void storeMessages(List<AndesMessage> messageList) throws AndesException {
+    }
+
+    @Override
+    public void moveMetadataToQueue(long messageId, String currentQueueName, String targetQueueName)
+            throws AndesException {
+    }
+
+    @Override
+    public void moveMetadataToDLC(long messageId, String dlcQueueName, boolean expireMessageInDLC)
+            throws AndesException {
+    }
+
+    @Override
+    public void moveMetadataToDLC(List<AndesMessageMetadata> messages, String dlcQueueName,
+            boolean expireMessageInDLC) throws AndesException {
+    }
+
+    @Override
+    public void updateMetadataInformation(String currentQueueName, List<AndesMessageMetadata> metadataList)
+            throws AndesException {
+    }
+
+    @Override
+    public AndesMessageMetadata getMetadata(long messageId) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public List<DeliverableAndesMetadata> getMetadataList(Slot slot, String storageQueueName, long firstMsgId,
+            long lastMsgID) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void streamMetadataList(Slot slot, String storageQueueName, long firstMsgId, long lastMsgID,
+            MetadataConsumer<DeliverableAndesMetadata> consumer) throws AndesException {
+    }
+
+    @Override
+    public long getMessageCountForQueueInRange(String storageQueueName, long firstMessageId, long lastMessageId)
+            throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId,
+            int count) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void streamNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+    }
+
+    @Override
+    public LongArrayList getNextNMessageIdsFromQueue(String storageQueueName, long firstMsgId, int count)
+            throws AndesException {
+        return new LongArrayList();
+    }
+
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataForQueueFromDLC(String storageQueueName,
+            String dlcQueueName, long firstMsgId, int count) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId,
+            int count) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void streamNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count,
+            MetadataConsumer<AndesMessageMetadata> consumer) throws AndesException {
+    }
+
+    @Override
+    public void deleteMessageMetadataFromQueue(String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+    }
+
+    @Override
+    public void deleteMessages(String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+    }
+
+    @Override
+    public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
+    }
+
+    @Override
+    public boolean deleteMessagesInRange(String storageQueueName, long firstMsgId, long lastMsgId,
+            LongArrayList messageIDs) throws AndesException {
+        return false;
+    }
+
+    @Override
+    public void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+    }
+
+    @Override
+    public List<Long> getExpiredMessages(long lowerBoundMessageID, String queueName) throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Long> getExpiredMessagesFromDLC() throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Map<String, LongLongHashMap> getMessageExpirationTimes() throws AndesException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public void addMessageToExpiryQueue(Long messageId, Long expirationTime, boolean isMessageForTopic,
+            String destination) throws AndesException {
+    }
+
+    @Override
+    public int deleteAllMessageMetadata(String storageQueueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public int clearDLCQueue(String dlcQueueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public LongArrayList getMessageIDsAddressedToQueue(String storageQueueName, Long startMessageID)
+            throws AndesException {
+        return new LongArrayList();
+    }
+
+    @Override
+    public void addQueue(String storageQueueName) throws AndesException {
+    }
+
+    @Override
+    public Map<String, Integer> getMessageCountForAllQueues(List<String> queueNames) throws AndesException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public long getMessageCountForQueue(String storageQueueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public long getMessageCountForQueueInDLC(String storageQueueName, String dlcQueueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public long getMessageCountForDLCQueue(String dlcQueueName) throws AndesException {
+        return 0;
+    }
+
+    @Override
+    public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
+    }
+
+    @Override
+    public void removeQueue(String storageQueueName) throws AndesException {
+    }
+
+    @Override
+    public void removeLocalQueueData(String storageQueueName) {
+    }
+
+    @Override
+    public void incrementMessageCountForQueue(String storageQueueName, long incrementBy) throws AndesException {
+    }
+
+    @Override
+    public void decrementMessageCountForQueue(String storageQueueName, long decrementBy) throws AndesException {
+    }
+
+    @Override
+    public Map<String, Long> drainMessageCountChanges() {
+        return new HashMap<>();
+    }
+
+    @Override
+    public void applyMessageCountChanges(Map<String, Long> messageCountChanges) {
+    }
+
+    @Override
+    public void cacheMessageContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+    }
+
+    @Override
+    public void storeRetainedMessages(Map<String, AndesMessage> retainMap) throws AndesException {
+    }
+
+    @Override
+    public List<String> getAllRetainedTopics() throws AndesException {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Map<Integer, AndesMessagePart> getRetainedContentParts(long messageID) throws AndesException {
+        return new HashMap<>();
+    }
+
+    @Override
+    public DeliverableAndesMetadata getRetainedMetadata(String destination) throws AndesException {
+        return null;
+    }
+
+    @Override
+    public boolean isContentSharingEnabled() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        return true;
+    }
+}
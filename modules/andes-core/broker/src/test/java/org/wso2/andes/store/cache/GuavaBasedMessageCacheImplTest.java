@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link GuavaBasedMessageCacheImpl}
+ */
+public class GuavaBasedMessageCacheImplTest {
+
+    /**
+     * Cache size in bytes. Two messages of {@link #MESSAGE_SIZE} fit in the cache
+     */
+    private static final int CACHE_SIZE = 1000;
+
+    private static final int MESSAGE_SIZE = 400;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final int EXPIRY_SECONDS = 60;
+
+    /**
+     * Longer than the maximum duration a message is kept pinned
+     */
+    private static final long PIN_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final String QUEUE = "queue1";
+
+    private GuavaBasedMessageCacheImpl cache;
+
+    @Before
+    public void setUp() {
+        // Single segment, so that the least recently used message is evicted first
+        cache = new GuavaBasedMessageCacheImpl(CACHE_SIZE, 1, EXPIRY_SECONDS, false, false, CHUNK_SIZE);
+    }
+
+    /**
+     * Pinned messages should not be evicted when the cache is full
+     */
+    @Test
+    public void testPinnedMessageKeptOnEviction() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(1));
+        for (long messageId = 2; messageId <= 4; messageId++) {
+            cache.addToCache(createMessage(messageId, QUEUE));
+        }
+
+        assertNotNull(cache.getMessageFromCache(1));
+        AndesMessagePart part = cache.getContentFromCache(1, 0);
+        assertNotNull(part);
+        assertNull(cache.getMessageFromCache(2));
+    }
+
+    /**
+     * Unpinned messages should be evicted again when the cache is full
+     */
+    @Test
+    public void testUnpinnedMessageEvicted() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(1));
+        cache.addToCache(createMessage(2, QUEUE));
+        cache.addToCache(createMessage(3, QUEUE));
+
+        cache.unpinMessages(LongArrayList.newListWith(1));
+        assertTrue(cache.isInCache(1));
+
+        cache.addToCache(createMessage(4, QUEUE));
+        cache.addToCache(createMessage(5, QUEUE));
+        assertNull(cache.getMessageFromCache(1));
+    }
+
+    /**
+     * Removing a pinned message should drop its pin, so that neither unpinning nor pin expiry puts it back
+     */
+    @Test
+    public void testRemovedPinnedMessageNotRestored() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.addToCache(createMessage(2, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(1, 2));
+
+        cache.removeFromCache(1);
+        cache.removeFromCache(LongArrayList.newListWith(2));
+        assertFalse(cache.isInCache(1));
+        assertFalse(cache.isInCache(2));
+
+        cache.unpinMessages(LongArrayList.newListWith(1));
+        cache.unpinExpiredMessages(System.currentTimeMillis() + PIN_EXPIRY_MILLIS);
+        assertNull(cache.getMessageFromCache(1));
+        assertNull(cache.getMessageFromCache(2));
+    }
+
+    /**
+     * Messages pinned longer than the maximum pin duration should be moved back to the cache to be evicted
+     */
+    @Test
+    public void testExpiredPinReleased() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(1));
+
+        cache.unpinExpiredMessages(System.currentTimeMillis());
+        for (long messageId = 2; messageId <= 4; messageId++) {
+            cache.addToCache(createMessage(messageId, QUEUE));
+        }
+        assertTrue(cache.isInCache(1));
+
+        cache.unpinExpiredMessages(System.currentTimeMillis() + PIN_EXPIRY_MILLIS);
+        assertTrue(cache.isInCache(1));
+        for (long messageId = 5; messageId <= 7; messageId++) {
+            cache.addToCache(createMessage(messageId, QUEUE));
+        }
+        assertNull(cache.getMessageFromCache(1));
+    }
+
+    /**
+     * Messages of a queue which is not read should not evict messages when the cache is full, while messages of a
+     * queue being read should
+     */
+    @Test
+    public void testColdQueueNotAdmittedWhenFull() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.addToCache(createMessage(2, QUEUE));
+        // Message read for delivery is no longer in the cache
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(100));
+
+        cache.addToCache(createMessage(3, "coldQueue"));
+        assertFalse(cache.isInCache(3));
+        assertTrue(cache.isInCache(1));
+        assertTrue(cache.isInCache(2));
+
+        cache.addToCache(createMessage(4, QUEUE));
+        assertTrue(cache.isInCache(4));
+        assertFalse(cache.isInCache(1));
+    }
+
+    /**
+     * Messages of any queue should be admitted while the cache has room
+     */
+    @Test
+    public void testColdQueueAdmittedWhenNotFull() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(100));
+
+        cache.addToCache(createMessage(2, "coldQueue"));
+        assertTrue(cache.isInCache(2));
+    }
+
+    /**
+     * Pinned messages should be limited to the cache size. Messages pinned beyond that are left to be evicted.
+     */
+    @Test
+    public void testPinnedMessagesLimitedToCacheSize() {
+        cache.addToCache(createMessage(1, QUEUE));
+        cache.addToCache(createMessage(2, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(1, 2));
+        cache.addToCache(createMessage(3, QUEUE));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(3));
+
+        cache.addToCache(createMessage(4, QUEUE));
+        cache.addToCache(createMessage(5, QUEUE));
+        assertNull(cache.getMessageFromCache(3));
+        assertNotNull(cache.getMessageFromCache(1));
+        assertNotNull(cache.getMessageFromCache(2));
+
+        // Room is made for new pins once pinned messages are unpinned
+        cache.unpinMessages(LongArrayList.newListWith(1));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(5));
+        cache.addToCache(createMessage(6, QUEUE));
+        cache.addToCache(createMessage(7, QUEUE));
+        assertNotNull(cache.getMessageFromCache(5));
+    }
+
+    private AndesMessage createMessage(long messageId, String storageQueueName) {
+        AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, new byte[] { 1, 2, 3 }, false);
+        metadata.setStorageQueueName(storageQueueName);
+        metadata.setMessageContentLength(MESSAGE_SIZE);
+        AndesMessage message = new AndesMessage(metadata);
+        AndesMessagePart part = new AndesMessagePart();
+        part.setMessageID(messageId);
+        part.setOffSet(0);
+        part.setData(new byte[MESSAGE_SIZE]);
+        part.setDataLength(MESSAGE_SIZE);
+        message.addMessagePart(part);
+        return message;
+    }
+}
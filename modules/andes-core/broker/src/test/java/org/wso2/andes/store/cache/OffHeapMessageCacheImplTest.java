@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link OffHeapMessageCacheImpl}
+ */
+public class OffHeapMessageCacheImplTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final int EXPIRY_SECONDS = 60;
+
+    private static final String QUEUE = "queue1";
+
+    /**
+     * Content of a cached message should be read back part by part
+     */
+    @Test
+    public void testReadContent() {
+        OffHeapMessageCacheImpl cache = new OffHeapMessageCacheImpl(2, 1, EXPIRY_SECONDS, false);
+        cache.addToCache(createMessage(1, 2500));
+
+        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>();
+        LongArrayList messageIDs = LongArrayList.newListWith(1, 2);
+        cache.fillContentFromCache(messageIDs, contentList);
+
+        // Found message is removed from the list to be read from the store
+        assertEquals(LongArrayList.newListWith(2), messageIDs);
+        List<AndesMessagePart> parts = contentList.get(1);
+        assertEquals(3, parts.size());
+        assertEquals(2 * CHUNK_SIZE, parts.get(2).getOffset());
+        assertArrayEquals(createContent(1, 2 * CHUNK_SIZE, 500), parts.get(2).getData());
+
+        AndesMessagePart part = cache.getContentFromCache(1, CHUNK_SIZE);
+        assertNotNull(part);
+        assertArrayEquals(createContent(1, CHUNK_SIZE, CHUNK_SIZE), part.getData());
+    }
+
+    /**
+     * Removed messages should not be found in the cache
+     */
+    @Test
+    public void testRemove() {
+        OffHeapMessageCacheImpl cache = new OffHeapMessageCacheImpl(2, 1, EXPIRY_SECONDS, false);
+        cache.addToCache(createMessage(1, 100));
+        cache.addToCache(createMessage(2, 100));
+        assertTrue(cache.isInCache(1));
+        cache.removeFromCache(1);
+        cache.removeFromCache(LongArrayList.newListWith(2));
+
+        assertFalse(cache.isInCache(1));
+        assertNull(cache.getContentFromCache(1, 0));
+        assertNull(cache.getContentFromCache(2, 0));
+    }
+
+    /**
+     * Messages of a slab should be evicted when the slab is reused
+     */
+    @Test
+    public void testEvictionOnSlabReuse() {
+        OffHeapMessageCacheImpl cache = new OffHeapMessageCacheImpl(2, 1, EXPIRY_SECONDS, false);
+        // Two messages fit in a slab of 1 MB
+        for (long messageId = 1; messageId <= 5; messageId++) {
+            cache.addToCache(createMessage(messageId, 400 * 1024));
+        }
+
+        assertNull(cache.getContentFromCache(1, 0));
+        assertNull(cache.getContentFromCache(2, 0));
+        for (long messageId = 3; messageId <= 5; messageId++) {
+            AndesMessagePart part = cache.getContentFromCache(messageId, 0);
+            assertNotNull(part);
+            assertTrue(Arrays.equals(createContent(messageId, 0, CHUNK_SIZE), part.getData()));
+        }
+    }
+
+    /**
+     * Pinned messages should be kept when their slab is reused
+     */
+    @Test
+    public void testPinnedMessagesKeptOnSlabReuse() {
+        OffHeapMessageCacheImpl cache = new OffHeapMessageCacheImpl(2, 1, EXPIRY_SECONDS, false);
+        cache.addToCache(createMessage(1, 400 * 1024));
+        cache.addToCache(createMessage(2, 400 * 1024));
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(1));
+        for (long messageId = 3; messageId <= 5; messageId++) {
+            cache.addToCache(createMessage(messageId, 400 * 1024));
+        }
+
+        AndesMessagePart part = cache.getContentFromCache(1, CHUNK_SIZE);
+        assertNotNull(part);
+        assertArrayEquals(createContent(1, CHUNK_SIZE, CHUNK_SIZE), part.getData());
+        assertNull(cache.getContentFromCache(2, 0));
+
+        // Unpinned message is evicted on the next reuse of the slab
+        cache.unpinMessages(LongArrayList.newListWith(1));
+        for (long messageId = 6; messageId <= 8; messageId++) {
+            cache.addToCache(createMessage(messageId, 400 * 1024));
+        }
+        assertNull(cache.getContentFromCache(1, 0));
+    }
+
+    /**
+     * Messages of a queue which is not read should not evict messages when the cache is full
+     */
+    @Test
+    public void testColdQueueNotAdmittedWhenFull() {
+        OffHeapMessageCacheImpl cache = new OffHeapMessageCacheImpl(2, 1, EXPIRY_SECONDS, false);
+        for (long messageId = 1; messageId <= 4; messageId++) {
+            cache.addToCache(createMessage(messageId, 400 * 1024));
+        }
+        cache.pinMessages(QUEUE, LongArrayList.newListWith(4));
+
+        AndesMessage coldMessage = createMessage(5, 400 * 1024);
+        coldMessage.getMetadata().setStorageQueueName("coldQueue");
+        cache.addToCache(coldMessage);
+
+        assertNull(cache.getContentFromCache(5, 0));
+        assertNotNull(cache.getContentFromCache(1, 0));
+    }
+
+    /**
+     * Messages larger than a slab should not be cached
+     */
+    @Test
+    public void testMessageLargerThanSlab() {
+        OffHeapMessageCacheImpl cache = new OffHeapMessageCacheImpl(2, 1, EXPIRY_SECONDS, false);
+        cache.addToCache(createMessage(1, 2 * 1024 * 1024));
+        assertNull(cache.getContentFromCache(1, 0));
+    }
+
+    private AndesMessage createMessage(long messageId, int contentLength) {
+        AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, new byte[] { 1, 2, 3 }, false);
+        metadata.setStorageQueueName(QUEUE);
+        AndesMessage message = new AndesMessage(metadata);
+        for (int offset = 0; offset < contentLength; offset = offset + CHUNK_SIZE) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(offset);
+            byte[] data = createContent(messageId, offset, Math.min(CHUNK_SIZE, contentLength - offset));
+            part.setData(data);
+            part.setDataLength(data.length);
+            message.addMessagePart(part);
+        }
+        return message;
+    }
+
+    private byte[] createContent(long messageId, int offset, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (messageId + offset + i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.server.store.MessageMetaDataType;
+import org.wso2.andes.store.cache.DisabledMessageCacheImpl;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link FileMessageStoreImpl}
+ * Tests rebuilding the index from the segments and deleting segments of acknowledged messages
+ */
+public class FileMessageStoreImplTest {
+
+    private static final String QUEUE_NAME = "fileStoreTestQueue";
+
+    private static final String DLC_QUEUE_NAME = "DeadLetterChannel";
+
+    private static final int CONTENT_LENGTH = 1000;
+
+    /**
+     * Small enough for each message to be written to a segment of its own
+     */
+    private static final String SEGMENT_SIZE = "1024";
+
+    private File directory;
+
+    private List<FileMessageStoreImpl> messageStores;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("andes-file-message-store").toFile();
+        messageStores = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (FileMessageStoreImpl messageStore : messageStores) {
+            messageStore.close();
+        }
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Live messages, their DLC state and their content should be recovered while deleted messages should stay
+     * deleted by their tombstones
+     */
+    @Test
+    public void testRecovery() throws AndesException {
+        FileMessageStoreImpl messageStore = createMessageStore();
+        messageStore.storeMessages(Arrays.asList(createMessage(1), createMessage(2), createMessage(3)));
+        messageStore.deleteMessages(Collections.singletonList(2L));
+        messageStore.moveMetadataToDLC(3, DLC_QUEUE_NAME, false);
+        messageStore.close();
+
+        FileMessageStoreImpl recoveredStore = createMessageStore();
+        assertEquals(1, recoveredStore.getMessageCountForQueue(QUEUE_NAME));
+        assertEquals(1, recoveredStore.getMessageCountForDLCQueue(DLC_QUEUE_NAME));
+        assertNotNull(recoveredStore.getMetadata(1));
+        assertNull(recoveredStore.getMetadata(2));
+
+        AndesMessagePart part = recoveredStore.getContent(1, 0);
+        assertNotNull(part);
+        assertArrayEquals(createContent(1), part.getData());
+    }
+
+    /**
+     * Segments holding only deleted messages should be deleted while segments of live messages are kept. Deleted
+     * messages should not come back after recovery
+     */
+    @Test
+    public void testCompaction() throws AndesException {
+        FileMessageStoreImpl messageStore = createMessageStore();
+        for (long messageId = 1; messageId <= 4; messageId++) {
+            messageStore.storeMessages(Collections.singletonList(createMessage(messageId)));
+        }
+        assertEquals(4, countSegmentFiles());
+
+        messageStore.deleteMessages(Arrays.asList(1L, 2L));
+        messageStore.compactSegments();
+        // Segments of the first two messages are deleted. Tombstones are written to the active segment
+        assertEquals(3, countSegmentFiles());
+
+        messageStore.deleteMessages(Arrays.asList(3L, 4L));
+        messageStore.compactSegments();
+        assertEquals(1, countSegmentFiles());
+        messageStore.close();
+
+        FileMessageStoreImpl recoveredStore = createMessageStore();
+        assertEquals(0, recoveredStore.getMessageCountForQueue(QUEUE_NAME));
+        for (long messageId = 1; messageId <= 4; messageId++) {
+            assertNull(recoveredStore.getMetadata(messageId));
+        }
+    }
+
+    /**
+     * Expiration time set after a message is stored should be kept across restarts
+     */
+    @Test
+    public void testExpiryRecordedAfterStore() throws AndesException {
+        FileMessageStoreImpl messageStore = createMessageStore();
+        messageStore.storeMessages(Arrays.asList(createMessage(1), createMessage(2)));
+        assertTrue(messageStore.getExpiredMessages(0, QUEUE_NAME).isEmpty());
+
+        messageStore.addMessageToExpiryQueue(1L, System.currentTimeMillis() - 1000, false, QUEUE_NAME);
+        assertEquals(Collections.singletonList(1L), messageStore.getExpiredMessages(0, QUEUE_NAME));
+        messageStore.close();
+
+        FileMessageStoreImpl recoveredStore = createMessageStore();
+        assertEquals(Collections.singletonList(1L), recoveredStore.getExpiredMessages(0, QUEUE_NAME));
+    }
+
+    /**
+     * Store should not start when clustering is enabled
+     */
+    @Test
+    public void testClusteringRejected() throws AndesException {
+        AndesContext.getInstance().setClusteringEnabled(true);
+        try {
+            createMessageStore();
+            fail("File message store started with clustering enabled");
+        } catch (AndesException e) {
+            assertEquals(0, countSegmentFiles());
+        } finally {
+            AndesContext.getInstance().setClusteringEnabled(false);
+        }
+    }
+
+    private FileMessageStoreImpl createMessageStore() throws AndesException {
+        ConfigurationProperties properties = new ConfigurationProperties();
+        properties.addProperty(FileStoreConstants.PROP_DATA_DIRECTORY, directory.getAbsolutePath());
+        properties.addProperty(FileStoreConstants.PROP_SEGMENT_SIZE, SEGMENT_SIZE);
+        properties.addProperty(FileStoreConstants.PROP_SYNC_ON_WRITE, "false");
+        // Compaction is run by the tests
+        properties.addProperty(FileStoreConstants.PROP_COMPACTION_INTERVAL, "3600");
+
+        FileMessageStoreImpl messageStore = new FileMessageStoreImpl(new DisabledMessageCacheImpl());
+        messageStore.initializeMessageStore(null, properties);
+        messageStores.add(messageStore);
+        return messageStore;
+    }
+
+    private int countSegmentFiles() {
+        File[] segmentFiles = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(FileStoreConstants.SEGMENT_FILE_EXTENSION);
+            }
+        });
+        return (null == segmentFiles) ? 0 : segmentFiles.length;
+    }
+
+    /**
+     * Create a message with MQTT metadata so that it can be decoded when read back
+     */
+    private static AndesMessage createMessage(long messageId) {
+        String metadataString = "MQTT?MessageID=" + messageId + ",Topic=false,Persistant=true,"
+                + "MessageContentLength=" + CONTENT_LENGTH + ",QOSLevel=1,ArrivalTime=0,Destination=" + QUEUE_NAME;
+        byte[] encodedString = metadataString.getBytes(StandardCharsets.UTF_8);
+        byte[] metadataBytes = new byte[encodedString.length + 1];
+        metadataBytes[0] = (byte) MessageMetaDataType.META_DATA_MQTT.ordinal();
+        System.arraycopy(encodedString, 0, metadataBytes, 1, encodedString.length);
+
+        AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, false);
+        metadata.setStorageQueueName(QUEUE_NAME);
+        AndesMessage message = new AndesMessage(metadata);
+
+        AndesMessagePart messagePart = new AndesMessagePart();
+        messagePart.setMessageID(messageId);
+        messagePart.setOffSet(0);
+        messagePart.setData(createContent(messageId));
+        messagePart.setDataLength(CONTENT_LENGTH);
+        message.addMessagePart(messagePart);
+        return message;
+    }
+
+    private static byte[] createContent(long messageId) {
+        byte[] content = new byte[CONTENT_LENGTH];
+        Arrays.fill(content, (byte) messageId);
+        return content;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link LogSegment}
+ * Tests writing records and recovering them from the segment file
+ */
+public class LogSegmentTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("andes-log-segment").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Records appended to a segment should be read back in order on recovery, both from the segment file and from
+     * the memory mapping once sealed
+     */
+    @Test
+    public void testAppendAndRecover() throws IOException, AndesException {
+        LogSegment segment = LogSegment.create(directory, 3);
+        segment.append(createRecords(10).flip());
+        long size = segment.getSize();
+        segment.close();
+
+        LogSegment reopened = LogSegment.open(new File(directory, LogSegment.fileName(3)));
+        assertEquals(3, reopened.getId());
+
+        RecordCollector collector = new RecordCollector();
+        assertEquals(size, reopened.recover(collector));
+        assertEquals(10, collector.messageIds.size());
+
+        reopened.seal();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (long) collector.messageIds.get(i));
+            byte[] content = reopened.read(collector.contentPositions.get(i), i + 1);
+            assertArrayEquals(createContent(i), content);
+        }
+        reopened.close();
+    }
+
+    /**
+     * Recovery should stop at a record which was partially written
+     */
+    @Test
+    public void testRecoverIncompleteRecord() throws IOException, AndesException {
+        LogSegment segment = LogSegment.create(directory, 0);
+        segment.append(createRecords(5).flip());
+        long validSize = segment.getSize();
+        segment.append(createRecords(1).flip());
+        segment.close();
+
+        File file = new File(directory, LogSegment.fileName(0));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(randomAccessFile.length() - 3);
+        randomAccessFile.close();
+
+        LogSegment reopened = LogSegment.open(file);
+        RecordCollector collector = new RecordCollector();
+        assertEquals(validSize, reopened.recover(collector));
+        assertEquals(5, collector.messageIds.size());
+        reopened.close();
+    }
+
+    private LogRecordBuffer createRecords(int count) {
+        LogRecordBuffer records = new LogRecordBuffer(16);
+        for (int i = 0; i < count; i++) {
+            records.beginRecord(FileStoreConstants.RECORD_MESSAGE_PART);
+            records.putLong(i);
+            records.putBytes(createContent(i));
+            records.endRecord();
+        }
+        return records;
+    }
+
+    private byte[] createContent(int messageId) {
+        byte[] content = new byte[messageId + 1];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (messageId + i);
+        }
+        return content;
+    }
+
+    /**
+     * Collects message ids and content positions of the visited records
+     */
+    private static class RecordCollector implements LogSegment.RecordVisitor {
+
+        private final List<Long> messageIds = new ArrayList<>();
+
+        private final List<Long> contentPositions = new ArrayList<>();
+
+        @Override
+        public void visit(LogSegment segment, byte type, ByteBuffer payload, long payloadPosition) {
+            messageIds.add(payload.getLong());
+            payload.getInt();
+            contentPositions.add(payloadPosition + payload.position());
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.server.store.MessageMetaDataType;
+import org.wso2.andes.store.AndesBatchUpdateException;
+import org.wso2.andes.store.SkeletonAndesMessageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MessageJournal}
+ * Tests writing journaled messages to the message store when the store fails and replaying them on recovery
+ */
+public class MessageJournalTest {
+
+    private static final String QUEUE_NAME = "journalTestQueue";
+
+    private static final long WAIT_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private File directory;
+
+    private TestMessageStore messageStore;
+
+    private List<MessageJournal> journals;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("andes-message-journal").toFile();
+        messageStore = new TestMessageStore();
+        journals = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (MessageJournal journal : journals) {
+            journal.close();
+        }
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Journaled messages should not be written to the message store before the journal is started and the safe
+     * zone should be kept below them
+     */
+    @Test
+    public void testLowestPendingMessageId() throws AndesException {
+        TestMessageJournal journal = createJournal(10);
+        assertEquals(Long.MAX_VALUE, journal.getLowestPendingMessageId());
+
+        journal.append(Arrays.asList(createMessage(12), createMessage(15)));
+        journal.append(Arrays.asList(createMessage(8), createMessage(20)));
+        assertEquals(8, journal.getLowestPendingMessageId());
+        assertTrue(messageStore.storedMessages.isEmpty());
+
+        journal.start();
+        journal.waitForStoredMessages(4);
+        assertEquals(Long.MAX_VALUE, journal.getLowestPendingMessageId());
+    }
+
+    /**
+     * If only a part of a batch is written, remaining messages should be written individually without writing
+     * the stored ones again
+     */
+    @Test
+    public void testPartialBatchFailure() throws AndesException {
+        messageStore.failNextBatch = true;
+        TestMessageJournal journal = createJournal(10);
+        journal.append(Arrays.asList(createMessage(1), createMessage(2), createMessage(3), createMessage(4)));
+        journal.start();
+
+        journal.waitForStoredMessages(4);
+        assertEquals(4, messageStore.storedMessages.size());
+        for (long messageId = 1; messageId <= 4; messageId++) {
+            assertEquals(1, (int) messageStore.storeCounts.get(messageId));
+        }
+        assertEquals(Long.MAX_VALUE, journal.getLowestPendingMessageId());
+    }
+
+    /**
+     * Messages which could not be written to the message store should stay in the journal and be written on
+     * recovery. Messages already in the store should not be replayed.
+     */
+    @Test
+    public void testUnstoredMessagesReplayedOnRecovery() throws AndesException {
+        messageStore.failingMessageId = 3;
+        TestMessageJournal journal = createJournal(2);
+        journal.append(Arrays.asList(createMessage(1), createMessage(2)));
+        journal.append(Arrays.asList(createMessage(3), createMessage(4)));
+        journal.start();
+
+        journal.waitForStoredMessages(2);
+        assertEquals(3, journal.getLowestPendingMessageId());
+        journal.close();
+        assertEquals(2, journal.storedMessageIds.size());
+        assertTrue(!messageStore.storedMessages.containsKey(3L));
+
+        messageStore.failingMessageId = -1;
+        TestMessageJournal recoveredJournal = createJournal(2);
+        assertEquals(3, recoveredJournal.getLowestPendingMessageId());
+        recoveredJournal.start();
+
+        recoveredJournal.waitForStoredMessages(2);
+        assertEquals(Arrays.asList(3L, 4L), recoveredJournal.storedMessageIds);
+        assertEquals(4, messageStore.storedMessages.size());
+        assertEquals(1, (int) messageStore.storeCounts.get(1L));
+        assertEquals(QUEUE_NAME, messageStore.storedMessages.get(4L).getStorageQueueName());
+    }
+
+    private TestMessageJournal createJournal(int flushBatchSize) throws AndesException {
+        TestMessageJournal journal = new TestMessageJournal(directory, flushBatchSize, messageStore);
+        journal.recover();
+        journals.add(journal);
+        return journal;
+    }
+
+    /**
+     * Create a message with MQTT metadata so that it can be decoded when recovered from the journal
+     */
+    private AndesMessage createMessage(long messageId) {
+        String metadataString = "MQTT?MessageID=" + messageId + ",Topic=false,Persistant=true,"
+                + "MessageContentLength=4,QOSLevel=1,ArrivalTime=0,Destination=" + QUEUE_NAME;
+        byte[] encodedString = metadataString.getBytes(StandardCharsets.UTF_8);
+        byte[] metadataBytes = new byte[encodedString.length + 1];
+        metadataBytes[0] = (byte) MessageMetaDataType.META_DATA_MQTT.ordinal();
+        System.arraycopy(encodedString, 0, metadataBytes, 1, encodedString.length);
+
+        AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, false);
+        metadata.setStorageQueueName(QUEUE_NAME);
+        AndesMessage message = new AndesMessage(metadata);
+
+        AndesMessagePart messagePart = new AndesMessagePart();
+        messagePart.setMessageID(messageId);
+        messagePart.setOffSet(0);
+        messagePart.setData(new byte[] { 1, 2, 3, 4 });
+        messagePart.setDataLength(4);
+        message.addMessagePart(messagePart);
+        return message;
+    }
+
+    /**
+     * Journal recording messages reported as written to the message store instead of updating slots
+     */
+    private static class TestMessageJournal extends MessageJournal {
+
+        private final List<Long> storedMessageIds = new CopyOnWriteArrayList<>();
+
+        private TestMessageJournal(File directory, int flushBatchSize, TestMessageStore messageStore) {
+            super(directory, 1024 * 1024, flushBatchSize, 100, messageStore);
+        }
+
+        @Override
+        protected void onMessagesStored(List<AndesMessage> messages) {
+            for (AndesMessage message : messages) {
+                storedMessageIds.add(message.getMetadata().getMessageID());
+            }
+        }
+
+        private void waitForStoredMessages(int count) {
+            long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+            while (storedMessageIds.size() < count && System.currentTimeMillis() < deadline) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            assertEquals(count, storedMessageIds.size());
+        }
+    }
+
+    /**
+     * Message store keeping metadata in memory which can be made to fail writes
+     */
+    private static class TestMessageStore extends SkeletonAndesMessageStore {
+
+        private final Map<Long, AndesMessageMetadata> storedMessages = new ConcurrentHashMap<>();
+
+        private final Map<Long, Integer> storeCounts = new ConcurrentHashMap<>();
+
+        /**
+         * When set, the next write of more than one message stores only the first message and fails
+         */
+        private volatile boolean failNextBatch;
+
+        /**
+         * Writes including the message with this id fail without storing any message
+         */
+        private volatile long failingMessageId = -1;
+
+        @Override
+        public void storeMessages(List<AndesMessage> messageList) throws AndesException {
+            for (AndesMessage message : messageList) {
+                if (message.getMetadata().getMessageID() == failingMessageId) {
+                    throw new AndesException("Message store is not available");
+                }
+            }
+
+            if (failNextBatch && messageList.size() > 1) {
+                failNextBatch = false;
+                store(messageList.get(0));
+                throw new AndesBatchUpdateException("Batch insert failed", "", null,
+                        messageList.subList(1, messageList.size()), Collections.singletonList(messageList.get(0)));
+            }
+
+            for (AndesMessage message : messageList) {
+                store(message);
+            }
+        }
+
+        @Override
+        public AndesMessageMetadata getMetadata(long messageId) throws AndesException {
+            return storedMessages.get(messageId);
+        }
+
+        private void store(AndesMessage message) {
+            long messageId = message.getMetadata().getMessageID();
+            storedMessages.put(messageId, message.getMetadata());
+            Integer count = storeCounts.get(messageId);
+            storeCounts.put(messageId, (null == count) ? 1 : count + 1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Test;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link BulkInsert} and {@link BulkInsertDialect} against embedded H2 and Derby databases
+ */
+public class BulkInsertTest {
+
+    private static final String INSERT_CONTENT = "INSERT INTO " + RDBMSConstants.CONTENT_TABLE + " ("
+            + RDBMSConstants.MESSAGE_ID + "," + RDBMSConstants.MSG_OFFSET + "," + RDBMSConstants.MESSAGE_CONTENT
+            + ") VALUES (?, ?, ?)";
+
+    private static final int ROW_COUNT = 250;
+
+    /**
+     * Rows should be inserted with multi row statements, including a partial last statement
+     */
+    @Test
+    public void testMultiRowInsertOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("bulkInsert");
+        try {
+            assertBulkInsert(connection, BulkInsertDialect.MULTI_ROW_VALUES, 100);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Rows should be inserted with multi row statements, including a partial last statement
+     */
+    @Test
+    public void testMultiRowInsertOnDerby() throws Exception {
+        Connection connection = RDBMSTestDatabase.createDerby("bulkInsert");
+        try {
+            assertBulkInsert(connection, BulkInsertDialect.MULTI_ROW_VALUES, 100);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Rows should be inserted with a JDBC batch when multi row statements are disabled
+     */
+    @Test
+    public void testBatchInsertOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("batchInsert");
+        try {
+            assertBulkInsert(connection, BulkInsertDialect.MULTI_ROW_VALUES, 1);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * A failing multi row statement should be reported as a batch failure
+     */
+    @Test
+    public void testDuplicateRowOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("duplicateRow");
+        try {
+            addMessages(connection, 2);
+            BulkInsert bulkInsert = new BulkInsert(INSERT_CONTENT, BulkInsertDialect.MULTI_ROW_VALUES, 100);
+            bulkInsert.addRow(1L, 0, new byte[]{1});
+            bulkInsert.addRow(1L, 0, new byte[]{2});
+            bulkInsert.execute(connection);
+            fail("Inserting a duplicate row should fail");
+        } catch (BatchUpdateException e) {
+            // expected
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Dialect should be resolved from the JDBC URL
+     */
+    @Test
+    public void testDialectFromJdbcUrl() {
+        assertEquals(BulkInsertDialect.MULTI_ROW_VALUES, BulkInsertDialect.fromJdbcUrl("jdbc:h2:mem:andes"));
+        assertEquals(BulkInsertDialect.MULTI_ROW_VALUES,
+                BulkInsertDialect.fromJdbcUrl("jdbc:mysql://localhost:3306/andes"));
+        assertEquals(BulkInsertDialect.JDBC_BATCH,
+                BulkInsertDialect.fromJdbcUrl("jdbc:mysql://localhost:3306/andes?rewriteBatchedStatements=true"));
+        assertEquals(BulkInsertDialect.MSSQL_MULTI_ROW_VALUES,
+                BulkInsertDialect.fromJdbcUrl("jdbc:sqlserver://localhost:1433;databaseName=andes"));
+        assertEquals(BulkInsertDialect.JDBC_BATCH,
+                BulkInsertDialect.fromJdbcUrl("jdbc:oracle:thin:@localhost:1521:andes"));
+
+        // SQL Server allows at most 2100 parameters in a statement
+        assertEquals(666, BulkInsertDialect.MSSQL_MULTI_ROW_VALUES.getRowsPerStatement(3, 1000));
+        assertEquals(1, BulkInsertDialect.JDBC_BATCH.getRowsPerStatement(3, 1000));
+    }
+
+    private void assertBulkInsert(Connection connection, BulkInsertDialect dialect, int rowsPerStatement)
+            throws SQLException {
+        assertEquals(dialect, BulkInsertDialect.fromJdbcUrl(connection.getMetaData().getURL()));
+        addMessages(connection, ROW_COUNT);
+
+        BulkInsert bulkInsert = new BulkInsert(INSERT_CONTENT, dialect, rowsPerStatement);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            bulkInsert.addRow((long) i, 0, new byte[]{(byte) i});
+        }
+        bulkInsert.execute(connection);
+
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT " + RDBMSConstants.MESSAGE_ID + ","
+                + RDBMSConstants.MESSAGE_CONTENT + " FROM " + RDBMSConstants.CONTENT_TABLE + " ORDER BY "
+                + RDBMSConstants.MESSAGE_ID);
+        int rowCount = 0;
+        while (resultSet.next()) {
+            assertEquals(rowCount, resultSet.getLong(1));
+            assertArrayEquals(new byte[]{(byte) rowCount}, resultSet.getBytes(2));
+            rowCount++;
+        }
+        statement.close();
+        assertEquals(ROW_COUNT, rowCount);
+    }
+
+    /**
+     * Add metadata of the messages content rows are inserted for
+     */
+    private void addMessages(Connection connection, int count) throws SQLException {
+        int queueId = RDBMSTestDatabase.addQueue(connection, "queue");
+        for (long messageId = 0; messageId < count; messageId++) {
+            RDBMSTestDatabase.addMetadata(connection, messageId, queueId, -1);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the forward only metadata reads prepared by {@link RDBMSStoreUtils} for the message store and the
+ * batched content read following them when a queue is browsed, against embedded H2 and Derby databases
+ */
+public class MetadataReadStatementTest {
+
+    /**
+     * Fetch size smaller than the page size, so that pages are fetched from the database in several round trips
+     */
+    private static final int FETCH_SIZE = 3;
+
+    private static final int PAGE_SIZE = 4;
+
+    private static final int MESSAGE_COUNT = 10;
+
+    private RDBMSStoreUtils storeUtils;
+
+    private Connection connection;
+
+    private int queueId;
+
+    private int dlcQueueId;
+
+    @Before
+    public void setUp() {
+        storeUtils = new RDBMSStoreUtils(new ConfigurationProperties());
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Next N reads should return at most N rows, so that a queue is browsed page by page
+     */
+    @Test
+    public void testQueuePagedOnH2() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createH2("metadataPaging"));
+        assertQueuePaged();
+    }
+
+    /**
+     * Next N reads should return at most N rows, so that a queue is browsed page by page
+     */
+    @Test
+    public void testQueuePagedOnDerby() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createDerby("metadataPaging"));
+        assertQueuePaged();
+    }
+
+    /**
+     * Next N reads from the dead letter channel should return at most N rows
+     */
+    @Test
+    public void testDLCPagedOnH2() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createH2("dlcPaging"));
+        assertDLCPaged();
+    }
+
+    /**
+     * Next N reads from the dead letter channel should return at most N rows
+     */
+    @Test
+    public void testDLCPagedOnDerby() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createDerby("dlcPaging"));
+        assertDLCPaged();
+    }
+
+    /**
+     * Slot range reads are not limited by a row count and should return the whole range
+     */
+    @Test
+    public void testRangeReadUnlimitedOnH2() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createH2("metadataRange"));
+        assertRangeReadUnlimited();
+    }
+
+    /**
+     * Slot range reads are not limited by a row count and should return the whole range
+     */
+    @Test
+    public void testRangeReadUnlimitedOnDerby() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createDerby("metadataRange"));
+        assertRangeReadUnlimited();
+    }
+
+    /**
+     * Content of all the messages of a browsed page should be read by one statement once the metadata is read
+     */
+    @Test
+    public void testBrowsedContentReadInBatchOnH2() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createH2("browsedContent"));
+        assertBrowsedContentReadInBatch();
+    }
+
+    /**
+     * Content of all the messages of a browsed page should be read by one statement once the metadata is read
+     */
+    @Test
+    public void testBrowsedContentReadInBatchOnDerby() throws Exception {
+        connection = createDatabase(RDBMSTestDatabase.createDerby("browsedContent"));
+        assertBrowsedContentReadInBatch();
+    }
+
+    /**
+     * Add {@link #MESSAGE_COUNT} messages to the queue with ids 1 to {@link #MESSAGE_COUNT}, messages of another
+     * queue in between and messages of the queue in the dead letter channel after them
+     */
+    private Connection createDatabase(Connection connection) throws SQLException {
+        queueId = RDBMSTestDatabase.addQueue(connection, "queue");
+        int otherQueueId = RDBMSTestDatabase.addQueue(connection, "otherQueue");
+        dlcQueueId = RDBMSTestDatabase.addQueue(connection, "DeadLetterChannel");
+        for (long messageId = 1; messageId <= MESSAGE_COUNT; messageId++) {
+            RDBMSTestDatabase.addMetadata(connection, messageId, queueId, -1);
+            RDBMSTestDatabase.addMetadata(connection, messageId + 100, otherQueueId, -1);
+            RDBMSTestDatabase.addMetadata(connection, messageId + 200, queueId, dlcQueueId);
+        }
+        return connection;
+    }
+
+    private void assertQueuePaged() throws SQLException {
+        List<List<Long>> pages = new ArrayList<>();
+        long nextMessageId = 0;
+        List<Long> page;
+        do {
+            PreparedStatement preparedStatement = storeUtils.prepareMetadataReadStatement(connection,
+                    RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE, PAGE_SIZE, FETCH_SIZE);
+            assertEquals(PAGE_SIZE, preparedStatement.getMaxRows());
+            assertEquals(FETCH_SIZE, preparedStatement.getFetchSize());
+            // Browsing continues from the message after the last one read, as done by the queue browser
+            preparedStatement.setLong(1, nextMessageId);
+            preparedStatement.setInt(2, queueId);
+            page = readMessageIds(preparedStatement);
+            assertTrue("Page of " + page.size() + " messages", page.size() <= PAGE_SIZE);
+            if (!page.isEmpty()) {
+                pages.add(page);
+                nextMessageId = page.get(page.size() - 1);
+            }
+        } while (!page.isEmpty());
+
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L, 4L), Arrays.asList(5L, 6L, 7L, 8L),
+                Arrays.asList(9L, 10L)), pages);
+
+        // Fetch size is not larger than the number of rows read
+        PreparedStatement preparedStatement = storeUtils.prepareMetadataReadStatement(connection,
+                RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE, 2, FETCH_SIZE);
+        assertEquals(2, preparedStatement.getFetchSize());
+        preparedStatement.setLong(1, 0);
+        preparedStatement.setInt(2, queueId);
+        assertEquals(Arrays.asList(1L, 2L), readMessageIds(preparedStatement));
+    }
+
+    private void assertDLCPaged() throws SQLException {
+        PreparedStatement preparedStatement = storeUtils.prepareMetadataReadStatement(connection,
+                RDBMSConstants.PS_SELECT_METADATA_IN_DLC, PAGE_SIZE, FETCH_SIZE);
+        preparedStatement.setLong(1, 202);
+        preparedStatement.setInt(2, dlcQueueId);
+        assertEquals(Arrays.asList(203L, 204L, 205L, 206L), readMessageIds(preparedStatement));
+
+        preparedStatement = storeUtils.prepareMetadataReadStatement(connection,
+                RDBMSConstants.PS_SELECT_METADATA_IN_DLC, PAGE_SIZE, FETCH_SIZE);
+        preparedStatement.setLong(1, 208);
+        preparedStatement.setInt(2, dlcQueueId);
+        assertEquals(Arrays.asList(209L, 210L), readMessageIds(preparedStatement));
+    }
+
+    private void assertRangeReadUnlimited() throws SQLException {
+        PreparedStatement preparedStatement = storeUtils.prepareMetadataReadStatement(connection,
+                RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE, 0, FETCH_SIZE);
+        assertEquals(0, preparedStatement.getMaxRows());
+        assertEquals(FETCH_SIZE, preparedStatement.getFetchSize());
+        preparedStatement.setInt(1, queueId);
+        preparedStatement.setLong(2, 2);
+        preparedStatement.setLong(3, 105);
+        assertEquals(Arrays.asList(2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), readMessageIds(preparedStatement));
+    }
+
+    private void assertBrowsedContentReadInBatch() throws SQLException {
+        for (long messageId = 1; messageId <= MESSAGE_COUNT; messageId++) {
+            addContent(messageId, 0);
+            addContent(messageId, 1);
+        }
+
+        PreparedStatement preparedStatement = storeUtils.prepareMetadataReadStatement(connection,
+                RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE, PAGE_SIZE, FETCH_SIZE);
+        preparedStatement.setLong(1, 4);
+        preparedStatement.setInt(2, queueId);
+        List<Long> page = readMessageIds(preparedStatement);
+
+        // Metadata cursor is closed before content is read
+        preparedStatement = connection.prepareStatement(storeUtils.getSelectContentPreparedStmt(
+                RDBMSConstants.PS_SELECT_CONTENT_PART, page.size()));
+        for (int i = 0; i < page.size(); i++) {
+            preparedStatement.setLong(i + 1, page.get(i));
+        }
+        Map<Long, Integer> partCounts = new LinkedHashMap<>();
+        ResultSet resultSet = preparedStatement.executeQuery();
+        while (resultSet.next()) {
+            long messageId = resultSet.getLong(RDBMSConstants.MESSAGE_ID);
+            Integer partCount = partCounts.get(messageId);
+            partCounts.put(messageId, (null == partCount) ? 1 : partCount + 1);
+        }
+        preparedStatement.close();
+
+        assertEquals(Arrays.asList(5L, 6L, 7L, 8L), page);
+        assertEquals(page.size(), partCounts.size());
+        for (long messageId : page) {
+            assertEquals("Content parts of message " + messageId, Integer.valueOf(2), partCounts.get(messageId));
+        }
+    }
+
+    private void addContent(long messageId, int offset) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_MESSAGE_PART);
+        preparedStatement.setLong(1, messageId);
+        preparedStatement.setInt(2, offset);
+        preparedStatement.setBytes(3, new byte[]{(byte) offset});
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    /**
+     * Read the message ids of the metadata rows selected by the statement, and close the statement
+     */
+    private List<Long> readMessageIds(PreparedStatement preparedStatement) throws SQLException {
+        List<Long> messageIds = new ArrayList<>();
+        ResultSet resultSet = preparedStatement.executeQuery();
+        while (resultSet.next()) {
+            messageIds.add(resultSet.getLong(RDBMSConstants.MESSAGE_ID));
+        }
+        preparedStatement.close();
+        return messageIds;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link QueuePartitionDialect} against embedded H2 and Derby databases
+ */
+public class QueuePartitionDialectTest {
+
+    private int retiredQueueId;
+
+    private int liveQueueId;
+
+    private int retiredDlcQueueId;
+
+    /**
+     * Rows of a retired queue partition up to its purge point should be removed in batches without touching other
+     * partitions
+     */
+    @Test
+    public void testRemoveRetiredPartitionOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("partitions");
+        try {
+            assertBatchedRemoval(connection, QueuePartitionDialect.H2);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Rows of a retired queue partition up to its purge point should be removed in batches without touching other
+     * partitions
+     */
+    @Test
+    public void testRemoveRetiredPartitionOnDerby() throws Exception {
+        Connection connection = RDBMSTestDatabase.createDerby("partitions");
+        try {
+            assertBatchedRemoval(connection, QueuePartitionDialect.DERBY);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Databases without a dialect should not be supported
+     */
+    @Test
+    public void testUnsupportedDatabase() {
+        assertNull(QueuePartitionDialect.fromDatabaseProductName("HSQL Database Engine"));
+        assertEquals(QueuePartitionDialect.MYSQL, QueuePartitionDialect.fromDatabaseProductName("MySQL"));
+    }
+
+    /**
+     * Messages written to a retired partition after its purge point should be moved to the new partition of the
+     * queue while older messages stay in the retired partition
+     */
+    @Test
+    public void testMessagesAfterPurgePointMovedOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("purgePoint");
+        try {
+            addQueues(connection);
+            long messageId = insertMessages(connection, 0, 10, retiredQueueId, -1);
+
+            PreparedStatement preparedStatement =
+                    connection.prepareStatement(RDBMSConstants.PS_SELECT_MAX_MESSAGE_ID_OF_PARTITION);
+            preparedStatement.setInt(1, retiredQueueId);
+            preparedStatement.setInt(2, retiredQueueId);
+            ResultSet resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            long purgePoint = resultSet.getLong(1);
+            preparedStatement.close();
+            assertEquals(9, purgePoint);
+
+            // Written by a node not yet aware of the purge
+            insertMessages(connection, messageId, 3, retiredQueueId, -1);
+
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_MOVE_MESSAGES_AFTER_PURGE_POINT);
+            preparedStatement.setInt(1, liveQueueId);
+            preparedStatement.setInt(2, retiredQueueId);
+            preparedStatement.setLong(3, purgePoint);
+            assertEquals(3, preparedStatement.executeUpdate());
+            preparedStatement.close();
+
+            assertEquals(10, countRows(connection, RDBMSConstants.QUEUE_ID, retiredQueueId));
+            assertEquals(3, countRows(connection, RDBMSConstants.QUEUE_ID, liveQueueId));
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void assertBatchedRemoval(Connection connection, QueuePartitionDialect expectedDialect)
+            throws SQLException {
+        QueuePartitionDialect dialect =
+                QueuePartitionDialect.fromDatabaseProductName(connection.getMetaData().getDatabaseProductName());
+        assertEquals(expectedDialect, dialect);
+
+        addQueues(connection);
+        long messageId = 0;
+        messageId = insertMessages(connection, messageId, 25, retiredQueueId, -1);
+        long purgePoint = messageId - 1;
+        messageId = insertMessages(connection, messageId, 5, liveQueueId, -1);
+        messageId = insertMessages(connection, messageId, 12, liveQueueId, retiredDlcQueueId);
+        long dlcPurgePoint = messageId - 1;
+        // Written by a node not yet aware of the purge
+        insertMessages(connection, messageId, 3, retiredQueueId, -1);
+
+        assertEquals(10, dialect.deleteBatch(connection, RDBMSConstants.QUEUE_ID, retiredQueueId, purgePoint, 10));
+        assertEquals(10, dialect.deleteBatch(connection, RDBMSConstants.QUEUE_ID, retiredQueueId, purgePoint, 10));
+        assertEquals(5, dialect.deleteBatch(connection, RDBMSConstants.QUEUE_ID, retiredQueueId, purgePoint, 10));
+        assertEquals(0, dialect.deleteBatch(connection, RDBMSConstants.QUEUE_ID, retiredQueueId, purgePoint, 10));
+        assertEquals(3, countRows(connection, RDBMSConstants.QUEUE_ID, retiredQueueId));
+        assertEquals(17, countRows(connection, RDBMSConstants.QUEUE_ID, liveQueueId));
+
+        assertEquals(10, dialect.deleteBatch(connection, RDBMSConstants.DLC_QUEUE_ID, retiredDlcQueueId,
+                dlcPurgePoint, 10));
+        assertEquals(2, dialect.deleteBatch(connection, RDBMSConstants.DLC_QUEUE_ID, retiredDlcQueueId,
+                dlcPurgePoint, 10));
+        assertEquals(5, countRows(connection, RDBMSConstants.QUEUE_ID, liveQueueId));
+    }
+
+    private void addQueues(Connection connection) throws SQLException {
+        retiredQueueId = RDBMSTestDatabase.addQueue(connection, "retiredQueue");
+        liveQueueId = RDBMSTestDatabase.addQueue(connection, "liveQueue");
+        retiredDlcQueueId = RDBMSTestDatabase.addQueue(connection, "retiredDeadLetterChannel");
+    }
+
+    private long insertMessages(Connection connection, long firstMessageId, int count, int queueId, int dlcQueueId)
+            throws SQLException {
+        long messageId = firstMessageId;
+        for (int i = 0; i < count; i++) {
+            RDBMSTestDatabase.addMetadata(connection, messageId++, queueId, dlcQueueId);
+        }
+        return messageId;
+    }
+
+    private int countRows(Connection connection, String queueColumn, int queueId) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement("SELECT COUNT(*) FROM "
+                + RDBMSConstants.METADATA_TABLE + " WHERE " + queueColumn + "=?");
+        preparedStatement.setInt(1, queueId);
+        ResultSet resultSet = preparedStatement.executeQuery();
+        resultSet.next();
+        int count = resultSet.getInt(1);
+        preparedStatement.close();
+        return count;
+    }
+}
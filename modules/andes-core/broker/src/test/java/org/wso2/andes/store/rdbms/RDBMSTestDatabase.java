@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded H2 and Derby databases created from the dbscripts shipped with the broker, so that statements under test
+ * run against the same schema as a deployed message store
+ */
+final class RDBMSTestDatabase {
+
+    /**
+     * Location of the dbscripts relative to the broker home
+     */
+    private static final String DB_SCRIPTS_DIRECTORY = "etc/dbscripts/mb-store";
+
+    private RDBMSTestDatabase() {
+    }
+
+    /**
+     * Create an in-memory H2 database with the broker schema
+     *
+     * @param name name of the database, unique within the test run
+     * @return connection to the database
+     */
+    static Connection createH2(String name) throws Exception {
+        Class.forName("org.h2.Driver");
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name);
+        runScript(connection, "h2");
+        return connection;
+    }
+
+    /**
+     * Create an in-memory Derby database with the broker schema
+     *
+     * @param name name of the database, unique within the test run
+     * @return connection to the database
+     */
+    static Connection createDerby(String name) throws Exception {
+        Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+        Connection connection = DriverManager.getConnection("jdbc:derby:memory:" + name + ";create=true");
+        runScript(connection, "derby");
+        return connection;
+    }
+
+    /**
+     * Add a queue to the queue mapping table
+     *
+     * @param connection connection to the database
+     * @param queueName  name of the queue
+     * @return id assigned to the queue
+     */
+    static int addQueue(Connection connection, String queueName) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_QUEUE);
+        preparedStatement.setString(1, queueName);
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_QUEUE_ID);
+        preparedStatement.setString(1, queueName);
+        ResultSet resultSet = preparedStatement.executeQuery();
+        resultSet.next();
+        int queueId = resultSet.getInt(RDBMSConstants.QUEUE_ID);
+        preparedStatement.close();
+        return queueId;
+    }
+
+    /**
+     * Add metadata of a message to the metadata table
+     *
+     * @param connection connection to the database
+     * @param messageId  id of the message
+     * @param queueId    id of the queue the message belongs to
+     * @param dlcQueueId id of the dead letter channel the message is in, -1 if not
+     */
+    static void addMetadata(Connection connection, long messageId, int queueId, int dlcQueueId)
+            throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(
+                "INSERT INTO " + RDBMSConstants.METADATA_TABLE + " ("
+                + RDBMSConstants.MESSAGE_ID + ","
+                + RDBMSConstants.QUEUE_ID + ","
+                + RDBMSConstants.DLC_QUEUE_ID + ","
+                + RDBMSConstants.METADATA + ")"
+                + " VALUES (?,?,?,?)");
+        preparedStatement.setLong(1, messageId);
+        preparedStatement.setInt(2, queueId);
+        preparedStatement.setInt(3, dlcQueueId);
+        preparedStatement.setBytes(4, new byte[]{(byte) messageId});
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    /**
+     * Run each statement of the dbscript of the given database
+     */
+    private static void runScript(Connection connection, String database) throws IOException, SQLException {
+        File script = new File(new File(System.getProperty("QPID_HOME"), DB_SCRIPTS_DIRECTORY),
+                database + "-mb.sql");
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(script), StandardCharsets.UTF_8));
+        Statement statement = connection.createStatement();
+        try {
+            StringBuilder sql = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("--")) {
+                    continue;
+                }
+                if (line.endsWith(";")) {
+                    sql.append(line, 0, line.length() - 1);
+                    statement.execute(sql.toString());
+                    sql.setLength(0);
+                } else {
+                    sql.append(line).append(' ');
+                }
+            }
+        } finally {
+            statement.close();
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the statements removing shared content and metadata no longer referred by any message, against
+ * embedded H2 and Derby databases
+ */
+public class SharedContentCleanupStatementTest {
+
+    private static final long REFERENCED_CONTENT_ID = 1;
+
+    private static final long UNREFERENCED_CONTENT_ID = 2;
+
+    /**
+     * Only content and metadata without a content reference should be removed
+     */
+    @Test
+    public void testUnreferencedSharedContentRemovedOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("sharedContentCleanup");
+        try {
+            assertUnreferencedSharedContentRemoved(connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Only content and metadata without a content reference should be removed
+     */
+    @Test
+    public void testUnreferencedSharedContentRemovedOnDerby() throws Exception {
+        Connection connection = RDBMSTestDatabase.createDerby("sharedContentCleanup");
+        try {
+            assertUnreferencedSharedContentRemoved(connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void assertUnreferencedSharedContentRemoved(Connection connection) throws SQLException {
+        int queueId = RDBMSTestDatabase.addQueue(connection, "queue");
+        int otherQueueId = RDBMSTestDatabase.addQueue(connection, "otherQueue");
+        // Content of two chunks is referred by two copies of a message. All copies of the other message are deleted
+        for (long contentId : Arrays.asList(REFERENCED_CONTENT_ID, UNREFERENCED_CONTENT_ID)) {
+            insertContent(connection, contentId, 0);
+            insertContent(connection, contentId, 1);
+            insertSharedMetadata(connection, contentId);
+        }
+        RDBMSTestDatabase.addMetadata(connection, 10, queueId, -1);
+        RDBMSTestDatabase.addMetadata(connection, 11, otherQueueId, -1);
+        insertContentReference(connection, 10, REFERENCED_CONTENT_ID);
+        insertContentReference(connection, 11, REFERENCED_CONTENT_ID);
+
+        PreparedStatement preparedStatement = connection.prepareStatement(
+                RDBMSConstants.PS_DELETE_UNREFERENCED_SHARED_CONTENT);
+        assertEquals(2, preparedStatement.executeUpdate());
+        preparedStatement.close();
+
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_UNREFERENCED_SHARED_METADATA);
+        assertEquals(1, preparedStatement.executeUpdate());
+        preparedStatement.close();
+
+        assertEquals(Arrays.asList(REFERENCED_CONTENT_ID, REFERENCED_CONTENT_ID),
+                readContentIds(connection, RDBMSConstants.SHARED_CONTENT_TABLE));
+        assertEquals(Arrays.asList(REFERENCED_CONTENT_ID),
+                readContentIds(connection, RDBMSConstants.SHARED_METADATA_TABLE));
+
+        // Nothing is removed while the content is referred
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_UNREFERENCED_SHARED_CONTENT);
+        assertEquals(0, preparedStatement.executeUpdate());
+        preparedStatement.close();
+    }
+
+    private void insertContent(Connection connection, long contentId, int offset) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(
+                RDBMSConstants.PS_INSERT_SHARED_MESSAGE_PART);
+        preparedStatement.setLong(1, contentId);
+        preparedStatement.setInt(2, offset);
+        preparedStatement.setBytes(3, new byte[]{(byte) offset});
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    private void insertSharedMetadata(Connection connection, long contentId) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_SHARED_METADATA);
+        preparedStatement.setLong(1, contentId);
+        preparedStatement.setBytes(2, new byte[]{(byte) contentId});
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    private void insertContentReference(Connection connection, long messageId, long contentId) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_CONTENT_REFERENCE);
+        preparedStatement.setLong(1, messageId);
+        preparedStatement.setLong(2, contentId);
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    private List<Long> readContentIds(Connection connection, String tableName) throws SQLException {
+        List<Long> contentIds = new ArrayList<>();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT " + RDBMSConstants.CONTENT_ID + " FROM " + tableName
+                + " ORDER BY " + RDBMSConstants.CONTENT_ID);
+        while (resultSet.next()) {
+            contentIds.add(resultSet.getLong(RDBMSConstants.CONTENT_ID));
+        }
+        statement.close();
+        return contentIds;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the statements reading metadata shared among the copies of a message, against embedded H2 and
+ * Derby databases
+ */
+public class SharedMetadataStatementTest {
+
+    private static final long CONTENT_ID = 1;
+
+    private static final String SHARED_METADATA = "shared";
+
+    private static final String OWN_METADATA = "own";
+
+    /**
+     * Copies without metadata of their own should be read with the shared metadata on all read paths
+     */
+    @Test
+    public void testSharedMetadataReadOnH2() throws Exception {
+        Connection connection = RDBMSTestDatabase.createH2("sharedMetadata");
+        try {
+            assertSharedMetadataRead(connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Copies without metadata of their own should be read with the shared metadata on all read paths
+     */
+    @Test
+    public void testSharedMetadataReadOnDerby() throws Exception {
+        Connection connection = RDBMSTestDatabase.createDerby("sharedMetadata");
+        try {
+            assertSharedMetadataRead(connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void assertSharedMetadataRead(Connection connection) throws SQLException {
+        int queueId = RDBMSTestDatabase.addQueue(connection, "queue");
+        int otherQueueId = RDBMSTestDatabase.addQueue(connection, "otherQueue");
+        int dlcQueueId = RDBMSTestDatabase.addQueue(connection, "DeadLetterChannel");
+        // Copies of a message routed to two queues sharing the metadata. Copy 3 is moved to DLC, which rewrites
+        // its metadata. Message 4 is not shared
+        insertMetadata(connection, 1, queueId, -1, "");
+        insertMetadata(connection, 2, otherQueueId, -1, "");
+        insertMetadata(connection, 3, otherQueueId, dlcQueueId, OWN_METADATA);
+        insertMetadata(connection, 4, queueId, -1, OWN_METADATA);
+        insertContentReference(connection, 1);
+        insertContentReference(connection, 2);
+        insertContentReference(connection, 3);
+
+        PreparedStatement preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_SHARED_METADATA);
+        preparedStatement.setLong(1, CONTENT_ID);
+        preparedStatement.setBytes(2, SHARED_METADATA.getBytes(StandardCharsets.UTF_8));
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_SHARED_METADATA);
+        preparedStatement.setLong(1, 2);
+        assertEquals(Arrays.asList("2:" + SHARED_METADATA), readMetadata(preparedStatement));
+
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_SHARED_METADATA_RANGE_FROM_QUEUE);
+        preparedStatement.setInt(1, queueId);
+        preparedStatement.setLong(2, 1);
+        preparedStatement.setLong(3, 10);
+        assertEquals(Arrays.asList("1:" + SHARED_METADATA, "4:" + OWN_METADATA), readMetadata(preparedStatement));
+
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_SHARED_METADATA_FROM_QUEUE);
+        preparedStatement.setLong(1, 0);
+        preparedStatement.setInt(2, otherQueueId);
+        assertEquals(Arrays.asList("2:" + SHARED_METADATA), readMetadata(preparedStatement));
+
+        // Metadata of the copy takes precedence over the shared metadata
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_SHARED_METADATA_IN_DLC_FOR_QUEUE);
+        preparedStatement.setLong(1, 0);
+        preparedStatement.setInt(2, otherQueueId);
+        preparedStatement.setInt(3, dlcQueueId);
+        assertEquals(Arrays.asList("3:" + OWN_METADATA), readMetadata(preparedStatement));
+
+        preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_SHARED_METADATA_IN_DLC);
+        preparedStatement.setLong(1, 0);
+        preparedStatement.setInt(2, dlcQueueId);
+        assertEquals(Arrays.asList("3:" + OWN_METADATA), readMetadata(preparedStatement));
+    }
+
+    private void insertMetadata(Connection connection, long messageId, int queueId, int dlcQueueId, String metadata)
+            throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement("INSERT INTO "
+                + RDBMSConstants.METADATA_TABLE + " ("
+                + RDBMSConstants.MESSAGE_ID + ","
+                + RDBMSConstants.QUEUE_ID + ","
+                + RDBMSConstants.DLC_QUEUE_ID + ","
+                + RDBMSConstants.METADATA + ")"
+                + " VALUES (?,?,?,?)");
+        preparedStatement.setLong(1, messageId);
+        preparedStatement.setInt(2, queueId);
+        preparedStatement.setInt(3, dlcQueueId);
+        preparedStatement.setBytes(4, metadata.getBytes(StandardCharsets.UTF_8));
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    private void insertContentReference(Connection connection, long messageId) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(RDBMSConstants.PS_INSERT_CONTENT_REFERENCE);
+        preparedStatement.setLong(1, messageId);
+        preparedStatement.setLong(2, CONTENT_ID);
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+    }
+
+    /**
+     * Read metadata the way the message store resolves it, as "messageId:metadata" entries
+     */
+    private List<String> readMetadata(PreparedStatement preparedStatement) throws SQLException {
+        List<String> metadataList = new ArrayList<>();
+        ResultSet resultSet = preparedStatement.executeQuery();
+        while (resultSet.next()) {
+            byte[] metadata = resultSet.getBytes(RDBMSConstants.METADATA);
+            if (null == metadata || metadata.length == 0) {
+                metadata = resultSet.getBytes(RDBMSConstants.SHARED_METADATA);
+            }
+            metadataList.add(resultSet.getLong(RDBMSConstants.MESSAGE_ID) + ":"
+                    + new String(metadata, StandardCharsets.UTF_8));
+        }
+        preparedStatement.close();
+        return metadataList;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.thrift;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.thrift.slot.gen.SlotInfo;
+import org.wso2.andes.thrift.slot.gen.SlotManagementService;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for slot batches sent as framed requests to a non-blocking thrift server, the way
+ * {@link MBThriftClient} talks to {@link MBThriftServer} when the non-blocking server is enabled
+ */
+public class SlotBatchRoundTripTest {
+
+    private static final String NODE_ID = "node-a";
+
+    private static final int SO_TIMEOUT = 10000;
+
+    private RecordingSlotManagementService slotManagementService;
+
+    private TNonblockingServerSocket serverSocket;
+
+    private TServer server;
+
+    private List<TTransport> transports;
+
+    @Before
+    public void setUp() throws Exception {
+        slotManagementService = new RecordingSlotManagementService();
+        serverSocket = new TNonblockingServerSocket(new InetSocketAddress("localhost", 0));
+        TThreadedSelectorServer.Args args = new TThreadedSelectorServer.Args(serverSocket).selectorThreads(1)
+                .workerThreads(2);
+        args.processor(new SlotManagementService.Processor<>(slotManagementService))
+                .protocolFactory(new TBinaryProtocol.Factory());
+        server = new TThreadedSelectorServer(args);
+
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        long deadline = System.currentTimeMillis() + SO_TIMEOUT;
+        while (!server.isServing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Thrift server did not start", server.isServing());
+        transports = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (TTransport transport : transports) {
+            transport.close();
+        }
+        server.stop();
+        serverSocket.close();
+    }
+
+    /**
+     * Message id updates and slot requests of a batch should reach the handler and the assigned slots should come
+     * back in the requested order
+     */
+    @Test
+    public void testSlotBatchRoundTrip() throws TException {
+        List<SlotInfo> updates = Arrays.asList(createSlotInfo("q1", 1, 10), createSlotInfo("q2", 11, 20));
+
+        List<SlotInfo> slots = connect().processSlotBatch(NODE_ID, updates, Arrays.asList("q2", "q1"), 5);
+
+        assertEquals(Arrays.asList(NODE_ID + ":q1:1-10", NODE_ID + ":q2:11-20"),
+                slotManagementService.recordedUpdates);
+        assertEquals(2, slots.size());
+        assertEquals("q2", slots.get(0).getQueueName());
+        assertEquals("q1", slots.get(1).getQueueName());
+        assertEquals(5, slotManagementService.lastLocalSafeZone);
+    }
+
+    /**
+     * A failed batch should surface as an exception on the client, and retrying it resends every update of the
+     * batch. Updates recorded before the failure are therefore received again by the coordinator.
+     */
+    @Test
+    public void testFailedBatchResentAsWhole() throws TException {
+        List<SlotInfo> updates = Arrays.asList(createSlotInfo("q1", 1, 10), createSlotInfo("q2", 11, 20));
+        slotManagementService.failAfterUpdates = 1;
+
+        try {
+            connect().processSlotBatch(NODE_ID, updates, Collections.<String>emptyList(), 5);
+            fail("Failure of the batch was not reported to the client");
+        } catch (TException e) {
+            assertEquals(Collections.singletonList(NODE_ID + ":q1:1-10"), slotManagementService.recordedUpdates);
+        }
+
+        connect().processSlotBatch(NODE_ID, updates, Collections.<String>emptyList(), 5);
+        assertEquals(Arrays.asList(NODE_ID + ":q1:1-10", NODE_ID + ":q1:1-10", NODE_ID + ":q2:11-20"),
+                slotManagementService.recordedUpdates);
+    }
+
+    /**
+     * Open a client over a new framed connection
+     */
+    private SlotManagementService.Client connect() throws TException {
+        TTransport transport = new TFramedTransport(new TSocket("localhost", serverSocket.getPort(), SO_TIMEOUT));
+        transport.open();
+        transports.add(transport);
+        return new SlotManagementService.Client(new TBinaryProtocol(transport));
+    }
+
+    private static SlotInfo createSlotInfo(String queueName, long startMessageId, long endMessageId) {
+        SlotInfo slotInfo = new SlotInfo();
+        slotInfo.setQueueName(queueName);
+        slotInfo.setStartMessageId(startMessageId);
+        slotInfo.setEndMessageId(endMessageId);
+        return slotInfo;
+    }
+
+    /**
+     * Slot management service recording message id updates as "node:queue:start-end" entries. Can be set to fail a
+     * batch after recording some of its updates, like a coordinator failing part way through a batch.
+     */
+    private static class RecordingSlotManagementService implements SlotManagementService.Iface {
+
+        private final List<String> recordedUpdates = new CopyOnWriteArrayList<>();
+
+        private volatile long lastLocalSafeZone;
+
+        /**
+         * Number of updates recorded before the next batch fails. Negative if batches do not fail
+         */
+        private volatile int failAfterUpdates = -1;
+
+        @Override
+        public List<SlotInfo> processSlotBatch(String nodeId, List<SlotInfo> messageIdUpdates,
+                                               List<String> slotRequests, long localSafeZone) throws TException {
+            for (int i = 0; i < messageIdUpdates.size(); i++) {
+                if (i == failAfterUpdates) {
+                    failAfterUpdates = -1;
+                    throw new TException("Failed to update message ids for nodeId: " + nodeId);
+                }
+                SlotInfo update = messageIdUpdates.get(i);
+                recordedUpdates.add(nodeId + ":" + update.getQueueName() + ":" + update.getStartMessageId() + "-"
+                        + update.getEndMessageId());
+            }
+            lastLocalSafeZone = localSafeZone;
+
+            List<SlotInfo> slots = new ArrayList<>(slotRequests.size());
+            for (String queueName : slotRequests) {
+                slots.add(getSlotInfo(queueName, nodeId));
+            }
+            return slots;
+        }
+
+        @Override
+        public SlotInfo getSlotInfo(String queueName, String nodeId) {
+            SlotInfo slotInfo = new SlotInfo();
+            slotInfo.setQueueName(queueName);
+            slotInfo.setAssignedNodeId(nodeId);
+            return slotInfo;
+        }
+
+        @Override
+        public void updateMessageId(String queueName, String nodeId, long startMessageId, long endMessageId,
+                                    long localSafeZone) {
+        }
+
+        @Override
+        public boolean deleteSlot(String queueName, SlotInfo slotInfo, String nodeId) {
+            return true;
+        }
+
+        @Override
+        public void reAssignSlotWhenNoSubscribers(String nodeId, String queueName) {
+        }
+
+        @Override
+        public long updateCurrentMessageIdForSafeZone(long messageId, String nodeId) {
+            return messageId;
+        }
+
+        @Override
+        public void clearAllActiveSlotRelationsToQueue(String queueName) {
+        }
+    }
+}
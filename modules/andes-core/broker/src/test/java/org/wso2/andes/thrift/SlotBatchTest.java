@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.thrift;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.cluster.ClusterAgent;
+import org.wso2.andes.server.cluster.ClusterManager;
+import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test class for {@link SlotBatch}
+ */
+public class SlotBatchTest {
+
+    private static final InetSocketAddress NODE_A = InetSocketAddress.createUnresolved("node-a", 7611);
+
+    private static final InetSocketAddress NODE_B = InetSocketAddress.createUnresolved("node-b", 7611);
+
+    /**
+     * Message id updates and slot requests should be sent to the slot coordinator of their queue, keeping the
+     * position of each slot request
+     */
+    @Test
+    public void testGroupBySlotCoordinator() {
+        Map<String, InetSocketAddress> owners = new HashMap<>();
+        owners.put("q1", NODE_A);
+        owners.put("q2", NODE_B);
+        owners.put("q3", NODE_A);
+
+        List<SlotBatch> batches = new ArrayList<>(SlotBatch.groupBySlotCoordinator("node1",
+                Arrays.asList(createSlot(1, 10, "q1"), createSlot(11, 20, "q2"), createSlot(21, 30, "q3")),
+                Arrays.asList("q2", "q3", "q1"), new StubClusterAgent(owners)));
+
+        assertEquals(2, batches.size());
+
+        SlotBatch batchOfA = batches.get(0);
+        assertEquals("q1", batchOfA.queueName);
+        assertEquals(2, batchOfA.messageIdUpdates.size());
+        assertEquals("q1", batchOfA.messageIdUpdates.get(0).getQueueName());
+        assertEquals("node1", batchOfA.messageIdUpdates.get(0).getAssignedNodeId());
+        assertEquals(21, batchOfA.updatedSlots.get(1).getStartMessageId());
+        assertEquals(Arrays.asList("q3", "q1"), batchOfA.slotRequests);
+        assertEquals(Arrays.asList(1, 2), batchOfA.requestPositions);
+
+        SlotBatch batchOfB = batches.get(1);
+        assertEquals("q2", batchOfB.queueName);
+        assertEquals(1, batchOfB.messageIdUpdates.size());
+        assertEquals(Collections.singletonList("q2"), batchOfB.slotRequests);
+        assertEquals(Collections.singletonList(0), batchOfB.requestPositions);
+    }
+
+    /**
+     * After a slot coordinator leaves, its queues should be sent to the node taking them over
+     */
+    @Test
+    public void testRegroupAfterHandover() {
+        Map<String, InetSocketAddress> owners = new HashMap<>();
+        owners.put("q1", NODE_A);
+        owners.put("q2", NODE_B);
+        StubClusterAgent clusterAgent = new StubClusterAgent(owners);
+        List<Slot> updates = Arrays.asList(createSlot(1, 10, "q1"), createSlot(11, 20, "q2"));
+
+        assertEquals(2, SlotBatch.groupBySlotCoordinator("node1", updates,
+                Collections.<String>emptyList(), clusterAgent).size());
+
+        owners.put("q2", NODE_A);
+        Iterator<SlotBatch> batches = SlotBatch.groupBySlotCoordinator("node1", updates,
+                Collections.<String>emptyList(), clusterAgent).iterator();
+        assertEquals(2, batches.next().updatedSlots.size());
+        assertFalse(batches.hasNext());
+    }
+
+    /**
+     * Queues without a known slot coordinator should be kept together in one batch
+     */
+    @Test
+    public void testUnknownSlotCoordinator() {
+        Map<String, InetSocketAddress> owners = new HashMap<>();
+        owners.put("q1", NODE_A);
+
+        List<SlotBatch> batches = new ArrayList<>(SlotBatch.groupBySlotCoordinator("node1",
+                Arrays.asList(createSlot(1, 10, "q2"), createSlot(11, 20, "q1")),
+                Collections.singletonList("q3"), new StubClusterAgent(owners)));
+
+        assertEquals(2, batches.size());
+        assertEquals("q2", batches.get(0).queueName);
+        assertEquals(Collections.singletonList("q3"), batches.get(0).slotRequests);
+        assertEquals(1, batches.get(1).updatedSlots.size());
+    }
+
+    private static Slot createSlot(long start, long end, String queueName) {
+        Slot slot = new Slot(start, end, queueName);
+        slot.setStorageQueueName(queueName);
+        return slot;
+    }
+
+    /**
+     * Cluster agent giving a fixed slot coordinator for each queue
+     */
+    private static class StubClusterAgent implements ClusterAgent {
+
+        private final Map<String, InetSocketAddress> slotCoordinators;
+
+        StubClusterAgent(Map<String, InetSocketAddress> slotCoordinators) {
+            this.slotCoordinators = slotCoordinators;
+        }
+
+        @Override
+        public List<String> getAllClusterNodeAddresses() throws AndesException {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getAllNodeIdentifiers() throws AndesException {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getLocalNodeIdentifier() {
+            return "node1";
+        }
+
+        @Override
+        public int getUniqueIdForLocalNode() {
+            return 0;
+        }
+
+        @Override
+        public boolean isCoordinator() {
+            return false;
+        }
+
+        @Override
+        public InetSocketAddress getThriftAddressOfCoordinator() {
+            return NODE_A;
+        }
+
+        @Override
+        public boolean isSlotCoordinatorOf(String queueName) {
+            return false;
+        }
+
+        @Override
+        public InetSocketAddress getThriftAddressOfSlotCoordinator(String queueName) {
+            return slotCoordinators.get(queueName);
+        }
+
+        @Override
+        public Lock getSlotCoordinationLock(String queueName) {
+            return null;
+        }
+
+        @Override
+        public void start(ClusterManager manager) throws AndesException {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void addNetworkPartitionListener(int priority, NetworkPartitionListener listener) {
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.thrift;
+
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link ThriftClientPool}
+ */
+public class ThriftClientPoolTest {
+
+    private static final int POOL_SIZE = 2;
+
+    private static final InetSocketAddress COORDINATOR = InetSocketAddress.createUnresolved("node-a", 7611);
+
+    private static final InetSocketAddress NEW_COORDINATOR = InetSocketAddress.createUnresolved("node-b", 7611);
+
+    /**
+     * Transports opened by the pool, in order
+     */
+    private List<RecordingTransport> transports;
+
+    /**
+     * Connections to the coordinators are refused while false
+     */
+    private volatile boolean reachable;
+
+    private ThriftClientPool clientPool;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        transports = new CopyOnWriteArrayList<>();
+        reachable = true;
+        clientPool = new ThriftClientPool(POOL_SIZE, new ThriftClientPool.TransportFactory() {
+            @Override
+            public TTransport open(InetSocketAddress address) throws TTransportException {
+                if (!reachable) {
+                    throw new TTransportException("Connection refused");
+                }
+                RecordingTransport transport = new RecordingTransport();
+                transports.add(transport);
+                return transport;
+            }
+        });
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * A returned client should be reused by the next call instead of opening a new connection
+     */
+    @Test
+    public void testIdleClientReused() throws Exception {
+        ThriftClientPool.PooledClient pooledClient = clientPool.borrowClient(COORDINATOR);
+        clientPool.returnClient(pooledClient);
+        assertEquals(1, clientPool.getIdleClientCount(COORDINATOR));
+
+        assertSame(pooledClient, clientPool.borrowClient(COORDINATOR));
+        assertEquals(0, clientPool.getIdleClientCount(COORDINATOR));
+        assertEquals(1, transports.size());
+        assertFalse(transports.get(0).closed);
+    }
+
+    /**
+     * Calls should wait while the pool size number of clients of a coordinator are borrowed, and continue once one
+     * of them is returned
+     */
+    @Test
+    public void testBorrowedClientsLimitedToPoolSize() throws Exception {
+        ThriftClientPool.PooledClient firstClient = clientPool.borrowClient(COORDINATOR);
+        clientPool.borrowClient(COORDINATOR);
+
+        Future<ThriftClientPool.PooledClient> waitingCall = borrowInBackground(COORDINATOR);
+        try {
+            waitingCall.get(200, TimeUnit.MILLISECONDS);
+            fail("Borrowing more clients than the pool size should wait");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        clientPool.returnClient(firstClient);
+        assertSame(firstClient, waitingCall.get(5, TimeUnit.SECONDS));
+        assertEquals(2, transports.size());
+    }
+
+    /**
+     * Closing a client, as done when a call fails, should release its permit without keeping the connection
+     */
+    @Test
+    public void testClosedClientReleasesPermit() throws Exception {
+        for (int i = 0; i < POOL_SIZE + 1; i++) {
+            clientPool.closeClient(clientPool.borrowClient(COORDINATOR));
+        }
+        assertEquals(POOL_SIZE + 1, transports.size());
+        for (RecordingTransport transport : transports) {
+            assertTrue(transport.closed);
+        }
+        assertEquals(0, clientPool.getIdleClientCount(COORDINATOR));
+    }
+
+    /**
+     * A failed connection attempt should not hold a permit
+     */
+    @Test
+    public void testFailedConnectionReleasesPermit() throws Exception {
+        reachable = false;
+        for (int i = 0; i < POOL_SIZE + 1; i++) {
+            try {
+                clientPool.borrowClient(COORDINATOR);
+                fail("Connecting to an unreachable coordinator should fail");
+            } catch (TTransportException e) {
+                // expected
+            }
+        }
+
+        reachable = true;
+        clientPool.borrowClient(COORDINATOR);
+        assertEquals(COORDINATOR, borrowInBackground(COORDINATOR).get(5, TimeUnit.SECONDS).getAddress());
+    }
+
+    /**
+     * A reconnect to a new coordinator should take a permit of the new coordinator, so that calls to the old one
+     * are neither blocked by it nor allowed to exceed the pool size
+     */
+    @Test
+    public void testReconnectTakesPermitOfConnectedCoordinator() throws Exception {
+        ThriftClientPool.PooledClient firstClient = clientPool.borrowClient(COORDINATOR);
+        clientPool.borrowClient(COORDINATOR);
+
+        ThriftClientPool.PooledClient reconnectedClient = clientPool.connectClient(NEW_COORDINATOR);
+        assertEquals(NEW_COORDINATOR, reconnectedClient.getAddress());
+        clientPool.connectClient(NEW_COORDINATOR);
+
+        Future<ThriftClientPool.PooledClient> waitingCall = borrowInBackground(NEW_COORDINATOR);
+        try {
+            waitingCall.get(200, TimeUnit.MILLISECONDS);
+            fail("Permits of the new coordinator should be taken by the reconnected clients");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        // Returning a client of the old coordinator does not free a permit of the new one
+        clientPool.returnClient(firstClient);
+        try {
+            waitingCall.get(200, TimeUnit.MILLISECONDS);
+            fail("Permits of the new coordinator should be taken by the reconnected clients");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        clientPool.returnClient(reconnectedClient);
+        assertSame(reconnectedClient, waitingCall.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Idle clients should be closed when the coordinator changes, and clients borrowed before that should be
+     * closed when returned
+     */
+    @Test
+    public void testResetClosesClientsOfOldGeneration() throws Exception {
+        ThriftClientPool.PooledClient idleClient = clientPool.borrowClient(COORDINATOR);
+        ThriftClientPool.PooledClient borrowedClient = clientPool.borrowClient(COORDINATOR);
+        clientPool.returnClient(idleClient);
+
+        clientPool.resetClients();
+        assertTrue(transports.get(0).closed);
+        assertEquals(0, clientPool.getIdleClientCount(COORDINATOR));
+
+        clientPool.returnClient(borrowedClient);
+        assertTrue(transports.get(1).closed);
+        assertEquals(0, clientPool.getIdleClientCount(COORDINATOR));
+
+        // Connections opened after the reset are pooled
+        ThriftClientPool.PooledClient newClient = clientPool.borrowClient(COORDINATOR);
+        assertNotSame(idleClient, newClient);
+        assertNotSame(borrowedClient, newClient);
+        clientPool.returnClient(newClient);
+        assertEquals(1, clientPool.getIdleClientCount(COORDINATOR));
+        assertFalse(transports.get(2).closed);
+    }
+
+    /**
+     * Clients of a node which left the cluster should be closed, including the ones borrowed at the moment once
+     * they are returned
+     */
+    @Test
+    public void testRemovedNodeClientsClosed() throws Exception {
+        ThriftClientPool.PooledClient idleClient = clientPool.borrowClient(COORDINATOR);
+        ThriftClientPool.PooledClient borrowedClient = clientPool.borrowClient(COORDINATOR);
+        clientPool.returnClient(idleClient);
+
+        clientPool.removeClients(COORDINATOR);
+        assertTrue(transports.get(0).closed);
+
+        clientPool.returnClient(borrowedClient);
+        assertTrue(transports.get(1).closed);
+        assertEquals(0, clientPool.getIdleClientCount(COORDINATOR));
+    }
+
+    private Future<ThriftClientPool.PooledClient> borrowInBackground(final InetSocketAddress address) {
+        return executorService.submit(new Callable<ThriftClientPool.PooledClient>() {
+            @Override
+            public ThriftClientPool.PooledClient call() throws Exception {
+                return clientPool.borrowClient(address);
+            }
+        });
+    }
+
+    /**
+     * In memory transport recording whether it is closed
+     */
+    private static class RecordingTransport extends TMemoryBuffer {
+
+        private volatile boolean closed;
+
+        private RecordingTransport() {
+            super(16);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}